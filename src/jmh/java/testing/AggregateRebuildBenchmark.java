@@ -0,0 +1,121 @@
+package testing;
+
+import com.hltech.store.AggregateRepository;
+import com.hltech.store.DummyAggregate;
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.EventStore;
+import com.hltech.store.InMemoryEventStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import testing.prerequisites.EventStorePerfTestsPreparation;
+import testing.prerequisites.EventsTestData;
+import testing.prerequisites.PreloadedEventStore;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Measures cost of applying events to the aggregate alone (events are already in memory)
+ * and together with reading them from the database, as well as rebuilding many aggregates sequentially and in parallel.
+ */
+public class AggregateRebuildBenchmark {
+
+    private static final String AGGREGATE_NAME = "DummyAggregate";
+
+    @State(Scope.Benchmark)
+    public static class PreloadedRepositoryTestData {
+
+        @Param({"1", "100", "1000"})
+        public int streamLength;
+
+        UUID aggregateId;
+        AggregateRepository<DummyAggregate, DummyBaseEvent> repository;
+
+        @Setup(Level.Trial)
+        public void setupRepository() {
+            aggregateId = UUID.randomUUID();
+            repository = repository(new PreloadedEventStore(EventsTestData.stream(aggregateId, streamLength, 0)));
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class DatabaseRepositoryTestData {
+
+        @Param({"1", "100", "1000"})
+        public int streamLength;
+
+        UUID aggregateId;
+        AggregateRepository<DummyAggregate, DummyBaseEvent> repository;
+
+        @Setup(Level.Trial)
+        public void setupRepository(EventStorePerfTestsPreparation preparation) {
+            aggregateId = UUID.randomUUID();
+            EventsTestData.stream(aggregateId, streamLength, 0).forEach(event -> preparation.getEventStore().save(event, AGGREGATE_NAME));
+            repository = repository(preparation.getEventStore());
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class ManyAggregatesTestData {
+
+        @Param({"10000"})
+        public int aggregates;
+
+        @Param({"10"})
+        public int streamLength;
+
+        /**
+         * Zero rebuilds aggregates sequentially.
+         */
+        @Param({"0", "4"})
+        public int parallelism;
+
+        AggregateRepository<DummyAggregate, DummyBaseEvent> repository;
+
+        @Setup(Level.Trial)
+        public void setupRepository() {
+            InMemoryEventStore<DummyBaseEvent> eventStore =
+                    new InMemoryEventStore<>(DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR);
+            for (int aggregate = 0; aggregate < aggregates; aggregate++) {
+                EventsTestData.stream(UUID.randomUUID(), streamLength, 0).forEach(event -> eventStore.save(event, AGGREGATE_NAME));
+            }
+            repository = repository(eventStore);
+        }
+
+    }
+
+    @Benchmark
+    public Optional<DummyAggregate> rebuildFromLoadedEvents(PreloadedRepositoryTestData testData) {
+        return testData.repository.find(testData.aggregateId);
+    }
+
+    @Benchmark
+    public Optional<DummyAggregate> loadAndRebuild(DatabaseRepositoryTestData testData) {
+        return testData.repository.find(testData.aggregateId);
+    }
+
+    @Benchmark
+    public List<DummyAggregate> rebuildAllAggregates(ManyAggregatesTestData testData) {
+        return testData.parallelism == 0
+                ? testData.repository.findAll()
+                : testData.repository.findAll(testData.parallelism);
+    }
+
+    private static AggregateRepository<DummyAggregate, DummyBaseEvent> repository(EventStore<DummyBaseEvent> eventStore) {
+        return new AggregateRepository<>(
+                eventStore,
+                AGGREGATE_NAME,
+                DummyAggregate::new,
+                DummyAggregate::apply,
+                DummyAggregate::applyVersion
+        );
+    }
+
+}
@@ -0,0 +1,92 @@
+package testing;
+
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.EventStore;
+import com.hltech.store.EventStoreOptions;
+import com.hltech.store.PostgresStreamLocking;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import testing.prerequisites.ConnectionUsageDataSource;
+import testing.prerequisites.EventStorePerfTestsPreparation;
+import testing.prerequisites.EventsTestData;
+import testing.prerequisites.SkewedAggregatesTestData;
+
+import java.util.UUID;
+
+/**
+ * Measures saves done concurrently by all benchmark threads when writes are skewed towards few hot aggregates.
+ * Use {@code -p skew=...} and {@code -p aggregates=...} to model the contention of your workload.
+ *
+ * <p>Sample time mode reports p99 of a save. Peak and mean number of connections held at the same time
+ * are reported as secondary results, compare them with {@code -p localWriteStripes=0,64}.
+ * Stream locking mode is used only by PostgreSQL, run with {@code -p streamLocking=ROW_LOCK} on other databases.
+ */
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+
+    private static final String AGGREGATE_NAME = "DummyAggregate";
+
+    @Param({"0", "1024"})
+    public int payloadSize;
+
+    @Param({"0", "64"})
+    public int localWriteStripes;
+
+    @Param({"ROW_LOCK", "ADVISORY_LOCK"})
+    public PostgresStreamLocking streamLocking;
+
+    private ConnectionUsageDataSource connectionUsage;
+    private EventStore<DummyBaseEvent> eventStore;
+
+    @Setup(Level.Trial)
+    public void setupEventStore(EventStorePerfTestsPreparation preparation) {
+        eventStore = preparation.createEventStore(
+                dataSource -> connectionUsage = new ConnectionUsageDataSource(dataSource),
+                EventStoreOptions.builder()
+                        .localWriteStripes(localWriteStripes)
+                        .postgresStreamLocking(streamLocking)
+                        .build()
+        );
+    }
+
+    @Setup(Level.Iteration)
+    public void resetConnectionUsage() {
+        connectionUsage.reset();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    public void saveWithContentionSkew(SkewedAggregatesTestData aggregates, ConnectionUsageCounters counters) {
+        UUID aggregateId = aggregates.getRandomAggregateId();
+        eventStore.save(EventsTestData.event(aggregateId, payloadSize), AGGREGATE_NAME);
+    }
+
+    /**
+     * Connection usage of the iteration, reported by JMH next to the score. JMH sums counters of all threads,
+     * so usage of the whole pool is reported by the first thread that finishes the iteration, others report zero.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ConnectionUsageCounters {
+
+        public long peakHeldConnections;
+        public double meanHeldConnections;
+
+        @TearDown(Level.Iteration)
+        public void collect(ContentionBenchmark benchmark) {
+            boolean reporter = benchmark.connectionUsage.claimReport();
+            peakHeldConnections = reporter ? benchmark.connectionUsage.getPeakHeldConnections() : 0;
+            meanHeldConnections = reporter ? benchmark.connectionUsage.getMeanHeldConnections() : 0;
+        }
+
+    }
+
+}
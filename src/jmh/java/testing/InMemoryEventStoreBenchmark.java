@@ -0,0 +1,53 @@
+package testing;
+
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.DummyEvent;
+import com.hltech.store.InMemoryEventStore;
+import com.hltech.store.versioning.DummyVersioningStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import testing.prerequisites.SkewedAggregatesTestData;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Measures in memory event store with and without serialization done by the versioning strategy.
+ */
+@State(Scope.Benchmark)
+public class InMemoryEventStoreBenchmark {
+
+    private static final String AGGREGATE_NAME = "DummyAggregate";
+
+    @Param({"false", "true"})
+    public boolean serialize;
+
+    private InMemoryEventStore<DummyBaseEvent> eventStore;
+    private UUID readAggregateId;
+
+    @Setup(Level.Iteration)
+    public void setupEventStore() {
+        eventStore = serialize
+                ? new InMemoryEventStore<>(DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR, new DummyVersioningStrategy())
+                : new InMemoryEventStore<>(DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR);
+        readAggregateId = UUID.randomUUID();
+        for (int num = 0; num < 100; num++) {
+            eventStore.save(new DummyEvent(readAggregateId), AGGREGATE_NAME);
+        }
+    }
+
+    @Benchmark
+    public void save(SkewedAggregatesTestData aggregates) {
+        eventStore.save(new DummyEvent(aggregates.getRandomAggregateId()), AGGREGATE_NAME);
+    }
+
+    @Benchmark
+    public List<DummyBaseEvent> findAll() {
+        return eventStore.findAll(readAggregateId, AGGREGATE_NAME);
+    }
+
+}
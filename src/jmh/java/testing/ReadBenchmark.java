@@ -0,0 +1,73 @@
+package testing;
+
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.EventStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import testing.prerequisites.EventStorePerfTestsPreparation;
+import testing.prerequisites.EventsTestData;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Measures every find operation against single stream of given length.
+ * Aggregate name is unique for the stream, so find by aggregate name reads exactly the same events.
+ */
+public class ReadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StreamTestData {
+
+        @Param({"1", "100", "1000"})
+        public int streamLength;
+
+        @Param({"0", "1024"})
+        public int payloadSize;
+
+        UUID aggregateId;
+        String aggregateName;
+        DummyBaseEvent lastEvent;
+
+        @Setup(Level.Trial)
+        public void saveStream(EventStorePerfTestsPreparation preparation) {
+            aggregateId = UUID.randomUUID();
+            aggregateName = UUID.randomUUID().toString();
+            List<DummyBaseEvent> events = EventsTestData.stream(aggregateId, streamLength, payloadSize);
+            EventStore<DummyBaseEvent> eventStore = preparation.getEventStore();
+            events.forEach(event -> eventStore.save(event, aggregateName));
+            lastEvent = events.get(events.size() - 1);
+        }
+
+    }
+
+    @Benchmark
+    public List<DummyBaseEvent> findAllByAggregateIdAndAggregateName(EventStorePerfTestsPreparation preparation, StreamTestData stream) {
+        return preparation.getEventStore().findAll(stream.aggregateId, stream.aggregateName);
+    }
+
+    @Benchmark
+    public List<DummyBaseEvent> findAllByAggregateId(EventStorePerfTestsPreparation preparation, StreamTestData stream) {
+        return preparation.getEventStore().findAll(stream.aggregateId);
+    }
+
+    @Benchmark
+    public List<DummyBaseEvent> findAllByAggregateName(EventStorePerfTestsPreparation preparation, StreamTestData stream) {
+        return preparation.getEventStore().findAll(stream.aggregateName);
+    }
+
+    @Benchmark
+    public List<DummyBaseEvent> findAllToEvent(EventStorePerfTestsPreparation preparation, StreamTestData stream) {
+        return preparation.getEventStore().findAllToEvent(stream.lastEvent, stream.aggregateName);
+    }
+
+    @Benchmark
+    public boolean contains(EventStorePerfTestsPreparation preparation, StreamTestData stream) {
+        return preparation.getEventStore().contains(stream.lastEvent, stream.aggregateName);
+    }
+
+}
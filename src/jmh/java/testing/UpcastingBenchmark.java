@@ -0,0 +1,64 @@
+package testing;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.DummyEvent;
+import com.hltech.store.versioning.UpcastingBasedVersioning;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import testing.prerequisites.EventsTestData;
+
+import java.util.UUID;
+
+/**
+ * Measures decoding of events saved in the first version, when the latest version is given number of hops away.
+ * Every hop renames one attribute, so the difference between results divided by number of hops is the cost per hop,
+ * while 0 hops is the cost of binding the latest version straight from json.
+ */
+@State(Scope.Benchmark)
+public class UpcastingBenchmark {
+
+    private static final String EVENT_NAME = "DummyEvent";
+    private static final String ATTRIBUTE = "optionalAttribute";
+
+    @Param({"0", "1", "4", "16"})
+    public int hops;
+
+    @Param({"0", "1024"})
+    public int payloadSize;
+
+    private UpcastingBasedVersioning<DummyBaseEvent> versioningStrategy;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setupStrategy() {
+        versioningStrategy = new UpcastingBasedVersioning<>();
+        versioningStrategy.registerEvent(DummyEvent.class, EVENT_NAME, hops + 1);
+        for (int version = 1; version <= hops; version++) {
+            String fromAttribute = attribute(version);
+            String toAttribute = version == hops ? ATTRIBUTE : attribute(version + 1);
+            versioningStrategy.registerUpcaster(EVENT_NAME, version, eventJson -> renamed(eventJson, fromAttribute, toAttribute));
+        }
+        String latestJson = versioningStrategy.toJson(EventsTestData.event(UUID.randomUUID(), payloadSize));
+        json = hops == 0 ? latestJson : latestJson.replace(ATTRIBUTE, attribute(1));
+    }
+
+    @Benchmark
+    public DummyBaseEvent decode() {
+        return versioningStrategy.toEvent(json, EVENT_NAME, 1);
+    }
+
+    private static String attribute(int version) {
+        return "attributeV" + version;
+    }
+
+    private static ObjectNode renamed(ObjectNode eventJson, String fromAttribute, String toAttribute) {
+        eventJson.set(toAttribute, eventJson.remove(fromAttribute));
+        return eventJson;
+    }
+
+}
@@ -0,0 +1,97 @@
+package testing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.DummyEvent;
+import com.hltech.store.versioning.EventVersioningStrategy;
+import com.hltech.store.versioning.MappingBasedVersioning;
+import com.hltech.store.versioning.MixedStrategyBasedVersioning;
+import com.hltech.store.versioning.MultipleVersionsBasedVersioning;
+import com.hltech.store.versioning.UpcastingBasedVersioning;
+import com.hltech.store.versioning.WrappingBasedVersioning;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import testing.prerequisites.EventsTestData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * Measures serialization and deserialization done by every versioning strategy.
+ * Run it with {@code -prof gc} to see allocation rate per operation next to the throughput.
+ */
+@State(Scope.Benchmark)
+public class VersioningBenchmark {
+
+    private static final String EVENT_NAME = "DummyEvent";
+    private static final int EVENT_VERSION = 1;
+
+    @Param({"mapping", "mixed", "multipleVersions", "upcasting", "wrapping"})
+    public String strategy;
+
+    @Param({"0", "1024", "16384"})
+    public int payloadSize;
+
+    private EventVersioningStrategy<DummyBaseEvent> versioningStrategy;
+    private DummyBaseEvent event;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setupStrategy() {
+        versioningStrategy = createStrategy(strategy);
+        event = EventsTestData.event(UUID.randomUUID(), payloadSize);
+        json = versioningStrategy.toJson(event);
+    }
+
+    @Benchmark
+    public String encode() {
+        return versioningStrategy.toJson(event);
+    }
+
+    @Benchmark
+    public DummyBaseEvent decode() {
+        return versioningStrategy.toEvent(json, EVENT_NAME, EVENT_VERSION);
+    }
+
+    private static EventVersioningStrategy<DummyBaseEvent> createStrategy(String strategy) {
+        switch (strategy) {
+            case "mapping":
+                MappingBasedVersioning<DummyBaseEvent> mapping = new MappingBasedVersioning<>();
+                mapping.registerEvent(DummyEvent.class, EVENT_NAME);
+                return mapping;
+            case "mixed":
+                MappingBasedVersioning<DummyBaseEvent> delegate = new MappingBasedVersioning<>();
+                delegate.registerEvent(DummyEvent.class, EVENT_NAME);
+                return MixedStrategyBasedVersioning.<DummyBaseEvent>builder()
+                        .registerEvent(DummyEvent.class, EVENT_NAME, delegate)
+                        .build();
+            case "multipleVersions":
+                MultipleVersionsBasedVersioning<DummyBaseEvent> multipleVersions = new MultipleVersionsBasedVersioning<>();
+                multipleVersions.registerEvent(DummyEvent.class, EVENT_NAME, EVENT_VERSION);
+                return multipleVersions;
+            case "upcasting":
+                UpcastingBasedVersioning<DummyBaseEvent> upcasting = new UpcastingBasedVersioning<>();
+                upcasting.registerEvent(DummyEvent.class, EVENT_NAME, EVENT_VERSION);
+                return upcasting;
+            case "wrapping":
+                ObjectMapper objectMapper = new ObjectMapper();
+                WrappingBasedVersioning<DummyBaseEvent> wrapping = new WrappingBasedVersioning<>();
+                wrapping.registerEvent(DummyEvent.class, EVENT_NAME, eventJson -> {
+                    try {
+                        return objectMapper.readValue(eventJson, DummyEvent.class);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                return wrapping;
+            default:
+                throw new IllegalArgumentException("Unsupported versioning strategy: " + strategy);
+        }
+    }
+
+}
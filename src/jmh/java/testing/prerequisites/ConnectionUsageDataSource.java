@@ -0,0 +1,121 @@
+package testing.prerequisites;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Data source that measures how many connections of the wrapped pool are held at the same time.
+ * Mean usage is the total time connections were held divided by the time passed since the last reset.
+ */
+public class ConnectionUsageDataSource implements DataSource {
+
+    private final DataSource dataSource;
+    private final AtomicInteger heldConnections = new AtomicInteger();
+    private final AtomicInteger peakHeldConnections = new AtomicInteger();
+    private final LongAdder holdNanos = new LongAdder();
+    private final AtomicBoolean reported = new AtomicBoolean();
+    private volatile long resetNanos = System.nanoTime();
+
+    public ConnectionUsageDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void reset() {
+        peakHeldConnections.set(heldConnections.get());
+        holdNanos.reset();
+        resetNanos = System.nanoTime();
+        reported.set(false);
+    }
+
+    /**
+     * Returns true only for the first caller since the last reset, so usage is reported once per iteration.
+     */
+    public boolean claimReport() {
+        return reported.compareAndSet(false, true);
+    }
+
+    public int getPeakHeldConnections() {
+        return peakHeldConnections.get();
+    }
+
+    public double getMeanHeldConnections() {
+        return (double) holdNanos.sum() / (System.nanoTime() - resetNanos);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(dataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(dataSource.getConnection(username, password));
+    }
+
+    private Connection track(Connection connection) {
+        long acquiredNanos = System.nanoTime();
+        peakHeldConnections.accumulateAndGet(heldConnections.incrementAndGet(), Math::max);
+        boolean[] closed = {false};
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && !closed[0]) {
+                        closed[0] = true;
+                        heldConnections.decrementAndGet();
+                        holdNanos.add(System.nanoTime() - acquiredNanos);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                }
+        );
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return dataSource.isWrapperFor(iface);
+    }
+
+}
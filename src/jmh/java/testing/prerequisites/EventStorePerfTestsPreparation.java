@@ -0,0 +1,69 @@
+package testing.prerequisites;
+
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.EventStore;
+import com.hltech.store.EventStoreOptions;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Starts event store backed by the database chosen with {@code database} parameter,
+ * so the same scenarios can be measured on every supported database, e.g. {@code -p database=postgres,oracle}.
+ */
+@State(Scope.Benchmark)
+public class EventStorePerfTestsPreparation {
+
+    @Param({"postgres"})
+    public String database;
+
+    private EventStore<DummyBaseEvent> eventStore;
+    private PostgresEventStorePerfTestsPreparation postgres;
+    private OracleEventStorePerfTestsPreparation oracle;
+
+    public EventStore<DummyBaseEvent> getEventStore() {
+        return eventStore;
+    }
+
+    /**
+     * Creates another event store on the chosen database, with given options and data source wrapping the pooled one.
+     */
+    public EventStore<DummyBaseEvent> createEventStore(UnaryOperator<DataSource> dataSourceWrapper, EventStoreOptions options) {
+        return postgres != null
+                ? postgres.createEventStore(dataSourceWrapper, options)
+                : oracle.createEventStore(dataSourceWrapper, options);
+    }
+
+    @Setup(Level.Trial)
+    public void setupDb() throws SQLException, ClassNotFoundException {
+        switch (database) {
+            case "postgres":
+                postgres = new PostgresEventStorePerfTestsPreparation();
+                postgres.setupDb();
+                eventStore = postgres.getEventStore();
+                break;
+            case "oracle":
+                oracle = new OracleEventStorePerfTestsPreparation();
+                oracle.setupDb();
+                eventStore = oracle.getEventStore();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported database: " + database);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDb() {
+        if (oracle != null) {
+            oracle.stopDb();
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package testing.prerequisites;
+
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.DummyEvent;
+import org.apache.commons.lang3.RandomStringUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class EventsTestData {
+
+    private EventsTestData() {
+    }
+
+    /**
+     * Creates event which serialized form is roughly given number of bytes bigger than the event without payload.
+     */
+    public static DummyEvent event(UUID aggregateId, int payloadSize) {
+        DummyEvent event = new DummyEvent(aggregateId);
+        return payloadSize == 0 ? event : event.withOptionalAttribute(RandomStringUtils.randomAlphanumeric(payloadSize));
+    }
+
+    public static List<DummyBaseEvent> stream(UUID aggregateId, int streamLength, int payloadSize) {
+        return IntStream.range(0, streamLength)
+                .mapToObj(num -> event(aggregateId, payloadSize))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,103 @@
+package testing.prerequisites;
+
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.EventStoreOptions;
+import com.hltech.store.OracleEventStore;
+import com.hltech.store.versioning.DummyVersioningStrategy;
+import oracle.jdbc.pool.OracleDataSource;
+import oracle.ucp.jdbc.PoolDataSource;
+import oracle.ucp.jdbc.PoolDataSourceFactory;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.OracleContainer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.UnaryOperator;
+
+@State(Scope.Benchmark)
+public class OracleEventStorePerfTestsPreparation {
+
+    static Logger log = LoggerFactory.getLogger(OracleEventStorePerfTestsPreparation.class);
+    private static final int MAX_POOL_SIZE = 32;
+    private OracleContainer oracleContainer;
+    private PoolDataSource dataSource;
+    OracleEventStore<DummyBaseEvent> eventStore;
+
+    public OracleEventStorePerfTestsPreparation() {
+    }
+
+    public OracleEventStore<DummyBaseEvent> getEventStore() {
+        return eventStore;
+    }
+
+    /**
+     * Creates another event store on the same database, with given options and data source wrapping the pooled one.
+     */
+    public OracleEventStore<DummyBaseEvent> createEventStore(UnaryOperator<DataSource> dataSourceWrapper, EventStoreOptions options) {
+        return new OracleEventStore<>(
+                DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                new DummyVersioningStrategy(),
+                dataSourceWrapper.apply(dataSource),
+                options
+        );
+    }
+
+    @Setup(Level.Trial)
+    public void setupDb() throws SQLException {
+        oracleContainer = new OracleContainer("pvargacl/oracle-xe-18.4.0");
+        oracleContainer.start();
+        log.info("Container Oracle is ready to use");
+        log.info("JDBC: {}", oracleContainer.getJdbcUrl());
+        setupDataSource();
+        migrateDbScripts();
+        setupEventStore();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDb() {
+        oracleContainer.stop();
+    }
+
+    private void setupEventStore() {
+        this.eventStore = new OracleEventStore(
+                DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                new DummyVersioningStrategy(),
+                dataSource
+        );
+    }
+
+    /**
+     * Plain Oracle data source opens a new physical connection for every operation, so connections are pooled by UCP,
+     * like the pooling data source of Postgres benchmarks does.
+     */
+    private void setupDataSource() throws SQLException {
+        dataSource = PoolDataSourceFactory.getPoolDataSource();
+        dataSource.setConnectionFactoryClassName(OracleDataSource.class.getName());
+        dataSource.setUser(oracleContainer.getUsername());
+        dataSource.setPassword(oracleContainer.getPassword());
+        dataSource.setURL(oracleContainer.getJdbcUrl());
+        dataSource.setMaxPoolSize(MAX_POOL_SIZE);
+    }
+
+    private void migrateDbScripts() {
+        Flyway flyway = Flyway
+                .configure()
+                .locations("db/sql-event-store/oracle")
+                .baselineOnMigrate(true)
+                .dataSource(
+                        oracleContainer.getJdbcUrl(),
+                        oracleContainer.getUsername(),
+                        oracleContainer.getPassword())
+                .load();
+        flyway.migrate();
+    }
+}
@@ -1,6 +1,7 @@
 package testing.prerequisites;
 
 import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.EventStoreOptions;
 import com.hltech.store.PostgresEventStore;
 import com.hltech.store.versioning.DummyVersioningStrategy;
 import groovy.sql.Sql;
@@ -14,7 +15,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.containers.PostgreSQLContainer;
 
+import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.function.UnaryOperator;
 
 @State(Scope.Benchmark)
 public class PostgresEventStorePerfTestsPreparation {
@@ -32,6 +35,19 @@ public class PostgresEventStorePerfTestsPreparation {
         return eventStore;
     }
 
+    /**
+     * Creates another event store on the same database, with given options and data source wrapping the pooled one.
+     */
+    public PostgresEventStore<DummyBaseEvent> createEventStore(UnaryOperator<DataSource> dataSourceWrapper, EventStoreOptions options) {
+        return new PostgresEventStore<>(
+                DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                new DummyVersioningStrategy(),
+                dataSourceWrapper.apply(dataSource),
+                options
+        );
+    }
+
     @Setup(Level.Trial)
     public void setupDb() throws SQLException, ClassNotFoundException {
         postgreSQLContainer = new PostgreSQLContainer("postgres:9.6");
@@ -65,7 +81,7 @@ public class PostgresEventStorePerfTestsPreparation {
     private void migrateDbScripts() {
         Flyway flyway = Flyway
                 .configure()
-                .locations("db/migration/postgres")
+                .locations("db/sql-event-store/postgres")
                 .dataSource(
                         postgreSQLContainer.getJdbcUrl(),
                         postgreSQLContainer.getUsername(),
@@ -0,0 +1,115 @@
+package testing.prerequisites;
+
+import com.hltech.store.DummyBaseEvent;
+import com.hltech.store.EventStore;
+import com.hltech.store.PositionedEvent;
+import com.hltech.store.RecordedEvent;
+import com.hltech.store.UnitOfWork;
+import com.hltech.store.versioning.EventVersioningStrategy;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Event store that returns the same preloaded events for every aggregate,
+ * so benchmarks of aggregate rebuild are not affected by the database access.
+ */
+public class PreloadedEventStore implements EventStore<DummyBaseEvent> {
+
+    private final List<DummyBaseEvent> events;
+
+    public PreloadedEventStore(List<DummyBaseEvent> events) {
+        this.events = events;
+    }
+
+    @Override
+    public void save(DummyBaseEvent event, String aggregateName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void save(DummyBaseEvent event, String aggregateName, int expectedAggregateVersion) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void save(UnitOfWork<DummyBaseEvent> unitOfWork) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean contains(DummyBaseEvent event, String aggregateName) {
+        return events.contains(event);
+    }
+
+    @Override
+    public Map<UUID, List<DummyBaseEvent>> findAllGroupByAggregate(String aggregateName) {
+        return Map.of(events.get(0).getAggregateId(), events);
+    }
+
+    @Override
+    public List<DummyBaseEvent> findAll(String aggregateName) {
+        return events;
+    }
+
+    @Override
+    public List<DummyBaseEvent> findAll(UUID aggregateId) {
+        return events;
+    }
+
+    @Override
+    public List<DummyBaseEvent> findAll(UUID aggregateId, String aggregateName) {
+        return events;
+    }
+
+    @Override
+    public List<DummyBaseEvent> findAllToEvent(DummyBaseEvent toEvent, String aggregateName) {
+        return events;
+    }
+
+    @Override
+    public List<PositionedEvent<DummyBaseEvent>> findAllAfterPosition(long position, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long findLastPosition() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<RecordedEvent<DummyBaseEvent>> findAllRecordedBetween(Instant from, Instant to, long afterPosition, int limit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<RecordedEvent<DummyBaseEvent>> findAllByEventName(
+            String eventName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    ) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<RecordedEvent<DummyBaseEvent>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    ) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public EventVersioningStrategy<DummyBaseEvent> getEventVersioningStrategy() {
+        throw new UnsupportedOperationException();
+    }
+
+}
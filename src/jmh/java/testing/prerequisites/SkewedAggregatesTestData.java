@@ -0,0 +1,55 @@
+package testing.prerequisites;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Picks aggregates according to Zipf distribution with exponent given by {@code skew} parameter.
+ * Skew equal to 0 spreads writes evenly across all aggregates, the higher the skew,
+ * the more writes hit the same few hot aggregates and the more threads wait for the same stream lock.
+ */
+@State(Scope.Benchmark)
+public class SkewedAggregatesTestData {
+
+    @Param({"100"})
+    public int aggregates;
+
+    @Param({"0", "1", "2"})
+    public double skew;
+
+    private List<UUID> aggregatesIds;
+    private double[] cumulativeProbabilities;
+
+    @Setup(Level.Trial)
+    public void setupAggregates() {
+        aggregatesIds = IntStream.range(0, aggregates)
+                .mapToObj(num -> UUID.randomUUID())
+                .collect(Collectors.toList());
+        cumulativeProbabilities = new double[aggregates];
+        double sum = 0;
+        for (int rank = 0; rank < aggregates; rank++) {
+            sum += 1 / Math.pow(rank + 1, skew);
+            cumulativeProbabilities[rank] = sum;
+        }
+        for (int rank = 0; rank < aggregates; rank++) {
+            cumulativeProbabilities[rank] /= sum;
+        }
+    }
+
+    public UUID getRandomAggregateId() {
+        int index = Arrays.binarySearch(cumulativeProbabilities, ThreadLocalRandom.current().nextDouble());
+        int rank = index >= 0 ? index : Math.min(-index - 1, aggregates - 1);
+        return aggregatesIds.get(rank);
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.hltech.store;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Events of a single aggregate published by {@link EventStore#publishAllGroupByAggregate(String)}.
+ * Database backed stores decode events only when {@link #decode()} is called, so subscriber can decode
+ * different aggregates on many threads.
+ */
+@RequiredArgsConstructor
+public class AggregateEvents<E> {
+
+    private final Supplier<List<E>> decoder;
+
+    public static <E> AggregateEvents<E> decoded(List<E> events) {
+        return new AggregateEvents<>(() -> events);
+    }
+
+    /**
+     * Returns events of the aggregate in order of occurrence.
+     */
+    public List<E> decode() {
+        return decoder.get();
+    }
+
+}
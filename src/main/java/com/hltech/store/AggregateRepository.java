@@ -1,33 +1,78 @@
 package com.hltech.store;
 
+import com.hltech.store.jfr.ReplayEvent;
+import com.hltech.store.metrics.EventStoreMetrics;
+
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static java.util.stream.Collectors.toList;
 
 public class AggregateRepository<A, E> {
 
+    private static final Executor REBUILD_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "aggregate-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final EventStore<E> eventStore;
     private final String aggregateName;
     private final Supplier<A> initialAggregateStateSupplier;
     private final BiFunction<A, E, A> eventApplier;
     private final BiFunction<A, Integer, A> aggregateVersionApplier;
+    private final EventStoreMetrics metrics;
+
+    private final LongAdder commandExecutions = new LongAdder();
+    private final LongAdder commandConflicts = new LongAdder();
+    private final LongAdder commandRetries = new LongAdder();
+    private final LongAdder commandFailures = new LongAdder();
 
     public AggregateRepository(
             EventStore<E> eventStore,
             String aggregateName,
             Supplier<A> initialAggregateStateSupplier,
             BiFunction<A, E, A> eventApplier,
-            BiFunction<A, Integer, A> aggregateVersionApplier
+            BiFunction<A, Integer, A> aggregateVersionApplier,
+            EventStoreMetrics metrics
     ) {
         this.eventStore = eventStore;
         this.initialAggregateStateSupplier = initialAggregateStateSupplier;
         this.eventApplier = eventApplier;
         this.aggregateName = aggregateName;
         this.aggregateVersionApplier = aggregateVersionApplier;
+        this.metrics = metrics;
+    }
+
+    public AggregateRepository(
+            EventStore<E> eventStore,
+            String aggregateName,
+            Supplier<A> initialAggregateStateSupplier,
+            BiFunction<A, E, A> eventApplier,
+            BiFunction<A, Integer, A> aggregateVersionApplier
+    ) {
+        this(
+                eventStore,
+                aggregateName,
+                initialAggregateStateSupplier,
+                eventApplier,
+                aggregateVersionApplier,
+                EventStoreMetrics.NO_OP
+        );
     }
 
     public AggregateRepository(
@@ -85,6 +130,22 @@ public class AggregateRepository<A, E> {
                 .collect(toList());
     }
 
+    /**
+     * Rebuilds all aggregates like {@link #findAll()}, decoding and applying events of at most given number of aggregates
+     * at a time on a shared executor. Events are read with {@link EventStore#publishAllGroupByAggregate(String)}, so reading
+     * further aggregates overlaps with rebuilding the received ones and events of all aggregates are never decoded at once.
+     * Events of every aggregate are applied by one thread in order of their occurrence and aggregates are returned
+     * in the order they were published, so the result does not depend on thread scheduling.
+     */
+    public List<A> findAll(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        RebuildSubscriber subscriber = new RebuildSubscriber(parallelism);
+        eventStore.publishAllGroupByAggregate(aggregateName).subscribe(subscriber);
+        return subscriber.await();
+    }
+
     public List<E> findAllEvents() {
         return eventStore.findAll(aggregateName);
     }
@@ -93,18 +154,181 @@ public class AggregateRepository<A, E> {
         return eventStore.contains(event, aggregateName);
     }
 
+    public List<E> execute(UUID aggregateId, Function<A, List<E>> command) {
+        return execute(aggregateId, command, CommandRetryPolicy.defaults());
+    }
+
+    /**
+     * Loads the aggregate, runs the command producing its new events and saves them expecting the version
+     * the aggregate was loaded in. Aggregate without events is passed to the command in its initial state,
+     * so commands can create aggregates as well.
+     *
+     * <p>When another event of the aggregate was saved in between, only events newer than the held version are read
+     * and applied, then the command is run again after a random backoff. When the retry policy does not allow
+     * another attempt, {@link OptimisticLockingException} is thrown. Command can be run many times,
+     * so it must not have side effects. Returns saved events.
+     */
+    public List<E> execute(UUID aggregateId, Function<A, List<E>> command, CommandRetryPolicy retryPolicy) {
+        commandExecutions.increment();
+        List<E> events = eventStore.findAll(aggregateId, aggregateName);
+        int aggregateVersion = events.size();
+        A aggregate = apply(initialAggregateStateSupplier.get(), events, aggregateVersion);
+        for (int attempt = 1; ; attempt++) {
+            List<E> newEvents = command.apply(aggregate);
+            try {
+                saveCommandEvents(newEvents, aggregateVersion);
+                return newEvents;
+            } catch (OptimisticLockingException ex) {
+                commandConflicts.increment();
+                if (attempt >= retryPolicy.getMaxAttempts()) {
+                    commandFailures.increment();
+                    throw ex;
+                }
+            }
+            commandRetries.increment();
+            metrics.recordCommandRetry(aggregateName);
+            backoff(aggregateId, retryPolicy, attempt);
+            List<E> missedEvents = eventStore.findAllAfterVersion(aggregateId, aggregateName, aggregateVersion);
+            aggregateVersion += missedEvents.size();
+            aggregate = apply(aggregate, missedEvents, aggregateVersion);
+        }
+    }
+
+    public CommandStats getCommandStats() {
+        return CommandStats.builder()
+                .executions(commandExecutions.sum())
+                .conflicts(commandConflicts.sum())
+                .retries(commandRetries.sum())
+                .failures(commandFailures.sum())
+                .build();
+    }
+
+    /**
+     * Many events of the command are saved as a unit of work, so they are saved all or none of them.
+     */
+    private void saveCommandEvents(List<E> events, int expectedAggregateVersion) {
+        if (events.size() == 1) {
+            eventStore.save(events.get(0), aggregateName, expectedAggregateVersion);
+        } else if (events.size() > 1) {
+            UnitOfWork<E> unitOfWork = new UnitOfWork<>();
+            for (int index = 0; index < events.size(); index++) {
+                unitOfWork.append(events.get(index), aggregateName, expectedAggregateVersion + index);
+            }
+            eventStore.save(unitOfWork);
+        }
+    }
+
+    private void backoff(UUID aggregateId, CommandRetryPolicy retryPolicy, int attempt) {
+        long backoffNanos = Math.min(
+                retryPolicy.getMaxBackoff().toNanos(),
+                retryPolicy.getInitialBackoff().toNanos() << Math.min(attempt - 1, 20)
+        );
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(backoffNanos + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new AggregateRepositoryException(
+                    "Interrupted before retrying command on aggregate with id: " + aggregateId + " and name: " + aggregateName,
+                    ex
+            );
+        }
+    }
+
     private Optional<A> toAggregate(List<E> events) {
         if (events.isEmpty()) {
             return Optional.empty();
         } else {
+            return Optional.of(apply(initialAggregateStateSupplier.get(), events, events.size()));
+        }
+    }
 
-            A aggregate = initialAggregateStateSupplier.get();
-            for (E event : events) {
-                aggregate = eventApplier.apply(aggregate, event);
+    private A apply(A aggregate, List<E> events, int aggregateVersion) {
+        ReplayEvent replayEvent = new ReplayEvent();
+        replayEvent.begin();
+        long startNanos = System.nanoTime();
+        for (E event : events) {
+            aggregate = eventApplier.apply(aggregate, event);
+        }
+        aggregate = aggregateVersionApplier.apply(aggregate, aggregateVersion);
+        metrics.recordAggregateRebuild(aggregateName, events.size(), System.nanoTime() - startNanos);
+        replayEvent.end();
+        if (replayEvent.shouldCommit()) {
+            replayEvent.setAggregateName(aggregateName);
+            replayEvent.setEventsApplied(events.size());
+            replayEvent.commit();
+        }
+        return aggregate;
+    }
+
+    /**
+     * Requests next aggregate whenever one of the requested aggregates is rebuilt, so at most parallelism aggregates
+     * are received and not rebuilt yet. Publisher signals are serial, so only completion is shared with rebuild threads.
+     */
+    private class RebuildSubscriber implements Flow.Subscriber<AggregateEvents<E>> {
+
+        private final int parallelism;
+        private final List<CompletableFuture<A>> rebuilds = new ArrayList<>();
+        private final CompletableFuture<Void> published = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+
+        RebuildSubscriber(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(parallelism);
+        }
+
+        @Override
+        public void onNext(AggregateEvents<E> aggregateEvents) {
+            CompletableFuture<A> rebuild = CompletableFuture.supplyAsync(
+                    () -> toAggregate(aggregateEvents.decode()).get(),
+                    REBUILD_EXECUTOR
+            );
+            rebuild.whenComplete((aggregate, failure) -> {
+                if (failure == null) {
+                    subscription.request(1);
+                } else if (published.completeExceptionally(failure)) {
+                    subscription.cancel();
+                }
+            });
+            rebuilds.add(rebuild);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            published.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            CompletableFuture.allOf(rebuilds.toArray(new CompletableFuture<?>[0])).whenComplete((result, failure) -> {
+                if (failure == null) {
+                    published.complete(null);
+                } else {
+                    published.completeExceptionally(failure);
+                }
+            });
+        }
+
+        List<A> await() {
+            try {
+                published.get();
+            } catch (InterruptedException ex) {
+                subscription.cancel();
+                Thread.currentThread().interrupt();
+                throw new AggregateRepositoryException("Interrupted while rebuilding aggregates with name: " + aggregateName, ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause() instanceof CompletionException ? ex.getCause().getCause() : ex.getCause();
+                throw cause instanceof RuntimeException
+                        ? (RuntimeException) cause
+                        : new AggregateRepositoryException("Could not rebuild aggregates with name: " + aggregateName, cause);
             }
-            aggregate = aggregateVersionApplier.apply(aggregate, events.size());
-            return Optional.of(aggregate);
+            return rebuilds.stream().map(CompletableFuture::join).collect(toList());
         }
+
     }
 
 }
@@ -6,4 +6,8 @@ public class AggregateRepositoryException extends RuntimeException {
         super(message);
     }
 
+    AggregateRepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
@@ -0,0 +1,218 @@
+package com.hltech.store;
+
+import com.hltech.store.versioning.EventVersioningStrategy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Event store decorator that reads events moved to the {@link EventArchive} together with events of the decorated store,
+ * so archiving is invisible to readers. Saves go to the decorated store only.
+ *
+ * <p>Archive always holds the oldest events of a stream, so reads of a single stream ask the decorated store only
+ * for events with aggregate version greater than the archived one. An aggregate that was not archived costs
+ * one lookup in the in-memory index of the archive. Reads of many streams skip events of the decorated store
+ * that are archived but not deleted yet.
+ */
+public class ArchiveAwareEventStore<E> implements EventStore<E> {
+
+    private final EventStore<E> eventStore;
+    private final EventArchive archive;
+    private final Function<E, UUID> eventIdExtractor;
+    private final Function<E, UUID> aggregateIdExtractor;
+
+    public ArchiveAwareEventStore(
+            EventStore<E> eventStore,
+            EventArchive archive,
+            Function<E, UUID> eventIdExtractor,
+            Function<E, UUID> aggregateIdExtractor
+    ) {
+        this.eventStore = eventStore;
+        this.archive = archive;
+        this.eventIdExtractor = eventIdExtractor;
+        this.aggregateIdExtractor = aggregateIdExtractor;
+    }
+
+    @Override
+    public void save(E event, String aggregateName) {
+        eventStore.save(event, aggregateName);
+    }
+
+    @Override
+    public void save(E event, String aggregateName, int expectedAggregateVersion) {
+        eventStore.save(event, aggregateName, expectedAggregateVersion);
+    }
+
+    @Override
+    public void save(UnitOfWork<E> unitOfWork) {
+        eventStore.save(unitOfWork);
+    }
+
+    @Override
+    public boolean contains(E event, String aggregateName) {
+        UUID eventId = eventIdExtractor.apply(event);
+        return eventStore.contains(event, aggregateName)
+                || archive.findStream(aggregateIdExtractor.apply(event), aggregateName, 0).stream()
+                        .anyMatch(archivedEvent -> archivedEvent.getEventId().equals(eventId));
+    }
+
+    @Override
+    public Map<UUID, List<E>> findAllGroupByAggregate(String aggregateName) {
+        Map<UUID, List<E>> eventsByAggregate = new LinkedHashMap<>();
+        for (E event : findAll(aggregateName)) {
+            eventsByAggregate.computeIfAbsent(aggregateIdExtractor.apply(event), aggregateId -> new ArrayList<>()).add(event);
+        }
+        return eventsByAggregate;
+    }
+
+    @Override
+    public List<E> findAll(String aggregateName) {
+        return merge(archive.findAllByAggregateName(aggregateName), eventStore.findAll(aggregateName));
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId) {
+        return merge(archive.findAllByAggregateId(aggregateId), eventStore.findAll(aggregateId));
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId, String aggregateName) {
+        return findAllAfterVersion(aggregateId, aggregateName, 0);
+    }
+
+    @Override
+    public List<E> findAllAfterVersion(UUID aggregateId, String aggregateName, int aggregateVersion) {
+        int archivedVersion = archive.getArchivedVersion(aggregateId, aggregateName);
+        if (archivedVersion <= aggregateVersion) {
+            return eventStore.findAllAfterVersion(aggregateId, aggregateName, aggregateVersion);
+        }
+        List<E> events = decode(archive.findStream(aggregateId, aggregateName, aggregateVersion));
+        events.addAll(eventStore.findAllAfterVersion(aggregateId, aggregateName, archivedVersion));
+        return events;
+    }
+
+    @Override
+    public List<E> findAllToEvent(E toEvent, String aggregateName) {
+        UUID toEventId = eventIdExtractor.apply(toEvent);
+        UUID aggregateId = aggregateIdExtractor.apply(toEvent);
+        List<E> events = new ArrayList<>();
+        Set<UUID> archivedEventIds = new HashSet<>();
+        for (ArchivedEvent archivedEvent : archive.findStream(aggregateId, aggregateName, 0)) {
+            events.add(decode(archivedEvent));
+            if (archivedEvent.getEventId().equals(toEventId)) {
+                return events;
+            }
+            archivedEventIds.add(archivedEvent.getEventId());
+        }
+        List<E> storedEvents = eventStore.findAllToEvent(toEvent, aggregateName);
+        if (storedEvents.isEmpty()) {
+            return storedEvents;
+        }
+        for (E event : storedEvents) {
+            if (!archivedEventIds.contains(eventIdExtractor.apply(event))) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Archived events come first. Events of the decorated store are read after the last archived position,
+     * so a page never repeats archived events that are not deleted yet.
+     */
+    @Override
+    public List<PositionedEvent<E>> findAllAfterPosition(long position, int limit) {
+        List<PositionedEvent<E>> events = new ArrayList<>();
+        for (ArchivedEvent archivedEvent : archive.findAllAfterPosition(position, limit)) {
+            events.add(new PositionedEvent<>(archivedEvent.getPosition(), decode(archivedEvent)));
+        }
+        if (events.size() < limit) {
+            events.addAll(eventStore.findAllAfterPosition(Math.max(position, archive.getLastPosition()), limit - events.size()));
+        }
+        return events;
+    }
+
+    @Override
+    public long findLastPosition() {
+        return Math.max(eventStore.findLastPosition(), archive.getLastPosition());
+    }
+
+    /**
+     * Archive does not keep recording time of events, so only events of the decorated store are read.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllRecordedBetween(Instant from, Instant to, long afterPosition, int limit) {
+        return eventStore.findAllRecordedBetween(from, to, afterPosition, limit);
+    }
+
+    /**
+     * Only events of the decorated store are read, see {@link #findAllRecordedBetween(Instant, Instant, long, int)}.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(String eventName, Instant from, Instant to, long afterPosition, int limit) {
+        return eventStore.findAllByEventName(eventName, from, to, afterPosition, limit);
+    }
+
+    /**
+     * Only events of the decorated store are read, see {@link #findAllRecordedBetween(Instant, Instant, long, int)}.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    ) {
+        return eventStore.findAllByEventName(eventName, aggregateName, from, to, afterPosition, limit);
+    }
+
+    @Override
+    public EventVersioningStrategy<E> getEventVersioningStrategy() {
+        return eventStore.getEventVersioningStrategy();
+    }
+
+    private List<E> merge(List<ArchivedEvent> archivedEvents, List<E> storedEvents) {
+        if (archivedEvents.isEmpty()) {
+            return storedEvents;
+        }
+        Set<UUID> archivedEventIds = new HashSet<>();
+        for (ArchivedEvent archivedEvent : archivedEvents) {
+            archivedEventIds.add(archivedEvent.getEventId());
+        }
+        List<E> events = decode(archivedEvents);
+        for (E event : storedEvents) {
+            if (!archivedEventIds.contains(eventIdExtractor.apply(event))) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private List<E> decode(List<ArchivedEvent> archivedEvents) {
+        List<E> events = new ArrayList<>(archivedEvents.size());
+        for (ArchivedEvent archivedEvent : archivedEvents) {
+            events.add(decode(archivedEvent));
+        }
+        return events;
+    }
+
+    private E decode(ArchivedEvent archivedEvent) {
+        return eventStore.getEventVersioningStrategy().toEvent(
+                new String(archivedEvent.getPayload(), UTF_8),
+                archivedEvent.getEventName(),
+                archivedEvent.getEventVersion()
+        );
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.hltech.store;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Serialized event moved from the event table to the {@link EventArchive} or written to an {@link EventExport},
+ * with everything needed to decode it and to place it in its stream and in the global order of occurrence.
+ */
+@Getter
+@RequiredArgsConstructor
+class ArchivedEvent {
+
+    private final UUID eventId;
+    private final UUID aggregateId;
+    private final String aggregateName;
+    private final int aggregateVersion;
+    private final long position;
+    private final String eventName;
+    private final int eventVersion;
+    private final byte[] payload;
+
+}
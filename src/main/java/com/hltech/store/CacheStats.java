@@ -0,0 +1,32 @@
+package com.hltech.store;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of {@link CachingEventStore} statistics.
+ * Hit means the cached stream was up to date, refresh means only new events were read, miss means the whole stream was read.
+ */
+@Builder
+@Getter
+@ToString
+public class CacheStats {
+
+    private final long hits;
+    private final long refreshes;
+    private final long misses;
+    private final long evictions;
+    private final int cachedStreams;
+    private final long cachedPayloadBytes;
+    private final long maxPayloadBytes;
+
+    /**
+     * Returns fraction of reads that did not transfer any event from the underlying store.
+     */
+    public double getHitRate() {
+        long reads = hits + refreshes + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+
+}
@@ -0,0 +1,303 @@
+package com.hltech.store;
+
+import com.hltech.store.versioning.EventVersioningStrategy;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Event store decorator that keeps decoded events of recently read aggregate streams in memory.
+ * Every read of a cached stream asks the underlying store only for events with aggregate version
+ * greater than the cached one, so an unchanged stream costs a single query returning no rows
+ * and a changed stream transfers and decodes only the new events.
+ *
+ * <p>Cache is limited by the total payload size of cached events, in bytes estimated by the event weigher.
+ * Weigher is called once for every event put into the cache, so it should be cheap, for example a size known
+ * for the event type, not a serialization of the event. When the limit is exceeded, least recently used streams
+ * are evicted. Stream bigger than the whole cache is never cached.
+ *
+ * <p>Events saved with optimistic locking through the decorator are appended to the cached stream in place,
+ * because the expected version proves no other event was saved in between. Events saved without optimistic locking
+ * are fetched on the next read like events saved by other instances of the application.
+ *
+ * <p>Events returned by cached reads are shared between callers, so they must not be modified.
+ */
+public class CachingEventStore<E> implements EventStore<E> {
+
+    private final EventStore<E> eventStore;
+    private final Function<E, UUID> aggregateIdExtractor;
+    private final ToLongFunction<E> eventWeigher;
+    private final long maxPayloadBytes;
+
+    private final LinkedHashMap<StreamKey, CachedStream<E>> streams = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedPayloadBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingEventStore(
+            EventStore<E> eventStore,
+            Function<E, UUID> aggregateIdExtractor,
+            ToLongFunction<E> eventWeigher,
+            long maxPayloadBytes
+    ) {
+        this.eventStore = eventStore;
+        this.aggregateIdExtractor = aggregateIdExtractor;
+        this.eventWeigher = eventWeigher;
+        this.maxPayloadBytes = maxPayloadBytes;
+    }
+
+    @Override
+    public void save(E event, String aggregateName) {
+        eventStore.save(event, aggregateName);
+    }
+
+    @Override
+    public void save(E event, String aggregateName, int expectedAggregateVersion) {
+        eventStore.save(event, aggregateName, expectedAggregateVersion);
+        StreamKey key = new StreamKey(aggregateIdExtractor.apply(event), aggregateName);
+        synchronized (streams) {
+            CachedStream<E> cachedStream = streams.get(key);
+            if (cachedStream != null && cachedStream.aggregateVersion == expectedAggregateVersion) {
+                put(key, cachedStream.append(Collections.singletonList(event), eventWeigher));
+            }
+        }
+    }
+
+    /**
+     * Events of the unit of work saved with optimistic locking are appended to cached streams in place,
+     * the same as events saved one by one.
+     */
+    @Override
+    public void save(UnitOfWork<E> unitOfWork) {
+        eventStore.save(unitOfWork);
+        synchronized (streams) {
+            for (UnitOfWork.Append<E> append : unitOfWork.getAppends()) {
+                if (!append.hasExpectedAggregateVersion()) {
+                    continue;
+                }
+                StreamKey key = new StreamKey(aggregateIdExtractor.apply(append.getEvent()), append.getAggregateName());
+                CachedStream<E> cachedStream = streams.get(key);
+                if (cachedStream != null && cachedStream.aggregateVersion == append.getExpectedAggregateVersion()) {
+                    put(key, cachedStream.append(Collections.singletonList(append.getEvent()), eventWeigher));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(E event, String aggregateName) {
+        return eventStore.contains(event, aggregateName);
+    }
+
+    @Override
+    public Map<UUID, List<E>> findAllGroupByAggregate(String aggregateName) {
+        return eventStore.findAllGroupByAggregate(aggregateName);
+    }
+
+    @Override
+    public List<E> findAll(String aggregateName) {
+        return eventStore.findAll(aggregateName);
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId) {
+        return eventStore.findAll(aggregateId);
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId, String aggregateName) {
+        return new ArrayList<>(read(new StreamKey(aggregateId, aggregateName)).events);
+    }
+
+    @Override
+    public List<E> findAllAfterVersion(UUID aggregateId, String aggregateName, int aggregateVersion) {
+        List<E> events = read(new StreamKey(aggregateId, aggregateName)).events;
+        return events.size() <= aggregateVersion
+                ? new ArrayList<>()
+                : new ArrayList<>(events.subList(aggregateVersion, events.size()));
+    }
+
+    @Override
+    public List<E> findAllToEvent(E toEvent, String aggregateName) {
+        return eventStore.findAllToEvent(toEvent, aggregateName);
+    }
+
+    @Override
+    public Flow.Publisher<E> publishAll(String aggregateName) {
+        return eventStore.publishAll(aggregateName);
+    }
+
+    @Override
+    public Flow.Publisher<E> publishAll(UUID aggregateId) {
+        return eventStore.publishAll(aggregateId);
+    }
+
+    @Override
+    public Flow.Publisher<AggregateEvents<E>> publishAllGroupByAggregate(String aggregateName) {
+        return eventStore.publishAllGroupByAggregate(aggregateName);
+    }
+
+    @Override
+    public List<PositionedEvent<E>> findAllAfterPosition(long position, int limit) {
+        return eventStore.findAllAfterPosition(position, limit);
+    }
+
+    @Override
+    public long findLastPosition() {
+        return eventStore.findLastPosition();
+    }
+
+    @Override
+    public List<RecordedEvent<E>> findAllRecordedBetween(Instant from, Instant to, long afterPosition, int limit) {
+        return eventStore.findAllRecordedBetween(from, to, afterPosition, limit);
+    }
+
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(String eventName, Instant from, Instant to, long afterPosition, int limit) {
+        return eventStore.findAllByEventName(eventName, from, to, afterPosition, limit);
+    }
+
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    ) {
+        return eventStore.findAllByEventName(eventName, aggregateName, from, to, afterPosition, limit);
+    }
+
+    @Override
+    public EventVersioningStrategy<E> getEventVersioningStrategy() {
+        return eventStore.getEventVersioningStrategy();
+    }
+
+    public CacheStats getStats() {
+        synchronized (streams) {
+            return CacheStats.builder()
+                    .hits(hits.sum())
+                    .refreshes(refreshes.sum())
+                    .misses(misses.sum())
+                    .evictions(evictions.sum())
+                    .cachedStreams(streams.size())
+                    .cachedPayloadBytes(cachedPayloadBytes)
+                    .maxPayloadBytes(maxPayloadBytes)
+                    .build();
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (streams) {
+            streams.clear();
+            cachedPayloadBytes = 0;
+        }
+    }
+
+    /**
+     * Underlying store is queried without holding the cache lock. When two readers refresh the same stream concurrently,
+     * the one that read more events wins.
+     */
+    private CachedStream<E> read(StreamKey key) {
+        CachedStream<E> cachedStream;
+        synchronized (streams) {
+            cachedStream = streams.get(key);
+        }
+        int cachedVersion = cachedStream == null ? 0 : cachedStream.aggregateVersion;
+        List<E> newEvents = eventStore.findAllAfterVersion(key.aggregateId, key.aggregateName, cachedVersion);
+        if (cachedStream != null && newEvents.isEmpty()) {
+            hits.increment();
+            return cachedStream;
+        }
+        (cachedStream == null ? misses : refreshes).increment();
+        CachedStream<E> refreshedStream = cachedStream == null
+                ? CachedStream.<E>empty().append(newEvents, eventWeigher)
+                : cachedStream.append(newEvents, eventWeigher);
+        synchronized (streams) {
+            CachedStream<E> currentStream = streams.get(key);
+            if (currentStream == null || currentStream.aggregateVersion < refreshedStream.aggregateVersion) {
+                put(key, refreshedStream);
+            }
+        }
+        return refreshedStream;
+    }
+
+    /**
+     * Has to be called with the cache lock held.
+     */
+    private void put(StreamKey key, CachedStream<E> cachedStream) {
+        CachedStream<E> previousStream = streams.remove(key);
+        if (previousStream != null) {
+            cachedPayloadBytes -= previousStream.payloadBytes;
+        }
+        if (cachedStream.payloadBytes > maxPayloadBytes) {
+            return;
+        }
+        streams.put(key, cachedStream);
+        cachedPayloadBytes += cachedStream.payloadBytes;
+        Iterator<CachedStream<E>> leastRecentlyUsed = streams.values().iterator();
+        while (cachedPayloadBytes > maxPayloadBytes) {
+            cachedPayloadBytes -= leastRecentlyUsed.next().payloadBytes;
+            leastRecentlyUsed.remove();
+            evictions.increment();
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class StreamKey {
+
+        private final UUID aggregateId;
+        private final String aggregateName;
+
+    }
+
+    /**
+     * Immutable snapshot of the stream. Appending creates a new snapshot, so readers can use events without locking.
+     */
+    private static final class CachedStream<E> {
+
+        private final List<E> events;
+        private final int aggregateVersion;
+        private final long payloadBytes;
+
+        private CachedStream(List<E> events, long payloadBytes) {
+            this.events = events;
+            this.aggregateVersion = events.size();
+            this.payloadBytes = payloadBytes;
+        }
+
+        static <E> CachedStream<E> empty() {
+            return new CachedStream<>(Collections.emptyList(), 0);
+        }
+
+        CachedStream<E> append(List<E> newEvents, ToLongFunction<E> eventWeigher) {
+            List<E> allEvents = new ArrayList<>(events.size() + newEvents.size());
+            allEvents.addAll(events);
+            allEvents.addAll(newEvents);
+            long newPayloadBytes = payloadBytes;
+            for (E event : newEvents) {
+                newPayloadBytes += eventWeigher.applyAsLong(event);
+            }
+            return new CachedStream<>(Collections.unmodifiableList(allEvents), newPayloadBytes);
+        }
+
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.hltech.store;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Limits how many times {@link AggregateRepository#execute(java.util.UUID, java.util.function.Function, CommandRetryPolicy)}
+ * runs a command that ended with optimistic locking conflict, for example:
+ * CommandRetryPolicy.builder().maxAttempts(10).build();
+ *
+ * <p>Before every retry the repository waits a random time between zero and the backoff, which starts at initial backoff
+ * and doubles with every attempt up to max backoff, so competing writers do not retry in lockstep.
+ */
+@Builder
+@Getter
+public class CommandRetryPolicy {
+
+    /**
+     * Maximum number of times the command is run, including the first one.
+     */
+    @Builder.Default
+    private final int maxAttempts = 5;
+
+    @Builder.Default
+    private final Duration initialBackoff = Duration.ofMillis(10);
+
+    @Builder.Default
+    private final Duration maxBackoff = Duration.ofMillis(500);
+
+    public static CommandRetryPolicy defaults() {
+        return builder().build();
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.hltech.store;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of command statistics of {@link AggregateRepository}.
+ * Every conflict is either retried or, when the retry policy does not allow another attempt, counted as failure.
+ */
+@Builder
+@Getter
+@ToString
+public class CommandStats {
+
+    private final long executions;
+    private final long conflicts;
+    private final long retries;
+    private final long failures;
+
+}
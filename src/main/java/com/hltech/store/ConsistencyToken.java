@@ -0,0 +1,21 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Proof of a committed save, returned by SQL based event stores. Passing it to a read guarantees that the read
+ * sees the saved event, even when reads are served by a replica of the database.
+ * Position is the order of occurrence of the saved event, so the token can be passed between services as a number.
+ */
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor(staticName = "of")
+@Getter
+public class ConsistencyToken {
+
+    private final long position;
+
+}
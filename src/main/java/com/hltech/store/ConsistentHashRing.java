@@ -0,0 +1,63 @@
+package com.hltech.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Maps aggregate ids to shards with consistent hashing. Every shard is placed on the ring many times (virtual nodes),
+ * so aggregates are spread evenly and adding a shard moves only about 1/N of aggregates, all of them to the new shard.
+ * Placement depends only on shard names, never on their order or on the JVM, so it is stable between restarts.
+ */
+class ConsistentHashRing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    ConsistentHashRing(Collection<String> shards, int virtualNodesPerShard) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (virtualNodesPerShard <= 0) {
+            throw new IllegalArgumentException("Number of virtual nodes per shard must be positive");
+        }
+        for (String shard : shards) {
+            for (int virtualNode = 0; virtualNode < virtualNodesPerShard; virtualNode++) {
+                ring.put(hash(shard + "#" + virtualNode), shard);
+            }
+        }
+    }
+
+    String shardFor(UUID aggregateId) {
+        Map.Entry<Long, String> node = ring.ceilingEntry(hash(aggregateId));
+        return node == null ? ring.firstEntry().getValue() : node.getValue();
+    }
+
+    static long hash(UUID aggregateId) {
+        return mix(aggregateId.getMostSignificantBits() ^ mix(aggregateId.getLeastSignificantBits()));
+    }
+
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte octet : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= octet & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads similar inputs over the whole range of long.
+     */
+    private static long mix(long value) {
+        long mixed = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94d049bb133111ebL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+}
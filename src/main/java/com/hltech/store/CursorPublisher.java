@@ -0,0 +1,220 @@
+package com.hltech.store;
+
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Publisher that emits elements read from a {@link Cursor} only when subscriber signals demand.
+ * Cursor is opened lazily on first request and closed on completion, error or cancellation,
+ * so the underlying resources (like database connection) are held only as long as the subscription is active.
+ *
+ * <p>Every subscription gets its own cursor. Elements are emitted on the given executor, never on the thread
+ * calling {@link Flow.Subscription#request(long)}.
+ */
+@RequiredArgsConstructor
+class CursorPublisher<T> implements Flow.Publisher<T> {
+
+    static final Executor DEFAULT_EXECUTOR = defaultExecutor();
+
+    private final Supplier<Cursor<T>> cursorFactory;
+    private final Executor executor;
+    private final Duration pollInterval;
+
+    CursorPublisher(Supplier<Cursor<T>> cursorFactory) {
+        this(cursorFactory, DEFAULT_EXECUTOR, Duration.ZERO);
+    }
+
+    static <T> CursorPublisher<T> fromList(Supplier<List<T>> listSupplier) {
+        return new CursorPublisher<>(() -> new ListCursor<>(listSupplier));
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        CursorSubscription subscription = new CursorSubscription(subscriber, cursorFactory.get());
+        subscriber.onSubscribe(subscription);
+    }
+
+    private static Executor defaultExecutor() {
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "event-store-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Source of elements for the publisher. Cursor is accessed by one thread at a time.
+     */
+    interface Cursor<T> extends AutoCloseable {
+
+        /**
+         * Returns next element or null if there is no element available at the moment.
+         */
+        T next() throws Exception;
+
+        /**
+         * Returns true when cursor will never return any element again.
+         */
+        boolean isExhausted();
+
+        @Override
+        void close();
+
+    }
+
+    private class CursorSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Cursor<T> cursor;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger workInProgress = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private boolean done;
+
+        CursorSubscription(Flow.Subscriber<? super T> subscriber, Cursor<T> cursor) {
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void request(long count) {
+            if (count <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested number of elements must be positive but was " + count);
+            } else {
+                demand.getAndAccumulate(count, (current, requested) -> {
+                    long sum = current + requested;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (workInProgress.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void scheduleAfterPollInterval() {
+            if (workInProgress.getAndIncrement() == 0) {
+                CompletableFuture
+                        .delayedExecutor(pollInterval.toMillis(), TimeUnit.MILLISECONDS, executor)
+                        .execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            boolean waitForNewElements = false;
+            do {
+                if (!done) {
+                    waitForNewElements = emit();
+                }
+                missed = workInProgress.addAndGet(-missed);
+            } while (missed != 0);
+            if (waitForNewElements) {
+                scheduleAfterPollInterval();
+            }
+        }
+
+        /**
+         * Emits as many elements as requested and returns true when cursor has to be polled again later.
+         */
+        private boolean emit() {
+            try {
+                while (true) {
+                    if (cancelled) {
+                        finish();
+                        return false;
+                    }
+                    if (invalidRequest != null) {
+                        finish();
+                        subscriber.onError(invalidRequest);
+                        return false;
+                    }
+                    if (demand.get() == 0) {
+                        return false;
+                    }
+                    T element = cursor.next();
+                    if (element != null) {
+                        demand.decrementAndGet();
+                        subscriber.onNext(element);
+                        if (cursor.isExhausted()) {
+                            finish();
+                            subscriber.onComplete();
+                            return false;
+                        }
+                    } else if (cursor.isExhausted()) {
+                        finish();
+                        subscriber.onComplete();
+                        return false;
+                    } else {
+                        return !cancelled;
+                    }
+                }
+            } catch (Exception ex) {
+                finish();
+                subscriber.onError(ex);
+                return false;
+            }
+        }
+
+        private void finish() {
+            if (!done) {
+                done = true;
+                cursor.close();
+            }
+        }
+
+    }
+
+    private static class ListCursor<T> implements Cursor<T> {
+
+        private final Supplier<List<T>> listSupplier;
+        private Iterator<T> iterator;
+
+        ListCursor(Supplier<List<T>> listSupplier) {
+            this.listSupplier = listSupplier;
+        }
+
+        @Override
+        public T next() {
+            if (iterator == null) {
+                iterator = listSupplier.get().iterator();
+            }
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return iterator != null && !iterator.hasNext();
+        }
+
+        @Override
+        public void close() {
+            iterator = null;
+        }
+
+    }
+
+}
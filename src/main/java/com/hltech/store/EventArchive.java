@@ -0,0 +1,610 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Cold tier of the event store. Keeps old events in compressed, append-only segment files in a local directory,
+ * so they can be deleted from the event table and its indexes while the full history stays readable
+ * through {@link ArchiveAwareEventStore}. Events are moved to the archive by {@link EventArchiver}.
+ *
+ * <p>Every segment holds events of one archiving run, grouped by stream and packed into deflate compressed blocks
+ * of about 32 KiB with CRC32 checksum. Segment file is memory mapped, so blocks are inflated straight from the page cache.
+ * Sparse index file next to the segment holds one entry per stream, pointing at the block and offset of its first event.
+ * Indexes of all segments are loaded into memory when the archive is opened.
+ *
+ * <p>Segment and index are written to temporary files, synced and then renamed, index last,
+ * so a crash during archiving leaves no partially visible segment. Archive never modifies written segments.
+ */
+@Slf4j
+public class EventArchive {
+
+    private static final int MAGIC = 0x53455641;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int BLOCK_HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int BLOCK_SIZE = 32 * 1024;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final Comparator<ArchivedEvent> STREAM_ORDER = Comparator
+            .comparing(ArchivedEvent::getAggregateName)
+            .thenComparing(ArchivedEvent::getAggregateId)
+            .thenComparingInt(ArchivedEvent::getAggregateVersion);
+
+    private static final Comparator<ArchivedEvent> POSITION_ORDER = Comparator.comparingLong(ArchivedEvent::getPosition);
+
+    private final Path directory;
+    private volatile Snapshot snapshot;
+    private volatile ScannedSegment lastScannedSegment;
+
+    private EventArchive(Path directory, Snapshot snapshot) {
+        this.directory = directory;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Opens archive kept in given directory, creating the directory when it does not exist.
+     */
+    public static EventArchive open(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            List<Path> indexFiles;
+            try (Stream<Path> files = Files.list(directory)) {
+                indexFiles = files
+                        .filter(file -> file.getFileName().toString().endsWith(INDEX_SUFFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            Snapshot snapshot = Snapshot.EMPTY;
+            for (Path indexFile : indexFiles) {
+                snapshot = snapshot.with(Segment.load(indexFile));
+            }
+            log.info("Opened event archive in {} with {} segments", directory, snapshot.segments.size());
+            return new EventArchive(directory, snapshot);
+        } catch (IOException ex) {
+            throw new EventStoreException(String.format("Could not open event archive in %s", directory), ex);
+        }
+    }
+
+    /**
+     * Order of occurrence of the newest archived event, 0 when archive is empty.
+     */
+    public long getLastPosition() {
+        return snapshot.lastPosition;
+    }
+
+    public long getEventCount() {
+        return snapshot.eventCount;
+    }
+
+    public int getSegmentCount() {
+        return snapshot.segments.size();
+    }
+
+    /**
+     * Archiving moves the oldest events of a stream, so archived events are always versions 1 to the returned one.
+     */
+    int getArchivedVersion(UUID aggregateId, String aggregateName) {
+        List<StreamLocation> locations = snapshot.streams.get(new StreamKey(aggregateId, aggregateName));
+        return locations == null ? 0 : locations.get(locations.size() - 1).entry.lastVersion();
+    }
+
+    List<ArchivedEvent> findStream(UUID aggregateId, String aggregateName, int afterVersion) {
+        List<StreamLocation> locations = snapshot.streams.getOrDefault(new StreamKey(aggregateId, aggregateName), Collections.emptyList());
+        List<ArchivedEvent> events = new ArrayList<>();
+        for (StreamLocation location : locations) {
+            if (location.entry.lastVersion() > afterVersion) {
+                for (ArchivedEvent event : location.segment.read(location.entry)) {
+                    if (event.getAggregateVersion() > afterVersion) {
+                        events.add(event);
+                    }
+                }
+            }
+        }
+        return events;
+    }
+
+    List<ArchivedEvent> findAllByAggregateId(UUID aggregateId) {
+        Snapshot current = snapshot;
+        List<ArchivedEvent> events = new ArrayList<>();
+        for (String aggregateName : current.aggregateNames.getOrDefault(aggregateId, Collections.emptySet())) {
+            for (StreamLocation location : current.streams.get(new StreamKey(aggregateId, aggregateName))) {
+                events.addAll(location.segment.read(location.entry));
+            }
+        }
+        events.sort(POSITION_ORDER);
+        return events;
+    }
+
+    List<ArchivedEvent> findAllByAggregateName(String aggregateName) {
+        List<ArchivedEvent> events = new ArrayList<>();
+        for (Segment segment : snapshot.segments) {
+            for (StreamEntry entry : segment.entries) {
+                if (entry.key.aggregateName.equals(aggregateName)) {
+                    events.addAll(segment.read(entry));
+                }
+            }
+        }
+        events.sort(POSITION_ORDER);
+        return events;
+    }
+
+    /**
+     * Reads whole segments in order of occurrence. The last scanned segment is kept decoded,
+     * so reading the archive page by page inflates every segment once.
+     */
+    List<ArchivedEvent> findAllAfterPosition(long position, int limit) {
+        List<ArchivedEvent> events = new ArrayList<>();
+        for (Segment segment : snapshot.segments) {
+            if (events.size() >= limit) {
+                break;
+            }
+            if (segment.lastPosition <= position) {
+                continue;
+            }
+            for (ArchivedEvent event : scan(segment)) {
+                if (event.getPosition() > position) {
+                    events.add(event);
+                    if (events.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Writes given events as a new segment. Events have to occur after all archived events
+     * and continue archived part of their streams, without missing versions.
+     */
+    synchronized void append(List<ArchivedEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Snapshot current = snapshot;
+        List<ArchivedEvent> sortedEvents = new ArrayList<>(events);
+        sortedEvents.sort(STREAM_ORDER);
+        long firstPosition = sortedEvents.stream().mapToLong(ArchivedEvent::getPosition).min().getAsLong();
+        long lastPosition = sortedEvents.stream().mapToLong(ArchivedEvent::getPosition).max().getAsLong();
+        if (firstPosition <= current.lastPosition) {
+            throw new IllegalArgumentException(
+                    String.format("Archived events must occur after the last archived position %d", current.lastPosition)
+            );
+        }
+        String segmentName = String.format("segment-%020d", firstPosition);
+        Path segmentFile = directory.resolve(segmentName + SEGMENT_SUFFIX);
+        Path indexFile = directory.resolve(segmentName + INDEX_SUFFIX);
+        try {
+            List<StreamEntry> entries = writeSegment(temporary(segmentFile), sortedEvents, current);
+            writeIndex(temporary(indexFile), firstPosition, lastPosition, entries);
+            Files.move(temporary(segmentFile), segmentFile, ATOMIC_MOVE);
+            Files.move(temporary(indexFile), indexFile, ATOMIC_MOVE);
+            snapshot = current.with(Segment.map(segmentFile, firstPosition, lastPosition, entries));
+        } catch (IOException ex) {
+            throw new EventStoreException(String.format("Could not write archive segment %s", segmentFile), ex);
+        }
+        log.info("Archived {} events with positions {}-{} to {}", events.size(), firstPosition, lastPosition, segmentFile);
+    }
+
+    private List<ArchivedEvent> scan(Segment segment) {
+        ScannedSegment scannedSegment = lastScannedSegment;
+        if (scannedSegment == null || scannedSegment.segment != segment) {
+            scannedSegment = new ScannedSegment(segment, segment.readAll());
+            lastScannedSegment = scannedSegment;
+        }
+        return scannedSegment.events;
+    }
+
+    private static List<StreamEntry> writeSegment(Path file, List<ArchivedEvent> sortedEvents, Snapshot current) throws IOException {
+        List<StreamEntry> entries = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip());
+            BlockWriter blockWriter = new BlockWriter(channel);
+            int streamStart = 0;
+            while (streamStart < sortedEvents.size()) {
+                StreamKey key = StreamKey.of(sortedEvents.get(streamStart));
+                int streamEnd = streamStart;
+                int expectedVersion = current.archivedVersion(key) + 1;
+                while (streamEnd < sortedEvents.size() && key.equals(StreamKey.of(sortedEvents.get(streamEnd)))) {
+                    if (sortedEvents.get(streamEnd).getAggregateVersion() != expectedVersion++) {
+                        throw new IllegalArgumentException(String.format(
+                                "Archived events of aggregate %s %s must continue its archived versions without gaps",
+                                key.aggregateName, key.aggregateId
+                        ));
+                    }
+                    streamEnd++;
+                }
+                blockWriter.flushIfFull();
+                entries.add(new StreamEntry(
+                        key,
+                        sortedEvents.get(streamStart).getAggregateVersion(),
+                        streamEnd - streamStart,
+                        blockWriter.blockOffset,
+                        blockWriter.recordOffset()
+                ));
+                for (int event = streamStart; event < streamEnd; event++) {
+                    blockWriter.flushIfFull();
+                    blockWriter.write(sortedEvents.get(event));
+                }
+                streamStart = streamEnd;
+            }
+            blockWriter.flush();
+            channel.force(true);
+        }
+        return entries;
+    }
+
+    private static void writeIndex(Path file, long firstPosition, long lastPosition, List<StreamEntry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(firstPosition);
+        out.writeLong(lastPosition);
+        out.writeInt(entries.size());
+        for (StreamEntry entry : entries) {
+            out.writeLong(entry.key.aggregateId.getMostSignificantBits());
+            out.writeLong(entry.key.aggregateId.getLeastSignificantBits());
+            writeString(out, entry.key.aggregateName);
+            out.writeInt(entry.firstVersion);
+            out.writeInt(entry.eventCount);
+            out.writeInt(entry.blockOffset);
+            out.writeInt(entry.recordOffset);
+        }
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes.toByteArray()));
+            channel.force(true);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException(String.format("Archived name %s is too long", value));
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static Path temporary(Path file) {
+        return file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+    }
+
+    private static void checkHeader(ByteBuffer buffer, Path file) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new EventStoreException(String.format("File %s is not an event archive file of version %d", file, FORMAT_VERSION));
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class StreamKey {
+
+        private final UUID aggregateId;
+        private final String aggregateName;
+
+        static StreamKey of(ArchivedEvent event) {
+            return new StreamKey(event.getAggregateId(), event.getAggregateName());
+        }
+
+    }
+
+    /**
+     * Sparse index entry: events of the stream are stored one after another,
+     * starting at given offset of the uncompressed block that starts at given offset of the segment file.
+     */
+    @RequiredArgsConstructor
+    private static final class StreamEntry {
+
+        private final StreamKey key;
+        private final int firstVersion;
+        private final int eventCount;
+        private final int blockOffset;
+        private final int recordOffset;
+
+        int lastVersion() {
+            return firstVersion + eventCount - 1;
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private static final class StreamLocation {
+
+        private final Segment segment;
+        private final StreamEntry entry;
+
+    }
+
+    @RequiredArgsConstructor
+    private static final class ScannedSegment {
+
+        private final Segment segment;
+        private final List<ArchivedEvent> events;
+
+    }
+
+    /**
+     * Immutable view of the archive. Appending a segment publishes a new snapshot, so readers never lock.
+     */
+    @RequiredArgsConstructor
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(), 0, 0);
+
+        private final List<Segment> segments;
+        private final Map<StreamKey, List<StreamLocation>> streams;
+        private final Map<UUID, Set<String>> aggregateNames;
+        private final long lastPosition;
+        private final long eventCount;
+
+        int archivedVersion(StreamKey key) {
+            List<StreamLocation> locations = streams.get(key);
+            return locations == null ? 0 : locations.get(locations.size() - 1).entry.lastVersion();
+        }
+
+        Snapshot with(Segment segment) {
+            List<Segment> newSegments = new ArrayList<>(segments);
+            newSegments.add(segment);
+            Map<StreamKey, List<StreamLocation>> newStreams = new HashMap<>(streams);
+            Map<UUID, Set<String>> newAggregateNames = new HashMap<>(aggregateNames);
+            long newEventCount = eventCount;
+            for (StreamEntry entry : segment.entries) {
+                List<StreamLocation> locations = new ArrayList<>(newStreams.getOrDefault(entry.key, Collections.emptyList()));
+                locations.add(new StreamLocation(segment, entry));
+                newStreams.put(entry.key, locations);
+                Set<String> names = new HashSet<>(newAggregateNames.getOrDefault(entry.key.aggregateId, Collections.emptySet()));
+                names.add(entry.key.aggregateName);
+                newAggregateNames.put(entry.key.aggregateId, names);
+                newEventCount += entry.eventCount;
+            }
+            return new Snapshot(newSegments, newStreams, newAggregateNames, Math.max(lastPosition, segment.lastPosition), newEventCount);
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private static final class Segment {
+
+        private final Path file;
+        private final ByteBuffer buffer;
+        private final long firstPosition;
+        private final long lastPosition;
+        private final List<StreamEntry> entries;
+
+        static Segment load(Path indexFile) throws IOException {
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            checkHeader(index, indexFile);
+            long firstPosition = index.getLong();
+            long lastPosition = index.getLong();
+            int streamCount = index.getInt();
+            List<StreamEntry> entries = new ArrayList<>(streamCount);
+            for (int stream = 0; stream < streamCount; stream++) {
+                StreamKey key = new StreamKey(new UUID(index.getLong(), index.getLong()), readString(index));
+                entries.add(new StreamEntry(key, index.getInt(), index.getInt(), index.getInt(), index.getInt()));
+            }
+            String indexFileName = indexFile.getFileName().toString();
+            Path segmentFile = indexFile.resolveSibling(
+                    indexFileName.substring(0, indexFileName.length() - INDEX_SUFFIX.length()) + SEGMENT_SUFFIX
+            );
+            return map(segmentFile, firstPosition, lastPosition, entries);
+        }
+
+        static Segment map(Path file, long firstPosition, long lastPosition, List<StreamEntry> entries) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new EventStoreException(String.format("Archive segment %s is bigger than 2 GiB", file));
+                }
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                checkHeader(buffer.duplicate(), file);
+                return new Segment(file, buffer, firstPosition, lastPosition, entries);
+            }
+        }
+
+        List<ArchivedEvent> read(StreamEntry entry) {
+            List<ArchivedEvent> events = new ArrayList<>(entry.eventCount);
+            Block block = readBlock(entry.blockOffset);
+            block.data.position(entry.recordOffset);
+            while (events.size() < entry.eventCount) {
+                if (!block.data.hasRemaining()) {
+                    block = readBlock(block.nextBlockOffset);
+                }
+                events.add(readRecord(block.data, entry.key));
+            }
+            return events;
+        }
+
+        /**
+         * Reads all blocks in file order. Streams are stored in the order of their index entries,
+         * so every record is assigned to its stream by counting events of consecutive entries.
+         */
+        List<ArchivedEvent> readAll() {
+            List<ArchivedEvent> events = new ArrayList<>();
+            Iterator<StreamEntry> streams = entries.iterator();
+            StreamEntry entry = null;
+            int remainingInStream = 0;
+            int blockOffset = HEADER_BYTES;
+            while (blockOffset < buffer.limit()) {
+                Block block = readBlock(blockOffset);
+                while (block.data.hasRemaining()) {
+                    while (remainingInStream == 0) {
+                        entry = streams.next();
+                        remainingInStream = entry.eventCount;
+                    }
+                    events.add(readRecord(block.data, entry.key));
+                    remainingInStream--;
+                }
+                blockOffset = block.nextBlockOffset;
+            }
+            events.sort(POSITION_ORDER);
+            return events;
+        }
+
+        private Block readBlock(int offset) {
+            ByteBuffer header = buffer.duplicate();
+            header.position(offset);
+            int uncompressedLength = header.getInt();
+            int compressedLength = header.getInt();
+            final int checksum = header.getInt();
+            ByteBuffer compressed = header.slice();
+            compressed.limit(compressedLength);
+            byte[] data = new byte[uncompressedLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int inflated = 0;
+                while (inflated < uncompressedLength && !inflater.finished() && !inflater.needsInput()) {
+                    inflated += inflater.inflate(data, inflated, uncompressedLength - inflated);
+                }
+                if (inflated != uncompressedLength) {
+                    throw new DataFormatException("Block is shorter than declared");
+                }
+            } catch (DataFormatException ex) {
+                throw new EventStoreException(String.format("Archived block at offset %d of %s is corrupted", offset, file), ex);
+            } finally {
+                inflater.end();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            if ((int) crc.getValue() != checksum) {
+                throw new EventStoreException(String.format("Archived block at offset %d of %s has invalid checksum", offset, file));
+            }
+            return new Block(ByteBuffer.wrap(data), offset + BLOCK_HEADER_BYTES + compressedLength);
+        }
+
+        private static ArchivedEvent readRecord(ByteBuffer data, StreamKey key) {
+            long position = data.getLong();
+            UUID eventId = new UUID(data.getLong(), data.getLong());
+            int aggregateVersion = data.getInt();
+            int eventVersion = data.getInt();
+            String eventName = readString(data);
+            byte[] payload = new byte[data.getInt()];
+            data.get(payload);
+            return new ArchivedEvent(eventId, key.aggregateId, key.aggregateName, aggregateVersion, position, eventName, eventVersion, payload);
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private static final class Block {
+
+        private final ByteBuffer data;
+        private final int nextBlockOffset;
+
+    }
+
+    /**
+     * Collects records of the current block and writes it compressed when it reaches the block size.
+     */
+    private static final class BlockWriter {
+
+        private final FileChannel channel;
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+        private final DataOutputStream out = new DataOutputStream(block);
+        private int blockOffset = HEADER_BYTES;
+
+        BlockWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        int recordOffset() {
+            return block.size();
+        }
+
+        void write(ArchivedEvent event) throws IOException {
+            out.writeLong(event.getPosition());
+            out.writeLong(event.getEventId().getMostSignificantBits());
+            out.writeLong(event.getEventId().getLeastSignificantBits());
+            out.writeInt(event.getAggregateVersion());
+            out.writeInt(event.getEventVersion());
+            writeString(out, event.getEventName());
+            out.writeInt(event.getPayload().length);
+            out.write(event.getPayload());
+        }
+
+        void flushIfFull() throws IOException {
+            if (block.size() >= BLOCK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (block.size() == 0) {
+                return;
+            }
+            byte[] data = block.toByteArray();
+            byte[] compressed = deflate(data);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES)
+                    .putInt(data.length)
+                    .putInt(compressed.length)
+                    .putInt((int) crc.getValue());
+            channel.write(new ByteBuffer[] {header.flip(), ByteBuffer.wrap(compressed)});
+            if (channel.position() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Archive segment would be bigger than 2 GiB, archive fewer events at once");
+            }
+            blockOffset = (int) channel.position();
+            block.reset();
+        }
+
+        private static byte[] deflate(byte[] data) {
+            Deflater deflater = new Deflater();
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2);
+                byte[] chunk = new byte[8 * 1024];
+                while (!deflater.finished()) {
+                    compressed.write(chunk, 0, deflater.deflate(chunk));
+                }
+                return compressed.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+    }
+
+}
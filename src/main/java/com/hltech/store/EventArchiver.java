@@ -0,0 +1,192 @@
+package com.hltech.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Moves events that occurred up to given position from the event table to the {@link EventArchive}.
+ * Events are read in batches in order of occurrence, every batch is written to a new archive segment
+ * and only then deleted from the event table, so an event is never lost. Readers going through
+ * {@link ArchiveAwareEventStore} skip events that are already archived but not deleted yet.
+ *
+ * <p>Streams in aggregate_in_stream are kept, so aggregate versions and optimistic locking are not affected.
+ * Archived positions should be old enough that no transaction saving an event with lower position is still running,
+ * such an event would stay in the event table and be read after the archived ones.
+ */
+@Slf4j
+public class EventArchiver {
+
+    private static final String FIND_EVENTS_TO_ARCHIVE_QUERY =
+            "SELECT e.id, e.aggregate_version, e.order_of_occurrence, e.payload, e.event_name, e.event_version, "
+            + "ais.aggregate_id, ais.aggregate_name "
+            + "FROM event e "
+            + "JOIN aggregate_in_stream ais ON ais.stream_id = e.stream_id "
+            + "WHERE e.order_of_occurrence > ? "
+            + "AND e.order_of_occurrence <= ? "
+            + "ORDER BY e.order_of_occurrence ASC";
+
+    private static final String POSTGRES_DELETE_EVENT_QUERY =
+            "DELETE FROM event WHERE id = ?::UUID AND order_of_occurrence = ?";
+
+    private static final String ORACLE_DELETE_EVENT_QUERY =
+            "DELETE FROM event WHERE id = ? AND order_of_occurrence = ?";
+
+    private static final int DEFAULT_BATCH_SIZE = 100_000;
+
+    private final DataSource dataSource;
+    private final EventArchive archive;
+    private final String deleteEventQuery;
+    private final PayloadReader payloadReader;
+    private final int batchSize;
+
+    private EventArchiver(
+            DataSource dataSource,
+            EventArchive archive,
+            String deleteEventQuery,
+            PayloadReader payloadReader,
+            int batchSize
+    ) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Archiving batch size must be positive");
+        }
+        this.dataSource = dataSource;
+        this.archive = archive;
+        this.deleteEventQuery = deleteEventQuery;
+        this.payloadReader = payloadReader;
+        this.batchSize = batchSize;
+    }
+
+    public static EventArchiver postgres(DataSource dataSource, EventArchive archive) {
+        return postgres(dataSource, archive, DEFAULT_BATCH_SIZE);
+    }
+
+    public static EventArchiver postgres(DataSource dataSource, EventArchive archive, int batchSize) {
+        return new EventArchiver(
+                dataSource,
+                archive,
+                POSTGRES_DELETE_EVENT_QUERY,
+                rs -> rs.getString("payload").getBytes(UTF_8),
+                batchSize
+        );
+    }
+
+    public static EventArchiver oracle(DataSource dataSource, EventArchive archive) {
+        return oracle(dataSource, archive, DEFAULT_BATCH_SIZE);
+    }
+
+    public static EventArchiver oracle(DataSource dataSource, EventArchive archive, int batchSize) {
+        return new EventArchiver(
+                dataSource,
+                archive,
+                ORACLE_DELETE_EVENT_QUERY,
+                rs -> {
+                    Blob payload = rs.getBlob("payload");
+                    return payload.getBytes(1, (int) payload.length());
+                },
+                batchSize
+        );
+    }
+
+    /**
+     * Archives all events with order of occurrence up to given position, that are not archived yet.
+     * Events left in the event table by a previous run, that failed after writing the segment, are deleted first.
+     *
+     * @return number of archived events
+     */
+    public long archiveUpTo(long position) {
+        deleteArchivedLeftovers();
+        long archivedEvents = 0;
+        while (archive.getLastPosition() < position) {
+            List<ArchivedEvent> batch = findEventsToArchive(archive.getLastPosition(), position);
+            if (batch.isEmpty()) {
+                break;
+            }
+            archive.append(batch);
+            delete(batch);
+            archivedEvents += batch.size();
+        }
+        return archivedEvents;
+    }
+
+    private void deleteArchivedLeftovers() {
+        List<ArchivedEvent> leftovers = new ArrayList<>();
+        for (ArchivedEvent event : findEventsToArchive(0, archive.getLastPosition())) {
+            if (event.getAggregateVersion() <= archive.getArchivedVersion(event.getAggregateId(), event.getAggregateName())) {
+                leftovers.add(event);
+            }
+        }
+        if (!leftovers.isEmpty()) {
+            delete(leftovers);
+        }
+    }
+
+    private List<ArchivedEvent> findEventsToArchive(long afterPosition, long upToPosition) {
+        try (
+                Connection con = dataSource.getConnection();
+                PreparedStatement pst = con.prepareStatement(FIND_EVENTS_TO_ARCHIVE_QUERY)
+        ) {
+            pst.setLong(1, afterPosition);
+            pst.setLong(2, upToPosition);
+            pst.setMaxRows(batchSize);
+            ResultSet rs = pst.executeQuery();
+            List<ArchivedEvent> events = new ArrayList<>();
+            while (rs.next()) {
+                events.add(new ArchivedEvent(
+                        UUID.fromString(rs.getString("id")),
+                        UUID.fromString(rs.getString("aggregate_id")),
+                        rs.getString("aggregate_name"),
+                        rs.getInt("aggregate_version"),
+                        rs.getLong("order_of_occurrence"),
+                        rs.getString("event_name"),
+                        rs.getInt("event_version"),
+                        payloadReader.read(rs)
+                ));
+            }
+            return events;
+        } catch (SQLException ex) {
+            throw new EventStoreException(
+                    String.format("Could not find events to archive after position %s", afterPosition), ex
+            );
+        }
+    }
+
+    private void delete(List<ArchivedEvent> events) {
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement pst = con.prepareStatement(deleteEventQuery)) {
+                for (ArchivedEvent event : events) {
+                    pst.setString(1, event.getEventId().toString());
+                    pst.setLong(2, event.getPosition());
+                    pst.addBatch();
+                }
+                pst.executeBatch();
+                con.commit();
+            } catch (SQLException ex) {
+                con.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new EventStoreException("Could not delete archived events from event table", ex);
+        }
+        log.info("Deleted {} archived events from event table", events.size());
+    }
+
+    @FunctionalInterface
+    private interface PayloadReader {
+
+        byte[] read(ResultSet rs) throws SQLException;
+
+    }
+
+}
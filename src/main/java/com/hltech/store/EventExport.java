@@ -0,0 +1,258 @@
+package com.hltech.store;
+
+import com.hltech.store.versioning.EventVersioningStrategy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static com.hltech.store.EventExportWriter.BLOCK_HEADER_BYTES;
+import static com.hltech.store.EventExportWriter.FILE_HEADER_BYTES;
+import static com.hltech.store.EventExportWriter.FORMAT_VERSION;
+import static com.hltech.store.EventExportWriter.MAGIC;
+import static com.hltech.store.EventExportWriter.TRAILER_BYTES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Events exported by {@link EventExporter}, replayed to rebuild projections without reading the database.
+ *
+ * <p>Blocks of the file are memory mapped, checked against their checksums and decoded in parallel,
+ * while the consumer gets events one at a time in order of occurrence. When events of a single aggregate name
+ * are replayed, records of other aggregates are skipped by their length prefix without decoding.
+ * Versioning strategy is called from many threads at once, just like when it is used by an event store.
+ */
+public class EventExport {
+
+    private final Path file;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final long eventCount;
+    private final long lastPosition;
+    private final long resumePosition;
+
+    private EventExport(
+            Path file,
+            long[] blockOffsets,
+            int[] blockLengths,
+            long eventCount,
+            long lastPosition,
+            long resumePosition
+    ) {
+        this.file = file;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.eventCount = eventCount;
+        this.lastPosition = lastPosition;
+        this.resumePosition = resumePosition;
+    }
+
+    /**
+     * Opens the export and reads headers of its blocks. Export that was cut short is rejected.
+     */
+    public static EventExport open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            ByteBuffer header = readFully(channel, 0, FILE_HEADER_BYTES, file);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new EventStoreException(String.format("File %s is not an event export of version %d", file, FORMAT_VERSION));
+            }
+            long[] offsets = new long[16];
+            int[] lengths = new int[16];
+            int blocks = 0;
+            long offset = FILE_HEADER_BYTES;
+            while (true) {
+                ByteBuffer blockHeader = readFully(channel, offset, BLOCK_HEADER_BYTES, file);
+                int records = blockHeader.getInt();
+                int length = blockHeader.getInt();
+                if (length < 0 || offset + BLOCK_HEADER_BYTES + length > channel.size()) {
+                    throw incomplete(file);
+                }
+                if (records == 0) {
+                    ByteBuffer trailer = readFully(channel, offset + BLOCK_HEADER_BYTES, TRAILER_BYTES, file);
+                    CRC32 crc = new CRC32();
+                    crc.update(trailer.duplicate());
+                    if ((int) crc.getValue() != blockHeader.getInt()) {
+                        throw incomplete(file);
+                    }
+                    return new EventExport(
+                            file,
+                            Arrays.copyOf(offsets, blocks),
+                            Arrays.copyOf(lengths, blocks),
+                            trailer.getLong(),
+                            trailer.getLong(),
+                            trailer.getLong()
+                    );
+                }
+                if (blocks == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, blocks * 2);
+                    lengths = Arrays.copyOf(lengths, blocks * 2);
+                }
+                offsets[blocks] = offset;
+                lengths[blocks] = length;
+                blocks++;
+                offset += BLOCK_HEADER_BYTES + length;
+            }
+        } catch (IOException ex) {
+            throw new EventStoreException(String.format("Could not open event export %s", file), ex);
+        }
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Position of the last exported event. Do not continue reading after it, use {@link #getResumePosition()} instead.
+     */
+    public long getLastPosition() {
+        return lastPosition;
+    }
+
+    /**
+     * Position up to which all events are exported, except events of transactions running longer than the maximal gap wait
+     * of the export. Consumers that keep up with events saved after the export should continue reading after this position
+     * with {@link GapAwareFeed}. It is never lower than the last position.
+     */
+    public long getResumePosition() {
+        return resumePosition;
+    }
+
+    /**
+     * Passes all exported events to the consumer in order of occurrence.
+     *
+     * @return number of replayed events
+     */
+    public <E> long replay(EventVersioningStrategy<E> eventVersioningStrategy, Consumer<PositionedEvent<E>> consumer) {
+        return replay(null, eventVersioningStrategy, consumer);
+    }
+
+    /**
+     * Passes exported events of given aggregate name to the consumer in order of occurrence.
+     * Aggregate name null replays all events.
+     *
+     * @return number of replayed events
+     */
+    public <E> long replay(
+            String aggregateName,
+            EventVersioningStrategy<E> eventVersioningStrategy,
+            Consumer<PositionedEvent<E>> consumer
+    ) {
+        byte[] aggregateNameBytes = aggregateName == null ? null : aggregateName.getBytes(UTF_8);
+        int maxDecodedBlocks = 2 * ForkJoinPool.getCommonPoolParallelism();
+        Deque<CompletableFuture<List<PositionedEvent<E>>>> decodedBlocks = new ArrayDeque<>();
+        long replayed = 0;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            int nextBlock = 0;
+            while (nextBlock < blockOffsets.length || !decodedBlocks.isEmpty()) {
+                while (nextBlock < blockOffsets.length && decodedBlocks.size() < maxDecodedBlocks) {
+                    long offset = blockOffsets[nextBlock];
+                    ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, offset, BLOCK_HEADER_BYTES + blockLengths[nextBlock]);
+                    decodedBlocks.add(CompletableFuture.supplyAsync(
+                            () -> decodeBlock(block, offset, aggregateNameBytes, eventVersioningStrategy)
+                    ));
+                    nextBlock++;
+                }
+                for (PositionedEvent<E> event : join(decodedBlocks.poll())) {
+                    consumer.accept(event);
+                    replayed++;
+                }
+            }
+        } catch (IOException ex) {
+            throw new EventStoreException(String.format("Could not read event export %s", file), ex);
+        } finally {
+            decodedBlocks.forEach(decodedBlock -> decodedBlock.cancel(false));
+        }
+        return replayed;
+    }
+
+    private <E> List<PositionedEvent<E>> decodeBlock(
+            ByteBuffer block,
+            long offset,
+            byte[] aggregateName,
+            EventVersioningStrategy<E> eventVersioningStrategy
+    ) {
+        final int records = block.getInt();
+        block.getInt();
+        final int checksum = block.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(block.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new EventStoreException(String.format("Block at offset %d of event export %s is corrupted", offset, file));
+        }
+        List<PositionedEvent<E>> events = new ArrayList<>(records);
+        for (int record = 0; record < records; record++) {
+            int length = block.getInt();
+            int nextRecord = block.position() + length;
+            long position = block.getLong();
+            block.position(block.position() + 4 * Long.BYTES + Integer.BYTES);
+            int eventVersion = block.getInt();
+            int aggregateNameLength = block.getShort() & 0xffff;
+            if (aggregateName != null && !matches(block, aggregateNameLength, aggregateName)) {
+                block.position(nextRecord);
+                continue;
+            }
+            block.position(block.position() + aggregateNameLength);
+            String eventName = readString(block, block.getShort() & 0xffff);
+            String payload = readString(block, block.getInt());
+            events.add(new PositionedEvent<>(position, eventVersioningStrategy.toEvent(payload, eventName, eventVersion)));
+            block.position(nextRecord);
+        }
+        return events;
+    }
+
+    private static boolean matches(ByteBuffer block, int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        int start = block.position();
+        for (int index = 0; index < length; index++) {
+            if (block.get(start + index) != expected[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(ByteBuffer block, int length) {
+        byte[] bytes = new byte[length];
+        block.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long offset, int length, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw incomplete(file);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static EventStoreException incomplete(Path file) {
+        return new EventStoreException(String.format("Event export %s is incomplete", file));
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.hltech.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes events in order of occurrence to a file read by {@link EventExport}.
+ *
+ * <p>File starts with magic number and format version, followed by blocks of about 1 MiB.
+ * Every block has a header with number of records, length and CRC32 checksum of its records.
+ * Every record is prefixed with its length and holds position, event id, aggregate id, aggregate version,
+ * event version, aggregate name, event name and raw payload bytes. The last block has no records and holds
+ * the number of exported events, the last exported position and the resume position, so an export cut short is detected.
+ *
+ * <p>File is written under a temporary name and moved in place by {@link #finish(long)},
+ * so an export that failed halfway never replaces the previous one.
+ */
+class EventExportWriter implements Closeable {
+
+    static final int MAGIC = 0x53455850;
+    static final int FORMAT_VERSION = 2;
+    static final int FILE_HEADER_BYTES = 2 * Integer.BYTES;
+    static final int BLOCK_HEADER_BYTES = 3 * Integer.BYTES;
+    static final int TRAILER_BYTES = 3 * Long.BYTES;
+
+    private static final int BLOCK_BYTES = 1024 * 1024;
+    private static final int RECORD_FIXED_BYTES = Integer.BYTES + Long.BYTES + 4 * Long.BYTES + 2 * Integer.BYTES
+            + 2 * Short.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final Path temporaryFile;
+    private final FileChannel channel;
+    private ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+    private int blockRecords;
+    private long eventCount;
+    private long lastPosition;
+    private boolean finished;
+
+    EventExportWriter(Path file) throws IOException {
+        this.file = file;
+        this.temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temporaryFile, CREATE, WRITE, TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION);
+        writeFully(header.flip());
+    }
+
+    void write(ArchivedEvent event) throws IOException {
+        if (event.getPosition() <= lastPosition) {
+            throw new IllegalArgumentException(
+                    String.format("Event with position %d exported after event with position %d", event.getPosition(), lastPosition)
+            );
+        }
+        byte[] aggregateName = event.getAggregateName().getBytes(UTF_8);
+        byte[] eventName = event.getEventName().getBytes(UTF_8);
+        int recordLength = RECORD_FIXED_BYTES + aggregateName.length + eventName.length + event.getPayload().length;
+        if (recordLength > block.remaining()) {
+            flushBlock();
+            if (recordLength > block.capacity()) {
+                block = ByteBuffer.allocate(recordLength);
+            }
+        }
+        block.putInt(recordLength - Integer.BYTES);
+        block.putLong(event.getPosition());
+        block.putLong(event.getEventId().getMostSignificantBits());
+        block.putLong(event.getEventId().getLeastSignificantBits());
+        block.putLong(event.getAggregateId().getMostSignificantBits());
+        block.putLong(event.getAggregateId().getLeastSignificantBits());
+        block.putInt(event.getAggregateVersion());
+        block.putInt(event.getEventVersion());
+        block.putShort((short) aggregateName.length);
+        block.put(aggregateName);
+        block.putShort((short) eventName.length);
+        block.put(eventName);
+        block.putInt(event.getPayload().length);
+        block.put(event.getPayload());
+        blockRecords++;
+        eventCount++;
+        lastPosition = event.getPosition();
+    }
+
+    long getEventCount() {
+        return eventCount;
+    }
+
+    long getLastPosition() {
+        return lastPosition;
+    }
+
+    /**
+     * Writes the trailer, syncs the file to disk and moves it in place of the export.
+     *
+     * @param resumePosition position after which events not exported have to be read, see {@link EventExport#getResumePosition()}
+     */
+    void finish(long resumePosition) throws IOException {
+        if (resumePosition < lastPosition) {
+            throw new IllegalArgumentException(
+                    String.format("Resume position %d is lower than the last exported position %d", resumePosition, lastPosition)
+            );
+        }
+        flushBlock();
+        block.putLong(eventCount).putLong(lastPosition).putLong(resumePosition);
+        writeBlock(0);
+        channel.force(true);
+        channel.close();
+        Files.move(temporaryFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        finished = true;
+    }
+
+    /**
+     * Discards the temporary file of an export that was not finished.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            channel.close();
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockRecords == 0) {
+            return;
+        }
+        writeBlock(blockRecords);
+        blockRecords = 0;
+        if (block.capacity() > BLOCK_BYTES) {
+            block = ByteBuffer.allocate(BLOCK_BYTES);
+        }
+    }
+
+    private void writeBlock(int records) throws IOException {
+        block.flip();
+        CRC32 crc = new CRC32();
+        crc.update(block.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES)
+                .putInt(records)
+                .putInt(block.remaining())
+                .putInt((int) crc.getValue());
+        writeFully(header.flip());
+        writeFully(block);
+        block.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+}
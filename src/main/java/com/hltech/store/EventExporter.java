@@ -0,0 +1,139 @@
+package com.hltech.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Dumps all events to a compact binary file, read by {@link EventExport}, so projections can be rebuilt
+ * from a copy of the file instead of reading the primary database.
+ *
+ * <p>Events are read by a single query that streams rows in order of occurrence, so the export is a consistent
+ * snapshot of the event table and of aggregate_in_stream, as seen when the query started. Transactions still running
+ * at that moment may hold positions lower than the last exported one, and a feed continuing after the last exported
+ * position would never read their events. So the exporter first reads the last committed position, waits the maximal
+ * gap wait for transactions holding lower positions to commit, and exports only events up to that position.
+ * It is stored as the resume position of the export, consumers continue after {@link EventExport#getResumePosition()}
+ * with {@link GapAwareFeed} using the same maximal gap wait, so no event is skipped.
+ */
+@Slf4j
+public class EventExporter {
+
+    private static final String FIND_ALL_EVENTS_QUERY =
+            "SELECT e.id, e.aggregate_version, e.order_of_occurrence, e.payload, e.event_name, e.event_version, "
+            + "ais.aggregate_id, ais.aggregate_name "
+            + "FROM event e "
+            + "JOIN aggregate_in_stream ais ON ais.stream_id = e.stream_id "
+            + "WHERE e.order_of_occurrence <= ? "
+            + "ORDER BY e.order_of_occurrence ASC";
+
+    private static final String FIND_LAST_POSITION_QUERY = "SELECT MAX(e.order_of_occurrence) FROM event e";
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final DataSource dataSource;
+    private final PayloadReader payloadReader;
+
+    private EventExporter(DataSource dataSource, PayloadReader payloadReader) {
+        this.dataSource = dataSource;
+        this.payloadReader = payloadReader;
+    }
+
+    public static EventExporter postgres(DataSource dataSource) {
+        return new EventExporter(dataSource, rs -> rs.getString("payload").getBytes(UTF_8));
+    }
+
+    public static EventExporter oracle(DataSource dataSource) {
+        return new EventExporter(dataSource, rs -> {
+            Blob payload = rs.getBlob("payload");
+            return payload.getBytes(1, (int) payload.length());
+        });
+    }
+
+    /**
+     * Exports all events to given file, replacing it only when the export is complete.
+     * Export starts after the maximal gap wait, see {@link EventExporter}.
+     *
+     * @return number of exported events
+     */
+    public long export(Path file, Duration maxGapWait) {
+        if (maxGapWait.isNegative()) {
+            throw new IllegalArgumentException("Maximal gap wait must not be negative");
+        }
+        try (Connection con = dataSource.getConnection()) {
+            long resumePosition = findLastPosition(con);
+            waitForRunningTransactions(maxGapWait);
+            con.setAutoCommit(false);
+            try (
+                    PreparedStatement pst = con.prepareStatement(FIND_ALL_EVENTS_QUERY);
+                    EventExportWriter writer = new EventExportWriter(file)
+            ) {
+                pst.setLong(1, resumePosition);
+                pst.setFetchSize(FETCH_SIZE);
+                ResultSet rs = pst.executeQuery();
+                while (rs.next()) {
+                    writer.write(new ArchivedEvent(
+                            UUID.fromString(rs.getString("id")),
+                            UUID.fromString(rs.getString("aggregate_id")),
+                            rs.getString("aggregate_name"),
+                            rs.getInt("aggregate_version"),
+                            rs.getLong("order_of_occurrence"),
+                            rs.getString("event_name"),
+                            rs.getInt("event_version"),
+                            payloadReader.read(rs)
+                    ));
+                }
+                writer.finish(resumePosition);
+                con.commit();
+                log.info(
+                        "Exported {} events up to position {}, resume position {}, to {}",
+                        writer.getEventCount(),
+                        writer.getLastPosition(),
+                        resumePosition,
+                        file
+                );
+                return writer.getEventCount();
+            }
+        } catch (SQLException ex) {
+            throw new EventStoreException("Could not read events to export", ex);
+        } catch (IOException ex) {
+            throw new EventStoreException(String.format("Could not write event export %s", file), ex);
+        }
+    }
+
+    private static long findLastPosition(Connection con) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(FIND_LAST_POSITION_QUERY)) {
+            ResultSet rs = pst.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void waitForRunningTransactions(Duration maxGapWait) {
+        try {
+            Thread.sleep(maxGapWait.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new EventStoreException("Interrupted while waiting for running transactions before export", ex);
+        }
+    }
+
+    @FunctionalInterface
+    private interface PayloadReader {
+
+        byte[] read(ResultSet rs) throws SQLException;
+
+    }
+
+}
@@ -2,9 +2,12 @@ package com.hltech.store;
 
 import com.hltech.store.versioning.EventVersioningStrategy;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Flow;
 
 public interface EventStore<E> {
 
@@ -19,6 +22,12 @@ public interface EventStore<E> {
             int expectedAggregateVersion
     );
 
+    /**
+     * Saves events of many aggregates collected in the unit of work, all or none of them.
+     * Stores lock all streams of the unit of work and save all its events in a single transaction.
+     */
+    void save(UnitOfWork<E> unitOfWork);
+
     boolean contains(E event, String aggregateName);
 
     Map<UUID, List<E>> findAllGroupByAggregate(String aggregateName);
@@ -31,6 +40,89 @@ public interface EventStore<E> {
 
     List<E> findAllToEvent(E toEvent, String aggregateName);
 
+    /**
+     * Returns events of the aggregate stream with aggregate version greater than given one, in order of occurrence.
+     * It allows to catch up with the stream without reading events that are already known.
+     * Default implementation reads the whole stream, database backed stores read only newer events.
+     */
+    default List<E> findAllAfterVersion(UUID aggregateId, String aggregateName, int aggregateVersion) {
+        List<E> events = findAll(aggregateId, aggregateName);
+        return events.size() <= aggregateVersion
+                ? new ArrayList<>()
+                : new ArrayList<>(events.subList(aggregateVersion, events.size()));
+    }
+
+    /**
+     * Publishes the same events as {@link #findAll(String)} honoring subscriber demand.
+     * Default implementation reads all events at once, database backed stores read them in chunks.
+     */
+    default Flow.Publisher<E> publishAll(String aggregateName) {
+        return CursorPublisher.fromList(() -> findAll(aggregateName));
+    }
+
+    /**
+     * Publishes the same events as {@link #findAll(UUID)} honoring subscriber demand.
+     * Default implementation reads all events at once, database backed stores read them in chunks.
+     */
+    default Flow.Publisher<E> publishAll(UUID aggregateId) {
+        return CursorPublisher.fromList(() -> findAll(aggregateId));
+    }
+
+    /**
+     * Publishes events of all aggregates with given name honoring subscriber demand, one element per aggregate.
+     * Default implementation reads all events at once, database backed stores read them in chunks ordered by stream
+     * and leave decoding to the subscriber.
+     */
+    default Flow.Publisher<AggregateEvents<E>> publishAllGroupByAggregate(String aggregateName) {
+        return CursorPublisher.fromList(() -> {
+            List<AggregateEvents<E>> aggregates = new ArrayList<>();
+            for (List<E> events : findAllGroupByAggregate(aggregateName).values()) {
+                aggregates.add(AggregateEvents.decoded(events));
+            }
+            return aggregates;
+        });
+    }
+
+    /**
+     * Returns at most given number of events, of all aggregates, that occurred after given position, ordered by position.
+     * It allows to read the whole store in pages, passing the position of the last returned event to read the next page.
+     */
+    List<PositionedEvent<E>> findAllAfterPosition(long position, int limit);
+
+    /**
+     * Returns position of the last event of all aggregates, or 0 when the store is empty.
+     */
+    long findLastPosition();
+
+    /**
+     * Returns at most given number of events, of all aggregates, recorded from the first up to the second instant,
+     * the latter excluded, ordered by recording time and position. Page starts after the event recorded at the first
+     * instant with given position, so the first page is read with position 0 and the next one with recording time
+     * and position of the last returned event.
+     *
+     * <p>Recording time is taken before the transaction saving the event commits, so an event of a long transaction
+     * may appear before the last returned event once it is committed. Keep the end of the range behind the present
+     * by more than the longest save when every event has to be read.
+     */
+    List<RecordedEvent<E>> findAllRecordedBetween(Instant from, Instant to, long afterPosition, int limit);
+
+    /**
+     * Returns events with given name, of all aggregates, paged like {@link #findAllRecordedBetween(Instant, Instant, long, int)}.
+     */
+    List<RecordedEvent<E>> findAllByEventName(String eventName, Instant from, Instant to, long afterPosition, int limit);
+
+    /**
+     * Returns events with given name of aggregates with given name, paged like {@link #findAllRecordedBetween(Instant, Instant, long, int)}.
+     */
+    List<RecordedEvent<E>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    );
+
     EventVersioningStrategy<E> getEventVersioningStrategy();
 
 }
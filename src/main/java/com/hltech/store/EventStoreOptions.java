@@ -0,0 +1,68 @@
+package com.hltech.store;
+
+import com.hltech.store.metrics.EventStoreMetrics;
+import lombok.Builder;
+import lombok.Getter;
+
+import javax.sql.DataSource;
+
+/**
+ * Optional settings of SQL based event stores. Every setting has a default value,
+ * so only those that differ from defaults have to be provided, for example:
+ * EventStoreOptions.builder().metrics(new HistogramEventStoreMetrics()).build();
+ */
+@Builder
+@Getter
+public class EventStoreOptions {
+
+    /**
+     * Receiver of timings and counters of every save and read operation.
+     */
+    @Builder.Default
+    private final EventStoreMetrics metrics = EventStoreMetrics.NO_OP;
+
+    /**
+     * Layout of the event table, supported only by PostgreSQL.
+     */
+    @Builder.Default
+    private final PostgresPartitioning postgresPartitioning = PostgresPartitioning.NONE;
+
+    /**
+     * How saves of the same stream are serialized, supported only by PostgreSQL.
+     */
+    @Builder.Default
+    private final PostgresStreamLocking postgresStreamLocking = PostgresStreamLocking.ROW_LOCK;
+
+    /**
+     * Whether indexes required by queries of the store are checked when the store is created.
+     */
+    @Builder.Default
+    private final SchemaValidation schemaValidation = SchemaValidation.NONE;
+
+    /**
+     * Maximum number of cached stream ids. When greater than zero, reads of a single aggregate stream query
+     * the event table by cached stream id instead of joining aggregate_in_stream, and saves lock the stream by its primary key.
+     */
+    @Builder.Default
+    private final int streamIdCacheSize = 0;
+
+    /**
+     * Number of stripes that serialize saves of the same aggregate stream within the JVM. When greater than zero,
+     * saves of a stream wait for each other before taking a connection from the pool, instead of waiting for the stream lock
+     * in the database, and saves queued meanwhile are merged into a single transaction. Saves in a transaction of the caller
+     * are not serialized.
+     */
+    @Builder.Default
+    private final int localWriteStripes = 0;
+
+    /**
+     * Data source of a read replica. When provided, reads go to the replica, except reads with {@link ConsistencyToken}
+     * issued for an event the replica does not contain yet. Saves always go to the primary data source.
+     */
+    private final DataSource readDataSource;
+
+    public static EventStoreOptions defaults() {
+        return builder().build();
+    }
+
+}
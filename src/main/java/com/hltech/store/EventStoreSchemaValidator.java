@@ -0,0 +1,151 @@
+package com.hltech.store;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks that indexes used by queries of the event store exist, so that a schema created by hand
+ * or migrated only partially is reported before the first slow query.
+ * Index names do not matter, an index matches when its leading columns are the required ones.
+ * Bundled migrations in {@code db/sql-event-store} create all required indexes.
+ */
+@Slf4j
+public class EventStoreSchemaValidator {
+
+    private static final List<RequiredIndex> COMMON_INDEXES = Arrays.asList(
+            new RequiredIndex("aggregate_in_stream", Arrays.asList("aggregate_id", "aggregate_name"), "findAll(aggregateId, aggregateName)"),
+            new RequiredIndex("aggregate_in_stream", Arrays.asList("aggregate_name"), "findAll(aggregateName)"),
+            new RequiredIndex("event", Arrays.asList("stream_id", "aggregate_version"), "reads of aggregate stream"),
+            new RequiredIndex("event", Arrays.asList("order_of_occurrence"), "reads by order of occurrence"),
+            new RequiredIndex("event", Arrays.asList("recorded_at", "order_of_occurrence"), "findAllRecordedBetween"),
+            new RequiredIndex("event", Arrays.asList("event_name", "recorded_at", "order_of_occurrence"), "findAllByEventName")
+    );
+
+    private static final RequiredIndex AGGREGATE_NAME_INDEX =
+            new RequiredIndex("event", Arrays.asList("aggregate_name", "order_of_occurrence"), "findAll(aggregateName) on event table partitioned by aggregate name");
+
+    private final DataSource dataSource;
+    private final List<RequiredIndex> requiredIndexes;
+    private final boolean upperCaseIdentifiers;
+
+    private EventStoreSchemaValidator(DataSource dataSource, List<RequiredIndex> requiredIndexes, boolean upperCaseIdentifiers) {
+        this.dataSource = dataSource;
+        this.requiredIndexes = requiredIndexes;
+        this.upperCaseIdentifiers = upperCaseIdentifiers;
+    }
+
+    public static EventStoreSchemaValidator postgres(DataSource dataSource, PostgresPartitioning partitioning) {
+        List<RequiredIndex> requiredIndexes = new ArrayList<>(COMMON_INDEXES);
+        if (partitioning.isHashByAggregateName()) {
+            requiredIndexes.add(AGGREGATE_NAME_INDEX);
+        }
+        return new EventStoreSchemaValidator(dataSource, requiredIndexes, false);
+    }
+
+    public static EventStoreSchemaValidator oracle(DataSource dataSource) {
+        return new EventStoreSchemaValidator(dataSource, COMMON_INDEXES, true);
+    }
+
+    /**
+     * Returns description of every required index that does not exist in the current schema.
+     */
+    public List<String> findMissingIndexes() {
+        List<String> missingIndexes = new ArrayList<>();
+        try (Connection con = dataSource.getConnection()) {
+            DatabaseMetaData metaData = con.getMetaData();
+            String schema = con.getSchema();
+            Map<String, Collection<List<String>>> indexesByTable = new HashMap<>();
+            for (RequiredIndex requiredIndex : requiredIndexes) {
+                Collection<List<String>> indexes = indexesByTable.get(requiredIndex.table);
+                if (indexes == null) {
+                    indexes = readIndexes(metaData, schema, requiredIndex.table);
+                    indexesByTable.put(requiredIndex.table, indexes);
+                }
+                if (indexes.stream().noneMatch(requiredIndex::isCoveredBy)) {
+                    missingIndexes.add(requiredIndex.toString());
+                }
+            }
+        } catch (SQLException ex) {
+            throw new EventStoreException("Could not read indexes of event store tables", ex);
+        }
+        return missingIndexes;
+    }
+
+    public void validate(SchemaValidation schemaValidation) {
+        if (schemaValidation == SchemaValidation.NONE) {
+            return;
+        }
+        List<String> missingIndexes = findMissingIndexes();
+        if (missingIndexes.isEmpty()) {
+            return;
+        }
+        String message = "Event store schema misses indexes required by its queries: " + String.join(", ", missingIndexes);
+        if (schemaValidation == SchemaValidation.FAIL) {
+            throw new EventStoreException(message);
+        }
+        log.warn(message);
+    }
+
+    /**
+     * Returns columns of every index of the table, in the order they appear in the index.
+     */
+    private Collection<List<String>> readIndexes(DatabaseMetaData metaData, String schema, String table) throws SQLException {
+        Map<String, Map<Short, String>> columnsByIndex = new TreeMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(null, identifier(schema), identifier(table), false, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String columnName = rs.getString("COLUMN_NAME");
+                if (indexName != null && columnName != null) {
+                    columnsByIndex
+                            .computeIfAbsent(indexName, name -> new TreeMap<>())
+                            .put(rs.getShort("ORDINAL_POSITION"), columnName.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        List<List<String>> indexes = new ArrayList<>();
+        for (Map<Short, String> columns : columnsByIndex.values()) {
+            indexes.add(new ArrayList<>(columns.values()));
+        }
+        return indexes;
+    }
+
+    private String identifier(String name) {
+        if (name == null) {
+            return null;
+        }
+        return upperCaseIdentifiers ? name.toUpperCase(Locale.ROOT) : name;
+    }
+
+    @RequiredArgsConstructor
+    private static class RequiredIndex {
+
+        private final String table;
+        private final List<String> columns;
+        private final String usedBy;
+
+        boolean isCoveredBy(List<String> indexColumns) {
+            return indexColumns.size() >= columns.size() && indexColumns.subList(0, columns.size()).equals(columns);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s) used by %s", table, String.join(", ", columns), usedBy);
+        }
+
+    }
+
+}
@@ -0,0 +1,1043 @@
+package com.hltech.store;
+
+import com.hltech.store.jfr.DecodeFailureEvent;
+import com.hltech.store.versioning.EventVersioningStrategy;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Event store that keeps events in an append-only log on local disk, meant for edge nodes and batch tools
+ * that use event sourcing without a database. It follows the semantics of database backed stores: aggregate versions
+ * are consecutive within the stream, optimistic locking is honored and every event gets a position
+ * from the global sequence of occurrence.
+ *
+ * <p>Log is a sequence of memory mapped segment files of fixed size. Every event is a record with length
+ * and CRC32 checksum, written straight to the mapped segment, and synced to disk according to {@link FileEventStoreOptions}.
+ * Index of streams, event ids and positions is kept in memory as offsets of records in the log, readers decode events
+ * straight from the mapped segments. Entries of the index are periodically appended to the checkpoint file, so on startup
+ * only the log written after the last checkpoint is scanned. Torn record at the end of the log, left by a crash,
+ * is detected by its checksum and truncated.
+ *
+ * <p>Recording time of an event is taken when it is written and never goes back, even when the clock does,
+ * so events are in order of recording time in the log and pages of a time range are found by binary search over positions.
+ *
+ * <p>Saves are serialized by a single lock, readers never lock. Directory can be used by one store at a time,
+ * store has to be closed to write the final checkpoint and release the directory.
+ */
+@Slf4j
+public class FileEventStore<E> implements EventStore<E>, Closeable {
+
+    private static final int MAGIC = 0x5345564c;
+    private static final int FORMAT_VERSION = 2;
+    private static final int FILE_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int RECORD_FIXED_BODY_BYTES = 2 * Long.BYTES + 4 * Long.BYTES + 2 * Integer.BYTES + 2 * Short.BYTES + Integer.BYTES;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int ANY_VERSION = -1;
+    private static final String SEGMENT_FILE_PATTERN = "segment-\\d{10}\\.log";
+    private static final String SEGMENT_FILE_FORMAT = "segment-%010d.log";
+    private static final String CHECKPOINT_FILE = "index.checkpoint";
+
+    private final Function<E, UUID> eventIdExtractor;
+    private final Function<E, UUID> aggregateIdExtractor;
+    private final EventVersioningStrategy<E> eventVersioningStrategy;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int syncEveryEvents;
+    private final int checkpointEveryEvents;
+
+    private final Map<StreamKey, Stream> streams = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Stream>> streamsByAggregateName = new ConcurrentHashMap<>();
+    private final Map<UUID, Queue<Stream>> streamsByAggregateId = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> positionsByEventId = new ConcurrentHashMap<>();
+    private final LocationArray locationsByPosition = new LocationArray();
+    private volatile MappedByteBuffer[] segments;
+
+    private final Object writeLock = new Object();
+    private int currentSegment;
+    private int writeOffset;
+    private int unsyncedEvents;
+    private Instant lastRecordedAt = Instant.EPOCH;
+    private boolean closed;
+
+    private final Object checkpointLock = new Object();
+    private final Map<StreamKey, Integer> checkpointedStreams = new HashMap<>();
+    private volatile long checkpointedPosition;
+    private FileChannel checkpointChannel;
+    private FileLock directoryLock;
+
+    public FileEventStore(
+            Function<E, UUID> eventIdExtractor,
+            Function<E, UUID> aggregateIdExtractor,
+            EventVersioningStrategy<E> eventVersioningStrategy,
+            Path directory
+    ) {
+        this(eventIdExtractor, aggregateIdExtractor, eventVersioningStrategy, directory, FileEventStoreOptions.defaults());
+    }
+
+    public FileEventStore(
+            Function<E, UUID> eventIdExtractor,
+            Function<E, UUID> aggregateIdExtractor,
+            EventVersioningStrategy<E> eventVersioningStrategy,
+            Path directory,
+            FileEventStoreOptions options
+    ) {
+        if (options.getSegmentBytes() <= FILE_HEADER_BYTES + RECORD_HEADER_BYTES + RECORD_FIXED_BODY_BYTES) {
+            throw new IllegalArgumentException("Segment size is too small to hold any event");
+        }
+        if (options.getSyncEveryEvents() < 0) {
+            throw new IllegalArgumentException("Number of events between syncs must not be negative");
+        }
+        if (options.getCheckpointEveryEvents() <= 0) {
+            throw new IllegalArgumentException("Number of events between checkpoints must be positive");
+        }
+        this.eventIdExtractor = eventIdExtractor;
+        this.aggregateIdExtractor = aggregateIdExtractor;
+        this.eventVersioningStrategy = eventVersioningStrategy;
+        this.directory = directory;
+        this.segmentBytes = options.getSegmentBytes();
+        this.syncEveryEvents = options.getSyncEveryEvents();
+        this.checkpointEveryEvents = options.getCheckpointEveryEvents();
+        try {
+            open();
+        } catch (IOException ex) {
+            throw new EventStoreException(String.format("Could not open event log in %s", directory), ex);
+        }
+    }
+
+    @Override
+    public void save(E event, String aggregateName) {
+        append(encode(event, aggregateName), ANY_VERSION);
+    }
+
+    @Override
+    public void save(E event, String aggregateName, int expectedAggregateVersion) {
+        append(encode(event, aggregateName), expectedAggregateVersion);
+    }
+
+    /**
+     * Expected versions, event ids and sizes of all events are checked before the first of them is written,
+     * so the unit of work is saved in whole or not at all. Events are synced together, still a crash while they are
+     * written may leave only the first of them in the log after recovery.
+     */
+    @Override
+    public void save(UnitOfWork<E> unitOfWork) {
+        List<UnitOfWork.Append<E>> appends = unitOfWork.getAppends();
+        List<EncodedEvent> events = new ArrayList<>(appends.size());
+        for (UnitOfWork.Append<E> append : appends) {
+            events.add(encode(append.getEvent(), append.getAggregateName()));
+        }
+        synchronized (writeLock) {
+            validateOpen();
+            Map<Stream, Integer> versions = new HashMap<>();
+            Set<UUID> eventIds = new HashSet<>();
+            for (int index = 0; index < events.size(); index++) {
+                UnitOfWork.Append<E> append = appends.get(index);
+                EncodedEvent event = events.get(index);
+                int aggregateVersion = versions.getOrDefault(event.stream, event.stream.getAggregateVersion());
+                if (append.hasExpectedAggregateVersion() && aggregateVersion != append.getExpectedAggregateVersion()) {
+                    throw new OptimisticLockingException(
+                            event.stream.aggregateId, event.stream.aggregateName, append.getExpectedAggregateVersion()
+                    );
+                }
+                if (positionsByEventId.containsKey(event.eventId) || !eventIds.add(event.eventId)) {
+                    throw duplicatedEventException(event);
+                }
+                validateSize(event);
+                versions.put(event.stream, aggregateVersion + 1);
+            }
+            Instant recordedAt = nextRecordedAt();
+            for (EncodedEvent event : events) {
+                long location = write(event, locationsByPosition.size() + 1, event.stream.getAggregateVersion() + 1, recordedAt);
+                index(event.stream, event.eventId, location);
+            }
+            syncIfNeeded(events.size());
+        }
+        if (locationsByPosition.size() - checkpointedPosition >= checkpointEveryEvents) {
+            checkpoint();
+        }
+    }
+
+    @Override
+    public boolean contains(E event, String aggregateName) {
+        Long position = positionsByEventId.get(eventIdExtractor.apply(event));
+        if (position == null) {
+            return false;
+        }
+        long location = locationsByPosition.get((int) (position - 1));
+        LogRecord record = LogRecord.parse(recordBody(location), false);
+        if (!record.aggregateId.equals(aggregateIdExtractor.apply(event)) || !record.aggregateName.equals(aggregateName)) {
+            return false;
+        }
+        return toEvent(location).equals(event);
+    }
+
+    @Override
+    public Map<UUID, List<E>> findAllGroupByAggregate(String aggregateName) {
+        return findAll(aggregateName)
+                .stream()
+                .collect(groupingBy(aggregateIdExtractor));
+    }
+
+    @Override
+    public List<E> findAll(String aggregateName) {
+        return toEvents(streamsByAggregateName.get(aggregateName));
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId) {
+        return toEvents(streamsByAggregateId.get(aggregateId));
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId, String aggregateName) {
+        return findAllAfterVersion(aggregateId, aggregateName, 0);
+    }
+
+    @Override
+    public List<E> findAllAfterVersion(UUID aggregateId, String aggregateName, int aggregateVersion) {
+        Stream stream = streams.get(new StreamKey(aggregateId, aggregateName));
+        List<E> result = new ArrayList<>();
+        if (stream == null) {
+            return result;
+        }
+        long[] locations = stream.locations.snapshot();
+        for (int index = Math.max(0, aggregateVersion); index < locations.length; index++) {
+            result.add(toEvent(locations[index]));
+        }
+        return result;
+    }
+
+    @Override
+    public List<E> findAllToEvent(E toEvent, String aggregateName) {
+        Long lastPosition = positionsByEventId.get(eventIdExtractor.apply(toEvent));
+        Stream stream = streams.get(new StreamKey(aggregateIdExtractor.apply(toEvent), aggregateName));
+        List<E> result = new ArrayList<>();
+        if (lastPosition == null || stream == null) {
+            return result;
+        }
+        long lastLocation = locationsByPosition.get((int) (lastPosition - 1));
+        for (long location : stream.locations.snapshot()) {
+            if (location > lastLocation) {
+                break;
+            }
+            result.add(toEvent(location));
+        }
+        return result;
+    }
+
+    @Override
+    public List<PositionedEvent<E>> findAllAfterPosition(long position, int limit) {
+        List<PositionedEvent<E>> result = new ArrayList<>();
+        long lastPosition = Math.min(locationsByPosition.size(), position + limit);
+        for (long nextPosition = position + 1; nextPosition <= lastPosition; nextPosition++) {
+            result.add(new PositionedEvent<>(nextPosition, toEvent(locationsByPosition.get((int) (nextPosition - 1)))));
+        }
+        return result;
+    }
+
+    @Override
+    public long findLastPosition() {
+        return locationsByPosition.size();
+    }
+
+    @Override
+    public List<RecordedEvent<E>> findAllRecordedBetween(Instant from, Instant to, long afterPosition, int limit) {
+        return findAllRecorded(from, to, afterPosition, limit, record -> true);
+    }
+
+    /**
+     * Records of the time range are read one by one, so the cost grows with number of all events in the range,
+     * not only those with given name.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(String eventName, Instant from, Instant to, long afterPosition, int limit) {
+        return findAllRecorded(from, to, afterPosition, limit, record -> record.eventName.equals(eventName));
+    }
+
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    ) {
+        return findAllRecorded(
+                from,
+                to,
+                afterPosition,
+                limit,
+                record -> record.eventName.equals(eventName) && record.aggregateName.equals(aggregateName)
+        );
+    }
+
+    /**
+     * Publishes all events that occurred after given position and keeps publishing new events as they appear.
+     * Positions are consecutive, so the publisher never skips an event.
+     * Publisher never completes, subscriber has to cancel subscription when it is no longer interested in events.
+     */
+    public Flow.Publisher<PositionedEvent<E>> tail(long afterPosition, Duration pollInterval) {
+        return new CursorPublisher<>(
+                () -> new TailCursor(afterPosition),
+                CursorPublisher.DEFAULT_EXECUTOR,
+                pollInterval
+        );
+    }
+
+    @Override
+    public EventVersioningStrategy<E> getEventVersioningStrategy() {
+        return eventVersioningStrategy;
+    }
+
+    /**
+     * Forces all saved events to disk, regardless of the sync setting.
+     */
+    public void sync() {
+        synchronized (writeLock) {
+            segments[currentSegment].force();
+            unsyncedEvents = 0;
+        }
+    }
+
+    /**
+     * Appends index entries of events saved since the last checkpoint to the checkpoint file.
+     * Events are synced to disk first, so the checkpoint never points at events that could be lost.
+     * Called automatically every configured number of events and when the store is closed.
+     */
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            int lastPosition = locationsByPosition.size();
+            if (lastPosition == checkpointedPosition) {
+                return;
+            }
+            sync();
+            ByteArrayOutputStream streamEntries = new ByteArrayOutputStream();
+            ByteArrayOutputStream eventEntries = new ByteArrayOutputStream();
+            try {
+                DataOutputStream streamOut = new DataOutputStream(streamEntries);
+                DataOutputStream eventOut = new DataOutputStream(eventEntries);
+                int newStreams = 0;
+                for (int position = (int) checkpointedPosition + 1; position <= lastPosition; position++) {
+                    long location = locationsByPosition.get(position - 1);
+                    LogRecord record = LogRecord.parse(recordBody(location), false);
+                    StreamKey key = new StreamKey(record.aggregateId, record.aggregateName);
+                    Integer ordinal = checkpointedStreams.get(key);
+                    if (ordinal == null) {
+                        ordinal = checkpointedStreams.size();
+                        checkpointedStreams.put(key, ordinal);
+                        writeUuid(streamOut, key.aggregateId);
+                        writeString(streamOut, key.aggregateName);
+                        newStreams++;
+                    }
+                    eventOut.writeLong(location);
+                    writeUuid(eventOut, record.eventId);
+                    eventOut.writeInt(ordinal);
+                }
+                ByteArrayOutputStream batch = new ByteArrayOutputStream();
+                DataOutputStream batchOut = new DataOutputStream(batch);
+                batchOut.writeInt(newStreams);
+                streamEntries.writeTo(batchOut);
+                batchOut.writeInt(lastPosition - (int) checkpointedPosition);
+                eventEntries.writeTo(batchOut);
+                byte[] batchBytes = batch.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(batchBytes);
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).putInt(batchBytes.length).putInt((int) crc.getValue());
+                checkpointChannel.write(new ByteBuffer[] {header.flip(), ByteBuffer.wrap(batchBytes)});
+                checkpointChannel.force(false);
+            } catch (IOException ex) {
+                throw new EventStoreException(String.format("Could not write checkpoint of event log in %s", directory), ex);
+            }
+            checkpointedPosition = lastPosition;
+        }
+    }
+
+    /**
+     * Writes the final checkpoint and releases the directory. Events saved before are still readable,
+     * but saving is no longer possible.
+     */
+    @Override
+    public void close() {
+        synchronized (checkpointLock) {
+            if (checkpointChannel == null) {
+                return;
+            }
+            synchronized (writeLock) {
+                closed = true;
+            }
+            checkpoint();
+            try {
+                directoryLock.release();
+                checkpointChannel.close();
+            } catch (IOException ex) {
+                throw new EventStoreException(String.format("Could not close event log in %s", directory), ex);
+            } finally {
+                checkpointChannel = null;
+            }
+        }
+    }
+
+    Stream stream(UUID aggregateId, String aggregateName) {
+        return streams.computeIfAbsent(new StreamKey(aggregateId, aggregateName), key -> {
+            Stream stream = new Stream(randomUUID(), aggregateId, aggregateName);
+            streamsByAggregateName.computeIfAbsent(aggregateName, name -> new ConcurrentLinkedQueue<>()).add(stream);
+            streamsByAggregateId.computeIfAbsent(aggregateId, id -> new ConcurrentLinkedQueue<>()).add(stream);
+            return stream;
+        });
+    }
+
+    List<Stream> streams() {
+        return new ArrayList<>(streams.values());
+    }
+
+    LogRecord readRecord(long location) {
+        return LogRecord.parse(recordBody(location), true);
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE), CREATE, READ, WRITE);
+        try {
+            directoryLock = checkpointChannel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            directoryLock = null;
+        }
+        if (directoryLock == null) {
+            checkpointChannel.close();
+            throw new EventStoreException(String.format("Event log in %s is used by another store", directory));
+        }
+        try {
+            openSegments();
+        } catch (IOException | RuntimeException ex) {
+            checkpointChannel.close();
+            throw ex;
+        }
+        log.info("Opened event log in {} with {} events in {} segments", directory, locationsByPosition.size(), segments.length);
+    }
+
+    private void openSegments() throws IOException {
+        List<MappedByteBuffer> mappedSegments = new ArrayList<>();
+        try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+            List<Path> segmentFiles = files
+                    .filter(file -> file.getFileName().toString().matches(SEGMENT_FILE_PATTERN))
+                    .sorted()
+                    .collect(java.util.stream.Collectors.toList());
+            for (Path segmentFile : segmentFiles) {
+                if (!segmentFile.getFileName().toString().equals(segmentFileName(mappedSegments.size()))) {
+                    throw new EventStoreException(String.format("Segment %s of event log does not follow previous segments", segmentFile));
+                }
+                mappedSegments.add(mapSegment(mappedSegments.size()));
+            }
+        }
+        if (mappedSegments.isEmpty()) {
+            mappedSegments.add(mapSegment(0));
+        }
+        segments = mappedSegments.toArray(new MappedByteBuffer[0]);
+        long location = readCheckpoint();
+        recover(location);
+        if (locationsByPosition.size() > 0) {
+            lastRecordedAt = LogRecord.parse(recordBody(locationsByPosition.get(locationsByPosition.size() - 1)), false).recordedAt;
+        }
+    }
+
+    private MappedByteBuffer mapSegment(int index) throws IOException {
+        Path file = directory.resolve(segmentFileName(index));
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+            long existingSize = channel.size();
+            if (existingSize > Integer.MAX_VALUE) {
+                throw new EventStoreException(String.format("Segment %s of event log is bigger than 2 GiB", file));
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, existingSize == 0 ? segmentBytes : existingSize);
+            if (existingSize == 0) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(Integer.BYTES, FORMAT_VERSION);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+                throw new EventStoreException(String.format("File %s is not an event log segment of version %d", file, FORMAT_VERSION));
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Reads valid batches of the checkpoint file into the index and truncates the file after the last valid one.
+     *
+     * @return location of the first record that is not covered by the checkpoint
+     */
+    private long readCheckpoint() throws IOException {
+        ByteBuffer checkpoint = ByteBuffer.allocate((int) checkpointChannel.size());
+        checkpointChannel.read(checkpoint, 0);
+        checkpoint.flip();
+        if (checkpoint.limit() < FILE_HEADER_BYTES) {
+            checkpointChannel.truncate(0);
+            checkpointChannel.write(ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip(), 0);
+            checkpointChannel.position(FILE_HEADER_BYTES);
+            return location(0, FILE_HEADER_BYTES);
+        }
+        if (checkpoint.getInt() != MAGIC || checkpoint.getInt() != FORMAT_VERSION) {
+            throw new EventStoreException(String.format("Checkpoint of event log in %s is not of version %d", directory, FORMAT_VERSION));
+        }
+        List<Stream> streamsByOrdinal = new ArrayList<>();
+        int validEnd = checkpoint.position();
+        while (checkpoint.remaining() >= RECORD_HEADER_BYTES) {
+            int length = checkpoint.getInt();
+            final int checksum = checkpoint.getInt();
+            if (length <= 0 || length > checkpoint.remaining()) {
+                break;
+            }
+            ByteBuffer batch = checkpoint.slice();
+            batch.limit(length);
+            CRC32 crc = new CRC32();
+            crc.update(batch.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            int newStreams = batch.getInt();
+            for (int stream = 0; stream < newStreams; stream++) {
+                Stream newStream = stream(readUuid(batch), readString(batch));
+                checkpointedStreams.put(new StreamKey(newStream.aggregateId, newStream.aggregateName), streamsByOrdinal.size());
+                streamsByOrdinal.add(newStream);
+            }
+            int events = batch.getInt();
+            for (int event = 0; event < events; event++) {
+                long location = batch.getLong();
+                UUID eventId = readUuid(batch);
+                index(streamsByOrdinal.get(batch.getInt()), eventId, location);
+            }
+            checkpoint.position(checkpoint.position() + length);
+            validEnd = checkpoint.position();
+        }
+        if (validEnd < checkpoint.limit()) {
+            log.warn("Truncating invalid end of checkpoint of event log in {} at offset {}", directory, validEnd);
+            checkpointChannel.truncate(validEnd);
+        }
+        checkpointChannel.position(validEnd);
+        checkpointedPosition = locationsByPosition.size();
+        if (checkpointedPosition == 0) {
+            return location(0, FILE_HEADER_BYTES);
+        }
+        long lastLocation = locationsByPosition.get((int) checkpointedPosition - 1);
+        return lastLocation + RECORD_HEADER_BYTES + segments[segmentOf(lastLocation)].getInt(offsetOf(lastLocation));
+    }
+
+    /**
+     * Indexes valid records written after the checkpoint. Scanning stops at the first record that is not complete,
+     * has invalid checksum or unexpected position, and everything written after it is removed.
+     */
+    private void recover(long location) throws IOException {
+        int segment = segmentOf(location);
+        int offset = offsetOf(location);
+        while (true) {
+            LogRecord record = readValidRecord(segments[segment], offset, locationsByPosition.size() + 1);
+            if (record != null) {
+                index(stream(record.aggregateId, record.aggregateName), record.eventId, location(segment, offset));
+                offset += RECORD_HEADER_BYTES + record.bodyLength;
+            } else if (segment + 1 < segments.length && !hasData(segments[segment], offset)) {
+                segment++;
+                offset = FILE_HEADER_BYTES;
+            } else {
+                break;
+            }
+        }
+        truncate(segment, offset);
+        currentSegment = segment;
+        writeOffset = offset;
+    }
+
+    private void truncate(int segment, int offset) throws IOException {
+        MappedByteBuffer buffer = segments[segment];
+        if (hasData(buffer, offset)) {
+            log.warn("Truncating torn end of event log in {} at segment {} offset {}", directory, segment, offset);
+            for (int index = offset; index < buffer.capacity(); index++) {
+                buffer.put(index, (byte) 0);
+            }
+            buffer.force();
+        }
+        if (segment + 1 < segments.length) {
+            for (int index = segment + 1; index < segments.length; index++) {
+                Files.delete(directory.resolve(segmentFileName(index)));
+            }
+            segments = Arrays.copyOf(segments, segment + 1);
+        }
+    }
+
+    private static boolean hasData(ByteBuffer buffer, int offset) {
+        for (int index = offset; index < buffer.capacity(); index++) {
+            if (buffer.get(index) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static LogRecord readValidRecord(ByteBuffer buffer, int offset, long expectedPosition) {
+        if (offset + RECORD_HEADER_BYTES + RECORD_FIXED_BODY_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int bodyLength = buffer.getInt(offset);
+        if (bodyLength < RECORD_FIXED_BODY_BYTES || bodyLength > buffer.capacity() - offset - RECORD_HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.position(offset + RECORD_HEADER_BYTES);
+        body.limit(offset + RECORD_HEADER_BYTES + bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES) || body.getLong(body.position()) != expectedPosition) {
+            return null;
+        }
+        return LogRecord.parse(body, false);
+    }
+
+    /**
+     * Serialization is done before the log is locked, so it does not extend the time other writers wait.
+     */
+    /**
+     * Recording times do not decrease with positions, so the first record of the page is found by binary search.
+     */
+    private List<RecordedEvent<E>> findAllRecorded(
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit,
+            Predicate<LogRecord> filter
+    ) {
+        int size = locationsByPosition.size();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            LogRecord record = LogRecord.parse(recordBody(locationsByPosition.get(middle)), false);
+            int comparison = record.recordedAt.compareTo(from);
+            if (comparison < 0 || comparison == 0 && record.position <= afterPosition) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<RecordedEvent<E>> result = new ArrayList<>();
+        for (int index = low; index < size && result.size() < limit; index++) {
+            long location = locationsByPosition.get(index);
+            LogRecord record = LogRecord.parse(recordBody(location), false);
+            if (!record.recordedAt.isBefore(to)) {
+                break;
+            }
+            if (filter.test(record)) {
+                result.add(new RecordedEvent<>(record.position, record.recordedAt, toEvent(location)));
+            }
+        }
+        return result;
+    }
+
+    private EncodedEvent encode(E event, String aggregateName) {
+        Class<? extends E> eventType = (Class<? extends E>) event.getClass();
+        return new EncodedEvent(
+                stream(aggregateIdExtractor.apply(event), aggregateName),
+                eventIdExtractor.apply(event),
+                aggregateName.getBytes(UTF_8),
+                eventVersioningStrategy.toName(eventType).getBytes(UTF_8),
+                eventVersioningStrategy.toVersion(eventType),
+                eventVersioningStrategy.toJson(event).getBytes(UTF_8)
+        );
+    }
+
+    private void append(EncodedEvent event, int expectedAggregateVersion) {
+        Stream stream = event.stream;
+        synchronized (writeLock) {
+            validateOpen();
+            if (expectedAggregateVersion != ANY_VERSION && stream.getAggregateVersion() != expectedAggregateVersion) {
+                throw new OptimisticLockingException(stream.aggregateId, stream.aggregateName, expectedAggregateVersion);
+            }
+            if (positionsByEventId.containsKey(event.eventId)) {
+                throw duplicatedEventException(event);
+            }
+            validateSize(event);
+            long location = write(event, locationsByPosition.size() + 1, stream.getAggregateVersion() + 1, nextRecordedAt());
+            index(stream, event.eventId, location);
+            syncIfNeeded(1);
+        }
+        if (locationsByPosition.size() - checkpointedPosition >= checkpointEveryEvents) {
+            checkpoint();
+        }
+    }
+
+    private void validateOpen() {
+        if (closed) {
+            throw new EventStoreException(String.format("Event log in %s is closed", directory));
+        }
+    }
+
+    private void validateSize(EncodedEvent event) {
+        if (RECORD_HEADER_BYTES + bodyLength(event) > segmentBytes - FILE_HEADER_BYTES) {
+            throw new EventStoreException(
+                    String.format("Event with id %s is too big for event log segment of %d bytes", event.eventId, segmentBytes)
+            );
+        }
+    }
+
+    private static EventStoreException duplicatedEventException(EncodedEvent event) {
+        return new EventStoreException(
+                String.format(
+                        "Could not save event to database with aggregateId %s and aggregateName %s, event with id %s already exists",
+                        event.stream.aggregateId,
+                        event.stream.aggregateName,
+                        event.eventId
+                )
+        );
+    }
+
+    /**
+     * Has to be called with the write lock held, after given number of events was written.
+     */
+    private void syncIfNeeded(int writtenEvents) {
+        if (syncEveryEvents <= 0) {
+            return;
+        }
+        unsyncedEvents += writtenEvents;
+        if (unsyncedEvents >= syncEveryEvents) {
+            segments[currentSegment].force();
+            unsyncedEvents = 0;
+        }
+    }
+
+    private static int bodyLength(EncodedEvent event) {
+        return RECORD_FIXED_BODY_BYTES + event.aggregateName.length + event.eventName.length + event.payload.length;
+    }
+
+    /**
+     * Has to be called with the write lock held. Time is truncated to microseconds, as stored in the log.
+     */
+    private Instant nextRecordedAt() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        if (now.isAfter(lastRecordedAt)) {
+            lastRecordedAt = now;
+        }
+        return lastRecordedAt;
+    }
+
+    /**
+     * Has to be called with the write lock held, after size of the event was validated.
+     * Length is written last, so a record is not valid until it is complete.
+     */
+    private long write(EncodedEvent event, long position, int aggregateVersion, Instant recordedAt) {
+        int bodyLength = bodyLength(event);
+        if (writeOffset + RECORD_HEADER_BYTES + bodyLength > segments[currentSegment].capacity()) {
+            rollSegment();
+        }
+        MappedByteBuffer segment = segments[currentSegment];
+        ByteBuffer body = segment.duplicate();
+        body.position(writeOffset + RECORD_HEADER_BYTES);
+        body.putLong(position);
+        body.putLong(ChronoUnit.MICROS.between(Instant.EPOCH, recordedAt));
+        body.putLong(event.eventId.getMostSignificantBits());
+        body.putLong(event.eventId.getLeastSignificantBits());
+        body.putLong(event.stream.aggregateId.getMostSignificantBits());
+        body.putLong(event.stream.aggregateId.getLeastSignificantBits());
+        body.putInt(aggregateVersion);
+        body.putInt(event.eventVersion);
+        body.putShort((short) event.aggregateName.length);
+        body.put(event.aggregateName);
+        body.putShort((short) event.eventName.length);
+        body.put(event.eventName);
+        body.putInt(event.payload.length);
+        body.put(event.payload);
+        body.flip();
+        body.position(writeOffset + RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        segment.putInt(writeOffset + Integer.BYTES, (int) crc.getValue());
+        segment.putInt(writeOffset, bodyLength);
+        long location = location(currentSegment, writeOffset);
+        writeOffset += RECORD_HEADER_BYTES + bodyLength;
+        return location;
+    }
+
+    /**
+     * Full segment is synced before the next one is used, so only the last segment can contain unsynced events.
+     */
+    private void rollSegment() {
+        segments[currentSegment].force();
+        try {
+            MappedByteBuffer[] newSegments = Arrays.copyOf(segments, segments.length + 1);
+            newSegments[segments.length] = mapSegment(segments.length);
+            segments = newSegments;
+        } catch (IOException ex) {
+            throw new EventStoreException(String.format("Could not create segment of event log in %s", directory), ex);
+        }
+        currentSegment++;
+        writeOffset = FILE_HEADER_BYTES;
+    }
+
+    /**
+     * Event is appended to its stream before it gets visible by position, like in database backed stores.
+     */
+    private void index(Stream stream, UUID eventId, long location) {
+        positionsByEventId.put(eventId, (long) locationsByPosition.size() + 1);
+        stream.locations.append(location);
+        locationsByPosition.append(location);
+    }
+
+    /**
+     * Locations grow with positions, so events of many streams are put in order of occurrence by sorting their locations.
+     */
+    private List<E> toEvents(Queue<Stream> streams) {
+        if (streams == null) {
+            return new ArrayList<>();
+        }
+        List<long[]> streamLocations = new ArrayList<>();
+        int size = 0;
+        for (Stream stream : streams) {
+            long[] locations = stream.locations.snapshot();
+            streamLocations.add(locations);
+            size += locations.length;
+        }
+        long[] locations = new long[size];
+        int index = 0;
+        for (long[] stream : streamLocations) {
+            System.arraycopy(stream, 0, locations, index, stream.length);
+            index += stream.length;
+        }
+        Arrays.sort(locations);
+        List<E> result = new ArrayList<>(size);
+        for (long location : locations) {
+            result.add(toEvent(location));
+        }
+        return result;
+    }
+
+    private E toEvent(long location) {
+        LogRecord record = LogRecord.parse(recordBody(location), true);
+        try {
+            return eventVersioningStrategy.toEvent(record.payload, record.eventName, record.eventVersion);
+        } catch (RuntimeException ex) {
+            DecodeFailureEvent.emit(record.eventName, record.eventVersion, eventVersioningStrategy, ex);
+            throw ex;
+        }
+    }
+
+    private ByteBuffer recordBody(long location) {
+        ByteBuffer segment = segments[segmentOf(location)];
+        int offset = offsetOf(location);
+        ByteBuffer body = segment.duplicate();
+        body.position(offset + RECORD_HEADER_BYTES);
+        body.limit(offset + RECORD_HEADER_BYTES + segment.getInt(offset));
+        return body;
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << Integer.SIZE) | offset;
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> Integer.SIZE);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    private static String segmentFileName(int index) {
+        return String.format(SEGMENT_FILE_FORMAT, index);
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class StreamKey {
+
+        private final UUID aggregateId;
+        private final String aggregateName;
+
+    }
+
+    @RequiredArgsConstructor
+    private static class EncodedEvent {
+
+        private final Stream stream;
+        private final UUID eventId;
+        private final byte[] aggregateName;
+        private final byte[] eventName;
+        private final int eventVersion;
+        private final byte[] payload;
+
+    }
+
+    /**
+     * Record of the log. Payload is decoded only when requested.
+     */
+    @RequiredArgsConstructor
+    @Getter
+    static class LogRecord {
+
+        private final long position;
+        private final Instant recordedAt;
+        private final UUID eventId;
+        private final UUID aggregateId;
+        private final int aggregateVersion;
+        private final int eventVersion;
+        private final String aggregateName;
+        private final String eventName;
+        private final String payload;
+        private final int bodyLength;
+
+        static LogRecord parse(ByteBuffer body, boolean withPayload) {
+            int bodyLength = body.remaining();
+            long position = body.getLong();
+            Instant recordedAt = Instant.EPOCH.plus(body.getLong(), ChronoUnit.MICROS);
+            UUID eventId = readUuid(body);
+            UUID aggregateId = readUuid(body);
+            int aggregateVersion = body.getInt();
+            int eventVersion = body.getInt();
+            String aggregateName = readString(body);
+            String eventName = readString(body);
+            String payload = null;
+            if (withPayload) {
+                byte[] payloadBytes = new byte[body.getInt()];
+                body.get(payloadBytes);
+                payload = new String(payloadBytes, UTF_8);
+            }
+            return new LogRecord(
+                    position, recordedAt, eventId, aggregateId, aggregateVersion, eventVersion, aggregateName, eventName, payload, bodyLength
+            );
+        }
+
+    }
+
+    /**
+     * Append only array of record locations with a single writer. Values are written before the size,
+     * so readers that read the size first always see appended values.
+     */
+    static class LocationArray {
+
+        private volatile long[] values = new long[INITIAL_CAPACITY];
+        private volatile int size;
+
+        int size() {
+            return size;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        long[] snapshot() {
+            int currentSize = size;
+            return Arrays.copyOf(values, currentSize);
+        }
+
+        void append(long value) {
+            long[] currentValues = values;
+            if (size == currentValues.length) {
+                currentValues = Arrays.copyOf(currentValues, currentValues.length * 2);
+            }
+            currentValues[size] = value;
+            values = currentValues;
+            size++;
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    @Getter
+    static class Stream {
+
+        private final UUID streamId;
+        private final UUID aggregateId;
+        private final String aggregateName;
+        private final LocationArray locations = new LocationArray();
+
+        int getAggregateVersion() {
+            return locations.size();
+        }
+
+    }
+
+    private class TailCursor implements CursorPublisher.Cursor<PositionedEvent<E>> {
+
+        private long lastPosition;
+
+        TailCursor(long afterPosition) {
+            this.lastPosition = afterPosition;
+        }
+
+        @Override
+        public PositionedEvent<E> next() {
+            if (lastPosition >= locationsByPosition.size()) {
+                return null;
+            }
+            lastPosition++;
+            return new PositionedEvent<>(lastPosition, toEvent(locationsByPosition.get((int) (lastPosition - 1))));
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
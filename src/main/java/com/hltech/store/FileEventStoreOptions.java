@@ -0,0 +1,41 @@
+package com.hltech.store;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Optional settings of {@link FileEventStore}. Every setting has a default value,
+ * so only those that differ from defaults have to be provided, for example:
+ * FileEventStoreOptions.builder().syncEveryEvents(100).build();
+ */
+@Builder
+@Getter
+public class FileEventStoreOptions {
+
+    /**
+     * Size of every log segment file. Segment is allocated and memory mapped in whole when it is created.
+     * Single event has to fit in a segment.
+     */
+    @Builder.Default
+    private final int segmentBytes = 64 * 1024 * 1024;
+
+    /**
+     * Number of saved events after which the log is synced to disk. 1 makes every save durable when it returns,
+     * greater values trade durability of the last saves for throughput, 0 leaves syncing to the operating system
+     * and to checkpoints.
+     */
+    @Builder.Default
+    private final int syncEveryEvents = 1;
+
+    /**
+     * Number of saved events after which new entries of the index are appended to the checkpoint file.
+     * On startup the index is read from the checkpoint and only the log written after it is scanned.
+     */
+    @Builder.Default
+    private final int checkpointEveryEvents = 10_000;
+
+    public static FileEventStoreOptions defaults() {
+        return builder().build();
+    }
+
+}
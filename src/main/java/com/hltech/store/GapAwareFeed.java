@@ -0,0 +1,159 @@
+package com.hltech.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.function.LongSupplier;
+
+/**
+ * Reads events of all aggregates in order of occurrence without skipping events committed out of order.
+ *
+ * <p>Order of occurrence is taken from a database sequence when the event is inserted, but transactions commit
+ * in any order, so event with lower position can become visible after event with higher position was already read.
+ * Plain paging by the last read position silently skips such events. This feed returns only the consecutive run
+ * of positions following its position. When a position is missing, events after it are not returned until
+ * the missing event commits or the gap outlives the maximal gap wait. Sequences leave permanent gaps when
+ * transactions roll back (and Oracle sequences leave gaps when cached values are lost), so the wait has to be bounded.
+ * It should be longer than the longest save transaction, a few seconds is usually enough.
+ *
+ * <p>On the first poll the feed records the last position of the store as a high-water position. Every position below it
+ * was taken before it was recorded, so gaps below it are all waited for once, from that moment, instead of page by page.
+ * Feed catching up with a long history with permanent gaps waits the maximal gap wait once, not once per page.
+ *
+ * <p>Position of the feed never moves past an event that was not returned, so it can be stored by the consumer
+ * and used to resume reading without overlapping windows. Feed is not thread safe.
+ */
+@Slf4j
+public class GapAwareFeed<E> {
+
+    private static final int TAIL_PAGE_SIZE = 500;
+
+    private final EventStore<E> eventStore;
+    private final long maxGapWaitNanos;
+    private final LongSupplier nanoClock;
+
+    private long position;
+    private long highWaterPosition;
+    private long highWaterSeenNanos;
+    private boolean highWaterRecorded;
+    private Map<Long, Long> gapsFirstSeenNanos = new HashMap<>();
+
+    public GapAwareFeed(EventStore<E> eventStore, long afterPosition, Duration maxGapWait) {
+        this(eventStore, afterPosition, maxGapWait, System::nanoTime);
+    }
+
+    GapAwareFeed(EventStore<E> eventStore, long afterPosition, Duration maxGapWait, LongSupplier nanoClock) {
+        if (maxGapWait.isNegative()) {
+            throw new IllegalArgumentException("Maximal gap wait must not be negative");
+        }
+        this.eventStore = eventStore;
+        this.position = afterPosition;
+        this.maxGapWaitNanos = maxGapWait.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Publishes all events that occurred after given position and keeps publishing new events as they appear,
+     * waiting for missing positions as described in {@link GapAwareFeed}. Every subscription gets its own feed.
+     * Publisher never completes, subscriber has to cancel subscription when it is no longer interested in events.
+     */
+    public static <E> Flow.Publisher<PositionedEvent<E>> tail(
+            EventStore<E> eventStore,
+            long afterPosition,
+            Duration pollInterval,
+            Duration maxGapWait
+    ) {
+        return new CursorPublisher<>(
+                () -> new FeedCursor<>(new GapAwareFeed<>(eventStore, afterPosition, maxGapWait)),
+                CursorPublisher.DEFAULT_EXECUTOR,
+                pollInterval
+        );
+    }
+
+    /**
+     * Returns at most given number of events following the position of the feed and moves the position
+     * to the last returned event. Returns fewer events, possibly none, when it has to wait for a missing position.
+     */
+    public List<PositionedEvent<E>> poll(int limit) {
+        if (!highWaterRecorded) {
+            highWaterPosition = eventStore.findLastPosition();
+            highWaterSeenNanos = nanoClock.getAsLong();
+            highWaterRecorded = true;
+        }
+        List<PositionedEvent<E>> events = eventStore.findAllAfterPosition(position, limit);
+        long now = nanoClock.getAsLong();
+        Map<Long, Long> gapsSeenNow = new HashMap<>();
+        List<PositionedEvent<E>> result = new ArrayList<>(events.size());
+        long expectedPosition = position + 1;
+        boolean blocked = false;
+        for (PositionedEvent<E> event : events) {
+            if (event.getPosition() != expectedPosition) {
+                long firstSeenNanos = gapsFirstSeenNanos.getOrDefault(expectedPosition, now);
+                if (event.getPosition() <= highWaterPosition) {
+                    firstSeenNanos = Math.min(firstSeenNanos, highWaterSeenNanos);
+                }
+                gapsSeenNow.put(expectedPosition, firstSeenNanos);
+                if (now - firstSeenNanos < maxGapWaitNanos) {
+                    blocked = true;
+                } else if (!blocked) {
+                    log.debug("Skipping positions {}-{} missing longer than {} ns", expectedPosition, event.getPosition() - 1, maxGapWaitNanos);
+                }
+            }
+            if (!blocked) {
+                result.add(event);
+                position = event.getPosition();
+            }
+            expectedPosition = event.getPosition() + 1;
+        }
+        gapsSeenNow.keySet().removeIf(gapStart -> gapStart <= position);
+        gapsFirstSeenNanos = gapsSeenNow;
+        return result;
+    }
+
+    /**
+     * Position of the last event returned by the feed. All events up to this position were returned
+     * or confirmed missing.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    private static class FeedCursor<E> implements CursorPublisher.Cursor<PositionedEvent<E>> {
+
+        private final GapAwareFeed<E> feed;
+        private Iterator<PositionedEvent<E>> page = Collections.emptyIterator();
+
+        FeedCursor(GapAwareFeed<E> feed) {
+            this.feed = feed;
+        }
+
+        @Override
+        public PositionedEvent<E> next() {
+            if (!page.hasNext()) {
+                page = feed.poll(TAIL_PAGE_SIZE).iterator();
+                if (!page.hasNext()) {
+                    return null;
+                }
+            }
+            return page.next();
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
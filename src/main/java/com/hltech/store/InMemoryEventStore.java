@@ -0,0 +1,521 @@
+package com.hltech.store;
+
+import com.hltech.store.versioning.EventVersioningStrategy;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Event store that keeps all events in memory, meant for tests and local simulations.
+ * It follows the semantics of database backed stores: aggregate versions are consecutive within the stream,
+ * optimistic locking is honored and every event gets a position from the global sequence of occurrence.
+ *
+ * <p>Every stream is an append only array guarded by its own lock, so saves to different aggregates never contend.
+ * Readers never lock, they see the stream up to the last fully appended event.
+ *
+ * <p>When created with {@link EventVersioningStrategy}, events are stored serialized and deserialized on every read,
+ * so the serialization cost is included like in database backed stores. Without the strategy events are stored as they are.
+ */
+public class InMemoryEventStore<E> implements EventStore<E> {
+
+    private static final int INITIAL_STREAM_CAPACITY = 8;
+
+    private final Function<E, UUID> eventIdExtractor;
+    private final Function<E, UUID> aggregateIdExtractor;
+    private final EventVersioningStrategy<E> eventVersioningStrategy;
+
+    private final Map<StreamKey, Stream> streams = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Stream>> streamsByAggregateName = new ConcurrentHashMap<>();
+    private final Map<UUID, Queue<Stream>> streamsByAggregateId = new ConcurrentHashMap<>();
+    private final Map<UUID, StoredEvent> eventsById = new ConcurrentHashMap<>();
+    private final Map<Long, StoredEvent> eventsByPosition = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public InMemoryEventStore(
+            Function<E, UUID> eventIdExtractor,
+            Function<E, UUID> aggregateIdExtractor
+    ) {
+        this(eventIdExtractor, aggregateIdExtractor, null);
+    }
+
+    public InMemoryEventStore(
+            Function<E, UUID> eventIdExtractor,
+            Function<E, UUID> aggregateIdExtractor,
+            EventVersioningStrategy<E> eventVersioningStrategy
+    ) {
+        this.eventIdExtractor = eventIdExtractor;
+        this.aggregateIdExtractor = aggregateIdExtractor;
+        this.eventVersioningStrategy = eventVersioningStrategy;
+    }
+
+    @Override
+    public void save(E event, String aggregateName) {
+        StoredEvent storedEvent = toStoredEvent(event);
+        Stream stream = stream(aggregateIdExtractor.apply(event), aggregateName);
+        synchronized (stream) {
+            append(stream, storedEvent);
+        }
+    }
+
+    @Override
+    public void save(E event, String aggregateName, int expectedAggregateVersion) {
+        StoredEvent storedEvent = toStoredEvent(event);
+        Stream stream = stream(aggregateIdExtractor.apply(event), aggregateName);
+        synchronized (stream) {
+            if (stream.size != expectedAggregateVersion) {
+                throw new OptimisticLockingException(stream.aggregateId, aggregateName, expectedAggregateVersion);
+            }
+            append(stream, storedEvent);
+        }
+    }
+
+    /**
+     * Streams are locked in the order of {@link UnitOfWork}. Expected versions and event ids are all checked
+     * before the first event is appended, so the unit of work is saved in whole or not at all.
+     */
+    @Override
+    public void save(UnitOfWork<E> unitOfWork) {
+        List<UnitOfWork.Append<E>> appends = unitOfWork.getAppends();
+        List<StoredEvent> storedEvents = new ArrayList<>(appends.size());
+        List<Stream> streams = new ArrayList<>(appends.size());
+        for (UnitOfWork.Append<E> append : appends) {
+            storedEvents.add(toStoredEvent(append.getEvent()));
+            streams.add(stream(aggregateIdExtractor.apply(append.getEvent()), append.getAggregateName()));
+        }
+        List<Stream> lockedStreams = new ArrayList<>();
+        for (UnitOfWork.StreamId streamId : unitOfWork.streamIds(aggregateIdExtractor)) {
+            lockedStreams.add(stream(streamId.getAggregateId(), streamId.getAggregateName()));
+        }
+        saveLocked(lockedStreams, 0, appends, streams, storedEvents);
+    }
+
+    @Override
+    public boolean contains(E event, String aggregateName) {
+        StoredEvent storedEvent = eventsById.get(eventIdExtractor.apply(event));
+        if (storedEvent == null || !storedEvent.stream.belongsTo(aggregateIdExtractor.apply(event), aggregateName)) {
+            return false;
+        }
+        return toEvent(storedEvent).equals(event);
+    }
+
+    @Override
+    public Map<UUID, List<E>> findAllGroupByAggregate(String aggregateName) {
+        return findAll(aggregateName)
+                .stream()
+                .collect(groupingBy(aggregateIdExtractor));
+    }
+
+    @Override
+    public List<E> findAll(String aggregateName) {
+        return toEvents(streamsByAggregateName.get(aggregateName));
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId) {
+        return toEvents(streamsByAggregateId.get(aggregateId));
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId, String aggregateName) {
+        Stream stream = streams.get(new StreamKey(aggregateId, aggregateName));
+        if (stream == null) {
+            return new ArrayList<>();
+        }
+        StoredEvent[] storedEvents = stream.snapshot();
+        List<E> result = new ArrayList<>(storedEvents.length);
+        for (StoredEvent storedEvent : storedEvents) {
+            result.add(toEvent(storedEvent));
+        }
+        return result;
+    }
+
+    @Override
+    public List<E> findAllAfterVersion(UUID aggregateId, String aggregateName, int aggregateVersion) {
+        Stream stream = streams.get(new StreamKey(aggregateId, aggregateName));
+        List<E> result = new ArrayList<>();
+        if (stream == null) {
+            return result;
+        }
+        StoredEvent[] storedEvents = stream.snapshot();
+        for (int index = Math.max(0, aggregateVersion); index < storedEvents.length; index++) {
+            result.add(toEvent(storedEvents[index]));
+        }
+        return result;
+    }
+
+    @Override
+    public List<E> findAllToEvent(E toEvent, String aggregateName) {
+        StoredEvent lastEvent = eventsById.get(eventIdExtractor.apply(toEvent));
+        Stream stream = streams.get(new StreamKey(aggregateIdExtractor.apply(toEvent), aggregateName));
+        List<E> result = new ArrayList<>();
+        if (lastEvent == null || stream == null) {
+            return result;
+        }
+        for (StoredEvent storedEvent : stream.snapshot()) {
+            if (storedEvent.position > lastEvent.position) {
+                break;
+            }
+            result.add(toEvent(storedEvent));
+        }
+        return result;
+    }
+
+    /**
+     * Positions are consecutive, so reading stops at the first position that is not appended yet.
+     */
+    @Override
+    public List<PositionedEvent<E>> findAllAfterPosition(long position, int limit) {
+        List<PositionedEvent<E>> result = new ArrayList<>();
+        long nextPosition = position + 1;
+        while (result.size() < limit) {
+            StoredEvent storedEvent = eventsByPosition.get(nextPosition++);
+            if (storedEvent == null) {
+                break;
+            }
+            if (storedEvent != StoredEvent.REJECTED) {
+                result.add(new PositionedEvent<>(storedEvent.position, toEvent(storedEvent)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Includes positions of events rejected because of duplicated id.
+     */
+    @Override
+    public long findLastPosition() {
+        return sequence.get();
+    }
+
+    /**
+     * Recording time is taken together with the position, but streams are appended concurrently,
+     * so it may not follow positions. Every page scans all events, which is fine for tests and simulations.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllRecordedBetween(Instant from, Instant to, long afterPosition, int limit) {
+        return findAllRecorded(from, to, afterPosition, limit, storedEvent -> true);
+    }
+
+    /**
+     * Without {@link EventVersioningStrategy} event name is the simple name of the event class.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(String eventName, Instant from, Instant to, long afterPosition, int limit) {
+        return findAllRecorded(from, to, afterPosition, limit, storedEvent -> eventName.equals(eventName(storedEvent)));
+    }
+
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    ) {
+        return findAllRecorded(
+                from,
+                to,
+                afterPosition,
+                limit,
+                storedEvent -> eventName.equals(eventName(storedEvent)) && storedEvent.stream.aggregateName.equals(aggregateName)
+        );
+    }
+
+    /**
+     * Publishes all events that occurred after given position and keeps publishing new events as they appear.
+     * Positions are consecutive, so the publisher waits for the next position to be appended instead of skipping it.
+     * Publisher never completes, subscriber has to cancel subscription when it is no longer interested in events.
+     */
+    public Flow.Publisher<PositionedEvent<E>> tail(long afterPosition, Duration pollInterval) {
+        return new CursorPublisher<>(
+                () -> new TailCursor(afterPosition),
+                CursorPublisher.DEFAULT_EXECUTOR,
+                pollInterval
+        );
+    }
+
+    @Override
+    public EventVersioningStrategy<E> getEventVersioningStrategy() {
+        return eventVersioningStrategy;
+    }
+
+    Stream stream(UUID aggregateId, String aggregateName) {
+        return streams.computeIfAbsent(new StreamKey(aggregateId, aggregateName), key -> {
+            Stream stream = new Stream(randomUUID(), aggregateId, aggregateName);
+            streamsByAggregateName.computeIfAbsent(aggregateName, name -> new ConcurrentLinkedQueue<>()).add(stream);
+            streamsByAggregateId.computeIfAbsent(aggregateId, id -> new ConcurrentLinkedQueue<>()).add(stream);
+            return stream;
+        });
+    }
+
+    Collection<Stream> streams() {
+        return streams.values();
+    }
+
+    /**
+     * Serialization is done before the stream is locked, so it does not extend the time other writers wait.
+     */
+    private StoredEvent toStoredEvent(E event) {
+        if (eventVersioningStrategy == null) {
+            return new StoredEvent(eventIdExtractor.apply(event), event, null, 0);
+        }
+        Class<? extends E> eventType = (Class<? extends E>) event.getClass();
+        return new StoredEvent(
+                eventIdExtractor.apply(event),
+                eventVersioningStrategy.toJson(event),
+                eventVersioningStrategy.toName(eventType),
+                eventVersioningStrategy.toVersion(eventType)
+        );
+    }
+
+    /**
+     * Has to be called with the stream lock held. Position is taken only when the event is certain to be appended,
+     * so positions have no gaps, except for events rejected because of duplicated id.
+     */
+    private void append(Stream stream, StoredEvent storedEvent) {
+        storedEvent.stream = stream;
+        storedEvent.aggregateVersion = stream.size + 1;
+        storedEvent.position = sequence.incrementAndGet();
+        storedEvent.recordedAt = Instant.now();
+        if (eventsById.putIfAbsent(storedEvent.id, storedEvent) != null) {
+            eventsByPosition.put(storedEvent.position, StoredEvent.REJECTED);
+            throw duplicatedEventException(stream, storedEvent.id);
+        }
+        stream.append(storedEvent);
+        eventsByPosition.put(storedEvent.position, storedEvent);
+    }
+
+    /**
+     * Locks streams one by one, then checks and appends events of the unit of work with all of them locked.
+     */
+    private void saveLocked(
+            List<Stream> lockedStreams,
+            int lockIndex,
+            List<UnitOfWork.Append<E>> appends,
+            List<Stream> streams,
+            List<StoredEvent> storedEvents
+    ) {
+        if (lockIndex < lockedStreams.size()) {
+            synchronized (lockedStreams.get(lockIndex)) {
+                saveLocked(lockedStreams, lockIndex + 1, appends, streams, storedEvents);
+            }
+            return;
+        }
+        Map<Stream, Integer> versions = new HashMap<>();
+        Set<UUID> eventIds = new HashSet<>();
+        for (int index = 0; index < appends.size(); index++) {
+            UnitOfWork.Append<E> append = appends.get(index);
+            Stream stream = streams.get(index);
+            int aggregateVersion = versions.getOrDefault(stream, stream.size);
+            if (append.hasExpectedAggregateVersion() && aggregateVersion != append.getExpectedAggregateVersion()) {
+                throw new OptimisticLockingException(stream.aggregateId, stream.aggregateName, append.getExpectedAggregateVersion());
+            }
+            UUID eventId = storedEvents.get(index).id;
+            if (eventsById.containsKey(eventId) || !eventIds.add(eventId)) {
+                throw duplicatedEventException(stream, eventId);
+            }
+            versions.put(stream, aggregateVersion + 1);
+        }
+        for (int index = 0; index < appends.size(); index++) {
+            append(streams.get(index), storedEvents.get(index));
+        }
+    }
+
+    private List<RecordedEvent<E>> findAllRecorded(
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit,
+            Predicate<StoredEvent> filter
+    ) {
+        List<StoredEvent> storedEvents = new ArrayList<>();
+        for (StoredEvent storedEvent : eventsByPosition.values()) {
+            if (storedEvent == StoredEvent.REJECTED || !storedEvent.recordedAt.isBefore(to)) {
+                continue;
+            }
+            int comparison = storedEvent.recordedAt.compareTo(from);
+            if ((comparison > 0 || comparison == 0 && storedEvent.position > afterPosition) && filter.test(storedEvent)) {
+                storedEvents.add(storedEvent);
+            }
+        }
+        storedEvents.sort(
+                Comparator.comparing((StoredEvent storedEvent) -> storedEvent.recordedAt)
+                        .thenComparingLong(storedEvent -> storedEvent.position)
+        );
+        List<RecordedEvent<E>> result = new ArrayList<>();
+        for (StoredEvent storedEvent : storedEvents.subList(0, Math.min(limit, storedEvents.size()))) {
+            result.add(new RecordedEvent<>(storedEvent.position, storedEvent.recordedAt, toEvent(storedEvent)));
+        }
+        return result;
+    }
+
+    private String eventName(StoredEvent storedEvent) {
+        if (eventVersioningStrategy == null) {
+            return storedEvent.payload.getClass().getSimpleName();
+        }
+        return storedEvent.eventName;
+    }
+
+    private static EventStoreException duplicatedEventException(Stream stream, UUID eventId) {
+        return new EventStoreException(
+                String.format(
+                        "Could not save event to database with aggregateId %s and aggregateName %s, event with id %s already exists",
+                        stream.aggregateId,
+                        stream.aggregateName,
+                        eventId
+                )
+        );
+    }
+
+    private List<E> toEvents(Queue<Stream> streams) {
+        if (streams == null) {
+            return new ArrayList<>();
+        }
+        List<StoredEvent> storedEvents = new ArrayList<>();
+        for (Stream stream : streams) {
+            storedEvents.addAll(Arrays.asList(stream.snapshot()));
+        }
+        storedEvents.sort(Comparator.comparingLong(storedEvent -> storedEvent.position));
+        List<E> result = new ArrayList<>(storedEvents.size());
+        for (StoredEvent storedEvent : storedEvents) {
+            result.add(toEvent(storedEvent));
+        }
+        return result;
+    }
+
+    private E toEvent(StoredEvent storedEvent) {
+        if (eventVersioningStrategy == null) {
+            return (E) storedEvent.payload;
+        }
+        return eventVersioningStrategy.toEvent((String) storedEvent.payload, storedEvent.eventName, storedEvent.eventVersion);
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class StreamKey {
+
+        private final UUID aggregateId;
+        private final String aggregateName;
+
+    }
+
+    /**
+     * Append only array of events. Events are written before the size, so readers that read the size first
+     * always see fully appended events.
+     */
+    @RequiredArgsConstructor
+    @Getter
+    static class Stream {
+
+        private final UUID streamId;
+        private final UUID aggregateId;
+        private final String aggregateName;
+        private volatile StoredEvent[] events = new StoredEvent[INITIAL_STREAM_CAPACITY];
+        private volatile int size;
+
+        int getAggregateVersion() {
+            return size;
+        }
+
+        StoredEvent[] snapshot() {
+            int currentSize = size;
+            return Arrays.copyOf(events, currentSize);
+        }
+
+        boolean belongsTo(UUID aggregateId, String aggregateName) {
+            return this.aggregateId.equals(aggregateId) && this.aggregateName.equals(aggregateName);
+        }
+
+        private void append(StoredEvent storedEvent) {
+            StoredEvent[] currentEvents = events;
+            if (size == currentEvents.length) {
+                currentEvents = Arrays.copyOf(currentEvents, currentEvents.length * 2);
+            }
+            currentEvents[size] = storedEvent;
+            events = currentEvents;
+            size++;
+        }
+
+    }
+
+    @Getter
+    static class StoredEvent {
+
+        private static final StoredEvent REJECTED = new StoredEvent(null, null, null, 0);
+
+        private final UUID id;
+        private final Object payload;
+        private final String eventName;
+        private final int eventVersion;
+        private Stream stream;
+        private int aggregateVersion;
+        private long position;
+        private Instant recordedAt;
+
+        StoredEvent(UUID id, Object payload, String eventName, int eventVersion) {
+            this.id = id;
+            this.payload = payload;
+            this.eventName = eventName;
+            this.eventVersion = eventVersion;
+        }
+
+    }
+
+    private class TailCursor implements CursorPublisher.Cursor<PositionedEvent<E>> {
+
+        private long lastPosition;
+
+        TailCursor(long afterPosition) {
+            this.lastPosition = afterPosition;
+        }
+
+        @Override
+        public PositionedEvent<E> next() {
+            StoredEvent storedEvent = eventsByPosition.get(lastPosition + 1);
+            while (storedEvent == StoredEvent.REJECTED) {
+                lastPosition++;
+                storedEvent = eventsByPosition.get(lastPosition + 1);
+            }
+            if (storedEvent == null) {
+                return null;
+            }
+            lastPosition = storedEvent.position;
+            return new PositionedEvent<>(lastPosition, toEvent(storedEvent));
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
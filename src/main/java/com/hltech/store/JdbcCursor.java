@@ -0,0 +1,148 @@
+package com.hltech.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Cursor that reads rows from the database in chunks of given fetch size.
+ * Connection is acquired on first read and released as soon as all rows are read or cursor is closed.
+ *
+ * <p>Tailing cursor does not become exhausted when all rows are read. It releases the connection
+ * and executes the query again on next read, so it is up to the statement binder to move the query forward.
+ */
+@Slf4j
+class JdbcCursor<T> implements CursorPublisher.Cursor<T> {
+
+    private final DataSource dataSource;
+    private final String query;
+    private final StatementBinder statementBinder;
+    private final RowMapper<T> rowMapper;
+    private final int fetchSize;
+    private final boolean tailing;
+    private final String errorMessage;
+
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private boolean exhausted;
+
+    private JdbcCursor(
+            DataSource dataSource,
+            String query,
+            StatementBinder statementBinder,
+            RowMapper<T> rowMapper,
+            int fetchSize,
+            boolean tailing,
+            String errorMessage
+    ) {
+        this.dataSource = dataSource;
+        this.query = query;
+        this.statementBinder = statementBinder;
+        this.rowMapper = rowMapper;
+        this.fetchSize = fetchSize;
+        this.tailing = tailing;
+        this.errorMessage = errorMessage;
+    }
+
+    static <T> JdbcCursor<T> finite(
+            DataSource dataSource,
+            String query,
+            StatementBinder statementBinder,
+            RowMapper<T> rowMapper,
+            int fetchSize,
+            String errorMessage
+    ) {
+        return new JdbcCursor<>(dataSource, query, statementBinder, rowMapper, fetchSize, false, errorMessage);
+    }
+
+    static <T> JdbcCursor<T> tailing(
+            DataSource dataSource,
+            String query,
+            StatementBinder statementBinder,
+            RowMapper<T> rowMapper,
+            int fetchSize,
+            String errorMessage
+    ) {
+        return new JdbcCursor<>(dataSource, query, statementBinder, rowMapper, fetchSize, true, errorMessage);
+    }
+
+    @Override
+    public T next() {
+        if (exhausted) {
+            return null;
+        }
+        try {
+            if (resultSet == null) {
+                open();
+            }
+            if (resultSet.next()) {
+                return rowMapper.map(resultSet);
+            }
+            exhausted = !tailing;
+            close();
+            return null;
+        } catch (SQLException ex) {
+            close();
+            throw new EventStoreException(errorMessage, ex);
+        }
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(resultSet);
+        closeQuietly(statement);
+        if (connection != null) {
+            closeQuietly(connection::rollback);
+            closeQuietly(connection);
+        }
+        resultSet = null;
+        statement = null;
+        connection = null;
+    }
+
+    /**
+     * Cursor based fetching requires disabled auto commit, otherwise some drivers (like PostgreSQL) fetch all rows at once.
+     */
+    private void open() throws SQLException {
+        connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        statementBinder.bind(statement);
+        resultSet = statement.executeQuery();
+    }
+
+    private void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception ex) {
+            log.warn("Could not release resources of cursor for query {}", query, ex);
+        }
+    }
+
+    interface StatementBinder {
+
+        void bind(PreparedStatement statement) throws SQLException;
+
+    }
+
+    interface RowMapper<T> {
+
+        T map(ResultSet resultSet) throws SQLException;
+
+    }
+
+}
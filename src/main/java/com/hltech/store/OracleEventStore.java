@@ -1,5 +1,7 @@
 package com.hltech.store;
 
+import com.hltech.store.jfr.DecodeFailureEvent;
+import com.hltech.store.metrics.EventStoreMetrics;
 import com.hltech.store.versioning.EventVersioningStrategy;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -12,18 +14,26 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.UUID.randomUUID;
 import static java.util.stream.Collectors.groupingBy;
 
 @Slf4j
-@RequiredArgsConstructor
 public class OracleEventStore<E> implements EventStore<E> {
 
     private static final String SAVE_EVENT_QUERY =
@@ -42,11 +52,22 @@ public class OracleEventStore<E> implements EventStore<E> {
             + "AND aggregate_name = ? "
             + "FOR UPDATE";
 
+    private static final String LOCK_STREAM_BY_ID =
+            "SELECT stream_id, aggregate_id, aggregate_name, aggregate_version "
+            + "FROM aggregate_in_stream "
+            + "WHERE stream_id = ? "
+            + "FOR UPDATE";
+
+    private static final String FIND_STREAM_ID_QUERY =
+            "SELECT stream_id "
+            + "FROM aggregate_in_stream "
+            + "WHERE aggregate_id = ? "
+            + "AND aggregate_name = ?";
+
     private static final String INCREMENT_AGGREGATE_VERSION =
             "UPDATE aggregate_in_stream "
             + "SET aggregate_version = ? "
-            + "WHERE aggregate_id = ? "
-            + "AND aggregate_name = ? ";
+            + "WHERE stream_id = ?";
 
     private static final String FIND_BY_ID_AND_AGGREGATE_ID_AND_AGGREGATE_NAME_QUERY =
             "SELECT e.payload, e.event_name, e.event_version "
@@ -63,6 +84,13 @@ public class OracleEventStore<E> implements EventStore<E> {
             + "WHERE ais.aggregate_name = ? "
             + "ORDER BY e.order_of_occurrence ASC";
 
+    private static final String FIND_ALL_BY_AGGREGATE_NAME_GROUP_BY_STREAM_QUERY =
+            "SELECT e.stream_id, e.payload, e.event_name, e.event_version "
+            + "FROM aggregate_in_stream ais "
+            + "JOIN event e ON e.stream_id = ais.stream_id "
+            + "WHERE ais.aggregate_name = ? "
+            + "ORDER BY e.stream_id ASC, e.aggregate_version ASC";
+
     private static final String FIND_ALL_BY_AGGREGATE_ID_QUERY =
             "SELECT e.payload, e.event_name, e.event_version "
             + "FROM aggregate_in_stream ais "
@@ -78,6 +106,15 @@ public class OracleEventStore<E> implements EventStore<E> {
             + "AND ais.aggregate_name = ? "
             + "ORDER BY e.order_of_occurrence ASC";
 
+    private static final String FIND_ALL_AFTER_VERSION_QUERY =
+            "SELECT e.payload, e.event_name, e.event_version "
+            + "FROM aggregate_in_stream ais "
+            + "JOIN event e ON e.stream_id = ais.stream_id "
+            + "WHERE ais.aggregate_id = ? "
+            + "AND ais.aggregate_name = ? "
+            + "AND e.aggregate_version > ? "
+            + "ORDER BY e.order_of_occurrence ASC";
+
     private static final String FIND_ALL_TO_EVENT_QUERY =
             "SELECT e.payload, e.event_name, e.event_version "
             + "FROM aggregate_in_stream ais "
@@ -87,73 +124,234 @@ public class OracleEventStore<E> implements EventStore<E> {
             + "AND e.order_of_occurrence <= (SELECT order_of_occurrence FROM event WHERE id = ?) "
             + "ORDER BY e.order_of_occurrence ASC";
 
+    private static final String FIND_ALL_BY_STREAM_ID_QUERY =
+            "SELECT e.payload, e.event_name, e.event_version "
+            + "FROM event e "
+            + "WHERE e.stream_id = ? "
+            + "ORDER BY e.aggregate_version ASC";
+
+    private static final String FIND_ALL_AFTER_VERSION_BY_STREAM_ID_QUERY =
+            "SELECT e.payload, e.event_name, e.event_version "
+            + "FROM event e "
+            + "WHERE e.stream_id = ? "
+            + "AND e.aggregate_version > ? "
+            + "ORDER BY e.aggregate_version ASC";
+
+    private static final String FIND_ALL_TO_EVENT_BY_STREAM_ID_QUERY =
+            "SELECT e.payload, e.event_name, e.event_version "
+            + "FROM event e "
+            + "WHERE e.stream_id = ? "
+            + "AND e.order_of_occurrence <= (SELECT order_of_occurrence FROM event WHERE id = ?) "
+            + "ORDER BY e.aggregate_version ASC";
+
+    private static final String FIND_ALL_AFTER_POSITION_QUERY =
+            "SELECT e.payload, e.event_name, e.event_version, e.order_of_occurrence "
+            + "FROM event e "
+            + "WHERE e.order_of_occurrence > ? "
+            + "ORDER BY e.order_of_occurrence ASC";
+
+    private static final String FIND_LAST_POSITION_QUERY =
+            "SELECT MAX(e.order_of_occurrence) FROM event e";
+
+    private static final String FIND_ALL_RECORDED_BETWEEN_QUERY =
+            "SELECT e.payload, e.event_name, e.event_version, e.order_of_occurrence, e.recorded_at "
+            + "FROM event e "
+            + "WHERE (e.recorded_at > ? OR (e.recorded_at = ? AND e.order_of_occurrence > ?)) "
+            + "AND e.recorded_at < ? "
+            + "ORDER BY e.recorded_at ASC, e.order_of_occurrence ASC";
+
+    private static final String FIND_ALL_BY_EVENT_NAME_QUERY =
+            "SELECT e.payload, e.event_name, e.event_version, e.order_of_occurrence, e.recorded_at "
+            + "FROM event e "
+            + "WHERE (e.recorded_at > ? OR (e.recorded_at = ? AND e.order_of_occurrence > ?)) "
+            + "AND e.recorded_at < ? "
+            + "AND e.event_name = ? "
+            + "ORDER BY e.recorded_at ASC, e.order_of_occurrence ASC";
+
+    private static final String FIND_ALL_BY_EVENT_NAME_AND_AGGREGATE_NAME_QUERY =
+            "SELECT e.payload, e.event_name, e.event_version, e.order_of_occurrence, e.recorded_at "
+            + "FROM event e "
+            + "JOIN aggregate_in_stream ais ON ais.stream_id = e.stream_id "
+            + "WHERE (e.recorded_at > ? OR (e.recorded_at = ? AND e.order_of_occurrence > ?)) "
+            + "AND e.recorded_at < ? "
+            + "AND e.event_name = ? "
+            + "AND ais.aggregate_name = ? "
+            + "ORDER BY e.recorded_at ASC, e.order_of_occurrence ASC";
+
+    private static final int PUBLISHER_FETCH_SIZE = 500;
+
+    private static final int ANY_VERSION = -1;
+
+    private static final int MAX_MERGED_SAVES = 100;
+
+    private static final String[] GENERATED_COLUMNS = {"order_of_occurrence"};
+
     private final Function<E, UUID> eventIdExtractor;
     private final Function<E, UUID> aggregateIdExtractor;
     private final EventVersioningStrategy<E> eventVersioningStrategy;
     private final DataSource dataSource;
+    private final EventStoreMetrics metrics;
+    private final StreamIdCache streamIdCache;
+    private final ReadRouting readRouting;
+    private final StripedWriteQueue<QueuedSave<E>> writeQueue;
+
+    public OracleEventStore(
+            Function<E, UUID> eventIdExtractor,
+            Function<E, UUID> aggregateIdExtractor,
+            EventVersioningStrategy<E> eventVersioningStrategy,
+            DataSource dataSource
+    ) {
+        this(eventIdExtractor, aggregateIdExtractor, eventVersioningStrategy, dataSource, EventStoreOptions.defaults());
+    }
+
+    public OracleEventStore(
+            Function<E, UUID> eventIdExtractor,
+            Function<E, UUID> aggregateIdExtractor,
+            EventVersioningStrategy<E> eventVersioningStrategy,
+            DataSource dataSource,
+            EventStoreOptions options
+    ) {
+        this.eventIdExtractor = eventIdExtractor;
+        this.aggregateIdExtractor = aggregateIdExtractor;
+        this.eventVersioningStrategy = eventVersioningStrategy;
+        this.dataSource = dataSource;
+        this.metrics = options.getMetrics();
+        this.streamIdCache = StreamIdCache.of(options.getStreamIdCacheSize());
+        this.readRouting = new ReadRouting(dataSource, options.getReadDataSource());
+        this.writeQueue = options.getLocalWriteStripes() > 0
+                ? new StripedWriteQueue<>(options.getLocalWriteStripes(), MAX_MERGED_SAVES, this::saveMerged)
+                : null;
+        if (options.getPostgresPartitioning().isPartitioned()) {
+            throw new IllegalArgumentException("Oracle event store does not support partitioning of the event table");
+        }
+        if (options.getPostgresStreamLocking() != PostgresStreamLocking.ROW_LOCK) {
+            throw new IllegalArgumentException("Oracle event store supports only row locks of streams");
+        }
+        EventStoreSchemaValidator.oracle(dataSource).validate(options.getSchemaValidation());
+    }
 
     @Override
     public void save(
             E event,
             String aggregateName
     ) {
-        try (Connection connection = dataSource.getConnection()) {
-            connection.setAutoCommit(false);
-            AggregateInStream aggregateInStream = lockStream(connection, aggregateIdExtractor.apply(event), aggregateName);
-            saveEvent(connection, event, aggregateInStream);
-            incrementAggregateVersion(connection, aggregateInStream);
-            connection.commit();
-        } catch (SQLException ex) {
-            throw new EventStoreException(
-                    String.format(
-                            "Could not save event to database with aggregateId %s and aggregateName %s",
-                            aggregateIdExtractor.apply(event),
-                            aggregateName
-                    ),
-                    ex
+        saveWithConsistencyToken(event, aggregateName);
+    }
+
+    @Override
+    public void save(
+            E event,
+            String aggregateName,
+            int expectedAggregateVersion
+    ) {
+        saveWithConsistencyToken(event, aggregateName, expectedAggregateVersion);
+    }
+
+    /**
+     * Saves all events of the unit of work in a single transaction. Events are serialized before the transaction starts,
+     * streams are locked in the order of {@link UnitOfWork}, then events are inserted and aggregate versions are updated
+     * in two batches.
+     */
+    @Override
+    public void save(UnitOfWork<E> unitOfWork) {
+        if (unitOfWork.isEmpty()) {
+            return;
+        }
+        SaveRecorder recorder = new SaveRecorder(metrics, unitOfWork.aggregateNames());
+        List<byte[]> payloads = serialize(unitOfWork, recorder);
+        if (writeQueue == null) {
+            saveInNewTransaction(unitOfWork, payloads, recorder);
+        } else {
+            writeQueue.writeExclusively(
+                    unitOfWork.streamIds(aggregateIdExtractor),
+                    () -> saveInNewTransaction(unitOfWork, payloads, recorder)
             );
         }
     }
 
-    @Override
+    /**
+     * Saves event like {@link #save(Object, String)} in the transaction of given connection, which has to have
+     * auto-commit disabled. Connection is neither committed nor closed, so the event can be saved together with
+     * other changes of the caller, like an outbox or a read model row, and the stream stays locked until the caller
+     * commits or rolls back. Save is reported to metrics without the commit, which is not done by the event store.
+     */
     public void save(
+            Connection connection,
+            E event,
+            String aggregateName
+    ) {
+        saveInTransaction(connection, event, aggregateName, ANY_VERSION);
+    }
+
+    /**
+     * Saves event like {@link #save(Object, String, int)} in the transaction of given connection,
+     * see {@link #save(Connection, Object, String)}.
+     */
+    public void save(
+            Connection connection,
             E event,
             String aggregateName,
             int expectedAggregateVersion
     ) {
-        try (Connection connection = dataSource.getConnection()) {
-            connection.setAutoCommit(false);
-            AggregateInStream aggregateInStream = lockStream(connection, aggregateIdExtractor.apply(event), aggregateName);
-            if (aggregateInStream.getAggregateVersion() != expectedAggregateVersion) {
-                throw new OptimisticLockingException(aggregateIdExtractor.apply(event), aggregateName, expectedAggregateVersion);
-            }
-            saveEvent(connection, event, aggregateInStream);
-            incrementAggregateVersion(connection, aggregateInStream);
-            connection.commit();
+        saveInTransaction(connection, event, aggregateName, expectedAggregateVersion);
+    }
+
+    /**
+     * Saves unit of work like {@link #save(UnitOfWork)} in the transaction of given connection,
+     * see {@link #save(Connection, Object, String)}.
+     */
+    public void save(Connection connection, UnitOfWork<E> unitOfWork) {
+        if (unitOfWork.isEmpty()) {
+            return;
+        }
+        SaveRecorder recorder = new SaveRecorder(metrics, unitOfWork.aggregateNames());
+        List<byte[]> payloads = serialize(unitOfWork, recorder);
+        try {
+            validateCallerTransaction(connection);
+            recorder.connectionAcquired();
+            append(connection, unitOfWork, payloads, recorder);
+            recorder.committed();
         } catch (SQLException ex) {
-            throw new EventStoreException(
-                    String.format(
-                            "Could not save event to database with aggregateId %s and aggregateName %s",
-                            aggregateIdExtractor.apply(event),
-                            aggregateName
-                    ),
-                    ex
-            );
+            throw saveException(unitOfWork, ex);
         }
     }
 
+    /**
+     * Saves event like {@link #save(Object, String)} and returns token that makes reads see the saved event.
+     */
+    public ConsistencyToken saveWithConsistencyToken(
+            E event,
+            String aggregateName
+    ) {
+        return saveInTransaction(event, aggregateName, ANY_VERSION);
+    }
+
+    /**
+     * Saves event like {@link #save(Object, String, int)} and returns token that makes reads see the saved event.
+     */
+    public ConsistencyToken saveWithConsistencyToken(
+            E event,
+            String aggregateName,
+            int expectedAggregateVersion
+    ) {
+        return saveInTransaction(event, aggregateName, expectedAggregateVersion);
+    }
+
     @Override
     public boolean contains(E event, String aggregateName) {
+        ReadRecorder recorder = new ReadRecorder(metrics, "contains");
         try (
-                Connection con = dataSource.getConnection();
+                Connection con = readRouting.forRead().getConnection();
                 PreparedStatement pst = con.prepareStatement(FIND_BY_ID_AND_AGGREGATE_ID_AND_AGGREGATE_NAME_QUERY)
         ) {
             pst.setObject(1, uuidToDatabaseUUID(eventIdExtractor.apply(event)));
             pst.setObject(2, uuidToDatabaseUUID(aggregateIdExtractor.apply(event)));
             pst.setObject(3, aggregateName);
+            recorder.connectionAcquired();
             ResultSet rs = pst.executeQuery();
 
-            List<E> events = extractEventsFromResultSet(rs);
+            List<E> events = extractEventsFromResultSet(rs, recorder);
+            recorder.finished();
             if (events.isEmpty()) {
                 return false;
             } else {
@@ -181,13 +379,17 @@ public class OracleEventStore<E> implements EventStore<E> {
 
     @Override
     public List<E> findAll(String aggregateName) {
+        ReadRecorder recorder = new ReadRecorder(metrics, "findAll(aggregateName)");
         try (
-                Connection con = dataSource.getConnection();
+                Connection con = readRouting.forRead().getConnection();
                 PreparedStatement pst = con.prepareStatement(FIND_ALL_BY_AGGREGATE_NAME_QUERY)
         ) {
             pst.setObject(1, aggregateName);
+            recorder.connectionAcquired();
             ResultSet rs = pst.executeQuery();
-            return extractEventsFromResultSet(rs);
+            List<E> events = extractEventsFromResultSet(rs, recorder);
+            recorder.finished();
+            return events;
         } catch (SQLException ex) {
             throw new EventStoreException(
                     String.format("Could not find events for aggregate name %s", aggregateName), ex
@@ -197,13 +399,17 @@ public class OracleEventStore<E> implements EventStore<E> {
 
     @Override
     public List<E> findAll(UUID aggregateId) {
+        ReadRecorder recorder = new ReadRecorder(metrics, "findAll(aggregateId)");
         try (
-                Connection con = dataSource.getConnection();
+                Connection con = readRouting.forRead().getConnection();
                 PreparedStatement pst = con.prepareStatement(FIND_ALL_BY_AGGREGATE_ID_QUERY)
         ) {
             pst.setObject(1, uuidToDatabaseUUID(aggregateId));
+            recorder.connectionAcquired();
             ResultSet rs = pst.executeQuery();
-            return extractEventsFromResultSet(rs);
+            List<E> events = extractEventsFromResultSet(rs, recorder);
+            recorder.finished();
+            return events;
         } catch (SQLException ex) {
             throw new EventStoreException(
                     String.format("Could not find events for aggregate id %s", aggregateId), ex
@@ -213,76 +419,713 @@ public class OracleEventStore<E> implements EventStore<E> {
 
     @Override
     public List<E> findAll(UUID aggregateId, String aggregateName) {
+        return findAll(aggregateId, aggregateName, null);
+    }
+
+    /**
+     * Finds all events of the aggregate, including the event given consistency token was issued for.
+     */
+    public List<E> findAll(UUID aggregateId, String aggregateName, ConsistencyToken consistencyToken) {
+        return findAllInStream(
+                readRouting.forRead(consistencyToken),
+                "findAll(aggregateId, aggregateName)",
+                aggregateId,
+                aggregateName,
+                FIND_ALL_BY_AGGREGATE_ID_AND_AGGREGATE_NAME_QUERY,
+                FIND_ALL_BY_STREAM_ID_QUERY,
+                (pst, index) -> index,
+                () -> String.format("Could not find events for aggregate %s and stream %s", aggregateId, aggregateName)
+        );
+    }
+
+    @Override
+    public List<E> findAllAfterVersion(UUID aggregateId, String aggregateName, int aggregateVersion) {
+        return findAllAfterVersion(aggregateId, aggregateName, aggregateVersion, null);
+    }
+
+    /**
+     * Finds events of the aggregate newer than given version, including the event given consistency token was issued for.
+     */
+    public List<E> findAllAfterVersion(
+            UUID aggregateId,
+            String aggregateName,
+            int aggregateVersion,
+            ConsistencyToken consistencyToken
+    ) {
+        return findAllInStream(
+                readRouting.forRead(consistencyToken),
+                "findAllAfterVersion",
+                aggregateId,
+                aggregateName,
+                FIND_ALL_AFTER_VERSION_QUERY,
+                FIND_ALL_AFTER_VERSION_BY_STREAM_ID_QUERY,
+                (pst, index) -> {
+                    pst.setInt(index, aggregateVersion);
+                    return index + 1;
+                },
+                () -> String.format(
+                        "Could not find events after version %s for aggregate %s and stream %s",
+                        aggregateVersion,
+                        aggregateId,
+                        aggregateName
+                )
+        );
+    }
+
+    @Override
+    public List<E> findAllToEvent(E toEvent, String aggregateName) {
+        return findAllInStream(
+                readRouting.forRead(),
+                "findAllToEvent",
+                aggregateIdExtractor.apply(toEvent),
+                aggregateName,
+                FIND_ALL_TO_EVENT_QUERY,
+                FIND_ALL_TO_EVENT_BY_STREAM_ID_QUERY,
+                (pst, index) -> {
+                    pst.setObject(index, uuidToDatabaseUUID(eventIdExtractor.apply(toEvent)));
+                    return index + 1;
+                },
+                () -> String.format(
+                        "Could not find events to event id %s for aggregate %s and stream %s",
+                        eventIdExtractor.apply(toEvent),
+                        aggregateIdExtractor.apply(toEvent),
+                        aggregateName
+                )
+        );
+    }
+
+    @Override
+    public Flow.Publisher<E> publishAll(String aggregateName) {
+        return new CursorPublisher<>(() -> JdbcCursor.finite(
+                readRouting.forRead(),
+                FIND_ALL_BY_AGGREGATE_NAME_QUERY,
+                pst -> pst.setObject(1, aggregateName),
+                this::toEvent,
+                PUBLISHER_FETCH_SIZE,
+                String.format("Could not find events for aggregate name %s", aggregateName)
+        ));
+    }
+
+    @Override
+    public Flow.Publisher<E> publishAll(UUID aggregateId) {
+        return new CursorPublisher<>(() -> JdbcCursor.finite(
+                readRouting.forRead(),
+                FIND_ALL_BY_AGGREGATE_ID_QUERY,
+                pst -> pst.setObject(1, uuidToDatabaseUUID(aggregateId)),
+                this::toEvent,
+                PUBLISHER_FETCH_SIZE,
+                String.format("Could not find events for aggregate id %s", aggregateId)
+        ));
+    }
+
+    /**
+     * Events are ordered by stream, so every aggregate is published as soon as all its events are read.
+     */
+    @Override
+    public Flow.Publisher<AggregateEvents<E>> publishAllGroupByAggregate(String aggregateName) {
+        return new CursorPublisher<>(() -> new StreamGroupingCursor<>(JdbcCursor.finite(
+                readRouting.forRead(),
+                FIND_ALL_BY_AGGREGATE_NAME_GROUP_BY_STREAM_QUERY,
+                pst -> pst.setObject(1, aggregateName),
+                this::toStreamRow,
+                PUBLISHER_FETCH_SIZE,
+                String.format("Could not find events for aggregate name %s", aggregateName)
+        )));
+    }
+
+    @Override
+    public List<PositionedEvent<E>> findAllAfterPosition(long position, int limit) {
+        ReadRecorder recorder = new ReadRecorder(metrics, "findAllAfterPosition");
         try (
-                Connection con = dataSource.getConnection();
-                PreparedStatement pst = con.prepareStatement(FIND_ALL_BY_AGGREGATE_ID_AND_AGGREGATE_NAME_QUERY)
+                Connection con = readRouting.forRead().getConnection();
+                PreparedStatement pst = con.prepareStatement(FIND_ALL_AFTER_POSITION_QUERY)
         ) {
-            pst.setObject(1, uuidToDatabaseUUID(aggregateId));
-            pst.setObject(2, aggregateName);
+            pst.setLong(1, position);
+            pst.setMaxRows(limit);
+            pst.setFetchSize(Math.min(limit, PUBLISHER_FETCH_SIZE));
+            recorder.connectionAcquired();
             ResultSet rs = pst.executeQuery();
-
-            return extractEventsFromResultSet(rs);
+            List<PositionedEvent<E>> events = new ArrayList<>();
+            while (rs.next()) {
+                events.add(new PositionedEvent<>(rs.getLong("order_of_occurrence"), toEvent(rs)));
+            }
+            recorder.finished();
+            return events;
         } catch (SQLException ex) {
             throw new EventStoreException(
-                    String.format("Could not find events for aggregate %s and stream %s", aggregateId, aggregateName), ex
+                    String.format("Could not find events after position %s", position), ex
             );
         }
     }
 
     @Override
-    public List<E> findAllToEvent(E toEvent, String aggregateName) {
+    public long findLastPosition() {
+        ReadRecorder recorder = new ReadRecorder(metrics, "findLastPosition");
         try (
-                Connection con = dataSource.getConnection();
-                PreparedStatement pst = con.prepareStatement(FIND_ALL_TO_EVENT_QUERY)
+                Connection con = readRouting.forRead().getConnection();
+                PreparedStatement pst = con.prepareStatement(FIND_LAST_POSITION_QUERY)
         ) {
-            pst.setObject(1, uuidToDatabaseUUID(aggregateIdExtractor.apply(toEvent)));
-            pst.setObject(2, aggregateName);
-            pst.setObject(3, uuidToDatabaseUUID(eventIdExtractor.apply(toEvent)));
+            recorder.connectionAcquired();
             ResultSet rs = pst.executeQuery();
-
-            return extractEventsFromResultSet(rs);
+            rs.next();
+            long lastPosition = rs.getLong(1);
+            recorder.finished();
+            return lastPosition;
         } catch (SQLException ex) {
-            throw new EventStoreException(
-                    String.format("Could not find events to event id %s for aggregate %s and stream %s",
-                            eventIdExtractor.apply(toEvent), aggregateIdExtractor.apply(toEvent), aggregateName),
-                    ex
-            );
+            throw new EventStoreException("Could not find last position of events", ex);
         }
     }
 
+    /**
+     * Reads range of index on recording time and position, so pages of any range cost the same.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllRecordedBetween(Instant from, Instant to, long afterPosition, int limit) {
+        return findAllRecorded(
+                "findAllRecordedBetween",
+                FIND_ALL_RECORDED_BETWEEN_QUERY,
+                from,
+                to,
+                afterPosition,
+                limit,
+                () -> String.format("Could not find events recorded between %s and %s after position %s", from, to, afterPosition)
+        );
+    }
+
+    /**
+     * Reads range of index on event name, recording time and position.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(String eventName, Instant from, Instant to, long afterPosition, int limit) {
+        return findAllRecorded(
+                "findAllByEventName(eventName)",
+                FIND_ALL_BY_EVENT_NAME_QUERY,
+                from,
+                to,
+                afterPosition,
+                limit,
+                () -> String.format(
+                        "Could not find events %s recorded between %s and %s after position %s", eventName, from, to, afterPosition
+                ),
+                eventName
+        );
+    }
+
+    /**
+     * Reads range of index on event name, recording time and position, skipping events of other aggregates.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    ) {
+        return findAllRecorded(
+                "findAllByEventName(eventName, aggregateName)",
+                FIND_ALL_BY_EVENT_NAME_AND_AGGREGATE_NAME_QUERY,
+                from,
+                to,
+                afterPosition,
+                limit,
+                () -> String.format(
+                        "Could not find events %s of aggregate name %s recorded between %s and %s after position %s",
+                        eventName,
+                        aggregateName,
+                        from,
+                        to,
+                        afterPosition
+                ),
+                eventName,
+                aggregateName
+        );
+    }
+
+    /**
+     * Publishes all events that occurred after given position and keeps publishing new events as they appear.
+     * When all stored events are published, connection is released and store is polled again after poll interval.
+     * Publisher never completes, subscriber has to cancel subscription when it is no longer interested in events.
+     *
+     * <p>Events committed out of order of occurrence, after an event with higher position was published, are never published.
+     * Use {@link #tail(long, Duration, Duration)} when every event has to be published.
+     */
+    public Flow.Publisher<PositionedEvent<E>> tail(long afterPosition, Duration pollInterval) {
+        return new CursorPublisher<>(
+                () -> {
+                    AtomicLong lastPosition = new AtomicLong(afterPosition);
+                    return JdbcCursor.tailing(
+                            readRouting.forRead(),
+                            FIND_ALL_AFTER_POSITION_QUERY,
+                            pst -> pst.setLong(1, lastPosition.get()),
+                            rs -> {
+                                lastPosition.set(rs.getLong("order_of_occurrence"));
+                                return new PositionedEvent<>(lastPosition.get(), toEvent(rs));
+                            },
+                            PUBLISHER_FETCH_SIZE,
+                            String.format("Could not find events after position %s", afterPosition)
+                    );
+                },
+                CursorPublisher.DEFAULT_EXECUTOR,
+                pollInterval
+        );
+    }
+
+    /**
+     * Publishes events like {@link #tail(long, Duration)}, but waits up to given time for positions that are missing
+     * because their transactions have not committed yet, so no event is skipped. See {@link GapAwareFeed}.
+     */
+    public Flow.Publisher<PositionedEvent<E>> tail(long afterPosition, Duration pollInterval, Duration maxGapWait) {
+        return GapAwareFeed.tail(this, afterPosition, pollInterval, maxGapWait);
+    }
+
     @Override
     public EventVersioningStrategy<E> getEventVersioningStrategy() {
         return eventVersioningStrategy;
     }
 
-    private void saveEvent(
+    private ConsistencyToken saveInNewTransaction(
+            E event,
+            byte[] payload,
+            String aggregateName,
+            int expectedAggregateVersion,
+            SaveRecorder recorder
+    ) {
+        try (Connection connection = dataSource.getConnection()) {
+            recorder.connectionAcquired();
+            connection.setAutoCommit(false);
+            final long position;
+            try {
+                position = append(connection, event, payload, aggregateName, expectedAggregateVersion, recorder);
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                rollback(connection, ex);
+                throw ex;
+            }
+            recorder.committed();
+            return ConsistencyToken.of(position);
+        } catch (SQLException ex) {
+            throw saveException(event, aggregateName, ex);
+        }
+    }
+
+    private void saveInNewTransaction(UnitOfWork<E> unitOfWork, List<byte[]> payloads, SaveRecorder recorder) {
+        try (Connection connection = dataSource.getConnection()) {
+            recorder.connectionAcquired();
+            connection.setAutoCommit(false);
+            try {
+                append(connection, unitOfWork, payloads, recorder);
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                rollback(connection, ex);
+                throw ex;
+            }
+            recorder.committed();
+        } catch (SQLException ex) {
+            throw saveException(unitOfWork, ex);
+        }
+    }
+
+    /**
+     * Transaction is rolled back explicitly, because some drivers, like the Oracle one, commit it when connection is closed.
+     */
+    private static void rollback(Connection connection, Exception failure) {
+        try {
+            connection.rollback();
+        } catch (SQLException ex) {
+            failure.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * With local write stripes enabled, saves of the same stream wait in the JVM instead of waiting
+     * for the stream lock in the database, each holding a connection, and are saved in batches.
+     */
+    private ConsistencyToken saveInTransaction(
+            E event,
+            String aggregateName,
+            int expectedAggregateVersion
+    ) {
+        SaveRecorder recorder = new SaveRecorder(metrics, aggregateName);
+        byte[] payload = serialize(event, recorder);
+        if (writeQueue == null) {
+            return saveInNewTransaction(event, payload, aggregateName, expectedAggregateVersion, recorder);
+        }
+        QueuedSave<E> save = new QueuedSave<>(event, payload, aggregateName, expectedAggregateVersion, recorder);
+        writeQueue.write(aggregateIdExtractor.apply(event), aggregateName, save);
+        return save.consistencyToken;
+    }
+
+    private void saveInTransaction(
             Connection connection,
             E event,
-            AggregateInStream aggregateInStream
+            String aggregateName,
+            int expectedAggregateVersion
+    ) {
+        SaveRecorder recorder = new SaveRecorder(metrics, aggregateName);
+        byte[] payload = serialize(event, recorder);
+        try {
+            validateCallerTransaction(connection);
+            recorder.connectionAcquired();
+            append(connection, event, payload, aggregateName, expectedAggregateVersion, recorder);
+            recorder.committed();
+        } catch (SQLException ex) {
+            throw saveException(event, aggregateName, ex);
+        }
+    }
+
+    /**
+     * Saves queued for the same stripe in one transaction, locking their streams in order of {@link UnitOfWork}.
+     * Save with outdated expected version fails alone, others are committed. When a save fails otherwise,
+     * the transaction is rolled back, the failed save fails alone and the others are repeated in their own transactions.
+     * When the transaction fails, every save is repeated in its own transaction.
+     */
+    private void saveMerged(List<QueuedSave<E>> saves) {
+        if (saves.size() == 1) {
+            saveAlone(saves.get(0));
+            return;
+        }
+        List<QueuedSave<E>> sortedSaves = new ArrayList<>(saves);
+        sortedSaves.sort(Comparator.comparing(save -> new UnitOfWork.StreamId(aggregateIdExtractor.apply(save.event), save.aggregateName)));
+        Map<QueuedSave<E>, OptimisticLockingException> conflicts = new HashMap<>();
+        QueuedSave<E> failedSave = null;
+        RuntimeException failure = null;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (QueuedSave<E> save : sortedSaves) {
+                    save.recorder.connectionAcquired();
+                    try {
+                        long position = append(connection, save.event, save.payload, save.aggregateName, save.expectedAggregateVersion, save.recorder);
+                        save.consistencyToken = ConsistencyToken.of(position);
+                    } catch (OptimisticLockingException ex) {
+                        conflicts.put(save, ex);
+                    } catch (RuntimeException ex) {
+                        failedSave = save;
+                        failure = ex;
+                        break;
+                    }
+                }
+                if (failedSave == null) {
+                    connection.commit();
+                } else {
+                    rollback(connection, failure);
+                }
+            } catch (SQLException ex) {
+                rollback(connection, ex);
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            saves.forEach(this::saveAlone);
+            return;
+        }
+        if (failedSave != null) {
+            failedSave.fail(failure);
+            for (QueuedSave<E> save : saves) {
+                if (save != failedSave) {
+                    saveAlone(save);
+                }
+            }
+            return;
+        }
+        for (QueuedSave<E> save : saves) {
+            if (conflicts.containsKey(save)) {
+                save.fail(conflicts.get(save));
+            } else {
+                save.recorder.committed();
+                save.complete();
+            }
+        }
+    }
+
+    private void saveAlone(QueuedSave<E> save) {
+        try {
+            save.consistencyToken = saveInNewTransaction(save.event, save.payload, save.aggregateName, save.expectedAggregateVersion, save.recorder);
+            save.complete();
+        } catch (RuntimeException ex) {
+            save.fail(ex);
+        }
+    }
+
+    /**
+     * Stream lock is held until the end of the transaction, so it would be released right away in auto-commit mode.
+     */
+    private void validateCallerTransaction(Connection connection) throws SQLException {
+        if (connection.getAutoCommit()) {
+            throw new IllegalArgumentException("Connection of the caller transaction must have auto-commit disabled");
+        }
+    }
+
+    /**
+     * Events are serialized before the transaction starts, so it does not extend the time streams stay locked.
+     */
+    private byte[] serialize(E event, SaveRecorder recorder) {
+        byte[] payload = eventVersioningStrategy.toJson(event).getBytes(UTF_8);
+        recorder.eventSerialized(payload.length);
+        return payload;
+    }
+
+    private List<byte[]> serialize(UnitOfWork<E> unitOfWork, SaveRecorder recorder) {
+        List<byte[]> payloads = new ArrayList<>(unitOfWork.getAppends().size());
+        for (UnitOfWork.Append<E> append : unitOfWork.getAppends()) {
+            byte[] payload = eventVersioningStrategy.toJson(append.getEvent()).getBytes(UTF_8);
+            recorder.eventSerialized(payload.length);
+            payloads.add(payload);
+        }
+        return payloads;
+    }
+
+    private long append(
+            Connection connection,
+            E event,
+            byte[] payload,
+            String aggregateName,
+            int expectedAggregateVersion,
+            SaveRecorder recorder
     ) throws SQLException {
+        AggregateInStream aggregateInStream = lockStream(connection, aggregateIdExtractor.apply(event), aggregateName);
+        recorder.streamLocked();
+        if (expectedAggregateVersion != ANY_VERSION && aggregateInStream.getAggregateVersion() != expectedAggregateVersion) {
+            recorder.optimisticLockConflict();
+            throw new OptimisticLockingException(aggregateIdExtractor.apply(event), aggregateName, expectedAggregateVersion);
+        }
+        final long position = saveEvent(connection, event, payload, aggregateInStream);
+        incrementAggregateVersion(connection, aggregateInStream);
+        recorder.eventInserted();
+        return position;
+    }
+
+    /**
+     * Streams are locked in the order of {@link UnitOfWork}, then events are inserted and aggregate versions
+     * are updated in two batches.
+     */
+    private void append(
+            Connection connection,
+            UnitOfWork<E> unitOfWork,
+            List<byte[]> payloads,
+            SaveRecorder recorder
+    ) throws SQLException {
+        List<UnitOfWork.Append<E>> appends = unitOfWork.getAppends();
+        Map<UnitOfWork.StreamId, AggregateInStream> streams = new HashMap<>();
+        for (UnitOfWork.StreamId streamId : unitOfWork.streamIds(aggregateIdExtractor)) {
+            streams.put(streamId, lockStream(connection, streamId.getAggregateId(), streamId.getAggregateName()));
+        }
+        recorder.streamLocked();
+        Map<UnitOfWork.StreamId, Integer> versions = new HashMap<>();
+        streams.forEach((streamId, aggregateInStream) -> versions.put(streamId, aggregateInStream.getAggregateVersion()));
         try (PreparedStatement pst = connection.prepareStatement(SAVE_EVENT_QUERY)) {
-            pst.setObject(1, uuidToDatabaseUUID(eventIdExtractor.apply(event)));
-            pst.setObject(2, aggregateInStream.getAggregateVersion() + 1);
-            pst.setObject(3, uuidToDatabaseUUID(aggregateInStream.getStreamId()));
-            pst.setBlob(4, new ByteArrayInputStream(eventVersioningStrategy.toJson(event).getBytes(UTF_8)));
-            pst.setObject(5, eventVersioningStrategy.toName((Class<? extends E>) event.getClass()));
-            pst.setObject(6, eventVersioningStrategy.toVersion((Class<? extends E>) event.getClass()));
+            for (int index = 0; index < appends.size(); index++) {
+                UnitOfWork.Append<E> append = appends.get(index);
+                UnitOfWork.StreamId streamId = new UnitOfWork.StreamId(aggregateIdExtractor.apply(append.getEvent()), append.getAggregateName());
+                int aggregateVersion = versions.get(streamId);
+                if (append.hasExpectedAggregateVersion() && aggregateVersion != append.getExpectedAggregateVersion()) {
+                    recorder.optimisticLockConflict();
+                    throw new OptimisticLockingException(
+                            streamId.getAggregateId(),
+                            streamId.getAggregateName(),
+                            append.getExpectedAggregateVersion()
+                    );
+                }
+                bindEvent(pst, append.getEvent(), payloads.get(index), aggregateVersion + 1, streams.get(streamId));
+                pst.addBatch();
+                versions.put(streamId, aggregateVersion + 1);
+            }
+            pst.executeBatch();
+        }
+        try (PreparedStatement pst = connection.prepareStatement(INCREMENT_AGGREGATE_VERSION)) {
+            for (Map.Entry<UnitOfWork.StreamId, AggregateInStream> stream : streams.entrySet()) {
+                pst.setObject(1, versions.get(stream.getKey()));
+                pst.setObject(2, uuidToDatabaseUUID(stream.getValue().getStreamId()));
+                pst.addBatch();
+            }
+            pst.executeBatch();
+        }
+        recorder.eventInserted();
+    }
+
+    private EventStoreException saveException(E event, String aggregateName, SQLException ex) {
+        return new EventStoreException(
+                String.format(
+                        "Could not save event to database with aggregateId %s and aggregateName %s",
+                        aggregateIdExtractor.apply(event),
+                        aggregateName
+                ),
+                ex
+        );
+    }
+
+    private static EventStoreException saveException(UnitOfWork<?> unitOfWork, SQLException ex) {
+        return new EventStoreException(
+                String.format("Could not save unit of work with %d events to database", unitOfWork.getAppends().size()),
+                ex
+        );
+    }
+
+    private long saveEvent(
+            Connection connection,
+            E event,
+            byte[] payload,
+            AggregateInStream aggregateInStream
+    ) throws SQLException {
+        try (PreparedStatement pst = connection.prepareStatement(SAVE_EVENT_QUERY, GENERATED_COLUMNS)) {
+            bindEvent(pst, event, payload, aggregateInStream.getAggregateVersion() + 1, aggregateInStream);
             pst.executeUpdate();
+            try (ResultSet rs = pst.getGeneratedKeys()) {
+                rs.next();
+                return rs.getLong(1);
+            }
         }
     }
 
+    private void bindEvent(
+            PreparedStatement pst,
+            E event,
+            byte[] payload,
+            int aggregateVersion,
+            AggregateInStream aggregateInStream
+    ) throws SQLException {
+        pst.setObject(1, uuidToDatabaseUUID(eventIdExtractor.apply(event)));
+        pst.setObject(2, aggregateVersion);
+        pst.setObject(3, uuidToDatabaseUUID(aggregateInStream.getStreamId()));
+        pst.setBlob(4, new ByteArrayInputStream(payload));
+        pst.setObject(5, eventVersioningStrategy.toName((Class<? extends E>) event.getClass()));
+        pst.setObject(6, eventVersioningStrategy.toVersion((Class<? extends E>) event.getClass()));
+    }
+
+    /**
+     * Reads events of a single stream. When stream id cache is enabled, stream id is taken from the cache
+     * or looked up once, and the event table is queried by stream id only. Otherwise aggregate_in_stream is joined.
+     */
+    private List<E> findAllInStream(
+            DataSource readDataSource,
+            String operation,
+            UUID aggregateId,
+            String aggregateName,
+            String joinQuery,
+            String streamIdQuery,
+            StreamQueryBinder streamQueryBinder,
+            Supplier<String> errorMessage
+    ) {
+        ReadRecorder recorder = new ReadRecorder(metrics, operation);
+        try (Connection con = readDataSource.getConnection()) {
+            recorder.connectionAcquired();
+            UUID streamId = null;
+            if (streamIdCache.isEnabled()) {
+                streamId = findStreamId(con, aggregateId, aggregateName);
+                if (streamId == null) {
+                    recorder.finished();
+                    return new ArrayList<>();
+                }
+            }
+            try (PreparedStatement pst = con.prepareStatement(streamId == null ? joinQuery : streamIdQuery)) {
+                int index = 1;
+                if (streamId == null) {
+                    pst.setObject(index++, uuidToDatabaseUUID(aggregateId));
+                    pst.setObject(index++, aggregateName);
+                } else {
+                    pst.setObject(index++, uuidToDatabaseUUID(streamId));
+                }
+                streamQueryBinder.bind(pst, index);
+                ResultSet rs = pst.executeQuery();
+                List<E> events = extractEventsFromResultSet(rs, recorder);
+                recorder.finished();
+                return events;
+            }
+        } catch (SQLException ex) {
+            throw new EventStoreException(errorMessage.get(), ex);
+        }
+    }
+
+    /**
+     * Reads page of events recorded in the range, binding given filters after the range.
+     * Recording time is stored in UTC without time zone, so that it can be indexed as it is.
+     */
+    private List<RecordedEvent<E>> findAllRecorded(
+            String operation,
+            String query,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit,
+            Supplier<String> errorMessage,
+            String... filters
+    ) {
+        ReadRecorder recorder = new ReadRecorder(metrics, operation);
+        try (
+                Connection con = readRouting.forRead().getConnection();
+                PreparedStatement pst = con.prepareStatement(query)
+        ) {
+            pst.setObject(1, LocalDateTime.ofInstant(from, ZoneOffset.UTC));
+            pst.setObject(2, LocalDateTime.ofInstant(from, ZoneOffset.UTC));
+            pst.setLong(3, afterPosition);
+            pst.setObject(4, LocalDateTime.ofInstant(to, ZoneOffset.UTC));
+            for (int index = 0; index < filters.length; index++) {
+                pst.setObject(5 + index, filters[index]);
+            }
+            pst.setMaxRows(limit);
+            pst.setFetchSize(Math.min(limit, PUBLISHER_FETCH_SIZE));
+            recorder.connectionAcquired();
+            ResultSet rs = pst.executeQuery();
+            List<RecordedEvent<E>> events = new ArrayList<>();
+            while (rs.next()) {
+                events.add(new RecordedEvent<>(
+                        rs.getLong("order_of_occurrence"),
+                        rs.getObject("recorded_at", LocalDateTime.class).toInstant(ZoneOffset.UTC),
+                        toEvent(rs)
+                ));
+            }
+            recorder.finished();
+            return events;
+        } catch (SQLException ex) {
+            throw new EventStoreException(errorMessage.get(), ex);
+        }
+    }
+
+    private UUID findStreamId(
+            Connection connection,
+            UUID aggregateId,
+            String aggregateName
+    ) throws SQLException {
+        UUID streamId = streamIdCache.get(aggregateId, aggregateName);
+        if (streamId != null) {
+            return streamId;
+        }
+        try (PreparedStatement pst = connection.prepareStatement(FIND_STREAM_ID_QUERY)) {
+            pst.setObject(1, uuidToDatabaseUUID(aggregateId));
+            pst.setString(2, aggregateName);
+            ResultSet rs = pst.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            streamId = UUID.fromString(rs.getString("stream_id"));
+        }
+        streamIdCache.put(aggregateId, aggregateName, streamId);
+        return streamId;
+    }
+
+    /**
+     * Locks the stream, creating it when it does not exist yet. Stream id is not cached here,
+     * the stream may have been created by this transaction which can still roll back.
+     */
     private AggregateInStream lockStream(
             Connection connection,
             UUID aggregateId,
             String aggregateName
     ) throws SQLException {
+        UUID cachedStreamId = streamIdCache.get(aggregateId, aggregateName);
         try (
-                PreparedStatement pst = connection.prepareStatement(LOCK_STREAM)
+                PreparedStatement pst = connection.prepareStatement(cachedStreamId == null ? LOCK_STREAM : LOCK_STREAM_BY_ID)
         ) {
-            pst.setObject(1, uuidToDatabaseUUID(aggregateId));
-            pst.setString(2, aggregateName);
+            if (cachedStreamId == null) {
+                pst.setObject(1, uuidToDatabaseUUID(aggregateId));
+                pst.setString(2, aggregateName);
+            } else {
+                pst.setObject(1, uuidToDatabaseUUID(cachedStreamId));
+            }
             ResultSet rs = pst.executeQuery();
             if (!rs.next()) {
+                streamIdCache.evict(aggregateId, aggregateName);
                 ensureStreamExist(connection, aggregateId, aggregateName);
                 return lockStream(connection, aggregateId, aggregateName);
             }
@@ -315,32 +1158,79 @@ public class OracleEventStore<E> implements EventStore<E> {
     ) throws SQLException {
         try (PreparedStatement pst = connection.prepareStatement(INCREMENT_AGGREGATE_VERSION)) {
             pst.setObject(1, aggregateInStream.getAggregateVersion() + 1);
-            pst.setObject(2, uuidToDatabaseUUID(aggregateInStream.getAggregateId()));
-            pst.setObject(3, aggregateInStream.getAggregateName());
+            pst.setObject(2, uuidToDatabaseUUID(aggregateInStream.getStreamId()));
             pst.executeUpdate();
         }
     }
 
-    private List<E> extractEventsFromResultSet(ResultSet rs) throws SQLException {
+    private List<E> extractEventsFromResultSet(ResultSet rs, ReadRecorder recorder) throws SQLException {
         List<E> result = new ArrayList<>();
 
         while (rs.next()) {
             Blob blobedPayload = rs.getBlob("payload");
             byte[] buffedPayload = blobedPayload.getBytes(1, (int) blobedPayload.length());
-            E event = eventVersioningStrategy.toEvent(
-                    new String(buffedPayload, UTF_8),
-                    rs.getString("event_name"),
-                    rs.getInt("event_version")
-            );
-            result.add(event);
+            String eventName = rs.getString("event_name");
+            int eventVersion = rs.getInt("event_version");
+            recorder.deserializationStarted(buffedPayload.length);
+            result.add(decode(new String(buffedPayload, UTF_8), eventName, eventVersion));
+            recorder.deserializationFinished();
         }
         return result;
     }
 
+    private E toEvent(ResultSet rs) throws SQLException {
+        Blob blobedPayload = rs.getBlob("payload");
+        byte[] buffedPayload = blobedPayload.getBytes(1, (int) blobedPayload.length());
+        return decode(
+                new String(buffedPayload, UTF_8),
+                rs.getString("event_name"),
+                rs.getInt("event_version")
+        );
+    }
+
+    private StreamGroupingCursor.Row<E> toStreamRow(ResultSet rs) throws SQLException {
+        Blob blobedPayload = rs.getBlob("payload");
+        String payload = new String(blobedPayload.getBytes(1, (int) blobedPayload.length()), UTF_8);
+        String eventName = rs.getString("event_name");
+        int eventVersion = rs.getInt("event_version");
+        return new StreamGroupingCursor.Row<>(rs.getString("stream_id"), () -> decode(payload, eventName, eventVersion));
+    }
+
+    private E decode(String payload, String eventName, int eventVersion) {
+        try {
+            return eventVersioningStrategy.toEvent(payload, eventName, eventVersion);
+        } catch (RuntimeException ex) {
+            DecodeFailureEvent.emit(eventName, eventVersion, eventVersioningStrategy, ex);
+            throw ex;
+        }
+    }
+
     private Object uuidToDatabaseUUID(UUID uuid) {
         return String.valueOf(uuid);
     }
 
+    @FunctionalInterface
+    private interface StreamQueryBinder {
+
+        /**
+         * Binds parameters that follow stream identification, starting at given index, and returns the next free index.
+         */
+        int bind(PreparedStatement pst, int index) throws SQLException;
+
+    }
+
+    @RequiredArgsConstructor
+    private static class QueuedSave<E> extends StripedWriteQueue.Write {
+
+        private final E event;
+        private final byte[] payload;
+        private final String aggregateName;
+        private final int expectedAggregateVersion;
+        private final SaveRecorder recorder;
+        private ConsistencyToken consistencyToken;
+
+    }
+
     @RequiredArgsConstructor
     @Getter
     private static class AggregateInStream {
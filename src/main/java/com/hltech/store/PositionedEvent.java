@@ -0,0 +1,21 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Event together with its global position (order of occurrence) in the event store.
+ * Position can be used by consumers to resume reading from the place they stopped.
+ */
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor
+@Getter
+public class PositionedEvent<E> {
+
+    private final long position;
+    private final E event;
+
+}
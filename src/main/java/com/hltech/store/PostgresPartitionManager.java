@@ -0,0 +1,157 @@
+package com.hltech.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates range partitions of the event table partitioned by order of occurrence, before events reach them.
+ * Events with order of occurrence not covered by any range partition land in the default partition,
+ * which makes creation of the covering partition fail later on, so partitions should be created well ahead,
+ * e.g. by a scheduled job.
+ *
+ * <p>Partition of range starting at {@code start} is named {@code event_range_<start>}. When the event table
+ * is subpartitioned by hash of aggregate name, every range partition gets {@code hashPartitions} subpartitions
+ * named {@code event_range_<start>_hash_<remainder>}.
+ */
+@Slf4j
+public class PostgresPartitionManager {
+
+    private static final String LAST_ORDER_OF_OCCURRENCE_QUERY =
+            "SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM event_order_of_occurrence_seq";
+
+    private static final String PARTITION_EXIST_QUERY =
+            "SELECT to_regclass(?) IS NOT NULL";
+
+    private static final String CREATE_RANGE_PARTITION_STATEMENT =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF event FOR VALUES FROM (%d) TO (%d)";
+
+    private static final String CREATE_HASH_SUBPARTITIONED_RANGE_PARTITION_STATEMENT =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF event FOR VALUES FROM (%d) TO (%d) PARTITION BY HASH (aggregate_name)";
+
+    private static final String CREATE_HASH_SUBPARTITION_STATEMENT =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES WITH (MODULUS %d, REMAINDER %d)";
+
+    private final DataSource dataSource;
+    private final PostgresPartitioning partitioning;
+    private final long partitionSize;
+    private final int hashPartitions;
+
+    public PostgresPartitionManager(DataSource dataSource, long partitionSize) {
+        this(dataSource, PostgresPartitioning.ORDER_OF_OCCURRENCE_RANGE, partitionSize, 0);
+    }
+
+    public PostgresPartitionManager(
+            DataSource dataSource,
+            PostgresPartitioning partitioning,
+            long partitionSize,
+            int hashPartitions
+    ) {
+        if (!partitioning.isRangeByOrderOfOccurrence()) {
+            throw new IllegalArgumentException("Partition manager requires event table partitioned by range of order of occurrence");
+        }
+        if (partitionSize <= 0) {
+            throw new IllegalArgumentException("Partition size must be positive");
+        }
+        if (partitioning.isHashByAggregateName() && hashPartitions <= 0) {
+            throw new IllegalArgumentException("Number of hash partitions must be positive");
+        }
+        this.dataSource = dataSource;
+        this.partitioning = partitioning;
+        this.partitionSize = partitionSize;
+        this.hashPartitions = hashPartitions;
+    }
+
+    /**
+     * Makes sure that partitions exist for the range containing the next order of occurrence
+     * and for given number of following ranges. Partitions are created in a single transaction.
+     *
+     * @param partitionsAhead number of ranges, after the current one, that should be ready for events
+     * @return names of created partitions, empty when all partitions already existed
+     */
+    public List<String> createPartitionsAhead(int partitionsAhead) {
+        List<String> createdPartitions = new ArrayList<>();
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                long currentRangeStart = rangeStart(lastOrderOfOccurrence(con) + 1);
+                for (int range = 0; range <= partitionsAhead; range++) {
+                    long start = currentRangeStart + range * partitionSize;
+                    if (createPartition(con, start)) {
+                        createdPartitions.add(partitionName(start));
+                    }
+                }
+                con.commit();
+            } catch (SQLException ex) {
+                con.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new EventStoreException("Could not create partitions of event table", ex);
+        }
+        if (!createdPartitions.isEmpty()) {
+            log.info("Created partitions of event table: {}", createdPartitions);
+        }
+        return createdPartitions;
+    }
+
+    long rangeStart(long orderOfOccurrence) {
+        return (orderOfOccurrence - 1) / partitionSize * partitionSize + 1;
+    }
+
+    private long lastOrderOfOccurrence(Connection con) throws SQLException {
+        try (
+                PreparedStatement pst = con.prepareStatement(LAST_ORDER_OF_OCCURRENCE_QUERY);
+                ResultSet rs = pst.executeQuery()
+        ) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private boolean createPartition(Connection con, long start) throws SQLException {
+        String partitionName = partitionName(start);
+        if (partitionExist(con, partitionName)) {
+            return false;
+        }
+        try (Statement st = con.createStatement()) {
+            if (partitioning.isHashByAggregateName()) {
+                st.execute(String.format(CREATE_HASH_SUBPARTITIONED_RANGE_PARTITION_STATEMENT, partitionName, start, start + partitionSize));
+                for (int remainder = 0; remainder < hashPartitions; remainder++) {
+                    st.execute(String.format(
+                            CREATE_HASH_SUBPARTITION_STATEMENT,
+                            partitionName + "_hash_" + remainder,
+                            partitionName,
+                            hashPartitions,
+                            remainder
+                    ));
+                }
+            } else {
+                st.execute(String.format(CREATE_RANGE_PARTITION_STATEMENT, partitionName, start, start + partitionSize));
+            }
+        }
+        return true;
+    }
+
+    private boolean partitionExist(Connection con, String partitionName) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(PARTITION_EXIST_QUERY)) {
+            pst.setString(1, partitionName);
+            try (ResultSet rs = pst.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static String partitionName(long start) {
+        return "event_range_" + start;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.hltech.store;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Layout of the event table supported by {@link PostgresEventStore}. Partitioned layouts require PostgreSQL 12 or newer.
+ *
+ * <p>Primary key of a partitioned table has to contain partition key, so partitioned layouts keep uniqueness
+ * of event ids in separate, not partitioned event_identity table. Hash partitioning requires aggregate name
+ * to be stored in the event table, so that read queries for the aggregate name read only one partition.
+ */
+@RequiredArgsConstructor
+@Getter
+public enum PostgresPartitioning {
+
+    /**
+     * Single, not partitioned event table.
+     */
+    NONE(false, false),
+
+    /**
+     * Event table partitioned by range of order of occurrence. Old partitions can be detached or archived
+     * and vacuum works on small, recent partitions. New partitions have to be created ahead of time
+     * with {@link PostgresPartitionManager}.
+     */
+    ORDER_OF_OCCURRENCE_RANGE(true, false),
+
+    /**
+     * Event table partitioned by hash of aggregate name, so reads of all events of the aggregate name
+     * scan only one partition.
+     */
+    AGGREGATE_NAME_HASH(false, true),
+
+    /**
+     * Event table partitioned by range of order of occurrence, with every range subpartitioned by hash of aggregate name.
+     */
+    ORDER_OF_OCCURRENCE_RANGE_AND_AGGREGATE_NAME_HASH(true, true);
+
+    private final boolean rangeByOrderOfOccurrence;
+    private final boolean hashByAggregateName;
+
+    public boolean isPartitioned() {
+        return rangeByOrderOfOccurrence || hashByAggregateName;
+    }
+
+}
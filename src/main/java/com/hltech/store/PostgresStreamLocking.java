@@ -0,0 +1,24 @@
+package com.hltech.store;
+
+/**
+ * How {@link PostgresEventStore} serializes saves of the same aggregate stream.
+ * All instances of the application saving to the same database have to use the same mode,
+ * because saves locking streams in different modes do not wait for each other.
+ */
+public enum PostgresStreamLocking {
+
+    /**
+     * Stream row in aggregate_in_stream is locked with SELECT ... FOR UPDATE.
+     */
+    ROW_LOCK,
+
+    /**
+     * Transaction level advisory lock is taken on a 64 bit hash of aggregate id and aggregate name,
+     * then the stream row is read without locking it. Lock state is kept in memory of the database,
+     * so it does not rewrite stream rows and does not create MultiXact entries under heavy write rates.
+     * Streams sharing the hash only wait for each other. Requires READ COMMITTED isolation level,
+     * so that the read following the lock sees the version committed by the previous lock holder.
+     */
+    ADVISORY_LOCK
+
+}
@@ -0,0 +1,70 @@
+package com.hltech.store;
+
+import com.hltech.store.jfr.LoadEvent;
+import com.hltech.store.metrics.EventStoreMetrics;
+import com.hltech.store.metrics.ReadMeasurement;
+
+/**
+ * Measures time spent on acquiring connection, querying and deserializing events of a single read operation.
+ * Deserialization is measured per row and subtracted from the query time.
+ * Finished reads are reported to the metrics and, when enabled, as {@link LoadEvent} to the flight recorder.
+ */
+class ReadRecorder {
+
+    private final EventStoreMetrics metrics;
+    private final String operation;
+    private final long startNanos;
+    private final LoadEvent loadEvent = new LoadEvent();
+
+    private long connectionAcquiredNanos;
+    private long deserializationStartNanos;
+    private long deserializationNanos;
+    private int rows;
+    private long payloadBytes;
+
+    ReadRecorder(EventStoreMetrics metrics, String operation) {
+        this.metrics = metrics;
+        this.operation = operation;
+        this.startNanos = System.nanoTime();
+        this.connectionAcquiredNanos = startNanos;
+        loadEvent.begin();
+    }
+
+    void connectionAcquired() {
+        connectionAcquiredNanos = System.nanoTime();
+    }
+
+    void deserializationStarted(long rowPayloadBytes) {
+        deserializationStartNanos = System.nanoTime();
+        payloadBytes += rowPayloadBytes;
+        rows++;
+    }
+
+    void deserializationFinished() {
+        deserializationNanos += System.nanoTime() - deserializationStartNanos;
+    }
+
+    void finished() {
+        long endNanos = System.nanoTime();
+        metrics.recordRead(
+                ReadMeasurement.builder()
+                        .operation(operation)
+                        .rows(rows)
+                        .payloadBytes(payloadBytes)
+                        .connectionAcquireNanos(connectionAcquiredNanos - startNanos)
+                        .queryNanos(endNanos - connectionAcquiredNanos - deserializationNanos)
+                        .deserializationNanos(deserializationNanos)
+                        .totalNanos(endNanos - startNanos)
+                        .build()
+        );
+        loadEvent.end();
+        if (loadEvent.shouldCommit()) {
+            loadEvent.setOperation(operation);
+            loadEvent.setRows(rows);
+            loadEvent.setPayloadBytes(payloadBytes);
+            loadEvent.setDecodeTime(deserializationNanos);
+            loadEvent.commit();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.hltech.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Chooses data source for reads of SQL based event stores. Without read data source every read goes to the primary one.
+ *
+ * <p>Reads with {@link ConsistencyToken} go to the replica only when it already contains the event the token was issued for.
+ * Replication applies transactions in commit order, so such replica contains every event committed before as well.
+ * When replica lags behind or can not be checked, read falls back to the primary data source.
+ */
+@Slf4j
+class ReadRouting {
+
+    private static final String EVENT_REPLICATED_QUERY =
+            "SELECT COUNT(*) FROM event WHERE order_of_occurrence = ?";
+
+    private final DataSource primaryDataSource;
+    private final DataSource readDataSource;
+
+    ReadRouting(DataSource primaryDataSource, DataSource readDataSource) {
+        this.primaryDataSource = primaryDataSource;
+        this.readDataSource = readDataSource == null ? primaryDataSource : readDataSource;
+    }
+
+    DataSource forRead() {
+        return readDataSource;
+    }
+
+    DataSource forRead(ConsistencyToken consistencyToken) {
+        if (readDataSource == primaryDataSource || consistencyToken == null) {
+            return readDataSource;
+        }
+        return isReplicated(consistencyToken) ? readDataSource : primaryDataSource;
+    }
+
+    private boolean isReplicated(ConsistencyToken consistencyToken) {
+        try (
+                Connection con = readDataSource.getConnection();
+                PreparedStatement pst = con.prepareStatement(EVENT_REPLICATED_QUERY)
+        ) {
+            pst.setLong(1, consistencyToken.getPosition());
+            try (ResultSet rs = pst.executeQuery()) {
+                return rs.next() && rs.getLong(1) > 0;
+            }
+        } catch (SQLException ex) {
+            log.warn("Could not check if read data source contains event at position {}, reading from primary one",
+                    consistencyToken.getPosition(), ex);
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Event together with the time it was recorded in the event store and its global position (order of occurrence).
+ * Both are needed to read the next page of events recorded in a time range, ordered by recording time and position.
+ */
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor
+@Getter
+public class RecordedEvent<E> {
+
+    private final long position;
+    private final Instant recordedAt;
+    private final E event;
+
+}
@@ -0,0 +1,90 @@
+package com.hltech.store;
+
+import com.hltech.store.jfr.AppendEvent;
+import com.hltech.store.metrics.EventStoreMetrics;
+import com.hltech.store.metrics.SaveMeasurement;
+
+/**
+ * Measures time spent in consecutive phases of a single save operation.
+ * Every phase lasts from the end of the previous phase, so phases have to be marked in order they happen.
+ * Successful saves are reported to the metrics and, when enabled, as {@link AppendEvent} to the flight recorder.
+ */
+class SaveRecorder {
+
+    private final EventStoreMetrics metrics;
+    private final String aggregateName;
+    private final long startNanos;
+    private final AppendEvent appendEvent = new AppendEvent();
+    private long lastMarkNanos;
+
+    private int eventCount;
+    private long payloadBytes;
+    private long connectionAcquireNanos;
+    private long lockWaitNanos;
+    private long serializationNanos;
+    private long insertNanos;
+    private long commitNanos;
+
+    SaveRecorder(EventStoreMetrics metrics, String aggregateName) {
+        this.metrics = metrics;
+        this.aggregateName = aggregateName;
+        this.startNanos = System.nanoTime();
+        this.lastMarkNanos = startNanos;
+        appendEvent.begin();
+    }
+
+    void connectionAcquired() {
+        connectionAcquireNanos += lap();
+    }
+
+    void streamLocked() {
+        lockWaitNanos += lap();
+    }
+
+    void eventSerialized(long eventPayloadBytes) {
+        serializationNanos += lap();
+        payloadBytes += eventPayloadBytes;
+        eventCount++;
+    }
+
+    void eventInserted() {
+        insertNanos += lap();
+    }
+
+    void committed() {
+        commitNanos += lap();
+        metrics.recordSave(
+                SaveMeasurement.builder()
+                        .aggregateName(aggregateName)
+                        .eventCount(eventCount)
+                        .payloadBytes(payloadBytes)
+                        .connectionAcquireNanos(connectionAcquireNanos)
+                        .lockWaitNanos(lockWaitNanos)
+                        .serializationNanos(serializationNanos)
+                        .insertNanos(insertNanos)
+                        .commitNanos(commitNanos)
+                        .totalNanos(lastMarkNanos - startNanos)
+                        .build()
+        );
+        appendEvent.end();
+        if (appendEvent.shouldCommit()) {
+            appendEvent.setAggregateName(aggregateName);
+            appendEvent.setEventCount(eventCount);
+            appendEvent.setPayloadBytes(payloadBytes);
+            appendEvent.setLockWait(lockWaitNanos);
+            appendEvent.commit();
+        }
+    }
+
+    void optimisticLockConflict() {
+        metrics.recordOptimisticLockConflict(aggregateName);
+    }
+
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - lastMarkNanos;
+        lastMarkNanos = now;
+        return elapsed;
+    }
+
+}
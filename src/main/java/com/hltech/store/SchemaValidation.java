@@ -0,0 +1,23 @@
+package com.hltech.store;
+
+/**
+ * What SQL based event store does on creation when indexes required by its queries are missing.
+ */
+public enum SchemaValidation {
+
+    /**
+     * Schema is not checked.
+     */
+    NONE,
+
+    /**
+     * Missing indexes are logged as a warning, store is created anyway.
+     */
+    WARN,
+
+    /**
+     * Missing indexes make creation of the store fail with {@link EventStoreException}.
+     */
+    FAIL
+
+}
@@ -0,0 +1,104 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Offline tool moving streams between shards when the layout of {@link ShardedEventStore} changes, e.g. a shard is added.
+ * It has to be run when no events are saved, with the current layout as the source and the new one as the target.
+ * Both layouts should use the same event stores for shards present in both of them.
+ *
+ * <p>Events of a moving stream are copied to the target shard with optimistic locking, in order.
+ * Copying continues after events already present in the target shard, so an interrupted rebalance can be run again.
+ * Event store API is append only, so once the stream is copied it is removed from the source shard by given {@link StreamRemover}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ShardRebalancer<E> {
+
+    private final ShardedEventStore<E> source;
+    private final ShardedEventStore<E> target;
+    private final StreamRemover streamRemover;
+
+    /**
+     * Returns streams of given aggregate names that would be moved, without moving them.
+     */
+    public List<MovedStream> plan(Collection<String> aggregateNames) {
+        return rebalance(aggregateNames, false);
+    }
+
+    public List<MovedStream> rebalance(Collection<String> aggregateNames) {
+        return rebalance(aggregateNames, true);
+    }
+
+    private List<MovedStream> rebalance(Collection<String> aggregateNames, boolean move) {
+        List<MovedStream> movedStreams = new ArrayList<>();
+        for (String aggregateName : aggregateNames) {
+            for (Map.Entry<String, EventStore<E>> shard : source.getShards().entrySet()) {
+                Map<UUID, List<E>> streams = shard.getValue().findAllGroupByAggregate(aggregateName);
+                for (Map.Entry<UUID, List<E>> stream : streams.entrySet()) {
+                    String targetShard = target.shardFor(stream.getKey());
+                    if (targetShard.equals(shard.getKey())) {
+                        continue;
+                    }
+                    MovedStream movedStream = new MovedStream(
+                            stream.getKey(),
+                            aggregateName,
+                            shard.getKey(),
+                            targetShard,
+                            stream.getValue().size()
+                    );
+                    if (move) {
+                        move(movedStream, stream.getValue());
+                    }
+                    movedStreams.add(movedStream);
+                }
+            }
+        }
+        return movedStreams;
+    }
+
+    private void move(MovedStream movedStream, List<E> events) {
+        EventStore<E> targetStore = target.getShards().get(movedStream.targetShard);
+        int copiedEvents = targetStore.findAll(movedStream.aggregateId, movedStream.aggregateName).size();
+        for (int aggregateVersion = copiedEvents; aggregateVersion < events.size(); aggregateVersion++) {
+            targetStore.save(events.get(aggregateVersion), movedStream.aggregateName, aggregateVersion);
+        }
+        streamRemover.remove(movedStream.sourceShard, movedStream.aggregateId, movedStream.aggregateName);
+        log.info("Moved {}", movedStream);
+    }
+
+    /**
+     * Removes stream of the aggregate from the shard, e.g. by deleting its rows from the database of the shard.
+     */
+    @FunctionalInterface
+    public interface StreamRemover {
+
+        void remove(String shard, UUID aggregateId, String aggregateName);
+
+    }
+
+    @EqualsAndHashCode
+    @ToString
+    @RequiredArgsConstructor
+    @Getter
+    public static class MovedStream {
+
+        private final UUID aggregateId;
+        private final String aggregateName;
+        private final String sourceShard;
+        private final String targetShard;
+        private final int eventCount;
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Event read from the global feed of {@link ShardedEventStore}, together with the shard it is stored in,
+ * its position within that shard and the feed position right after it, to resume reading from.
+ */
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor
+@Getter
+public class ShardedEvent<E> {
+
+    private final String shard;
+    private final long position;
+    private final E event;
+    private final ShardedPosition feedPosition;
+
+}
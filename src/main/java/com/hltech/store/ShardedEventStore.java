@@ -0,0 +1,411 @@
+package com.hltech.store;
+
+import com.hltech.store.versioning.EventVersioningStrategy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Event store that spreads aggregates over several event stores (shards), usually backed by separate databases.
+ * Every aggregate id is assigned to one shard by consistent hashing, so all streams of the aggregate live in one shard
+ * and operations on a single aggregate, including optimistic locking, are handled by that shard alone.
+ *
+ * <p>Reads of all aggregates with given name query all shards in parallel and concatenate results shard by shard.
+ * Events of every aggregate stay in order of occurrence, but there is no order between aggregates from different shards.
+ *
+ * <p>Positions of different shards are not comparable, so the global feed is read with {@link ShardedPosition},
+ * which keeps the last read position of every shard. For the same reason events read by recording time are ordered
+ * by recording time, shard name and position, and the next page is read after all three of the last event.
+ *
+ * <p>Shard names decide placement of aggregates, so they must not change. When shards are added,
+ * streams that change their shard have to be moved with {@link ShardRebalancer} before the new layout is used.
+ */
+public class ShardedEventStore<E> implements EventStore<E> {
+
+    public static final int DEFAULT_VIRTUAL_NODES_PER_SHARD = 128;
+
+    private static final int FEED_PAGE_SIZE = 500;
+
+    private final Map<String, EventStore<E>> shards;
+    private final Function<E, UUID> aggregateIdExtractor;
+    private final ConsistentHashRing ring;
+    private final Executor executor;
+
+    public ShardedEventStore(
+            Map<String, EventStore<E>> shards,
+            Function<E, UUID> aggregateIdExtractor
+    ) {
+        this(shards, aggregateIdExtractor, DEFAULT_VIRTUAL_NODES_PER_SHARD, CursorPublisher.DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * @param shards event stores by shard name
+     * @param virtualNodesPerShard number of places on the hash ring taken by every shard, higher spreads aggregates more evenly
+     * @param executor executor running queries of different shards in parallel
+     */
+    public ShardedEventStore(
+            Map<String, EventStore<E>> shards,
+            Function<E, UUID> aggregateIdExtractor,
+            int virtualNodesPerShard,
+            Executor executor
+    ) {
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        this.aggregateIdExtractor = aggregateIdExtractor;
+        this.ring = new ConsistentHashRing(shards.keySet(), virtualNodesPerShard);
+        this.executor = executor;
+    }
+
+    @Override
+    public void save(E event, String aggregateName) {
+        shardOf(aggregateIdExtractor.apply(event)).save(event, aggregateName);
+    }
+
+    @Override
+    public void save(E event, String aggregateName, int expectedAggregateVersion) {
+        shardOf(aggregateIdExtractor.apply(event)).save(event, aggregateName, expectedAggregateVersion);
+    }
+
+    /**
+     * Unit of work is saved atomically by a single shard, so all its aggregates have to belong to the same shard.
+     */
+    @Override
+    public void save(UnitOfWork<E> unitOfWork) {
+        if (unitOfWork.isEmpty()) {
+            return;
+        }
+        Set<String> shardNames = new TreeSet<>();
+        for (UnitOfWork.Append<E> append : unitOfWork.getAppends()) {
+            shardNames.add(shardFor(aggregateIdExtractor.apply(append.getEvent())));
+        }
+        if (shardNames.size() > 1) {
+            throw new EventStoreException(
+                    String.format("Could not save unit of work spanning many shards: %s", String.join(",", shardNames))
+            );
+        }
+        shards.get(shardNames.iterator().next()).save(unitOfWork);
+    }
+
+    @Override
+    public boolean contains(E event, String aggregateName) {
+        return shardOf(aggregateIdExtractor.apply(event)).contains(event, aggregateName);
+    }
+
+    @Override
+    public Map<UUID, List<E>> findAllGroupByAggregate(String aggregateName) {
+        Map<UUID, List<E>> result = new LinkedHashMap<>();
+        scatter(shard -> shard.findAllGroupByAggregate(aggregateName)).values().forEach(result::putAll);
+        return result;
+    }
+
+    @Override
+    public List<E> findAll(String aggregateName) {
+        List<E> result = new ArrayList<>();
+        scatter(shard -> shard.findAll(aggregateName)).values().forEach(result::addAll);
+        return result;
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId) {
+        return shardOf(aggregateId).findAll(aggregateId);
+    }
+
+    @Override
+    public List<E> findAll(UUID aggregateId, String aggregateName) {
+        return shardOf(aggregateId).findAll(aggregateId, aggregateName);
+    }
+
+    @Override
+    public List<E> findAllAfterVersion(UUID aggregateId, String aggregateName, int aggregateVersion) {
+        return shardOf(aggregateId).findAllAfterVersion(aggregateId, aggregateName, aggregateVersion);
+    }
+
+    @Override
+    public List<E> findAllToEvent(E toEvent, String aggregateName) {
+        return shardOf(aggregateIdExtractor.apply(toEvent)).findAllToEvent(toEvent, aggregateName);
+    }
+
+    @Override
+    public Flow.Publisher<E> publishAll(UUID aggregateId) {
+        return shardOf(aggregateId).publishAll(aggregateId);
+    }
+
+    /**
+     * Positions of different shards are not comparable, use {@link #findAllAfterPosition(ShardedPosition, int)} instead.
+     */
+    @Override
+    public List<PositionedEvent<E>> findAllAfterPosition(long position, int limit) {
+        throw new EventStoreException(
+                "Could not read global feed after a single position, positions of different shards are not comparable"
+        );
+    }
+
+    /**
+     * Returns at most given number of events that occurred after given feed position. Every shard is queried in parallel
+     * and pages are merged round-robin, one event of every shard in turn, so no shard is starved when others have
+     * many new events or higher positions. Feed position of the last returned event is the position to read the next page from.
+     */
+    public List<ShardedEvent<E>> findAllAfterPosition(ShardedPosition position, int limit) {
+        Map<String, List<PositionedEvent<E>>> pages = scatter(
+                (shardName, shard) -> shard.findAllAfterPosition(position.getPosition(shardName), limit)
+        );
+        Map<String, Iterator<PositionedEvent<E>>> iterators = new LinkedHashMap<>();
+        pages.forEach((shardName, page) -> iterators.put(shardName, page.iterator()));
+        List<ShardedEvent<E>> result = new ArrayList<>();
+        ShardedPosition feedPosition = position;
+        while (result.size() < limit && !iterators.isEmpty()) {
+            Iterator<Map.Entry<String, Iterator<PositionedEvent<E>>>> shardIterators = iterators.entrySet().iterator();
+            while (result.size() < limit && shardIterators.hasNext()) {
+                Map.Entry<String, Iterator<PositionedEvent<E>>> shardIterator = shardIterators.next();
+                if (!shardIterator.getValue().hasNext()) {
+                    shardIterators.remove();
+                    continue;
+                }
+                String shardName = shardIterator.getKey();
+                PositionedEvent<E> event = shardIterator.getValue().next();
+                feedPosition = feedPosition.advance(shardName, event.getPosition());
+                result.add(new ShardedEvent<>(shardName, event.getPosition(), event.getEvent(), feedPosition));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Positions of different shards are not comparable, so there is no single last position.
+     */
+    @Override
+    public long findLastPosition() {
+        throw new EventStoreException("Could not find a single last position, positions of different shards are not comparable");
+    }
+
+    /**
+     * Positions of different shards are not comparable, use
+     * {@link #findAllRecordedBetween(Instant, Instant, String, long, int)} instead.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllRecordedBetween(Instant from, Instant to, long afterPosition, int limit) {
+        throw shardedPositionRequiredException();
+    }
+
+    /**
+     * Returns at most given number of events recorded in time range from inclusive to exclusive, of all shards,
+     * ordered by recording time, shard name and position. Page starts after the event recorded at given time
+     * in given shard at given position, the first page is read with no shard and position 0.
+     */
+    public List<ShardedRecordedEvent<E>> findAllRecordedBetween(
+            Instant from,
+            Instant to,
+            String afterShard,
+            long afterPosition,
+            int limit
+    ) {
+        return findAllRecorded(
+                afterShard,
+                afterPosition,
+                limit,
+                (shard, shardAfterPosition) -> shard.findAllRecordedBetween(from, to, shardAfterPosition, limit)
+        );
+    }
+
+    /**
+     * Positions of different shards are not comparable, use
+     * {@link #findAllByEventName(String, Instant, Instant, String, long, int)} instead.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(String eventName, Instant from, Instant to, long afterPosition, int limit) {
+        throw shardedPositionRequiredException();
+    }
+
+    /**
+     * Positions of different shards are not comparable, use
+     * {@link #findAllByEventName(String, String, Instant, Instant, String, long, int)} instead.
+     */
+    @Override
+    public List<RecordedEvent<E>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            long afterPosition,
+            int limit
+    ) {
+        throw shardedPositionRequiredException();
+    }
+
+    /**
+     * Returns events with given name, of all aggregates, paged like {@link #findAllRecordedBetween(Instant, Instant, String, long, int)}.
+     */
+    public List<ShardedRecordedEvent<E>> findAllByEventName(
+            String eventName,
+            Instant from,
+            Instant to,
+            String afterShard,
+            long afterPosition,
+            int limit
+    ) {
+        return findAllRecorded(
+                afterShard,
+                afterPosition,
+                limit,
+                (shard, shardAfterPosition) -> shard.findAllByEventName(eventName, from, to, shardAfterPosition, limit)
+        );
+    }
+
+    /**
+     * Returns events with given name of aggregates with given name,
+     * paged like {@link #findAllRecordedBetween(Instant, Instant, String, long, int)}.
+     */
+    public List<ShardedRecordedEvent<E>> findAllByEventName(
+            String eventName,
+            String aggregateName,
+            Instant from,
+            Instant to,
+            String afterShard,
+            long afterPosition,
+            int limit
+    ) {
+        return findAllRecorded(
+                afterShard,
+                afterPosition,
+                limit,
+                (shard, shardAfterPosition) -> shard.findAllByEventName(eventName, aggregateName, from, to, shardAfterPosition, limit)
+        );
+    }
+
+    /**
+     * Publishes all events that occurred after given feed position and keeps publishing new events as they appear.
+     * Publisher never completes, subscriber has to cancel subscription when it is no longer interested in events.
+     */
+    public Flow.Publisher<ShardedEvent<E>> tail(ShardedPosition afterPosition, Duration pollInterval) {
+        return new CursorPublisher<>(() -> new FeedCursor(afterPosition), CursorPublisher.DEFAULT_EXECUTOR, pollInterval);
+    }
+
+    public String shardFor(UUID aggregateId) {
+        return ring.shardFor(aggregateId);
+    }
+
+    public Map<String, EventStore<E>> getShards() {
+        return shards;
+    }
+
+    @Override
+    public EventVersioningStrategy<E> getEventVersioningStrategy() {
+        return shards.values().iterator().next().getEventVersioningStrategy();
+    }
+
+    EventStore<E> shardOf(UUID aggregateId) {
+        return shards.get(ring.shardFor(aggregateId));
+    }
+
+    /**
+     * Every shard is queried after the recording time of the last read event, with the position that excludes
+     * events of this time from shards ordered before the shard of the last read event, and includes them from shards after it.
+     */
+    private List<ShardedRecordedEvent<E>> findAllRecorded(
+            String afterShard,
+            long afterPosition,
+            int limit,
+            BiFunction<EventStore<E>, Long, List<RecordedEvent<E>>> read
+    ) {
+        Map<String, List<RecordedEvent<E>>> pages = scatter((shardName, shard) -> {
+            int comparison = afterShard == null ? 1 : shardName.compareTo(afterShard);
+            long shardAfterPosition = comparison < 0 ? Long.MAX_VALUE : comparison == 0 ? afterPosition : 0;
+            return read.apply(shard, shardAfterPosition);
+        });
+        List<ShardedRecordedEvent<E>> events = new ArrayList<>();
+        pages.forEach((shardName, page) -> page.forEach(event ->
+                events.add(new ShardedRecordedEvent<>(shardName, event.getPosition(), event.getRecordedAt(), event.getEvent()))
+        ));
+        events.sort(
+                Comparator.comparing((ShardedRecordedEvent<E> event) -> event.getRecordedAt())
+                        .thenComparing(ShardedRecordedEvent::getShard)
+                        .thenComparingLong(ShardedRecordedEvent::getPosition)
+        );
+        return new ArrayList<>(events.subList(0, Math.min(limit, events.size())));
+    }
+
+    private static EventStoreException shardedPositionRequiredException() {
+        return new EventStoreException(
+                "Could not read events by recording time with a single position, positions of different shards are not comparable"
+        );
+    }
+
+    private <T> Map<String, T> scatter(Function<EventStore<E>, T> read) {
+        return scatter((shardName, shard) -> read.apply(shard));
+    }
+
+    private <T> Map<String, T> scatter(ShardRead<E, T> read) {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        shards.forEach((shardName, shard) ->
+                futures.put(shardName, CompletableFuture.supplyAsync(() -> read.apply(shardName, shard), executor))
+        );
+        Map<String, T> results = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<T>> future : futures.entrySet()) {
+            try {
+                results.put(future.getKey(), future.getValue().join());
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+        return results;
+    }
+
+    @FunctionalInterface
+    private interface ShardRead<E, T> {
+
+        T apply(String shardName, EventStore<E> shard);
+
+    }
+
+    private class FeedCursor implements CursorPublisher.Cursor<ShardedEvent<E>> {
+
+        private ShardedPosition position;
+        private Iterator<ShardedEvent<E>> page = Collections.emptyIterator();
+
+        FeedCursor(ShardedPosition afterPosition) {
+            this.position = afterPosition;
+        }
+
+        @Override
+        public ShardedEvent<E> next() {
+            if (!page.hasNext()) {
+                page = findAllAfterPosition(position, FEED_PAGE_SIZE).iterator();
+                if (!page.hasNext()) {
+                    return null;
+                }
+            }
+            ShardedEvent<E> event = page.next();
+            position = event.getFeedPosition();
+            return event;
+        }
+
+        @Override
+        public boolean isExhausted() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Position in the global feed of {@link ShardedEventStore}. Positions of different shards are not comparable,
+ * so the feed position is the position of the last read event of every shard. Shards without a position are read from the start.
+ */
+@EqualsAndHashCode
+@ToString
+public class ShardedPosition {
+
+    private static final ShardedPosition INITIAL = new ShardedPosition(Collections.emptyMap());
+
+    private final Map<String, Long> positions;
+
+    private ShardedPosition(Map<String, Long> positions) {
+        this.positions = positions;
+    }
+
+    public static ShardedPosition initial() {
+        return INITIAL;
+    }
+
+    public static ShardedPosition of(Map<String, Long> positions) {
+        return new ShardedPosition(Collections.unmodifiableMap(new TreeMap<>(positions)));
+    }
+
+    public long getPosition(String shard) {
+        return positions.getOrDefault(shard, 0L);
+    }
+
+    public Map<String, Long> getPositions() {
+        return positions;
+    }
+
+    public ShardedPosition advance(String shard, long position) {
+        Map<String, Long> advanced = new TreeMap<>(positions);
+        advanced.put(shard, position);
+        return new ShardedPosition(Collections.unmodifiableMap(advanced));
+    }
+
+}
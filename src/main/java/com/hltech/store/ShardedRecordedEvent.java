@@ -0,0 +1,25 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Event read by recording time from {@link ShardedEventStore}, together with the shard it is stored in and its position
+ * within that shard. Recording time, shard and position are needed to read the next page, ordered by all three.
+ */
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor
+@Getter
+public class ShardedRecordedEvent<E> {
+
+    private final String shard;
+    private final long position;
+    private final Instant recordedAt;
+    private final E event;
+
+}
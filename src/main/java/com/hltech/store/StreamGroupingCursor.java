@@ -0,0 +1,74 @@
+package com.hltech.store;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Cursor that groups consecutive rows of the same stream into {@link AggregateEvents}, so rows have to be ordered
+ * by stream first. Group is returned when the first row of the next stream is read or all rows are read.
+ * Events are decoded by the group, not by the cursor.
+ */
+class StreamGroupingCursor<E> implements CursorPublisher.Cursor<AggregateEvents<E>> {
+
+    private final CursorPublisher.Cursor<Row<E>> rows;
+    private String streamId;
+    private List<Supplier<E>> events = new ArrayList<>();
+
+    StreamGroupingCursor(CursorPublisher.Cursor<Row<E>> rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public AggregateEvents<E> next() throws Exception {
+        while (true) {
+            Row<E> row = rows.next();
+            if (row == null) {
+                return rows.isExhausted() && streamId != null ? takeGroup(null) : null;
+            }
+            AggregateEvents<E> group = streamId != null && !streamId.equals(row.streamId) ? takeGroup(row.streamId) : null;
+            streamId = row.streamId;
+            events.add(row.event);
+            if (group != null) {
+                return group;
+            }
+        }
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return streamId == null && rows.isExhausted();
+    }
+
+    @Override
+    public void close() {
+        rows.close();
+    }
+
+    private AggregateEvents<E> takeGroup(String nextStreamId) {
+        List<Supplier<E>> groupEvents = events;
+        streamId = nextStreamId;
+        events = new ArrayList<>();
+        return new AggregateEvents<>(() -> {
+            List<E> decoded = new ArrayList<>(groupEvents.size());
+            for (Supplier<E> event : groupEvents) {
+                decoded.add(event.get());
+            }
+            return decoded;
+        });
+    }
+
+    /**
+     * Row of the stream with event that is decoded when the group is decoded.
+     */
+    @RequiredArgsConstructor
+    static class Row<E> {
+
+        private final String streamId;
+        private final Supplier<E> event;
+
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of stream ids of aggregates. Stream of the aggregate never changes once created,
+ * so stores can query the event table by stream id, without joining aggregate_in_stream.
+ * Stores cache only ids read outside of save transactions, a stream created by a save which is rolled back
+ * would otherwise stay cached although it does not exist.
+ *
+ * <p>When the cache is full, an arbitrary entry is evicted to make room for the new one. This keeps lookups lock free,
+ * frequently read streams are simply cached again on the next read.
+ */
+class StreamIdCache {
+
+    static final StreamIdCache DISABLED = new StreamIdCache(0);
+
+    private final int maxSize;
+    private final Map<StreamKey, UUID> streamIds = new ConcurrentHashMap<>();
+
+    StreamIdCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Stream id cache size must not be negative");
+        }
+        this.maxSize = maxSize;
+    }
+
+    static StreamIdCache of(int maxSize) {
+        return maxSize == 0 ? DISABLED : new StreamIdCache(maxSize);
+    }
+
+    boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    UUID get(UUID aggregateId, String aggregateName) {
+        return isEnabled() ? streamIds.get(new StreamKey(aggregateId, aggregateName)) : null;
+    }
+
+    void put(UUID aggregateId, String aggregateName, UUID streamId) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (streamIds.size() >= maxSize) {
+            Iterator<StreamKey> keys = streamIds.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        streamIds.put(new StreamKey(aggregateId, aggregateName), streamId);
+    }
+
+    /**
+     * Called by saves which do not find the stream by its cached id, e.g. when it was removed from the database.
+     */
+    void evict(UUID aggregateId, String aggregateName) {
+        streamIds.remove(new StreamKey(aggregateId, aggregateName));
+    }
+
+    int size() {
+        return streamIds.size();
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class StreamKey {
+
+        private final UUID aggregateId;
+        private final String aggregateName;
+
+    }
+
+}
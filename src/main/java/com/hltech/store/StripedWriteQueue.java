@@ -0,0 +1,143 @@
+package com.hltech.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Serializes writes of the same aggregate stream within the JVM before they reach the database.
+ * Streams are spread over a fixed number of stripes, every stripe has a lock and a queue of waiting writes.
+ *
+ * <p>Writer puts its write into the queue of the stripe and waits for the stripe lock. Writer that acquires the lock
+ * takes all queued writes, up to the limit, and passes them as a single batch to the batch writer, which saves them
+ * in one transaction. Writers whose writes were saved by another writer find them done once they acquire the lock.
+ * So at most one connection per stripe is taken from the pool, while other writers of the stripe wait without it.
+ */
+class StripedWriteQueue<W extends StripedWriteQueue.Write> {
+
+    private final Stripe<W>[] stripes;
+    private final int maxBatchSize;
+    private final Consumer<List<W>> batchWriter;
+
+    /**
+     * Batch writer has to complete or fail every write of the batch.
+     */
+    StripedWriteQueue(int stripeCount, int maxBatchSize, Consumer<List<W>> batchWriter) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        }
+        @SuppressWarnings("unchecked")
+        Stripe<W>[] stripes = (Stripe<W>[]) new Stripe<?>[stripeCount];
+        for (int index = 0; index < stripeCount; index++) {
+            stripes[index] = new Stripe<>();
+        }
+        this.stripes = stripes;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWriter = batchWriter;
+    }
+
+    /**
+     * Returns when the write is saved, possibly together with writes of other threads,
+     * or throws exception the write failed with.
+     */
+    void write(UUID aggregateId, String aggregateName, W write) {
+        Stripe<W> stripe = stripes[stripeIndex(aggregateId, aggregateName)];
+        stripe.queue.add(write);
+        while (!write.isDone()) {
+            stripe.lock.lock();
+            try {
+                if (!write.isDone()) {
+                    writeBatch(stripe);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        write.throwIfFailed();
+    }
+
+    /**
+     * Runs the write holding locks of all stripes of given streams, acquired in order of stripes,
+     * so writes touching many streams never wait for each other in a cycle.
+     */
+    void writeExclusively(List<UnitOfWork.StreamId> streamIds, Runnable write) {
+        int[] stripeIndexes = streamIds.stream()
+                .mapToInt(streamId -> stripeIndex(streamId.getAggregateId(), streamId.getAggregateName()))
+                .distinct()
+                .toArray();
+        Arrays.sort(stripeIndexes);
+        int locked = 0;
+        try {
+            for (int stripeIndex : stripeIndexes) {
+                stripes[stripeIndex].lock.lock();
+                locked++;
+            }
+            write.run();
+        } finally {
+            for (int index = locked - 1; index >= 0; index--) {
+                stripes[stripeIndexes[index]].lock.unlock();
+            }
+        }
+    }
+
+    private void writeBatch(Stripe<W> stripe) {
+        List<W> batch = new ArrayList<>();
+        W queuedWrite;
+        while (batch.size() < maxBatchSize && (queuedWrite = stripe.queue.poll()) != null) {
+            batch.add(queuedWrite);
+        }
+        try {
+            batchWriter.accept(batch);
+        } catch (RuntimeException ex) {
+            batch.stream().filter(write -> !write.isDone()).forEach(write -> write.fail(ex));
+        }
+    }
+
+    private int stripeIndex(UUID aggregateId, String aggregateName) {
+        int hash = 31 * aggregateId.hashCode() + aggregateName.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    /**
+     * Write waiting in the queue. Its result is set by the batch writer before the write is marked as done,
+     * so it is visible to the writer that waits for it.
+     */
+    abstract static class Write {
+
+        private RuntimeException failure;
+        private volatile boolean done;
+
+        boolean isDone() {
+            return done;
+        }
+
+        void complete() {
+            done = true;
+        }
+
+        void fail(RuntimeException failure) {
+            this.failure = failure;
+            done = true;
+        }
+
+        void throwIfFailed() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+    }
+
+    private static class Stripe<W> {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Queue<W> queue = new ConcurrentLinkedQueue<>();
+
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.hltech.store;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Events of many aggregates saved together by {@link EventStore#save(UnitOfWork)}, all or none of them,
+ * for example when a command touches several aggregates:
+ * new UnitOfWork&lt;Event&gt;()
+ *     .append(moneyWithdrawn, "Account", sourceVersion)
+ *     .append(moneyDeposited, "Account", targetVersion);
+ *
+ * <p>Events are saved in order they were appended. Expected aggregate version of an event is the version
+ * of its stream before the event is saved, so it counts events appended to the same stream earlier in the unit of work.
+ */
+public class UnitOfWork<E> {
+
+    private static final int ANY_VERSION = -1;
+
+    private final List<Append<E>> appends = new ArrayList<>();
+
+    public UnitOfWork<E> append(E event, String aggregateName) {
+        appends.add(new Append<>(event, aggregateName, ANY_VERSION));
+        return this;
+    }
+
+    public UnitOfWork<E> append(E event, String aggregateName, int expectedAggregateVersion) {
+        if (expectedAggregateVersion < 0) {
+            throw new IllegalArgumentException("Expected aggregate version must not be negative");
+        }
+        appends.add(new Append<>(event, aggregateName, expectedAggregateVersion));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return appends.isEmpty();
+    }
+
+    List<Append<E>> getAppends() {
+        return Collections.unmodifiableList(appends);
+    }
+
+    /**
+     * Returns streams touched by the unit of work, sorted by aggregate name and aggregate id.
+     * Stores lock streams in this order, so units of work touching the same streams never wait for each other in a cycle.
+     */
+    List<StreamId> streamIds(Function<E, UUID> aggregateIdExtractor) {
+        TreeSet<StreamId> streamIds = new TreeSet<>();
+        for (Append<E> append : appends) {
+            streamIds.add(new StreamId(aggregateIdExtractor.apply(append.event), append.aggregateName));
+        }
+        return new ArrayList<>(streamIds);
+    }
+
+    /**
+     * Returns aggregate names of the unit of work, under which saves are reported to metrics.
+     */
+    String aggregateNames() {
+        TreeSet<String> aggregateNames = new TreeSet<>();
+        for (Append<E> append : appends) {
+            aggregateNames.add(append.aggregateName);
+        }
+        return String.join(",", aggregateNames);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class Append<E> {
+
+        private final E event;
+        private final String aggregateName;
+        private final int expectedAggregateVersion;
+
+        boolean hasExpectedAggregateVersion() {
+            return expectedAggregateVersion != ANY_VERSION;
+        }
+
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    @Getter
+    static class StreamId implements Comparable<StreamId> {
+
+        private final UUID aggregateId;
+        private final String aggregateName;
+
+        @Override
+        public int compareTo(StreamId other) {
+            int byName = aggregateName.compareTo(other.aggregateName);
+            return byName != 0 ? byName : aggregateId.compareTo(other.aggregateId);
+        }
+
+    }
+
+}
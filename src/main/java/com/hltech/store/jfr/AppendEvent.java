@@ -0,0 +1,37 @@
+package com.hltech.store.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import lombok.Setter;
+
+@Name("com.hltech.store.Append")
+@Label("Event Store Append")
+@Description("Events appended to the aggregate stream in a single transaction")
+@Category("SQL Event Store")
+@Enabled(false)
+@StackTrace(false)
+@Setter
+public class AppendEvent extends Event {
+
+    @Label("Aggregate Name")
+    private String aggregateName;
+
+    @Label("Event Count")
+    private int eventCount;
+
+    @Label("Payload Size")
+    @DataAmount
+    private long payloadBytes;
+
+    @Label("Lock Wait")
+    @Timespan
+    private long lockWait;
+
+}
@@ -0,0 +1,49 @@
+package com.hltech.store.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+@Name("com.hltech.store.DecodeFailure")
+@Label("Event Decode Failure")
+@Description("Stored event could not be converted to the java object by the versioning strategy")
+@Category("SQL Event Store")
+@Enabled(false)
+@Setter
+public class DecodeFailureEvent extends Event {
+
+    @Label("Event Name")
+    private String eventName;
+
+    @Label("Event Version")
+    private int eventVersion;
+
+    @Label("Versioning Strategy")
+    private Class<?> versioningStrategy;
+
+    @Label("Exception")
+    private Class<?> exceptionType;
+
+    @Label("Message")
+    private String message;
+
+    /**
+     * Commits the event if it is enabled. Event has no duration, because the failure is reported as soon as it happens.
+     */
+    public static void emit(String eventName, int eventVersion, Object versioningStrategy, Throwable failure) {
+        DecodeFailureEvent event = new DecodeFailureEvent();
+        if (event.isEnabled()) {
+            event.setEventName(eventName);
+            event.setEventVersion(eventVersion);
+            event.setVersioningStrategy(versioningStrategy.getClass());
+            event.setExceptionType(failure.getClass());
+            event.setMessage(failure.getMessage());
+            event.commit();
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.hltech.store.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import lombok.Setter;
+
+@Name("com.hltech.store.Load")
+@Label("Event Store Load")
+@Description("Events read from the event store by a single query")
+@Category("SQL Event Store")
+@Enabled(false)
+@StackTrace(false)
+@Setter
+public class LoadEvent extends Event {
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Rows")
+    private int rows;
+
+    @Label("Payload Size")
+    @DataAmount
+    private long payloadBytes;
+
+    @Label("Decode Time")
+    @Timespan
+    private long decodeTime;
+
+}
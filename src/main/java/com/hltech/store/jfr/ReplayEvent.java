@@ -0,0 +1,27 @@
+package com.hltech.store.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+@Name("com.hltech.store.Replay")
+@Label("Aggregate Replay")
+@Description("Aggregate state rebuilt by applying its events")
+@Category("SQL Event Store")
+@Enabled(false)
+@StackTrace(false)
+@Setter
+public class ReplayEvent extends Event {
+
+    @Label("Aggregate Name")
+    private String aggregateName;
+
+    @Label("Events Applied")
+    private int eventsApplied;
+
+}
@@ -0,0 +1,45 @@
+package com.hltech.store.metrics;
+
+/**
+ * Instrumentation SPI that event store and aggregate repository report into.
+ * All methods have empty default implementations, so an adapter to any metrics backend
+ * has to override only those measurements it is interested in.
+ *
+ * <p>Methods are called synchronously on the thread performing the operation,
+ * so implementations have to be thread safe and should not block.
+ */
+public interface EventStoreMetrics {
+
+    EventStoreMetrics NO_OP = new EventStoreMetrics() { };
+
+    /**
+     * Called after events have been successfully saved and committed.
+     */
+    default void recordSave(SaveMeasurement measurement) {
+    }
+
+    /**
+     * Called after events have been read and deserialized.
+     */
+    default void recordRead(ReadMeasurement measurement) {
+    }
+
+    /**
+     * Called when save has been rejected because of the expected aggregate version mismatch.
+     */
+    default void recordOptimisticLockConflict(String aggregateName) {
+    }
+
+    /**
+     * Called after aggregate has been recreated from its events.
+     */
+    default void recordAggregateRebuild(String aggregateName, int appliedEvents, long durationNanos) {
+    }
+
+    /**
+     * Called when aggregate repository is about to run a command again after optimistic locking conflict.
+     */
+    default void recordCommandRetry(String aggregateName) {
+    }
+
+}
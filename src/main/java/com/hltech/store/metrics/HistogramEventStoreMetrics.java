@@ -0,0 +1,75 @@
+package com.hltech.store.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps latency histograms for every phase of save and read operations together with throughput counters.
+ * It is meant to be periodically polled and exported to the metrics backend of choice.
+ * All durations are recorded in nanoseconds.
+ */
+@Getter
+public class HistogramEventStoreMetrics implements EventStoreMetrics {
+
+    private final LatencyHistogram saveConnectionAcquire = new LatencyHistogram();
+    private final LatencyHistogram saveLockWait = new LatencyHistogram();
+    private final LatencyHistogram saveSerialization = new LatencyHistogram();
+    private final LatencyHistogram saveInsert = new LatencyHistogram();
+    private final LatencyHistogram saveCommit = new LatencyHistogram();
+    private final LatencyHistogram save = new LatencyHistogram();
+
+    private final LatencyHistogram readConnectionAcquire = new LatencyHistogram();
+    private final LatencyHistogram readQuery = new LatencyHistogram();
+    private final LatencyHistogram readDeserialization = new LatencyHistogram();
+    private final LatencyHistogram read = new LatencyHistogram();
+
+    private final LatencyHistogram aggregateRebuild = new LatencyHistogram();
+
+    private final LongAdder savedEvents = new LongAdder();
+    private final LongAdder savedPayloadBytes = new LongAdder();
+    private final LongAdder readRows = new LongAdder();
+    private final LongAdder readPayloadBytes = new LongAdder();
+    private final LongAdder appliedEvents = new LongAdder();
+    private final LongAdder optimisticLockConflicts = new LongAdder();
+    private final LongAdder commandRetries = new LongAdder();
+
+    @Override
+    public void recordSave(SaveMeasurement measurement) {
+        saveConnectionAcquire.record(measurement.getConnectionAcquireNanos());
+        saveLockWait.record(measurement.getLockWaitNanos());
+        saveSerialization.record(measurement.getSerializationNanos());
+        saveInsert.record(measurement.getInsertNanos());
+        saveCommit.record(measurement.getCommitNanos());
+        save.record(measurement.getTotalNanos());
+        savedEvents.add(measurement.getEventCount());
+        savedPayloadBytes.add(measurement.getPayloadBytes());
+    }
+
+    @Override
+    public void recordRead(ReadMeasurement measurement) {
+        readConnectionAcquire.record(measurement.getConnectionAcquireNanos());
+        readQuery.record(measurement.getQueryNanos());
+        readDeserialization.record(measurement.getDeserializationNanos());
+        read.record(measurement.getTotalNanos());
+        readRows.add(measurement.getRows());
+        readPayloadBytes.add(measurement.getPayloadBytes());
+    }
+
+    @Override
+    public void recordOptimisticLockConflict(String aggregateName) {
+        optimisticLockConflicts.increment();
+    }
+
+    @Override
+    public void recordAggregateRebuild(String aggregateName, int appliedEvents, long durationNanos) {
+        aggregateRebuild.record(durationNanos);
+        this.appliedEvents.add(appliedEvents);
+    }
+
+    @Override
+    public void recordCommandRetry(String aggregateName) {
+        commandRetries.increment();
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.hltech.store.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Time spent in every phase of a single read operation. All durations are in nanoseconds.
+ * Query time includes fetching rows from the database, but excludes deserialization of events.
+ */
+@Builder
+@Getter
+@ToString
+public class ReadMeasurement {
+
+    private final String operation;
+    private final int rows;
+    private final long payloadBytes;
+    private final long connectionAcquireNanos;
+    private final long queryNanos;
+    private final long deserializationNanos;
+    private final long totalNanos;
+
+}
@@ -0,0 +1,26 @@
+package com.hltech.store.metrics;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Time spent in every phase of a single save operation. All durations are in nanoseconds.
+ * Payload bytes is the size of serialized events. Stores that send payload as text report its length in characters.
+ */
+@Builder
+@Getter
+@ToString
+public class SaveMeasurement {
+
+    private final String aggregateName;
+    private final int eventCount;
+    private final long payloadBytes;
+    private final long connectionAcquireNanos;
+    private final long lockWaitNanos;
+    private final long serializationNanos;
+    private final long insertNanos;
+    private final long commitNanos;
+    private final long totalNanos;
+
+}
@@ -1,32 +1,122 @@
 package com.hltech.store.versioning;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * This strategy allows to use different event versioning strategy for each event. Available policies are:
  * {@link MultipleVersionsBasedVersioning}
  * {@link UpcastingBasedVersioning}
  * {@link MappingBasedVersioning}
  * {@link WrappingBasedVersioning}
+ *
+ * <p>Every event is registered together with the strategy that handles it, which has to be configured for the event as well.
+ * Registrations are turned into two immutable tables, from event name and from event type to the strategy,
+ * so every call costs a single lookup before it is passed to the strategy, for example:
+ * MixedStrategyBasedVersioning.&lt;Event&gt;builder()
+ *     .registerEvent(OrderPlaced.class, "OrderPlaced", upcastingBasedVersioning)
+ *     .registerEvent(OrderCancelled.class, "OrderCancelled", mappingBasedVersioning)
+ *     .build();
  */
 public class MixedStrategyBasedVersioning<E> implements EventVersioningStrategy<E> {
 
+    private final Map<String, EventVersioningStrategy<E>> eventNameToStrategyMap;
+    private final Map<Class<? extends E>, EventVersioningStrategy<E>> eventTypeToStrategyMap;
+
+    private MixedStrategyBasedVersioning(
+            Map<String, EventVersioningStrategy<E>> eventNameToStrategyMap,
+            Map<Class<? extends E>, EventVersioningStrategy<E>> eventTypeToStrategyMap
+    ) {
+        this.eventNameToStrategyMap = Map.copyOf(eventNameToStrategyMap);
+        this.eventTypeToStrategyMap = Map.copyOf(eventTypeToStrategyMap);
+    }
+
+    public static <E> Builder<E> builder() {
+        return new Builder<>();
+    }
+
     @Override
     public E toEvent(String eventJson, String eventName, int eventVersion) {
-        throw new IllegalStateException("Not yet implemented");
+        EventVersioningStrategy<E> strategy = eventNameToStrategyMap.get(eventName);
+        if (strategy == null) {
+            throw new EventTypeMappingException("Versioning strategy not found for event name: " + eventName);
+        }
+        return strategy.toEvent(eventJson, eventName, eventVersion);
     }
 
     @Override
     public String toName(Class<? extends E> eventType) {
-        throw new IllegalStateException("Not yet implemented");
+        return toStrategy(eventType).toName(eventType);
     }
 
     @Override
     public int toVersion(Class<? extends E> eventType) {
-        throw new IllegalStateException("Not yet implemented");
+        return toStrategy(eventType).toVersion(eventType);
     }
 
     @Override
     public String toJson(E event) {
-        throw new IllegalStateException("Not yet implemented");
+        return toStrategy((Class<? extends E>) event.getClass()).toJson(event);
+    }
+
+    private EventVersioningStrategy<E> toStrategy(Class<? extends E> eventType) {
+        EventVersioningStrategy<E> strategy = eventTypeToStrategyMap.get(eventType);
+        if (strategy == null) {
+            throw new EventTypeMappingException("Versioning strategy not found for event type: " + eventType);
+        }
+        return strategy;
+    }
+
+    public static class Builder<E> {
+
+        private final Map<String, EventVersioningStrategy<E>> eventNameToStrategyMap = new HashMap<>();
+        private final Map<Class<? extends E>, EventVersioningStrategy<E>> eventTypeToStrategyMap = new HashMap<>();
+
+        /**
+         * Registers strategy that handles given event. Many types, for example many versions of the event,
+         * can share one event name as long as they use the same strategy.
+         */
+        public Builder<E> registerEvent(Class<? extends E> eventType, String eventName, EventVersioningStrategy<E> strategy) {
+            validateSameStrategyForEventName(eventName, strategy);
+            validateUniqueType(eventType);
+            eventNameToStrategyMap.put(eventName, strategy);
+            eventTypeToStrategyMap.put(eventType, strategy);
+            return this;
+        }
+
+        public MixedStrategyBasedVersioning<E> build() {
+            return new MixedStrategyBasedVersioning<>(eventNameToStrategyMap, eventTypeToStrategyMap);
+        }
+
+        /**
+         * Validates if user did not configure different strategies for the same event name, for example:
+         * builder.registerEvent(OrderPlacedV1.class, "OrderPlaced", multipleVersionsBasedVersioning);
+         * builder.registerEvent(OrderPlacedV2.class, "OrderPlaced", mappingBasedVersioning);
+         */
+        private void validateSameStrategyForEventName(String eventName, EventVersioningStrategy<E> strategy) {
+            EventVersioningStrategy<E> registeredStrategy = eventNameToStrategyMap.get(eventName);
+            if (registeredStrategy != null && registeredStrategy != strategy) {
+                throw new NonUniqueMappingException(
+                        String.format("Event name: %s was already configured for versioning strategy: %s", eventName, registeredStrategy)
+                );
+            }
+        }
+
+        /**
+         * Validates if user did not configure same event type more than once, for example:
+         * builder.registerEvent(OrderPlaced.class, "OrderPlaced", mappingBasedVersioning);
+         * builder.registerEvent(OrderPlaced.class, "OrderPlacedNew", mappingBasedVersioning);
+         */
+        private void validateUniqueType(Class<? extends E> eventType) {
+            if (eventTypeToStrategyMap.containsKey(eventType)) {
+                throw new NonUniqueMappingException(
+                        String.format("Event type: %s was already configured for versioning strategy: %s",
+                                eventType, eventTypeToStrategyMap.get(eventType)
+                        )
+                );
+            }
+        }
+
     }
 
 }
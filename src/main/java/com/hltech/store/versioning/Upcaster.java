@@ -0,0 +1,16 @@
+package com.hltech.store.versioning;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Transforms json tree of the event from one version to the next one, for example:
+ * eventJson -> eventJson.set("orderNumber", eventJson.remove("number"))
+ *
+ * <p>Upcaster may modify given tree and return it, there is no need to copy it.
+ */
+@FunctionalInterface
+public interface Upcaster {
+
+    ObjectNode upcast(ObjectNode eventJson);
+
+}
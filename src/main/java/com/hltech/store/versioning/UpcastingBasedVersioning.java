@@ -1,33 +1,182 @@
 package com.hltech.store.versioning;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_MISSING_CREATOR_PROPERTIES;
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+
 /**
  * In this strategy multiple versions of the event are up-casted to the latest version using registered transformation.
  * In opposite to {@link MultipleVersionsBasedVersioning} the application code has to support only the latest version of the event
  *
+ * <p>Every registered {@link Upcaster} transforms json tree of the event from one version to the next one.
+ * Upcasters from every older version to the latest one are put together into a chain, which is cached,
+ * so the json of an old event is parsed once, passed through all upcasters and bound to the event type once.
+ * Events in the latest version are bound straight from json.
+ *
  * <p>Please note that using this strategy is recommended only if you have one instance of your application running at the same time.
  * Using this strategy in multi instance case, leads to the situation where all instance must be updated
  * to understand latest event version before any instance produces it. For multi instance case consider using {@link MappingBasedVersioning}
  */
 public class UpcastingBasedVersioning<E> implements EventVersioningStrategy<E> {
 
+    private final Map<String, Class<? extends E>> eventNameToTypeMap = new HashMap<>();
+    private final Map<Class<? extends E>, NameAndVersion> eventTypeToNameAndVersionMap = new HashMap<>();
+    private final Map<NameAndVersion, Upcaster> upcasters = new HashMap<>();
+    private final Map<NameAndVersion, UpcasterChain<E>> upcasterChains = new ConcurrentHashMap<>();
+
+    @Getter
+    private final ObjectMapper objectMapper;
+
+    public UpcastingBasedVersioning() {
+        objectMapper = new ObjectMapper();
+        objectMapper.configure(FAIL_ON_UNKNOWN_PROPERTIES, true);
+        objectMapper.configure(FAIL_ON_MISSING_CREATOR_PROPERTIES, true);
+    }
+
     @Override
     public E toEvent(String eventJson, String eventName, int eventVersion) {
-        throw new IllegalStateException("Not yet implemented");
+        UpcasterChain<E> chain = upcasterChains.computeIfAbsent(new NameAndVersion(eventName, eventVersion), this::compileChain);
+        try {
+            if (chain.upcasters.length == 0) {
+                return objectMapper.readValue(eventJson, chain.eventType);
+            }
+            JsonNode tree = objectMapper.readTree(eventJson);
+            if (!tree.isObject()) {
+                throw new IllegalArgumentException("Only json objects can be upcasted");
+            }
+            ObjectNode upcastedTree = (ObjectNode) tree;
+            for (Upcaster upcaster : chain.upcasters) {
+                upcastedTree = upcaster.upcast(upcastedTree);
+            }
+            return objectMapper.treeToValue(upcastedTree, chain.eventType);
+        } catch (Exception ex) {
+            throw new EventBodyMappingException(eventJson, chain.eventType, ex);
+        }
     }
 
     @Override
     public String toName(Class<? extends E> eventType) {
-        throw new IllegalStateException("Not yet implemented");
+        NameAndVersion nameAndVersion = eventTypeToNameAndVersionMap.get(eventType);
+        if (nameAndVersion == null) {
+            throw new EventTypeMappingException("Mapping to event name not found for event type: " + eventType);
+        }
+        return nameAndVersion.getName();
     }
 
     @Override
     public int toVersion(Class<? extends E> eventType) {
-        throw new IllegalStateException("Not yet implemented");
+        NameAndVersion nameAndVersion = eventTypeToNameAndVersionMap.get(eventType);
+        if (nameAndVersion == null) {
+            throw new EventTypeMappingException("Mapping to event version not found for event type: " + eventType);
+        }
+        return nameAndVersion.getVersion();
     }
 
     @Override
     public String toJson(E event) {
-        throw new IllegalStateException("Not yet implemented");
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (Exception ex) {
+            throw new EventBodyMappingException(event, ex);
+        }
+    }
+
+    /**
+     * Registers the latest version of the event. Events are always saved in this version.
+     */
+    public void registerEvent(Class<? extends E> eventType, String eventName, int eventVersion) {
+        validateUniqueEventName(eventName);
+        validateUniqueType(eventType);
+        eventNameToTypeMap.put(eventName, eventType);
+        eventTypeToNameAndVersionMap.put(eventType, new NameAndVersion(eventName, eventVersion));
+        upcasterChains.clear();
+    }
+
+    /**
+     * Registers transformation of the event json from given version to the next one.
+     */
+    public void registerUpcaster(String eventName, int fromVersion, Upcaster upcaster) {
+        NameAndVersion nameAndVersion = new NameAndVersion(eventName, fromVersion);
+        if (upcasters.containsKey(nameAndVersion)) {
+            throw new NonUniqueMappingException(
+                    String.format("Upcaster for event name: %s and version: %s was already configured", eventName, fromVersion)
+            );
+        }
+        upcasters.put(nameAndVersion, upcaster);
+        upcasterChains.clear();
+    }
+
+    private UpcasterChain<E> compileChain(NameAndVersion nameAndVersion) {
+        Class<? extends E> eventType = eventNameToTypeMap.get(nameAndVersion.getName());
+        if (eventType == null) {
+            throw new EventTypeMappingException("Mapping to event type not found for event name: " + nameAndVersion.getName());
+        }
+        int latestVersion = eventTypeToNameAndVersionMap.get(eventType).getVersion();
+        if (nameAndVersion.getVersion() > latestVersion) {
+            throw new EventTypeMappingException(
+                    String.format("Event name: %s and version: %s is newer than the latest registered version: %s",
+                            nameAndVersion.getName(), nameAndVersion.getVersion(), latestVersion
+                    )
+            );
+        }
+        Upcaster[] chain = new Upcaster[latestVersion - nameAndVersion.getVersion()];
+        for (int hop = 0; hop < chain.length; hop++) {
+            int fromVersion = nameAndVersion.getVersion() + hop;
+            chain[hop] = upcasters.get(new NameAndVersion(nameAndVersion.getName(), fromVersion));
+            if (chain[hop] == null) {
+                throw new EventTypeMappingException(
+                        String.format("Upcaster not found for event name: %s and version: %s", nameAndVersion.getName(), fromVersion)
+                );
+            }
+        }
+        return new UpcasterChain<>(eventType, chain);
+    }
+
+    /**
+     * Validates if user did not configure same event name for more than one type, for example:
+     * eventTypeMapper.registerEvent(OrderPlaced.class, "OrderPlaced", 2);
+     * eventTypeMapper.registerEvent(OrderCancelled.class, "OrderPlaced", 1);
+     */
+    private void validateUniqueEventName(String eventName) {
+        if (eventNameToTypeMap.containsKey(eventName)) {
+            Class<? extends E> type = eventNameToTypeMap.get(eventName);
+            throw new NonUniqueMappingException(
+                    String.format("Mapping for event name: %s was already configured for type: %s", eventName, type)
+            );
+        }
+    }
+
+    /**
+     * Validates if user did not configure same event type more than once, for example:
+     * eventTypeMapper.registerEvent(OrderPlaced.class, "OrderPlaced", 2);
+     * eventTypeMapper.registerEvent(OrderPlaced.class, "OrderPlacedNew", 1);
+     */
+    private void validateUniqueType(Class<? extends E> eventType) {
+        if (eventTypeToNameAndVersionMap.containsKey(eventType)) {
+            NameAndVersion nameAndVersion = eventTypeToNameAndVersionMap.get(eventType);
+            throw new NonUniqueMappingException(
+                    String.format("Mapping for event type: %s was already configured for event name: %s and version: %s",
+                            eventType, nameAndVersion.getName(), nameAndVersion.getVersion()
+                    )
+            );
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class UpcasterChain<E> {
+
+        private final Class<? extends E> eventType;
+        private final Upcaster[] upcasters;
+
     }
 
 }
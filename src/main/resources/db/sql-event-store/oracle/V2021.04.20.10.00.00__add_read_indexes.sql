@@ -0,0 +1,11 @@
+-- Indexes used by read queries of OracleEventStore, verified on startup by EventStoreSchemaValidator.
+-- On a big existing event table consider creating them manually with ONLINE option before running this migration.
+
+-- findAll(aggregateName)
+CREATE INDEX aggregate_in_stream_name_idx ON aggregate_in_stream (aggregate_name, stream_id);
+
+-- findAll(aggregateId, aggregateName), findAllAfterVersion, findAllToEvent and joins from aggregate_in_stream
+CREATE INDEX event_stream_version_idx ON event (stream_id, aggregate_version);
+
+-- publishAll, tail and ordering of reads by order of occurrence
+CREATE INDEX event_order_of_occurrence_idx ON event (order_of_occurrence);
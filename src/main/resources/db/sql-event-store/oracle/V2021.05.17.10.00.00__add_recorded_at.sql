@@ -0,0 +1,9 @@
+-- Time the event was recorded in UTC, used by reads by recording time and by event name.
+-- Events saved before this migration get the time of the migration.
+ALTER TABLE event ADD recorded_at TIMESTAMP(6) DEFAULT SYS_EXTRACT_UTC(SYSTIMESTAMP) NOT NULL;
+
+-- findAllRecordedBetween
+CREATE INDEX event_recorded_at_idx ON event (recorded_at, order_of_occurrence);
+
+-- findAllByEventName
+CREATE INDEX event_name_recorded_at_idx ON event (event_name, recorded_at, order_of_occurrence);
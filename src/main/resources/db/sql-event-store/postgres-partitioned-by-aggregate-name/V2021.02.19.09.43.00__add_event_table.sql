@@ -0,0 +1,51 @@
+-- Requires PostgreSQL 12 or newer.
+-- Number of hash partitions can not be changed without rewriting the table, so choose it with future growth in mind.
+create table aggregate_in_stream
+(
+    aggregate_id      uuid       not null,
+    aggregate_name    varchar    not null,
+    aggregate_version int        not null,
+    stream_id         uuid       not null,
+    PRIMARY KEY (stream_id),
+    CONSTRAINT aggregate_uq UNIQUE (aggregate_id, aggregate_name), -- there should be only one stream for aggregate
+    CONSTRAINT stream_aggregate_name_uq UNIQUE (stream_id, aggregate_name) -- target of foreign key from event
+);
+
+-- primary key of partitioned table has to contain partition key, so uniqueness of event id is guarded here
+create table event_identity
+(
+    id uuid not null,
+    PRIMARY KEY (id)
+);
+
+create table event
+(
+    id                  uuid      not null,
+    stream_id           uuid      not null,
+    aggregate_name      varchar   not null,
+    aggregate_version   int       not null,
+    payload             jsonb     not null,
+    order_of_occurrence bigserial not null,
+    event_name          varchar   not null,
+    event_version       int       not null,
+    PRIMARY KEY (id, aggregate_name),
+    FOREIGN KEY (id) REFERENCES event_identity (id),
+    FOREIGN KEY (stream_id, aggregate_name) REFERENCES aggregate_in_stream (stream_id, aggregate_name)
+) PARTITION BY HASH (aggregate_name);
+
+create table event_hash_00 partition of event for values with (modulus 16, remainder 0);
+create table event_hash_01 partition of event for values with (modulus 16, remainder 1);
+create table event_hash_02 partition of event for values with (modulus 16, remainder 2);
+create table event_hash_03 partition of event for values with (modulus 16, remainder 3);
+create table event_hash_04 partition of event for values with (modulus 16, remainder 4);
+create table event_hash_05 partition of event for values with (modulus 16, remainder 5);
+create table event_hash_06 partition of event for values with (modulus 16, remainder 6);
+create table event_hash_07 partition of event for values with (modulus 16, remainder 7);
+create table event_hash_08 partition of event for values with (modulus 16, remainder 8);
+create table event_hash_09 partition of event for values with (modulus 16, remainder 9);
+create table event_hash_10 partition of event for values with (modulus 16, remainder 10);
+create table event_hash_11 partition of event for values with (modulus 16, remainder 11);
+create table event_hash_12 partition of event for values with (modulus 16, remainder 12);
+create table event_hash_13 partition of event for values with (modulus 16, remainder 13);
+create table event_hash_14 partition of event for values with (modulus 16, remainder 14);
+create table event_hash_15 partition of event for values with (modulus 16, remainder 15);
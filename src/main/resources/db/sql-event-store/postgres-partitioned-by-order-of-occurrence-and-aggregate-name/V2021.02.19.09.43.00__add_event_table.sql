@@ -0,0 +1,37 @@
+-- Requires PostgreSQL 12 or newer.
+-- Range partitions, each subpartitioned by hash of aggregate name, have to be created ahead of time
+-- with PostgresPartitionManager, default partition only prevents failures of saves when that was not done in time.
+create table aggregate_in_stream
+(
+    aggregate_id      uuid       not null,
+    aggregate_name    varchar    not null,
+    aggregate_version int        not null,
+    stream_id         uuid       not null,
+    PRIMARY KEY (stream_id),
+    CONSTRAINT aggregate_uq UNIQUE (aggregate_id, aggregate_name), -- there should be only one stream for aggregate
+    CONSTRAINT stream_aggregate_name_uq UNIQUE (stream_id, aggregate_name) -- target of foreign key from event
+);
+
+-- primary key of partitioned table has to contain partition key, so uniqueness of event id is guarded here
+create table event_identity
+(
+    id uuid not null,
+    PRIMARY KEY (id)
+);
+
+create table event
+(
+    id                  uuid      not null,
+    stream_id           uuid      not null,
+    aggregate_name      varchar   not null,
+    aggregate_version   int       not null,
+    payload             jsonb     not null,
+    order_of_occurrence bigserial not null,
+    event_name          varchar   not null,
+    event_version       int       not null,
+    PRIMARY KEY (id, order_of_occurrence, aggregate_name),
+    FOREIGN KEY (id) REFERENCES event_identity (id),
+    FOREIGN KEY (stream_id, aggregate_name) REFERENCES aggregate_in_stream (stream_id, aggregate_name)
+) PARTITION BY RANGE (order_of_occurrence);
+
+create table event_default partition of event default;
@@ -0,0 +1,11 @@
+-- Indexes used by read queries of PostgresEventStore, verified on startup by EventStoreSchemaValidator.
+-- On a big existing event table consider creating them manually with CREATE INDEX CONCURRENTLY before running this migration.
+
+-- findAll(aggregateName)
+create index if not exists aggregate_in_stream_name_idx on aggregate_in_stream (aggregate_name, stream_id);
+
+-- findAll(aggregateId, aggregateName), findAllAfterVersion, findAllToEvent and joins from aggregate_in_stream
+create index if not exists event_stream_version_idx on event (stream_id, aggregate_version);
+
+-- publishAll, tail and ordering of reads by order of occurrence
+create index if not exists event_order_of_occurrence_idx on event (order_of_occurrence);
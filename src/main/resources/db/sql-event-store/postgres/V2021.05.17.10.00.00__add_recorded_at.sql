@@ -0,0 +1,10 @@
+-- Time the event was recorded, used by reads by recording time and by event name.
+-- Events saved before this migration get the time of the migration.
+-- Before PostgreSQL 11 adding a column with default rewrites the table, on a big event table plan for it.
+alter table event add column if not exists recorded_at timestamptz not null default now();
+
+-- findAllRecordedBetween
+create index if not exists event_recorded_at_idx on event (recorded_at, order_of_occurrence);
+
+-- findAllByEventName
+create index if not exists event_name_recorded_at_idx on event (event_name, recorded_at, order_of_occurrence);
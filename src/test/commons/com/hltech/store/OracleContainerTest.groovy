@@ -54,7 +54,7 @@ trait OracleContainerTest {
     private static void migrateDbScripts() {
         Flyway flyway = Flyway
                 .configure()
-                .locations("db/migration/oracle")
+                .locations("db/sql-event-store/oracle")
                 .baselineOnMigrate(true)
                 .dataSource(
                         oracleContainer.getJdbcUrl(),
@@ -0,0 +1,81 @@
+package com.hltech.store
+
+import groovy.sql.Sql
+import org.flywaydb.core.Flyway
+import org.postgresql.ds.PGSimpleDataSource
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.testcontainers.containers.PostgreSQLContainer
+
+import javax.sql.DataSource
+
+trait PartitionedPostgreSQLContainerTest {
+
+    static Logger log = LoggerFactory.getLogger(PartitionedPostgreSQLContainerTest.class)
+    static PostgreSQLContainer partitionedPostgreSQLContainer
+    static Map<PostgresPartitioning, DataSource> partitionedDataSources = [:]
+    static Map<PostgresPartitioning, Sql> partitionedDbClients = [:]
+
+    /**
+     * Initialization block responsible for creating PostgreSQL container supporting declarative partitioning
+     * Every partitioned layout of the event table is migrated into its own schema
+     * Container is shared between test classes
+     * It will be started at the start of given JVM and destroyed when JVM is stopped
+     */
+    static {
+        createDb()
+        [
+                (PostgresPartitioning.ORDER_OF_OCCURRENCE_RANGE)                        : "postgres-partitioned-by-order-of-occurrence",
+                (PostgresPartitioning.AGGREGATE_NAME_HASH)                              : "postgres-partitioned-by-aggregate-name",
+                (PostgresPartitioning.ORDER_OF_OCCURRENCE_RANGE_AND_AGGREGATE_NAME_HASH): "postgres-partitioned-by-order-of-occurrence-and-aggregate-name"
+        ].each { partitioning, location ->
+            String schema = partitioning.name().toLowerCase()
+            migrateDbScripts(schema, location)
+            partitionedDataSources[partitioning] = createDataSource(schema)
+            partitionedDbClients[partitioning] = createDbClient(schema)
+        }
+    }
+
+    private static void createDb() {
+        partitionedPostgreSQLContainer = new PostgreSQLContainer("postgres:12")
+        partitionedPostgreSQLContainer.start()
+        log.info("Container PostgreSQL 12 is ready to use")
+        log.info("JDBC: $partitionedPostgreSQLContainer.jdbcUrl")
+    }
+
+    private static String jdbcUrl(String schema) {
+        String jdbcUrl = partitionedPostgreSQLContainer.jdbcUrl
+        "$jdbcUrl${jdbcUrl.contains('?') ? '&' : '?'}currentSchema=$schema"
+    }
+
+    private static void migrateDbScripts(String schema, String location) {
+        Flyway flyway = Flyway
+                .configure()
+                .locations("db/sql-event-store/$location")
+                .schemas(schema)
+                .dataSource(
+                        partitionedPostgreSQLContainer.getJdbcUrl(),
+                        partitionedPostgreSQLContainer.getUsername(),
+                        partitionedPostgreSQLContainer.getPassword())
+                .load()
+        flyway.migrate()
+    }
+
+    private static DataSource createDataSource(String schema) {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource()
+        dataSource.setUser(partitionedPostgreSQLContainer.getUsername())
+        dataSource.setPassword(partitionedPostgreSQLContainer.getPassword())
+        dataSource.setUrl(jdbcUrl(schema))
+        dataSource
+    }
+
+    private static Sql createDbClient(String schema) {
+        Sql.newInstance(
+                jdbcUrl(schema),
+                partitionedPostgreSQLContainer.getUsername(),
+                partitionedPostgreSQLContainer.getPassword(),
+                partitionedPostgreSQLContainer.getDriverClassName()
+        )
+    }
+
+}
@@ -47,7 +47,7 @@ trait PostgreSQLContainerTest {
     static void migrateDbScripts() {
         Flyway flyway = Flyway
                 .configure()
-                .locations("db/migration/postgres")
+                .locations("db/sql-event-store/postgres")
                 .dataSource(
                         postgreSQLContainer.getJdbcUrl(),
                         postgreSQLContainer.getUsername(),
@@ -0,0 +1,62 @@
+package com.hltech.store
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Flow
+
+import static java.util.concurrent.TimeUnit.SECONDS
+
+class TestSubscriber<T> implements Flow.Subscriber<T> {
+
+    static final int TIMEOUT_IN_SECONDS = 5
+
+    List<T> elements = new CopyOnWriteArrayList<>()
+    Flow.Subscription subscription
+    volatile Throwable error
+    volatile boolean completed
+    CountDownLatch terminated = new CountDownLatch(1)
+
+    @Override
+    void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription
+    }
+
+    @Override
+    void onNext(T item) {
+        elements.add(item)
+    }
+
+    @Override
+    void onError(Throwable throwable) {
+        error = throwable
+        terminated.countDown()
+    }
+
+    @Override
+    void onComplete() {
+        completed = true
+        terminated.countDown()
+    }
+
+    void request(long count) {
+        subscription.request(count)
+    }
+
+    void cancel() {
+        subscription.cancel()
+    }
+
+    List<T> awaitElements(int count) {
+        long deadline = System.currentTimeMillis() + SECONDS.toMillis(TIMEOUT_IN_SECONDS)
+        while (elements.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+        elements
+    }
+
+    TestSubscriber<T> awaitTermination() {
+        terminated.await(TIMEOUT_IN_SECONDS, SECONDS)
+        this
+    }
+
+}
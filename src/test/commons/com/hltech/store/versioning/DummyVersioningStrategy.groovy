@@ -1,5 +1,6 @@
 package com.hltech.store.versioning
 
+import com.hltech.store.AnotherDummyEvent
 import com.hltech.store.DummyBaseEvent
 import com.hltech.store.DummyEvent
 import groovy.json.JsonSlurper
@@ -10,7 +11,7 @@ class DummyVersioningStrategy implements EventVersioningStrategy<DummyBaseEvent>
 
     @Override
     String toName(Class<? extends DummyBaseEvent> eventType) {
-        "DummyEvent"
+        eventType == AnotherDummyEvent ? "AnotherDummyEvent" : "DummyEvent"
     }
 
     @Override
@@ -20,7 +21,7 @@ class DummyVersioningStrategy implements EventVersioningStrategy<DummyBaseEvent>
 
     @Override
     String toJson(DummyBaseEvent event) {
-        if (event['optionalAttribute'] != null) {
+        if (event instanceof DummyEvent && event.optionalAttribute != null) {
             return """{ "id": "$event.id", "aggregateId": "$event.aggregateId", "optionalAttribute": "$event['optionalAttribute']" }"""
         }
         return """{ "id": "$event.id", "aggregateId": "$event.aggregateId"}"""
@@ -29,6 +30,9 @@ class DummyVersioningStrategy implements EventVersioningStrategy<DummyBaseEvent>
     @Override
     DummyBaseEvent toEvent(String eventString, String eventName, int eventVersion) {
         def parsedJson = SLURPER.parseText(eventString)
+        if (eventName == "AnotherDummyEvent") {
+            return new AnotherDummyEvent(UUID.fromString(parsedJson['id'].toString()), UUID.fromString(parsedJson['aggregateId'].toString()))
+        }
         def optionalAttribute = parsedJson['optionalAttribute'].toString()
         new DummyEvent(
                 UUID.fromString(parsedJson['id'].toString()),
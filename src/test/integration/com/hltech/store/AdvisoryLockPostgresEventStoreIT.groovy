@@ -0,0 +1,16 @@
+package com.hltech.store
+
+import spock.lang.Subject
+
+class AdvisoryLockPostgresEventStoreIT extends PostgresEventStoreIT {
+
+    @Subject
+    PostgresEventStore<DummyBaseEvent> eventStore = new PostgresEventStore(
+            DummyBaseEvent.EVENT_ID_EXTRACTOR,
+            DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+            eventVersioningStrategy,
+            dataSource,
+            EventStoreOptions.builder().postgresStreamLocking(PostgresStreamLocking.ADVISORY_LOCK).build()
+    )
+
+}
@@ -0,0 +1,9 @@
+package com.hltech.store
+
+class AggregateNameHashPartitionedPostgresEventStoreIT extends PartitionedPostgresEventStoreIT {
+
+    PostgresPartitioning getPartitioning() {
+        PostgresPartitioning.AGGREGATE_NAME_HASH
+    }
+
+}
@@ -3,6 +3,8 @@ package com.hltech.store
 import com.hltech.store.versioning.DummyVersioningStrategy
 import spock.lang.Specification
 
+import java.time.Duration
+import java.time.Instant
 import java.util.concurrent.Executors
 import java.util.concurrent.atomic.AtomicInteger
 
@@ -22,7 +24,7 @@ abstract class EventStoreIT extends Specification {
             AGGREGATE_EVENTS.each { eventStore.save(it, AGGREGATE_NAME) }
 
         then: 'All events exist in database'
-            def rows = dbClient.rows("select * from event where stream_id = '$streamId' order by aggregate_version asc")
+            def rows = findEventRows(streamId)
 
         and: 'Table rows for events as expected'
             AGGREGATE_EVENTS.eachWithIndex { DummyBaseEvent event, int idx ->
@@ -106,8 +108,7 @@ abstract class EventStoreIT extends Specification {
             eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
 
         then: 'Stream created'
-            def row  = dbClient.firstRow("select * from aggregate_in_stream where aggregate_id = '$AGGREGATE_ID' and aggregate_name = $AGGREGATE_NAME")
-            row['stream_id'] != null
+            streamExist(AGGREGATE_ID, AGGREGATE_NAME)
 
     }
 
@@ -122,7 +123,7 @@ abstract class EventStoreIT extends Specification {
             }
 
         then: 'All events exist in database'
-            def rows = dbClient.rows("select * from event where stream_id = '$streamId' order by aggregate_version asc")
+            def rows = findEventRows(streamId)
 
         and: 'Table rows for events as expected'
             AGGREGATE_EVENTS.eachWithIndex { DummyBaseEvent event, int idx ->
@@ -258,8 +259,69 @@ abstract class EventStoreIT extends Specification {
             eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME, 0)
 
         then: 'Stream created'
-            def row  = dbClient.firstRow("select * from aggregate_in_stream where aggregate_id = '$AGGREGATE_ID' and aggregate_name = $AGGREGATE_NAME")
-            row['stream_id'] != null
+            streamExist(AGGREGATE_ID, AGGREGATE_NAME)
+
+    }
+
+    def "save with unit of work should save events of many aggregates in one go"() {
+
+        given: 'Unit of work with events of two aggregates'
+            def unitOfWork = new UnitOfWork<DummyBaseEvent>()
+                    .append(AGGREGATE_EVENTS[0], AGGREGATE_NAME, 0)
+                    .append(ANOTHER_AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+                    .append(AGGREGATE_EVENTS[1], AGGREGATE_NAME, 1)
+
+        when: 'Unit of work saved'
+            eventStore.save(unitOfWork)
+
+        then: 'Events of both aggregates saved in order'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) == AGGREGATE_EVENTS[0..1]
+            eventStore.findAll(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME) == [ANOTHER_AGGREGATE_EVENTS[0]]
+
+        and: 'Aggregate versions set'
+            getAggregateVersion(AGGREGATE_ID, AGGREGATE_NAME) == 2
+            getAggregateVersion(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME) == 1
+
+    }
+
+    def "save with unit of work should not save any event when expected version of one aggregate is outdated"() {
+
+        given: 'Event of the aggregate saved'
+            eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+
+        and: 'Unit of work expecting another aggregate to be new and the aggregate to be new as well'
+            def unitOfWork = new UnitOfWork<DummyBaseEvent>()
+                    .append(ANOTHER_AGGREGATE_EVENTS[0], AGGREGATE_NAME, 0)
+                    .append(AGGREGATE_EVENTS[1], AGGREGATE_NAME, 0)
+
+        when: 'Unit of work saved'
+            eventStore.save(unitOfWork)
+
+        then: 'Optimistic locking exception thrown'
+            def ex = thrown(OptimisticLockingException)
+            ex.message == "Could not save event to database with aggregateId $AGGREGATE_ID, aggregateName $AGGREGATE_NAME and expectedVersion 0"
+
+        and: 'No event of the unit of work saved'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) == [AGGREGATE_EVENTS[0]]
+            eventStore.findAll(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME).isEmpty()
+
+    }
+
+    def "save with unit of work should not save any event when one of them already exists"() {
+
+        given: 'Event of the aggregate saved'
+            eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+
+        when: 'Unit of work with the same event saved'
+            eventStore.save(new UnitOfWork<DummyBaseEvent>()
+                    .append(ANOTHER_AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+                    .append(AGGREGATE_EVENTS[0], AGGREGATE_NAME))
+
+        then: 'Exception thrown'
+            thrown(EventStoreException)
+
+        and: 'Another aggregate not saved'
+            eventStore.findAll(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME).isEmpty()
 
     }
 
@@ -524,6 +586,22 @@ abstract class EventStoreIT extends Specification {
 
     }
 
+    def "findAllAfterVersion should return only events with greater aggregate version in correct order"() {
+
+        given: 'Three events saved for aggregate'
+            def events = AGGREGATE_EVENTS + [new DummyEvent(AGGREGATE_ID)]
+            events.each { eventStore.save(it, AGGREGATE_NAME) }
+
+        and: 'Event saved for another aggregate'
+            eventStore.save(ANOTHER_AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+
+        expect: 'Events after given version returned'
+            eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 1) == events.subList(1, 3)
+            eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 0) == events
+            eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 3).empty
+
+    }
+
     def "findAllToEvent should return given event and all other events that occurred before"() {
 
         given: 'Stream for aggregate exist'
@@ -598,6 +676,198 @@ abstract class EventStoreIT extends Specification {
 
     }
 
+    def "publishAll by aggregate name should publish all events for aggregate name in correct order on demand"() {
+
+        given: 'Stream for aggregates exist'
+            createStream(AGGREGATE_ID, AGGREGATE_NAME)
+            createStream(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME)
+
+        and: 'Events for two different aggregates exist in database'
+            def ALL_EVENTS = AGGREGATE_EVENTS + ANOTHER_AGGREGATE_EVENTS
+            insertEventsToDatabase(ALL_EVENTS, AGGREGATE_NAME)
+
+        and: 'Subscriber subscribed to events by aggregate name'
+            def subscriber = new TestSubscriber<DummyBaseEvent>()
+            eventStore.publishAll(AGGREGATE_NAME).subscribe(subscriber)
+
+        when: 'One event requested'
+            subscriber.request(1)
+
+        then: 'Only first event published'
+            subscriber.awaitElements(1) == [ALL_EVENTS[0]]
+
+        when: 'Remaining events requested'
+            subscriber.request(Long.MAX_VALUE)
+
+        then: 'All events published in correct order'
+            subscriber.awaitTermination().elements == ALL_EVENTS
+
+        and: 'Publisher completed'
+            subscriber.completed
+
+    }
+
+    def "publishAllGroupByAggregate should publish events of every aggregate together in order of occurrence"() {
+
+        given: 'Events of two aggregates saved alternately'
+            [AGGREGATE_EVENTS, ANOTHER_AGGREGATE_EVENTS].transpose().flatten().each { eventStore.save(it, AGGREGATE_NAME) }
+
+        and: 'Subscriber subscribed to events grouped by aggregate'
+            def subscriber = new TestSubscriber<AggregateEvents<DummyBaseEvent>>()
+            eventStore.publishAllGroupByAggregate(AGGREGATE_NAME).subscribe(subscriber)
+
+        when: 'All aggregates requested'
+            subscriber.request(Long.MAX_VALUE)
+
+        then: 'Events of every aggregate published together'
+            subscriber.awaitTermination().elements*.decode().toSet() == [AGGREGATE_EVENTS, ANOTHER_AGGREGATE_EVENTS].toSet()
+
+    }
+
+    def "publishAll by aggregateId should publish only events related to aggregate id"() {
+
+        given: 'Streams for aggregates exist'
+            createStream(AGGREGATE_ID, AGGREGATE_NAME)
+            createStream(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME)
+
+        and: 'Events exist in database for both aggregates'
+            insertEventsToDatabase(AGGREGATE_EVENTS, AGGREGATE_NAME)
+            insertEventsToDatabase(ANOTHER_AGGREGATE_EVENTS, AGGREGATE_NAME)
+
+        and: 'Subscriber subscribed to events by aggregate id'
+            def subscriber = new TestSubscriber<DummyBaseEvent>()
+            eventStore.publishAll(AGGREGATE_ID).subscribe(subscriber)
+
+        when: 'All events requested'
+            subscriber.request(Long.MAX_VALUE)
+
+        then: 'Only events for aggregate id published'
+            subscriber.awaitTermination().elements == AGGREGATE_EVENTS
+
+    }
+
+    def "tail should publish stored events and events saved after subscription"() {
+
+        given: 'Event exist in database'
+            eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+
+        and: 'Subscriber subscribed to tail from the beginning'
+            def subscriber = new TestSubscriber<PositionedEvent<DummyBaseEvent>>()
+            eventStore.tail(0, Duration.ofMillis(50)).subscribe(subscriber)
+            subscriber.request(Long.MAX_VALUE)
+
+        when: 'Another event saved after subscription'
+            subscriber.awaitElements(1)
+            eventStore.save(AGGREGATE_EVENTS[1], AGGREGATE_NAME)
+
+        then: 'Both events published in correct order'
+            subscriber.awaitElements(2).event == AGGREGATE_EVENTS
+
+        and: 'Positions are increasing'
+            subscriber.elements[0].position < subscriber.elements[1].position
+
+        cleanup:
+            subscriber.cancel()
+
+    }
+
+    def "findAllAfterPosition should return limited page of events of all aggregates after given position"() {
+
+        given: 'Events of two aggregates saved'
+            eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+            eventStore.save(ANOTHER_AGGREGATE_EVENTS[0], ANOTHER_AGGREGATE_NAME)
+            eventStore.save(AGGREGATE_EVENTS[1], AGGREGATE_NAME)
+
+        when: 'First page of two events read'
+            def firstPage = eventStore.findAllAfterPosition(0, 2)
+
+        and: 'Next page read after the last returned position'
+            def secondPage = eventStore.findAllAfterPosition(firstPage.last().position, 2)
+
+        then: 'Events returned in order of occurrence'
+            firstPage.event == [AGGREGATE_EVENTS[0], ANOTHER_AGGREGATE_EVENTS[0]]
+            secondPage.event == [AGGREGATE_EVENTS[1]]
+
+    }
+
+    def "findLastPosition should return position of the last saved event"() {
+
+        given: 'Position of empty store'
+            def emptyStorePosition = eventStore.findLastPosition()
+
+        when: 'Events of two aggregates saved'
+            eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+            eventStore.save(ANOTHER_AGGREGATE_EVENTS[0], ANOTHER_AGGREGATE_NAME)
+
+        then: 'Empty store has position 0'
+            emptyStorePosition == 0
+
+        and: 'Last position is position of the last saved event'
+            eventStore.findLastPosition() == eventStore.findAllAfterPosition(0, 10).last().position
+
+    }
+
+    def "findAllRecordedBetween should return pages of events ordered by recording time and position"() {
+
+        given: 'Events of two aggregates saved, two of them together in unit of work'
+            eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+            eventStore.save(new UnitOfWork<DummyBaseEvent>()
+                    .append(ANOTHER_AGGREGATE_EVENTS[0], ANOTHER_AGGREGATE_NAME)
+                    .append(AGGREGATE_EVENTS[1], AGGREGATE_NAME))
+            eventStore.save(ANOTHER_AGGREGATE_EVENTS[1], ANOTHER_AGGREGATE_NAME)
+
+        when: 'All events read in pages of one event, every page after recording time and position of the last returned event'
+            def events = []
+            def page = eventStore.findAllRecordedBetween(Instant.EPOCH, FAR_FUTURE, 0, 1)
+            while (!page.isEmpty()) {
+                events.addAll(page)
+                page = eventStore.findAllRecordedBetween(page.last().recordedAt, FAR_FUTURE, page.last().position, 1)
+            }
+
+        then: 'Every event returned once, in order of saving'
+            events.event == [AGGREGATE_EVENTS[0], ANOTHER_AGGREGATE_EVENTS[0], AGGREGATE_EVENTS[1], ANOTHER_AGGREGATE_EVENTS[1]]
+
+        and: 'Events ordered by recording time and position'
+            events == events.toSorted { left, right -> left.recordedAt <=> right.recordedAt ?: left.position <=> right.position }
+
+    }
+
+    def "findAllRecordedBetween should return events recorded from start of the range inclusive to its end exclusive"() {
+
+        given: 'Events saved at different times'
+            [AGGREGATE_EVENTS[0], AGGREGATE_EVENTS[1], ANOTHER_AGGREGATE_EVENTS[0]].each {
+                eventStore.save(it, AGGREGATE_NAME)
+                Thread.sleep(10)
+            }
+
+        and: 'Their recording times'
+            def recordedAt = eventStore.findAllRecordedBetween(Instant.EPOCH, FAR_FUTURE, 0, 10).recordedAt
+
+        expect: 'Only event recorded at start of the range returned when range ends at recording time of the next event'
+            eventStore.findAllRecordedBetween(recordedAt[1], recordedAt[2], 0, 10).event == [AGGREGATE_EVENTS[1]]
+
+    }
+
+    def "findAllByEventName should return events with given name, optionally of given aggregate name only"() {
+
+        given: 'Events of two kinds saved for two aggregate names'
+            def anotherEvent = new AnotherDummyEvent(AGGREGATE_ID)
+            def anotherEventOfAnotherAggregate = new AnotherDummyEvent(ANOTHER_AGGREGATE_ID)
+            eventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+            eventStore.save(anotherEvent, AGGREGATE_NAME)
+            eventStore.save(ANOTHER_AGGREGATE_EVENTS[0], ANOTHER_AGGREGATE_NAME)
+            eventStore.save(anotherEventOfAnotherAggregate, ANOTHER_AGGREGATE_NAME)
+
+        expect: 'Events with given name returned'
+            eventStore.findAllByEventName("AnotherDummyEvent", Instant.EPOCH, FAR_FUTURE, 0, 10).event ==
+                    [anotherEvent, anotherEventOfAnotherAggregate]
+
+        and: 'Events with given name and aggregate name returned'
+            eventStore.findAllByEventName("AnotherDummyEvent", ANOTHER_AGGREGATE_NAME, Instant.EPOCH, FAR_FUTURE, 0, 10).event ==
+                    [anotherEventOfAnotherAggregate]
+
+    }
+
     abstract UUID databaseUUIDToUUID(Object databasePayload)
 
     abstract String databasePayloadToString(Object databasePayload)
@@ -614,6 +884,11 @@ abstract class EventStoreIT extends Specification {
 
     abstract EventStore<DummyBaseEvent> getEventStore()
 
+    /**
+     * Returns rows of event table for given stream ordered by aggregate version.
+     */
+    abstract List<Map<String, Object>> findEventRows(UUID streamId)
+
     abstract int getAggregateVersion(
             UUID aggregateId,
             String aggregateName
@@ -636,5 +911,6 @@ abstract class EventStoreIT extends Specification {
     ]
     static AGGREGATE_NAME = randomAlphanumeric(5)
     static ANOTHER_AGGREGATE_NAME = randomAlphanumeric(5)
+    static FAR_FUTURE = Instant.parse("3000-01-01T00:00:00Z")
 
 }
@@ -0,0 +1,38 @@
+package com.hltech.store
+
+import com.hltech.store.versioning.DummyVersioningStrategy
+import spock.lang.Specification
+
+class EventStoreSchemaValidatorIT extends Specification implements PostgreSQLContainerTest {
+
+    def "findMissingIndexes should report nothing for schema created by bundled migrations"() {
+
+        expect: 'No index is missing'
+            EventStoreSchemaValidator.postgres(dataSource, PostgresPartitioning.NONE).findMissingIndexes().isEmpty()
+
+    }
+
+    def "event store creation should fail when required index is missing and failing is requested"() {
+
+        given: 'Index on order of occurrence dropped'
+            dbClient.execute("drop index event_order_of_occurrence_idx")
+
+        when: 'Event store created with failing validation'
+            new PostgresEventStore(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                    new DummyVersioningStrategy(),
+                    dataSource,
+                    EventStoreOptions.builder().schemaValidation(SchemaValidation.FAIL).build()
+            )
+
+        then: 'Missing index reported'
+            def ex = thrown(EventStoreException)
+            ex.message.contains("event(order_of_occurrence)")
+
+        cleanup:
+            dbClient.execute("create index if not exists event_order_of_occurrence_idx on event (order_of_occurrence)")
+
+    }
+
+}
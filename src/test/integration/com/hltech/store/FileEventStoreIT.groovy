@@ -0,0 +1,186 @@
+package com.hltech.store
+
+import spock.lang.Subject
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+class FileEventStoreIT extends EventStoreIT {
+
+    static final String FILE_AGGREGATE_NAME = "FileAggregate"
+
+    Path directory = Files.createTempDirectory("file-event-store")
+
+    FileEventStoreOptions options = FileEventStoreOptions.builder()
+            .segmentBytes(4096)
+            .checkpointEveryEvents(10)
+            .build()
+
+    @Subject
+    FileEventStore<DummyBaseEvent> eventStore = openEventStore()
+
+    def cleanup() {
+        eventStore.close()
+        directory.toFile().deleteDir()
+    }
+
+    def "events should be readable after store is opened again"() {
+
+        given: 'Events of two aggregates saved, spread over many segments and checkpoints'
+            def aggregateId = UUID.randomUUID()
+            def anotherAggregateId = UUID.randomUUID()
+            def events = (1..100).collect { new DummyEvent(UUID.randomUUID(), it % 2 ? aggregateId : anotherAggregateId) }
+            events.each { eventStore.save(it, FILE_AGGREGATE_NAME) }
+
+        and: 'Last events not covered by a checkpoint'
+            eventStore.save(new DummyEvent(UUID.randomUUID(), aggregateId), FILE_AGGREGATE_NAME)
+
+        when: 'Store closed and opened again'
+            eventStore.close()
+            eventStore = openEventStore()
+
+        then: 'All events read in order of occurrence'
+            eventStore.findAll(FILE_AGGREGATE_NAME).size() == 101
+            eventStore.findAll(FILE_AGGREGATE_NAME).take(100) == events
+            eventStore.findAllAfterPosition(0, 200).position == (1L..101L)
+
+        and: 'Aggregate versions continue'
+            eventStore.stream(aggregateId, FILE_AGGREGATE_NAME).aggregateVersion == 51
+            eventStore.save(new DummyEvent(UUID.randomUUID(), aggregateId), FILE_AGGREGATE_NAME, 51)
+            eventStore.findAll(aggregateId, FILE_AGGREGATE_NAME).size() == 52
+
+        and: 'Saved event ids are still known'
+            eventStore.contains(events[0], FILE_AGGREGATE_NAME)
+
+    }
+
+    def "events saved after the last checkpoint should be recovered when store was not closed"() {
+
+        given: 'Events saved after the last checkpoint'
+            def aggregateId = UUID.randomUUID()
+            def events = (1..15).collect { new DummyEvent(UUID.randomUUID(), aggregateId) }
+            events.each { eventStore.save(it, FILE_AGGREGATE_NAME) }
+
+        when: 'Store abandoned without closing and opened again'
+            eventStore.@checkpointChannel.close()
+            eventStore = openEventStore()
+
+        then: 'All events recovered from the log'
+            eventStore.findAll(aggregateId, FILE_AGGREGATE_NAME) == events
+
+    }
+
+    def "torn record at the end of the log should be truncated on startup"() {
+
+        given: 'Events saved and the store abandoned without closing'
+            def aggregateId = UUID.randomUUID()
+            def events = (1..5).collect { new DummyEvent(UUID.randomUUID(), aggregateId) }
+            events.each { eventStore.save(it, FILE_AGGREGATE_NAME) }
+            def lastLocation = eventStore.stream(aggregateId, FILE_AGGREGATE_NAME).locations.get(4)
+            eventStore.@checkpointChannel.close()
+
+        and: 'Payload of the last record partially lost'
+            def segment = directory.resolve(String.format("segment-%010d.log", (int) (lastLocation >>> 32)))
+            FileChannel.open(segment, StandardOpenOption.WRITE).withCloseable {
+                it.write(ByteBuffer.wrap(new byte[16]), (int) lastLocation + 100)
+            }
+
+        when: 'Store opened again'
+            eventStore = openEventStore()
+
+        then: 'Torn event is dropped'
+            eventStore.findAll(aggregateId, FILE_AGGREGATE_NAME) == events.take(4)
+
+        and: 'New event takes its place'
+            def newEvent = new DummyEvent(UUID.randomUUID(), aggregateId)
+            eventStore.save(newEvent, FILE_AGGREGATE_NAME, 4)
+            eventStore.findAllAfterPosition(4, 10).event == [newEvent]
+
+    }
+
+    def "event that does not fit in a segment should be rejected"() {
+
+        when: 'Event bigger than a segment saved'
+            eventStore.save(new DummyEvent(UUID.randomUUID(), UUID.randomUUID(), "x" * 5000), FILE_AGGREGATE_NAME)
+
+        then: 'Event rejected'
+            thrown(EventStoreException)
+
+    }
+
+    def "directory should not be opened by two stores at once"() {
+
+        when: 'Second store opened on the same directory'
+            openEventStore()
+
+        then: 'Opening rejected'
+            thrown(EventStoreException)
+
+    }
+
+    UUID databaseUUIDToUUID(Object databaseUUID) {
+        return (UUID) databaseUUID
+    }
+
+    String databasePayloadToString(Object databasePayload) {
+        databasePayload.toString()
+    }
+
+    UUID createStream(
+            UUID aggregateId,
+            String aggregateName
+    ) {
+        eventStore.stream(aggregateId, aggregateName).streamId
+    }
+
+    void insertEventsToDatabase(
+            List<DummyBaseEvent> events,
+            String aggregateName
+    ) {
+        events.each { eventStore.save(it, aggregateName) }
+    }
+
+    List<Map<String, Object>> findEventRows(UUID streamId) {
+        def stream = eventStore.streams().find { it.streamId == streamId }
+        stream.locations.snapshot().collect { location ->
+            def record = eventStore.readRecord(location)
+            [
+                    id                 : record.eventId,
+                    aggregate_version  : record.aggregateVersion,
+                    stream_id          : stream.streamId,
+                    payload            : record.payload,
+                    order_of_occurrence: record.position,
+                    event_name         : record.eventName,
+                    event_version      : record.eventVersion
+            ] as Map<String, Object>
+        }
+    }
+
+    int getAggregateVersion(
+            UUID aggregateId,
+            String aggregateName
+    ) {
+        eventStore.stream(aggregateId, aggregateName).aggregateVersion
+    }
+
+    boolean streamExist(
+            UUID aggregateId,
+            String aggregateName
+    ) {
+        eventStore.streams().any { it.aggregateId == aggregateId && it.aggregateName == aggregateName }
+    }
+
+    private FileEventStore<DummyBaseEvent> openEventStore() {
+        new FileEventStore(
+                DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                eventVersioningStrategy,
+                directory,
+                options
+        )
+    }
+
+}
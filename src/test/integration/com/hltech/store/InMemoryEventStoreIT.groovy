@@ -0,0 +1,64 @@
+package com.hltech.store
+
+import spock.lang.Subject
+
+class InMemoryEventStoreIT extends EventStoreIT {
+
+    @Subject
+    InMemoryEventStore<DummyBaseEvent> eventStore = new InMemoryEventStore(
+            DummyBaseEvent.EVENT_ID_EXTRACTOR,
+            DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+            eventVersioningStrategy
+    )
+
+    UUID databaseUUIDToUUID(Object databaseUUID) {
+        return (UUID) databaseUUID
+    }
+
+    String databasePayloadToString(Object databasePayload) {
+        databasePayload.toString()
+    }
+
+    UUID createStream(
+            UUID aggregateId,
+            String aggregateName
+    ) {
+        eventStore.stream(aggregateId, aggregateName).streamId
+    }
+
+    void insertEventsToDatabase(
+            List<DummyBaseEvent> events,
+            String aggregateName
+    ) {
+        events.each { eventStore.save(it, aggregateName) }
+    }
+
+    List<Map<String, Object>> findEventRows(UUID streamId) {
+        eventStore.streams().find { it.streamId == streamId }.snapshot().collect { storedEvent ->
+            [
+                    id                 : storedEvent.id,
+                    aggregate_version  : storedEvent.aggregateVersion,
+                    stream_id          : storedEvent.stream.streamId,
+                    payload            : storedEvent.payload,
+                    order_of_occurrence: storedEvent.position,
+                    event_name         : storedEvent.eventName,
+                    event_version      : storedEvent.eventVersion
+            ] as Map<String, Object>
+        }
+    }
+
+    int getAggregateVersion(
+            UUID aggregateId,
+            String aggregateName
+    ) {
+        eventStore.stream(aggregateId, aggregateName).aggregateVersion
+    }
+
+    boolean streamExist(
+            UUID aggregateId,
+            String aggregateName
+    ) {
+        eventStore.streams().any { it.aggregateId == aggregateId && it.aggregateName == aggregateName }
+    }
+
+}
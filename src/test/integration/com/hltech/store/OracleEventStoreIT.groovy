@@ -15,6 +15,22 @@ class OracleEventStoreIT extends EventStoreIT implements OracleContainerTest {
             dataSource
     )
 
+    def "should reject stream locking other than row lock"() {
+
+        when: 'Event store created with advisory locks of streams'
+            new OracleEventStore(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                    eventVersioningStrategy,
+                    dataSource,
+                    EventStoreOptions.builder().postgresStreamLocking(PostgresStreamLocking.ADVISORY_LOCK).build()
+            )
+
+        then: 'Exception thrown'
+            thrown(IllegalArgumentException)
+
+    }
+
     UUID databaseUUIDToUUID(Object databaseUUID) {
         return UUID.fromString((String) databaseUUID)
     }
@@ -50,6 +66,10 @@ class OracleEventStoreIT extends EventStoreIT implements OracleContainerTest {
         }
     }
 
+    List<Map<String, Object>> findEventRows(UUID streamId) {
+        dbClient.rows("select * from event where stream_id = '$streamId' order by aggregate_version asc")
+    }
+
     int getAggregateVersion(
             UUID aggregateId,
             String aggregateName
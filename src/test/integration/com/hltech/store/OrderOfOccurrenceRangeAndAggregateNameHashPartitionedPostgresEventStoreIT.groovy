@@ -0,0 +1,9 @@
+package com.hltech.store
+
+class OrderOfOccurrenceRangeAndAggregateNameHashPartitionedPostgresEventStoreIT extends PartitionedPostgresEventStoreIT {
+
+    PostgresPartitioning getPartitioning() {
+        PostgresPartitioning.ORDER_OF_OCCURRENCE_RANGE_AND_AGGREGATE_NAME_HASH
+    }
+
+}
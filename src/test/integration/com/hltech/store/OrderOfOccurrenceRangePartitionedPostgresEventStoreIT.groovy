@@ -0,0 +1,9 @@
+package com.hltech.store
+
+class OrderOfOccurrenceRangePartitionedPostgresEventStoreIT extends PartitionedPostgresEventStoreIT {
+
+    PostgresPartitioning getPartitioning() {
+        PostgresPartitioning.ORDER_OF_OCCURRENCE_RANGE
+    }
+
+}
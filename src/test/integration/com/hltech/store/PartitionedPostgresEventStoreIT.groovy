@@ -0,0 +1,89 @@
+package com.hltech.store
+
+import groovy.sql.Sql
+import spock.lang.Subject
+
+abstract class PartitionedPostgresEventStoreIT extends EventStoreIT implements PartitionedPostgreSQLContainerTest {
+
+    @Subject
+    EventStore<DummyBaseEvent> eventStore = new PostgresEventStore(
+            DummyBaseEvent.EVENT_ID_EXTRACTOR,
+            DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+            eventVersioningStrategy,
+            partitionedDataSources[partitioning],
+            EventStoreOptions.builder().postgresPartitioning(partitioning).build()
+    )
+
+    abstract PostgresPartitioning getPartitioning()
+
+    Sql getDbClient() {
+        partitionedDbClients[partitioning]
+    }
+
+    UUID databaseUUIDToUUID(Object databaseUUID) {
+        return (UUID) databaseUUID
+    }
+
+    String databasePayloadToString(Object databasePayload) {
+        databasePayload.toString()
+    }
+
+    UUID createStream(
+            UUID aggregateId,
+            String aggregateName
+    ){
+        UUID streamId = UUID.randomUUID()
+        dbClient.execute("INSERT INTO AGGREGATE_IN_STREAM VALUES (?::UUID, ?, 0, ?::UUID)", [aggregateId, aggregateName, streamId])
+        return streamId
+    }
+
+    void insertEventsToDatabase(
+            List<DummyBaseEvent> events,
+            String aggregateName
+    ) {
+        events.eachWithIndex { DummyBaseEvent event, int idx ->
+            String payload = eventVersioningStrategy.toJson(event)
+            dbClient.execute("INSERT INTO EVENT_IDENTITY (ID) VALUES (?)", [event.id])
+            if (partitioning.hashByAggregateName) {
+                dbClient.execute(
+                        "INSERT INTO EVENT (ID, AGGREGATE_VERSION, STREAM_ID, PAYLOAD, EVENT_NAME, EVENT_VERSION, AGGREGATE_NAME) SELECT ?, ?, stream_id, ?::JSONB, ?, ?, aggregate_name from aggregate_in_stream where aggregate_id = ? AND aggregate_name = ?",
+                        [event.id, idx, payload, "DummyEvent", 1, event.aggregateId, aggregateName]
+                )
+            } else {
+                dbClient.execute(
+                        "INSERT INTO EVENT (ID, AGGREGATE_VERSION, STREAM_ID, PAYLOAD, EVENT_NAME, EVENT_VERSION) SELECT ?, ?, stream_id, ?::JSONB, ?, ? from aggregate_in_stream where aggregate_id = ? AND aggregate_name = ?",
+                        [event.id, idx, payload, "DummyEvent", 1, event.aggregateId, aggregateName]
+                )
+            }
+            dbClient.execute(
+                    "UPDATE aggregate_in_stream SET aggregate_version = aggregate_version + 1 where aggregate_id = ? AND aggregate_name = ?",
+                    [event.aggregateId, aggregateName]
+            )
+        }
+    }
+
+    List<Map<String, Object>> findEventRows(UUID streamId) {
+        dbClient.rows("select * from event where stream_id = '$streamId' order by aggregate_version asc")
+    }
+
+    int getAggregateVersion(
+            UUID aggregateId,
+            String aggregateName
+    ) {
+        (int) dbClient.firstRow("select aggregate_version from aggregate_in_stream where aggregate_id = $aggregateId and aggregate_name = $aggregateName")['aggregate_version']
+    }
+
+    boolean streamExist(
+            UUID aggregateId,
+            String aggregateName
+    ) {
+        ((int) dbClient.firstRow("select count(1) from aggregate_in_stream where aggregate_id = $aggregateId and aggregate_name = $aggregateName")[0]) == 1
+    }
+
+    def cleanup() {
+        dbClient.execute("delete from event")
+        dbClient.execute("delete from event_identity")
+        dbClient.execute("delete from aggregate_in_stream")
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.hltech.store
+
+import com.hltech.store.versioning.DummyVersioningStrategy
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class PostgresEventArchiverIT extends Specification implements PostgreSQLContainerTest {
+
+    Path directory = Files.createTempDirectory("event-archive")
+    def postgresEventStore = new PostgresEventStore<DummyBaseEvent>(
+            DummyBaseEvent.EVENT_ID_EXTRACTOR,
+            DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+            new DummyVersioningStrategy(),
+            dataSource
+    )
+
+    def cleanup() {
+        dbClient.execute("delete from event")
+        dbClient.execute("delete from aggregate_in_stream")
+        directory.toFile().deleteDir()
+    }
+
+    def "archiveUpTo should move old events to archive and keep full history readable"() {
+
+        given: 'Events of two aggregates saved'
+            def aggregateId = UUID.randomUUID()
+            def anotherAggregateId = UUID.randomUUID()
+            def events = [new DummyEvent(aggregateId), new DummyEvent(anotherAggregateId), new DummyEvent(aggregateId), new DummyEvent(aggregateId)]
+            def tokens = events.collect { postgresEventStore.saveWithConsistencyToken(it, AGGREGATE_NAME) }
+
+        and: 'Archive aware event store'
+            def archive = EventArchive.open(directory)
+            def eventStore = new ArchiveAwareEventStore<DummyBaseEvent>(postgresEventStore, archive, DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR)
+
+        when: 'Events up to the third one archived in batches of two'
+            def archivedEvents = EventArchiver.postgres(dataSource, archive, 2).archiveUpTo(tokens[2].position)
+
+        then: 'Three events archived in two segments'
+            archivedEvents == 3
+            archive.segmentCount == 2
+
+        and: 'Only the last event left in event table'
+            dbClient.rows("select id from event").collect { it['id'] } == [events[3].id]
+
+        and: 'Full history readable'
+            eventStore.findAll(aggregateId, AGGREGATE_NAME) == [events[0], events[2], events[3]]
+            eventStore.findAll(AGGREGATE_NAME) == events
+            eventStore.findAllAfterPosition(0, 10).event == events
+
+        and: 'Aggregate versions kept, so optimistic locking still works'
+            eventStore.save(new DummyEvent(aggregateId), AGGREGATE_NAME, 3)
+
+    }
+
+    static final String AGGREGATE_NAME = "Dummy"
+
+}
@@ -0,0 +1,103 @@
+package com.hltech.store
+
+import com.hltech.store.versioning.DummyVersioningStrategy
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+
+class PostgresEventExporterIT extends Specification implements PostgreSQLContainerTest {
+
+    Path directory = Files.createTempDirectory("event-export")
+    def eventVersioningStrategy = new DummyVersioningStrategy()
+    def eventStore = new PostgresEventStore<DummyBaseEvent>(
+            DummyBaseEvent.EVENT_ID_EXTRACTOR,
+            DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+            eventVersioningStrategy,
+            dataSource
+    )
+
+    def cleanup() {
+        dbClient.execute("delete from event")
+        dbClient.execute("delete from aggregate_in_stream")
+        directory.toFile().deleteDir()
+    }
+
+    def "export should dump all events to be replayed without the database"() {
+
+        given: 'Events of two aggregate names saved'
+            def events = [new DummyEvent(UUID.randomUUID()), new DummyEvent(UUID.randomUUID()), new DummyEvent(UUID.randomUUID())]
+            def tokens = [
+                    eventStore.saveWithConsistencyToken(events[0], AGGREGATE_NAME),
+                    eventStore.saveWithConsistencyToken(events[1], ANOTHER_AGGREGATE_NAME),
+                    eventStore.saveWithConsistencyToken(events[2], AGGREGATE_NAME)
+            ]
+            def file = directory.resolve("events.export")
+
+        when: 'Events exported'
+            def exportedEvents = EventExporter.postgres(dataSource).export(file, Duration.ZERO)
+
+        then: 'All events exported'
+            exportedEvents == 3
+
+        and: 'Export replays events in order of occurrence'
+            def export = EventExport.open(file)
+            def replayed = []
+            export.replay(eventVersioningStrategy) { replayed << it }
+            replayed.event == events
+            replayed.position == tokens.position
+            export.lastPosition == tokens[2].position
+            export.resumePosition == tokens[2].position
+
+        and: 'Export replays events of a single aggregate name'
+            def replayedAggregate = []
+            export.replay(AGGREGATE_NAME, eventVersioningStrategy) { replayedAggregate << it.event }
+            replayedAggregate == [events[0], events[2]]
+
+    }
+
+    def "export should include events of transactions committed during gap wait and resume after events it skipped"() {
+
+        given: 'Event saved'
+            def events = (1..4).collect { new DummyEvent(UUID.randomUUID()) }
+            eventStore.save(events[0], AGGREGATE_NAME)
+
+        and: 'Next position taken by transaction that is still running'
+            def connection = dataSource.getConnection()
+            connection.setAutoCommit(false)
+            eventStore.save(connection, events[1], AGGREGATE_NAME)
+
+        and: 'Another event saved and committed after it'
+            def lastCommitted = eventStore.saveWithConsistencyToken(events[2], AGGREGATE_NAME)
+            def file = directory.resolve("events.export")
+
+        when: 'Export started with gap wait'
+            def exported = CompletableFuture.supplyAsync { EventExporter.postgres(dataSource).export(file, Duration.ofSeconds(2)) }
+
+        and: 'Running transaction committed and another event saved during gap wait'
+            Thread.sleep(500)
+            connection.commit()
+            eventStore.save(events[3], AGGREGATE_NAME)
+
+        then: 'Events up to the last position committed before export started are exported'
+            exported.join() == 3
+            def export = EventExport.open(file)
+            def replayed = []
+            export.replay(eventVersioningStrategy) { replayed << it.event }
+            replayed == events.subList(0, 3)
+            export.resumePosition == lastCommitted.position
+
+        and: 'Event saved during the export is read by feed continuing after resume position'
+            new GapAwareFeed<DummyBaseEvent>(eventStore, export.resumePosition, Duration.ZERO).poll(10).event == [events[3]]
+
+        cleanup:
+            connection?.close()
+
+    }
+
+    static final String AGGREGATE_NAME = "Dummy"
+    static final String ANOTHER_AGGREGATE_NAME = "AnotherDummy"
+
+}
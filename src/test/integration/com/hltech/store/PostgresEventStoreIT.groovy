@@ -1,18 +1,174 @@
 package com.hltech.store
 
-
 import spock.lang.Subject
 
+import java.time.Duration
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
 class PostgresEventStoreIT extends EventStoreIT implements PostgreSQLContainerTest {
 
     @Subject
-    EventStore<DummyBaseEvent> eventStore = new PostgresEventStore(
+    PostgresEventStore<DummyBaseEvent> eventStore = new PostgresEventStore(
             DummyBaseEvent.EVENT_ID_EXTRACTOR,
             DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
             eventVersioningStrategy,
             dataSource
     )
 
+    def "saveWithConsistencyToken should return order of occurrence of saved event"() {
+
+        given: 'Stream for aggregate exist'
+            UUID streamId = createStream(AGGREGATE_ID, AGGREGATE_NAME)
+
+        when: 'Event saved'
+            ConsistencyToken token = eventStore.saveWithConsistencyToken(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+
+        then: 'Token points at saved event'
+            token.position == findEventRows(streamId)[0]['order_of_occurrence']
+
+        and: 'Event is found with the token'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME, token) == [AGGREGATE_EVENTS[0]]
+
+    }
+
+    def "gap aware feed should wait for position taken by transaction that is not committed yet"() {
+
+        given: 'Event saved'
+            ConsistencyToken firstToken = eventStore.saveWithConsistencyToken(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+
+        and: 'Next position taken by transaction that is still running'
+            def connection = dataSource.getConnection()
+            connection.setAutoCommit(false)
+            connection.createStatement().execute("SELECT nextval('event_order_of_occurrence_seq')")
+
+        and: 'Another event saved and committed after it'
+            eventStore.save(AGGREGATE_EVENTS[1], AGGREGATE_NAME)
+
+        and: 'Feed waiting up to 500 ms for missing positions'
+            def feed = new GapAwareFeed<DummyBaseEvent>(eventStore, firstToken.position, Duration.ofMillis(500))
+
+        when: 'Feed polled while transaction is running'
+            def eventsWhileRunning = feed.poll(10)
+
+        and: 'Feed polled after transaction rolled back and gap wait passed'
+            connection.rollback()
+            Thread.sleep(600)
+            def eventsAfterWait = feed.poll(10)
+
+        then: 'Event after the missing position is returned only when gap wait passed'
+            eventsWhileRunning.isEmpty()
+            eventsAfterWait.event == [AGGREGATE_EVENTS[1]]
+
+        cleanup:
+            connection?.close()
+
+    }
+
+    def "save with caller connection should save event together with changes of the caller transaction"() {
+
+        given: 'Caller transaction'
+            def connection = dataSource.getConnection()
+            connection.setAutoCommit(false)
+
+        when: 'Event saved and another row changed in the caller transaction'
+            eventStore.save(connection, AGGREGATE_EVENTS[0], AGGREGATE_NAME, 0)
+            connection.createStatement().execute("SELECT nextval('event_order_of_occurrence_seq')")
+
+        then: 'Event not visible before the caller commits'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME).isEmpty()
+
+        when: 'Caller transaction committed'
+            connection.commit()
+
+        then: 'Event saved'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) == [AGGREGATE_EVENTS[0]]
+            getAggregateVersion(AGGREGATE_ID, AGGREGATE_NAME) == 1
+
+        cleanup:
+            connection?.close()
+
+    }
+
+    def "save with caller connection should not save events when the caller rolls back"() {
+
+        given: 'Caller transaction'
+            def connection = dataSource.getConnection()
+            connection.setAutoCommit(false)
+
+        when: 'Unit of work saved in the caller transaction which is rolled back'
+            eventStore.save(connection, new UnitOfWork<DummyBaseEvent>()
+                    .append(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+                    .append(ANOTHER_AGGREGATE_EVENTS[0], AGGREGATE_NAME))
+            connection.rollback()
+
+        then: 'No event saved'
+            eventStore.findAll(AGGREGATE_NAME).isEmpty()
+
+        and: 'Connection still open'
+            !connection.isClosed()
+
+        cleanup:
+            connection?.close()
+
+    }
+
+    def "save with caller connection should throw exception when connection is in auto-commit mode"() {
+
+        given: 'Connection in auto-commit mode'
+            def connection = dataSource.getConnection()
+
+        when: 'Event saved'
+            eventStore.save(connection, AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+
+        then: 'Exception thrown'
+            thrown(IllegalArgumentException)
+
+        cleanup:
+            connection?.close()
+
+    }
+
+    def "save in parallel with local write stripes should merge saves and set valid aggregate versions"() {
+
+        given: 'Event store serializing saves of a stream locally'
+            def stripedEventStore = new PostgresEventStore(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                    eventVersioningStrategy,
+                    dataSource,
+                    EventStoreOptions.builder().localWriteStripes(16).build()
+            )
+
+        when: 'Saving 100 events in parallel for aggregate, every tenth with outdated expected version'
+            def threadPool = Executors.newFixedThreadPool(10)
+            def conflicts = new AtomicInteger()
+            (1..100).collect { idx ->
+                threadPool.submit {
+                    try {
+                        if (idx % 10 == 0) {
+                            stripedEventStore.save(new DummyEvent(AGGREGATE_ID), AGGREGATE_NAME, 1000)
+                        } else {
+                            stripedEventStore.save(new DummyEvent(AGGREGATE_ID), AGGREGATE_NAME)
+                        }
+                    } catch (OptimisticLockingException ex) {
+                        conflicts.incrementAndGet()
+                    }
+                }
+            }.each { it.get() }
+
+        then: 'Only saves with outdated expected version rejected'
+            conflicts.get() == 10
+
+        and: 'Actual aggregate version is 90'
+            getAggregateVersion(AGGREGATE_ID, AGGREGATE_NAME) == 90
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME).size() == 90
+
+        cleanup:
+            threadPool.shutdown()
+
+    }
+
     UUID databaseUUIDToUUID(Object databaseUUID) {
         return (UUID) databaseUUID
     }
@@ -47,6 +203,10 @@ class PostgresEventStoreIT extends EventStoreIT implements PostgreSQLContainerTe
         }
     }
 
+    List<Map<String, Object>> findEventRows(UUID streamId) {
+        dbClient.rows("select * from event where stream_id = '$streamId' order by aggregate_version asc")
+    }
+
     int getAggregateVersion(
             UUID aggregateId,
             String aggregateName
@@ -0,0 +1,105 @@
+package com.hltech.store
+
+import com.hltech.store.versioning.DummyVersioningStrategy
+import groovy.sql.Sql
+import spock.lang.Specification
+
+import static com.hltech.store.PostgresPartitioning.ORDER_OF_OCCURRENCE_RANGE
+import static com.hltech.store.PostgresPartitioning.ORDER_OF_OCCURRENCE_RANGE_AND_AGGREGATE_NAME_HASH
+
+class PostgresPartitionManagerIT extends Specification implements PartitionedPostgreSQLContainerTest {
+
+    static final long PARTITION_SIZE = 1_000_000
+
+    def "createPartitionsAhead should create partitions for current and following ranges only once"() {
+
+        given: 'Partition manager for event table partitioned by range'
+            PostgresPartitionManager partitionManager = new PostgresPartitionManager(
+                    partitionedDataSources[ORDER_OF_OCCURRENCE_RANGE],
+                    PARTITION_SIZE
+            )
+
+        when: 'Partitions are created twice'
+            partitionManager.createPartitionsAhead(2)
+            List<String> createdAgain = partitionManager.createPartitionsAhead(2)
+
+        then: 'Partitions for current and two following ranges exist'
+            Sql dbClient = partitionedDbClients[ORDER_OF_OCCURRENCE_RANGE]
+            long start = currentRangeStart(dbClient)
+            [start, start + PARTITION_SIZE, start + 2 * PARTITION_SIZE].each {
+                assert partitionExist(dbClient, "event_range_$it")
+            }
+
+        and: 'Nothing was created the second time'
+            createdAgain.isEmpty()
+
+    }
+
+    def "createPartitionsAhead should subpartition every range by hash of aggregate name"() {
+
+        given: 'Partition manager for event table partitioned by range and hash'
+            PostgresPartitionManager partitionManager = new PostgresPartitionManager(
+                    partitionedDataSources[ORDER_OF_OCCURRENCE_RANGE_AND_AGGREGATE_NAME_HASH],
+                    ORDER_OF_OCCURRENCE_RANGE_AND_AGGREGATE_NAME_HASH,
+                    PARTITION_SIZE,
+                    4
+            )
+
+        when: 'Partitions are created'
+            partitionManager.createPartitionsAhead(0)
+
+        then: 'Range partition has four hash subpartitions'
+            Sql dbClient = partitionedDbClients[ORDER_OF_OCCURRENCE_RANGE_AND_AGGREGATE_NAME_HASH]
+            long start = currentRangeStart(dbClient)
+            (0..3).each {
+                assert partitionExist(dbClient, "event_range_${start}_hash_$it")
+            }
+
+    }
+
+    def "saved events should land in range partition and reads after position should skip older partitions"() {
+
+        given: 'Partitions exist'
+            new PostgresPartitionManager(partitionedDataSources[ORDER_OF_OCCURRENCE_RANGE], PARTITION_SIZE).createPartitionsAhead(1)
+            Sql dbClient = partitionedDbClients[ORDER_OF_OCCURRENCE_RANGE]
+            long start = currentRangeStart(dbClient)
+
+        and: 'Event store for partitioned table'
+            PostgresEventStore<DummyBaseEvent> eventStore = new PostgresEventStore(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                    new DummyVersioningStrategy(),
+                    partitionedDataSources[ORDER_OF_OCCURRENCE_RANGE],
+                    EventStoreOptions.builder().postgresPartitioning(ORDER_OF_OCCURRENCE_RANGE).build()
+            )
+
+        when: 'Event is saved'
+            eventStore.save(new DummyEvent(UUID.randomUUID()), "Dummy")
+
+        then: 'Event is stored in the partition of current range'
+            dbClient.firstRow("select tableoid::regclass::text as partition from event")['partition'] == "event_range_$start"
+
+        and: 'Query for events after the current range scans only the next range partition and default one'
+            String plan = dbClient.rows("explain select * from event where order_of_occurrence > ${start + PARTITION_SIZE}".toString())
+                    .collect { it[0] }
+                    .join("\n")
+            !plan.contains("event_range_$start ")
+            plan.contains("event_range_${start + PARTITION_SIZE}")
+
+        cleanup:
+            dbClient.execute("delete from event")
+            dbClient.execute("delete from event_identity")
+            dbClient.execute("delete from aggregate_in_stream")
+
+    }
+
+    private static long currentRangeStart(Sql dbClient) {
+        long last = (long) dbClient.firstRow("select case when is_called then last_value else 0 end from event_order_of_occurrence_seq")[0]
+        last.intdiv(PARTITION_SIZE) * PARTITION_SIZE + 1
+    }
+
+    private static boolean partitionExist(Sql dbClient, String partitionName) {
+        dbClient.firstRow("select to_regclass($partitionName) is not null")[0]
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.hltech.store
+
+import spock.lang.Subject
+
+class StreamIdCacheOracleEventStoreIT extends OracleEventStoreIT {
+
+    @Subject
+    EventStore<DummyBaseEvent> eventStore = new OracleEventStore(
+            DummyBaseEvent.EVENT_ID_EXTRACTOR,
+            DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+            eventVersioningStrategy,
+            dataSource,
+            EventStoreOptions.builder().streamIdCacheSize(100).build()
+    )
+
+    def "find all should return events of stream created after save creating it was rolled back"() {
+
+        given: 'Another instance of the application'
+            def anotherEventStore = new OracleEventStore(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                    eventVersioningStrategy,
+                    dataSource,
+                    EventStoreOptions.builder().streamIdCacheSize(100).build()
+            )
+
+        and: 'Save creating the stream rolled back by the caller'
+            def connection = dataSource.getConnection()
+            connection.setAutoCommit(false)
+            eventStore.save(connection, AGGREGATE_EVENTS[0], AGGREGATE_NAME, 0)
+            connection.rollback()
+
+        when: 'Stream created by another instance'
+            anotherEventStore.save(AGGREGATE_EVENTS[0], AGGREGATE_NAME, 0)
+
+        then: 'Event found by the instance which rolled back'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) == [AGGREGATE_EVENTS[0]]
+            eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 0) == [AGGREGATE_EVENTS[0]]
+
+        cleanup:
+            connection?.close()
+
+    }
+
+}
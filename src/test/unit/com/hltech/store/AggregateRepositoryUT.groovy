@@ -1,8 +1,11 @@
 package com.hltech.store
 
+import com.hltech.store.metrics.EventStoreMetrics
 import spock.lang.Specification
 import spock.lang.Subject
 
+import java.time.Duration
+
 class AggregateRepositoryUT extends Specification {
 
     def eventStore = Mock(EventStore)
@@ -104,6 +107,30 @@ class AggregateRepositoryUT extends Specification {
 
     }
 
+    def "find should record aggregate rebuild in metrics"() {
+
+        given: 'Repository with metrics'
+            def metrics = Mock(EventStoreMetrics)
+            def repositoryWithMetrics = new AggregateRepository(
+                    eventStore,
+                    AGGREGATE_NAME,
+                    DummyAggregate.INITIAL_STATE_SUPPLIER,
+                    DummyAggregate.EVENT_APPLIER,
+                    DummyAggregate.VERSION_APPLIER,
+                    metrics
+            )
+
+        and: 'Events for aggregate exists in event store'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) >> [EVENT, EVENT]
+
+        when: 'Search for aggregate'
+            repositoryWithMetrics.find(AGGREGATE_ID)
+
+        then: 'Rebuild recorded'
+            1 * metrics.recordAggregateRebuild(AGGREGATE_NAME, 2, { it >= 0 })
+
+    }
+
     def "findToEvent should return aggregate with all events applied"() {
 
         given: 'Events for aggregate exists in event store'
@@ -201,6 +228,58 @@ class AggregateRepositoryUT extends Specification {
 
     }
 
+    def "findAll with parallelism should rebuild all aggregates in order they were published"() {
+
+        given: 'Many aggregates with events in event store'
+            def eventsByAggregate = (1..200).collectEntries {
+                def aggregateId = UUID.randomUUID()
+                [(aggregateId): (1..it % 5 + 1).collect { new DummyEvent(aggregateId) }]
+            }
+            eventStore.findAllGroupByAggregate(AGGREGATE_NAME) >> eventsByAggregate
+            eventStore.publishAllGroupByAggregate(AGGREGATE_NAME) >> CursorPublisher.fromList {
+                eventsByAggregate.values().collect { AggregateEvents.decoded(it) }
+            }
+
+        when: 'Aggregates rebuilt in parallel'
+            def aggregates = repository.findAll(4)
+
+        then: 'Every aggregate rebuilt from its events in order'
+            aggregates*.appliedEvents == eventsByAggregate.values().toList()
+            aggregates*.version == eventsByAggregate.values()*.size()
+
+        and: 'Order same as of sequential rebuild'
+            aggregates*.appliedEvents == repository.findAll()*.appliedEvents
+
+    }
+
+    def "findAll with parallelism should throw exception when events of an aggregate could not be decoded"() {
+
+        given: 'Aggregate with events that could not be decoded'
+            eventStore.publishAllGroupByAggregate(AGGREGATE_NAME) >> CursorPublisher.fromList {
+                [
+                        AggregateEvents.decoded([EVENT]),
+                        new AggregateEvents<DummyBaseEvent>({ throw new EventStoreException("Could not decode event") })
+                ]
+            }
+
+        when: 'Aggregates rebuilt in parallel'
+            repository.findAll(4)
+
+        then: 'Exception of decoding thrown'
+            thrown(EventStoreException)
+
+    }
+
+    def "findAll with parallelism should throw exception when parallelism is not positive"() {
+
+        when: 'Aggregates rebuilt without threads'
+            repository.findAll(0)
+
+        then: 'Exception thrown'
+            thrown(IllegalArgumentException)
+
+    }
+
     def "findAllEvents should return all events related to aggregate name"() {
 
         given: 'Events for aggregate exists in event store for aggregate name'
@@ -235,8 +314,111 @@ class AggregateRepositoryUT extends Specification {
 
     }
 
+    def "execute should save events of the command expecting version of the loaded aggregate"() {
+
+        given: 'Events for aggregate exists in event store'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) >> [EVENT]
+
+        and: 'Command producing new event'
+            def newEvent = new DummyEvent(AGGREGATE_ID)
+            DummyAggregate commandAggregate = null
+            def command = { DummyAggregate aggregate -> commandAggregate = aggregate; [newEvent] }
+
+        when: 'Command executed'
+            def savedEvents = repository.execute(AGGREGATE_ID, command)
+
+        then: 'Event saved with version of the loaded aggregate'
+            1 * eventStore.save(newEvent, AGGREGATE_NAME, 1)
+            savedEvents == [newEvent]
+
+        and: 'Command run on the loaded aggregate'
+            commandAggregate.appliedEvents == [EVENT]
+            commandAggregate.version == 1
+
+    }
+
+    def "execute should save many events of the command as a unit of work"() {
+
+        given: 'Aggregate without events'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) >> []
+
+        and: 'Command producing two events'
+            def newEvents = [new DummyEvent(AGGREGATE_ID), new DummyEvent(AGGREGATE_ID)]
+
+        when: 'Command executed'
+            repository.execute(AGGREGATE_ID, { newEvents })
+
+        then: 'Events saved together with consecutive expected versions'
+            1 * eventStore.save({ UnitOfWork unitOfWork ->
+                unitOfWork.appends*.event == newEvents && unitOfWork.appends*.expectedAggregateVersion == [0, 1]
+            })
+
+    }
+
+    def "execute should apply only newer events and run the command again on conflict"() {
+
+        given: 'Command recording aggregates it was run on'
+            def newEvent = new DummyEvent(AGGREGATE_ID)
+            def missedEvent = new DummyEvent(AGGREGATE_ID)
+            def versions = []
+            def command = { DummyAggregate aggregate -> versions << aggregate.version; [newEvent] }
+
+        when: 'Command executed'
+            repository.execute(AGGREGATE_ID, command, NO_BACKOFF)
+
+        then: 'First save rejected'
+            1 * eventStore.save(newEvent, AGGREGATE_NAME, 1) >> { throw new OptimisticLockingException(AGGREGATE_ID, AGGREGATE_NAME, 1) }
+
+        and: 'Whole stream read once, then only newer events'
+            1 * eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) >> [EVENT]
+            1 * eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 1) >> [missedEvent]
+
+        and: 'Event saved with version including missed event'
+            1 * eventStore.save(newEvent, AGGREGATE_NAME, 2)
+
+        and: 'Command run again on aggregate with missed event applied'
+            versions == [1, 2]
+
+        and: 'Retry counted'
+            with(repository.commandStats) {
+                executions == 1
+                conflicts == 1
+                retries == 1
+                failures == 0
+            }
+
+    }
+
+    def "execute should throw optimistic locking exception when retry policy does not allow another attempt"() {
+
+        given: 'Every save rejected'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) >> []
+            eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, _) >> []
+            eventStore.save(_, AGGREGATE_NAME, _) >> { throw new OptimisticLockingException(AGGREGATE_ID, AGGREGATE_NAME, 0) }
+
+        and: 'Command'
+            def attempts = 0
+            def command = { DummyAggregate aggregate -> attempts++; [new DummyEvent(AGGREGATE_ID)] }
+
+        when: 'Command executed'
+            repository.execute(AGGREGATE_ID, command, NO_BACKOFF)
+
+        then: 'Exception thrown after all attempts'
+            thrown(OptimisticLockingException)
+            attempts == NO_BACKOFF.maxAttempts
+
+        and: 'Failure counted'
+            with(repository.commandStats) {
+                conflicts == NO_BACKOFF.maxAttempts
+                retries == NO_BACKOFF.maxAttempts - 1
+                failures == 1
+            }
+
+    }
+
     static AGGREGATE_NAME = "DummyStream"
     static AGGREGATE_ID = UUID.randomUUID()
     static EVENT = new DummyEvent(AGGREGATE_ID)
+    static NO_BACKOFF = CommandRetryPolicy.builder().maxAttempts(3).initialBackoff(Duration.ZERO).build()
 
 }
@@ -0,0 +1,112 @@
+package com.hltech.store
+
+import com.hltech.store.versioning.DummyVersioningStrategy
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ArchiveAwareEventStoreUT extends Specification {
+
+    Path directory = Files.createTempDirectory("event-archive")
+    def eventVersioningStrategy = new DummyVersioningStrategy()
+    def storedEvents = Spy(InMemoryEventStore, constructorArgs: [DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR, eventVersioningStrategy])
+    def archive = EventArchive.open(directory)
+
+    @Subject
+    def eventStore = new ArchiveAwareEventStore<DummyBaseEvent>(storedEvents, archive, DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR)
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "stream should be read from archive and the rest from the store without repeating events"() {
+
+        given: 'Three events of aggregate saved and the first two archived'
+            saveAndArchive(AGGREGATE_EVENTS, 2)
+
+        when: 'Stream read'
+            def events = eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)
+
+        then: 'Store asked only for events not archived'
+            1 * storedEvents.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 2)
+
+        and: 'All events found once'
+            events == AGGREGATE_EVENTS
+
+    }
+
+    def "findAllAfterVersion should read only archive when requested version is archived"() {
+
+        given: 'Three events of aggregate saved and the first two archived'
+            saveAndArchive(AGGREGATE_EVENTS, 2)
+
+        expect: 'Events after version found'
+            eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 1) == AGGREGATE_EVENTS[1..2]
+            eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 2) == AGGREGATE_EVENTS[2..2]
+            eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 3) == []
+
+    }
+
+    def "reads of many streams should return archived and stored events once in order of occurrence"() {
+
+        given: 'Events of two aggregates saved and the first three archived'
+            def events = [AGGREGATE_EVENTS[0], ANOTHER_AGGREGATE_EVENTS[0], AGGREGATE_EVENTS[1], ANOTHER_AGGREGATE_EVENTS[1]]
+            saveAndArchive(events, 3)
+
+        expect: 'Events found by aggregate name and id'
+            eventStore.findAll(AGGREGATE_NAME) == events
+            eventStore.findAll(AGGREGATE_ID) == AGGREGATE_EVENTS[0..1]
+            eventStore.findAllGroupByAggregate(AGGREGATE_NAME) == [(AGGREGATE_ID): AGGREGATE_EVENTS[0..1], (ANOTHER_AGGREGATE_ID): ANOTHER_AGGREGATE_EVENTS[0..1]]
+
+        and: 'Events found by position'
+            eventStore.findAllAfterPosition(0, 10).event == events
+            eventStore.findAllAfterPosition(1, 2).event == events[1..2]
+            eventStore.findAllAfterPosition(2, 10).event == events[2..3]
+
+    }
+
+    def "findAllToEvent and contains should find archived and stored events"() {
+
+        given: 'Three events of aggregate saved and the first two archived'
+            saveAndArchive(AGGREGATE_EVENTS, 2)
+
+        expect: 'Events found to archived and stored event'
+            eventStore.findAllToEvent(AGGREGATE_EVENTS[0], AGGREGATE_NAME) == AGGREGATE_EVENTS[0..0]
+            eventStore.findAllToEvent(AGGREGATE_EVENTS[2], AGGREGATE_NAME) == AGGREGATE_EVENTS
+
+        and: 'Archived and stored events are contained'
+            eventStore.contains(AGGREGATE_EVENTS[0], AGGREGATE_NAME)
+            eventStore.contains(AGGREGATE_EVENTS[2], AGGREGATE_NAME)
+            !eventStore.contains(new DummyEvent(AGGREGATE_ID), AGGREGATE_NAME)
+
+    }
+
+    /**
+     * In-memory store cannot delete events, so archived events stay in it, like between archiving and deletion.
+     */
+    private void saveAndArchive(List<DummyBaseEvent> events, int archivedEvents) {
+        events.each { eventStore.save(it, AGGREGATE_NAME) }
+        def versions = [:].withDefault { 0 }
+        archive.append(storedEvents.findAllAfterPosition(0, archivedEvents).collect {
+            new ArchivedEvent(
+                    it.event.id,
+                    it.event.aggregateId,
+                    AGGREGATE_NAME,
+                    ++versions[it.event.aggregateId],
+                    it.position,
+                    "DummyEvent",
+                    1,
+                    eventVersioningStrategy.toJson(it.event).getBytes("UTF-8")
+            )
+        })
+    }
+
+    static final UUID AGGREGATE_ID = UUID.randomUUID()
+    static final UUID ANOTHER_AGGREGATE_ID = UUID.randomUUID()
+    static final String AGGREGATE_NAME = "Dummy"
+    static final List<DummyBaseEvent> AGGREGATE_EVENTS = (1..3).collect { new DummyEvent(AGGREGATE_ID) }
+    static final List<DummyBaseEvent> ANOTHER_AGGREGATE_EVENTS = (1..2).collect { new DummyEvent(ANOTHER_AGGREGATE_ID) }
+
+}
@@ -0,0 +1,131 @@
+package com.hltech.store
+
+import spock.lang.Specification
+import spock.lang.Subject
+
+class CachingEventStoreUT extends Specification {
+
+    def eventStore = Spy(InMemoryEventStore, constructorArgs: [DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR])
+
+    @Subject
+    def cachingEventStore = new CachingEventStore<DummyBaseEvent>(
+            eventStore,
+            DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+            { 100L },
+            1000
+    )
+
+    def "findAll should read only events newer than cached ones"() {
+
+        given: 'Stream read once'
+            eventStore.save(FIRST_EVENT, AGGREGATE_NAME)
+            cachingEventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)
+
+        and: 'New event saved by other application instance'
+            eventStore.save(SECOND_EVENT, AGGREGATE_NAME)
+
+        when: 'Stream read again'
+            def events = cachingEventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)
+
+        then: 'Only new event read from underlying store'
+            1 * eventStore.findAllAfterVersion(AGGREGATE_ID, AGGREGATE_NAME, 1)
+            0 * eventStore.findAll(_, _)
+
+        and: 'All events returned'
+            events == [FIRST_EVENT, SECOND_EVENT]
+
+        and: 'Refresh reported'
+            cachingEventStore.stats.misses == 1
+            cachingEventStore.stats.refreshes == 1
+
+    }
+
+    def "findAll should report hit when cached stream is up to date"() {
+
+        given: 'Stream read once'
+            eventStore.save(FIRST_EVENT, AGGREGATE_NAME)
+            cachingEventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)
+
+        when: 'Stream read again'
+            def events = cachingEventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)
+
+        then: 'Cached events returned'
+            events == [FIRST_EVENT]
+
+        and: 'Hit reported'
+            cachingEventStore.stats.hits == 1
+            cachingEventStore.stats.hitRate == 0.5d
+            cachingEventStore.stats.cachedPayloadBytes == 100
+
+    }
+
+    def "save with optimistic locking should append event to cached stream in place"() {
+
+        given: 'Stream read once'
+            eventStore.save(FIRST_EVENT, AGGREGATE_NAME)
+            cachingEventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)
+
+        when: 'Event saved through the cache'
+            cachingEventStore.save(SECOND_EVENT, AGGREGATE_NAME, 1)
+
+        and: 'Stream read again'
+            def events = cachingEventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)
+
+        then: 'Stream read from cache'
+            events == [FIRST_EVENT, SECOND_EVENT]
+            cachingEventStore.stats.hits == 1
+
+    }
+
+    def "should evict least recently used streams when payload limit is exceeded"() {
+
+        given: 'Ten streams with single event cached'
+            def aggregateIds = (1..10).collect { UUID.randomUUID() }
+            aggregateIds.each {
+                eventStore.save(new DummyEvent(it), AGGREGATE_NAME)
+                cachingEventStore.findAll(it, AGGREGATE_NAME)
+            }
+
+        and: 'First stream read again'
+            cachingEventStore.findAll(aggregateIds[0], AGGREGATE_NAME)
+
+        when: 'Another stream cached'
+            def anotherAggregateId = UUID.randomUUID()
+            eventStore.save(new DummyEvent(anotherAggregateId), AGGREGATE_NAME)
+            cachingEventStore.findAll(anotherAggregateId, AGGREGATE_NAME)
+
+        then: 'Least recently used stream evicted'
+            cachingEventStore.stats.evictions == 1
+            cachingEventStore.stats.cachedStreams == 10
+            cachingEventStore.stats.cachedPayloadBytes == 1000
+
+        when: 'Recently used stream read'
+            cachingEventStore.findAll(aggregateIds[0], AGGREGATE_NAME)
+
+        then: 'It is still cached'
+            cachingEventStore.stats.hits == 2
+
+    }
+
+    def "should not cache stream bigger than the whole cache"() {
+
+        given: 'Stream with more events than cache can hold'
+            (1..11).each { eventStore.save(new DummyEvent(AGGREGATE_ID), AGGREGATE_NAME) }
+
+        when: 'Stream read'
+            def events = cachingEventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)
+
+        then: 'All events returned'
+            events.size() == 11
+
+        and: 'Stream not cached'
+            cachingEventStore.stats.cachedStreams == 0
+
+    }
+
+    static AGGREGATE_NAME = "DummyStream"
+    static AGGREGATE_ID = UUID.randomUUID()
+    static FIRST_EVENT = new DummyEvent(AGGREGATE_ID)
+    static SECOND_EVENT = new DummyEvent(AGGREGATE_ID)
+
+}
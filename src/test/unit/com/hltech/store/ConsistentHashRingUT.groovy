@@ -0,0 +1,50 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+class ConsistentHashRingUT extends Specification {
+
+    static final List<UUID> AGGREGATE_IDS = (1..10_000).collect { UUID.randomUUID() }
+
+    def "shardFor should spread aggregates evenly over shards"() {
+
+        given: 'Ring of four shards'
+            def ring = new ConsistentHashRing(["a", "b", "c", "d"], 128)
+
+        when: 'Aggregates assigned to shards'
+            def aggregatesByShard = AGGREGATE_IDS.countBy { ring.shardFor(it) }
+
+        then: 'Every shard gets about a quarter of aggregates'
+            aggregatesByShard.values().every { it > 1_750 && it < 3_250 }
+
+    }
+
+    def "shardFor should not depend on the order of shards"() {
+
+        given: 'Rings of the same shards given in different order'
+            def ring = new ConsistentHashRing(["a", "b", "c"], 128)
+            def anotherRing = new ConsistentHashRing(["c", "a", "b"], 128)
+
+        expect: 'Aggregates assigned to the same shards'
+            AGGREGATE_IDS.every { ring.shardFor(it) == anotherRing.shardFor(it) }
+
+    }
+
+    def "adding a shard should move only part of aggregates and only to the new shard"() {
+
+        given: 'Ring of three shards and ring with additional shard'
+            def ring = new ConsistentHashRing(["a", "b", "c"], 128)
+            def extendedRing = new ConsistentHashRing(["a", "b", "c", "d"], 128)
+
+        when: 'Aggregates that change shard found'
+            def movedAggregates = AGGREGATE_IDS.findAll { ring.shardFor(it) != extendedRing.shardFor(it) }
+
+        then: 'All of them move to the new shard'
+            movedAggregates.every { extendedRing.shardFor(it) == "d" }
+
+        and: 'About a quarter of aggregates moved'
+            movedAggregates.size() > 1_750 && movedAggregates.size() < 3_250
+
+    }
+
+}
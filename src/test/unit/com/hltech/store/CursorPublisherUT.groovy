@@ -0,0 +1,131 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+import java.time.Duration
+
+class CursorPublisherUT extends Specification {
+
+    def "publisher should emit only as many elements as requested"() {
+
+        given: 'Publisher of five elements'
+            def publisher = CursorPublisher.fromList { [1, 2, 3, 4, 5] }
+
+        and: 'Subscriber subscribed'
+            def subscriber = new TestSubscriber<Integer>()
+            publisher.subscribe(subscriber)
+
+        when: 'Two elements requested'
+            subscriber.request(2)
+
+        then: 'Only two elements received'
+            subscriber.awaitElements(2) == [1, 2]
+            sleep(100)
+            subscriber.elements == [1, 2]
+
+        and: 'Publisher not completed yet'
+            !subscriber.completed
+
+        when: 'Remaining elements requested'
+            subscriber.request(3)
+
+        then: 'All elements received and publisher completed'
+            subscriber.awaitTermination().elements == [1, 2, 3, 4, 5]
+            subscriber.completed
+
+    }
+
+    def "publisher should not open cursor until elements requested"() {
+
+        given: 'Cursor'
+            def cursor = Mock(CursorPublisher.Cursor)
+
+        when: 'Subscribed without request'
+            new CursorPublisher<>({ cursor }).subscribe(new TestSubscriber())
+            sleep(100)
+
+        then: 'Cursor not read'
+            0 * cursor.next()
+
+    }
+
+    def "publisher should close cursor when subscription cancelled"() {
+
+        given: 'Cursor with endless elements'
+            def cursor = Mock(CursorPublisher.Cursor) {
+                next() >> 1
+                isExhausted() >> false
+            }
+
+        and: 'Subscriber received an element'
+            def subscriber = new TestSubscriber<Integer>()
+            new CursorPublisher<>({ cursor }).subscribe(subscriber)
+            subscriber.request(1)
+            subscriber.awaitElements(1)
+
+        when: 'Subscription cancelled'
+            subscriber.cancel()
+            sleep(100)
+
+        then: 'Cursor closed'
+            1 * cursor.close()
+
+    }
+
+    def "publisher should signal error when non positive number of elements requested"() {
+
+        given: 'Subscriber subscribed'
+            def subscriber = new TestSubscriber<Integer>()
+            CursorPublisher.fromList { [1] }.subscribe(subscriber)
+
+        when: 'Zero elements requested'
+            subscriber.request(0)
+
+        then: 'Error signaled'
+            subscriber.awaitTermination().error instanceof IllegalArgumentException
+
+    }
+
+    def "publisher should signal error when cursor could not be read"() {
+
+        given: 'Cursor that fails'
+            def cursor = Mock(CursorPublisher.Cursor) {
+                next() >> { throw new EventStoreException("Could not read") }
+            }
+
+        and: 'Subscriber subscribed'
+            def subscriber = new TestSubscriber<Integer>()
+            new CursorPublisher<>({ cursor }).subscribe(subscriber)
+
+        when: 'Element requested'
+            subscriber.request(1)
+
+        then: 'Error signaled'
+            subscriber.awaitTermination().error.message == "Could not read"
+
+    }
+
+    def "publisher should poll cursor again when elements are not available yet"() {
+
+        given: 'Cursor that returns element on second poll'
+            def cursor = Mock(CursorPublisher.Cursor) {
+                next() >>> [null, 1]
+                isExhausted() >> false
+            }
+
+        and: 'Subscriber subscribed'
+            def subscriber = new TestSubscriber<Integer>()
+            new CursorPublisher<>({ cursor }, CursorPublisher.DEFAULT_EXECUTOR, Duration.ofMillis(10)).subscribe(subscriber)
+
+        when: 'Element requested'
+            subscriber.request(1)
+
+        then: 'Element received'
+            subscriber.awaitElements(1) == [1]
+
+        cleanup:
+            subscriber.cancel()
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+class EventArchiveUT extends Specification {
+
+    Path directory = Files.createTempDirectory("event-archive")
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "archived streams should be readable after archive is opened again"() {
+
+        given: 'Events of two aggregates archived'
+            def archive = EventArchive.open(directory)
+            archive.append([
+                    archivedEvent(AGGREGATE_ID, AGGREGATE_NAME, 1, 1),
+                    archivedEvent(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME, 1, 2),
+                    archivedEvent(AGGREGATE_ID, AGGREGATE_NAME, 2, 3)
+            ])
+
+        when: 'Archive opened again'
+            def reopenedArchive = EventArchive.open(directory)
+
+        then: 'Streams are read in order of aggregate version'
+            reopenedArchive.findStream(AGGREGATE_ID, AGGREGATE_NAME, 0).position == [1L, 3L]
+            reopenedArchive.findStream(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME, 0).position == [2L]
+
+        and: 'Archive knows the last archived version of every stream and the last position'
+            reopenedArchive.getArchivedVersion(AGGREGATE_ID, AGGREGATE_NAME) == 2
+            reopenedArchive.getArchivedVersion(UUID.randomUUID(), AGGREGATE_NAME) == 0
+            reopenedArchive.lastPosition == 3
+            reopenedArchive.eventCount == 3
+
+        and: 'Payload is kept intact'
+            new String(reopenedArchive.findStream(AGGREGATE_ID, AGGREGATE_NAME, 0)[0].payload, "UTF-8") == payload(1)
+
+    }
+
+    def "stream spread over many segments and blocks should be read in whole"() {
+
+        given: 'Stream of 3000 big events archived in three runs'
+            def archive = EventArchive.open(directory)
+            (0..2).each { run ->
+                archive.append((1..1000).collect { archivedEvent(AGGREGATE_ID, AGGREGATE_NAME, run * 1000 + it, run * 1000 + it) })
+            }
+
+        when: 'Stream read after version 1500'
+            def events = archive.findStream(AGGREGATE_ID, AGGREGATE_NAME, 1500)
+
+        then: 'All following events read'
+            events.aggregateVersion == (1501..3000)
+            archive.segmentCount == 3
+
+    }
+
+    def "events should be read by aggregate name, by aggregate id and by position in order of occurrence"() {
+
+        given: 'Events of many aggregates archived in two segments'
+            def archive = EventArchive.open(directory)
+            archive.append([
+                    archivedEvent(AGGREGATE_ID, AGGREGATE_NAME, 1, 1),
+                    archivedEvent(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME, 1, 2),
+                    archivedEvent(AGGREGATE_ID, ANOTHER_AGGREGATE_NAME, 1, 3)
+            ])
+            archive.append([
+                    archivedEvent(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME, 2, 5),
+                    archivedEvent(AGGREGATE_ID, AGGREGATE_NAME, 2, 6)
+            ])
+
+        expect: 'Events found in order of occurrence'
+            archive.findAllByAggregateName(AGGREGATE_NAME).position == [1L, 2L, 5L, 6L]
+            archive.findAllByAggregateId(AGGREGATE_ID).position == [1L, 3L, 6L]
+            archive.findAllAfterPosition(2, 2).position == [3L, 5L]
+            archive.findAllAfterPosition(0, 10).position == [1L, 2L, 3L, 5L, 6L]
+            archive.findAllAfterPosition(6, 10).isEmpty()
+
+    }
+
+    def "append should fail when events do not follow archived ones"() {
+
+        given: 'Event archived'
+            def archive = EventArchive.open(directory)
+            archive.append([archivedEvent(AGGREGATE_ID, AGGREGATE_NAME, 1, 5)])
+
+        when: 'Events appended'
+            archive.append(events)
+
+        then: 'Exception thrown'
+            thrown(IllegalArgumentException)
+
+        and: 'Nothing archived'
+            archive.segmentCount == 1
+
+        where:
+            events << [
+                    [archivedEvent(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME, 1, 4)],
+                    [archivedEvent(AGGREGATE_ID, AGGREGATE_NAME, 3, 6)],
+                    [archivedEvent(ANOTHER_AGGREGATE_ID, AGGREGATE_NAME, 2, 6)]
+            ]
+
+    }
+
+    def "reading corrupted block should fail"() {
+
+        given: 'Event archived'
+            def archive = EventArchive.open(directory)
+            archive.append([archivedEvent(AGGREGATE_ID, AGGREGATE_NAME, 1, 1)])
+
+        and: 'Checksum of its block overwritten'
+            def segmentFile = Files.list(directory).find { it.toString().endsWith(".seg") }
+            FileChannel.open(segmentFile, StandardOpenOption.WRITE).withCloseable {
+                it.write(ByteBuffer.allocate(4).putInt(0).flip(), 16)
+            }
+
+        when: 'Archive opened again and stream read'
+            EventArchive.open(directory).findStream(AGGREGATE_ID, AGGREGATE_NAME, 0)
+
+        then: 'Exception thrown'
+            thrown(EventStoreException)
+
+    }
+
+    static ArchivedEvent archivedEvent(UUID aggregateId, String aggregateName, int aggregateVersion, long position) {
+        new ArchivedEvent(UUID.randomUUID(), aggregateId, aggregateName, aggregateVersion, position, "DummyEvent", 1, payload(position).getBytes("UTF-8"))
+    }
+
+    static String payload(long position) {
+        """{ "position": $position, "padding": "${'x' * 100}" }"""
+    }
+
+    static final UUID AGGREGATE_ID = UUID.randomUUID()
+    static final UUID ANOTHER_AGGREGATE_ID = UUID.randomUUID()
+    static final String AGGREGATE_NAME = "Dummy"
+    static final String ANOTHER_AGGREGATE_NAME = "AnotherDummy"
+
+}
@@ -0,0 +1,153 @@
+package com.hltech.store
+
+import com.hltech.store.versioning.DummyVersioningStrategy
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+class EventExportUT extends Specification {
+
+    Path directory = Files.createTempDirectory("event-export")
+    Path file = directory.resolve("events.export")
+    DummyVersioningStrategy eventVersioningStrategy = new DummyVersioningStrategy()
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "replay should pass all exported events in order of occurrence"() {
+
+        given: 'Events spread over many blocks exported'
+            def events = (1..20_000).collect { new DummyEvent(UUID.randomUUID(), UUID.randomUUID()) }
+            export(events.withIndex().collect { event, idx -> exportedEvent(event, AGGREGATE_NAME, idx + 1) }, 20_005)
+
+        when: 'Export replayed'
+            def export = EventExport.open(file)
+            def replayed = []
+            def count = export.replay(eventVersioningStrategy) { replayed << it }
+
+        then: 'All events replayed in order of occurrence'
+            count == 20_000
+            replayed.event == events
+            replayed.position == (1L..20_000L)
+
+        and: 'Export knows its size, the last position and the resume position'
+            export.eventCount == 20_000
+            export.lastPosition == 20_000
+            export.resumePosition == 20_005
+
+    }
+
+    def "replay by aggregate name should skip events of other aggregates"() {
+
+        given: 'Events of two aggregate names exported'
+            def event = new DummyEvent(UUID.randomUUID(), UUID.randomUUID())
+            def anotherEvent = new DummyEvent(UUID.randomUUID(), UUID.randomUUID())
+            export([exportedEvent(event, AGGREGATE_NAME, 1), exportedEvent(anotherEvent, ANOTHER_AGGREGATE_NAME, 2)])
+
+        when: 'Events of one aggregate name replayed'
+            def replayed = []
+            EventExport.open(file).replay(ANOTHER_AGGREGATE_NAME, eventVersioningStrategy) { replayed << it }
+
+        then: 'Only events of that aggregate name replayed'
+            replayed == [new PositionedEvent(2, anotherEvent)]
+
+    }
+
+    def "replay should fail when block is corrupted"() {
+
+        given: 'Export with a damaged byte in the first block'
+            export([exportedEvent(new DummyEvent(UUID.randomUUID(), UUID.randomUUID()), AGGREGATE_NAME, 1)])
+            FileChannel.open(file, StandardOpenOption.WRITE).withCloseable {
+                it.write(ByteBuffer.wrap([0x7f] as byte[]), 40)
+            }
+
+        when: 'Export replayed'
+            EventExport.open(file).replay(eventVersioningStrategy) { }
+
+        then: 'Corruption reported'
+            def ex = thrown(EventStoreException)
+            ex.message.contains("is corrupted")
+
+    }
+
+    def "open should reject export that was cut short"() {
+
+        given: 'Export without its last bytes'
+            export([exportedEvent(new DummyEvent(UUID.randomUUID(), UUID.randomUUID()), AGGREGATE_NAME, 1)])
+            FileChannel.open(file, StandardOpenOption.WRITE).withCloseable { it.truncate(it.size() - 4) }
+
+        when: 'Export opened'
+            EventExport.open(file)
+
+        then: 'Export rejected'
+            def ex = thrown(EventStoreException)
+            ex.message.contains("is incomplete")
+
+    }
+
+    def "finish should reject resume position lower than the last exported position"() {
+
+        given: 'Event exported'
+            def writer = new EventExportWriter(file)
+            writer.write(exportedEvent(new DummyEvent(UUID.randomUUID(), UUID.randomUUID()), AGGREGATE_NAME, 2))
+
+        when: 'Export finished with lower resume position'
+            writer.finish(1)
+
+        then: 'Resume position rejected'
+            thrown(IllegalArgumentException)
+
+        cleanup:
+            writer.close()
+
+    }
+
+    def "unfinished export should not replace the previous one"() {
+
+        given: 'Finished export'
+            export([exportedEvent(new DummyEvent(UUID.randomUUID(), UUID.randomUUID()), AGGREGATE_NAME, 1)])
+
+        when: 'Next export closed without finishing'
+            new EventExportWriter(file).withCloseable {
+                it.write(exportedEvent(new DummyEvent(UUID.randomUUID(), UUID.randomUUID()), AGGREGATE_NAME, 1))
+            }
+
+        then: 'Previous export kept and no temporary file left'
+            EventExport.open(file).eventCount == 1
+            directory.toFile().list() as List == ["events.export"]
+
+    }
+
+    private void export(List<ArchivedEvent> events) {
+        export(events, events.last().position)
+    }
+
+    private void export(List<ArchivedEvent> events, long resumePosition) {
+        new EventExportWriter(file).withCloseable { writer ->
+            events.each { writer.write(it) }
+            writer.finish(resumePosition)
+        }
+    }
+
+    private ArchivedEvent exportedEvent(DummyEvent event, String aggregateName, long position) {
+        new ArchivedEvent(
+                event.id,
+                event.aggregateId,
+                aggregateName,
+                1,
+                position,
+                "DummyEvent",
+                1,
+                eventVersioningStrategy.toJson(event).getBytes("UTF-8")
+        )
+    }
+
+    static final String AGGREGATE_NAME = "Dummy"
+    static final String ANOTHER_AGGREGATE_NAME = "AnotherDummy"
+
+}
@@ -0,0 +1,90 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.sql.Connection
+import java.sql.DatabaseMetaData
+import java.sql.ResultSet
+
+class EventStoreSchemaValidatorUT extends Specification {
+
+    def metaData = Stub(DatabaseMetaData)
+    def dataSource = Stub(DataSource) {
+        getConnection() >> Stub(Connection) {
+            getMetaData() >> metaData
+            getSchema() >> "public"
+        }
+    }
+
+    def "findMissingIndexes should report nothing when every required index exists"() {
+
+        given: 'Schema created by bundled migrations'
+            indexes("aggregate_in_stream", [aggregate_uq: ["aggregate_id", "aggregate_name"], aggregate_in_stream_name_idx: ["aggregate_name", "stream_id"]])
+            indexes("event", [
+                    event_stream_version_idx: ["stream_id", "aggregate_version"],
+                    event_order_of_occurrence_idx: ["order_of_occurrence"],
+                    event_recorded_at_idx: ["recorded_at", "order_of_occurrence"],
+                    event_name_recorded_at_idx: ["event_name", "recorded_at", "order_of_occurrence"]
+            ])
+
+        expect: 'No index is missing'
+            EventStoreSchemaValidator.postgres(dataSource, PostgresPartitioning.NONE).findMissingIndexes().isEmpty()
+
+    }
+
+    def "findMissingIndexes should not accept index with required columns in different order"() {
+
+        given: 'Event table indexed by aggregate version first'
+            indexes("aggregate_in_stream", [aggregate_uq: ["aggregate_id", "aggregate_name"], aggregate_in_stream_name_idx: ["aggregate_name"]])
+            indexes("event", [
+                    event_version_stream_idx: ["aggregate_version", "stream_id"],
+                    event_order_of_occurrence_idx: ["order_of_occurrence"],
+                    event_recorded_at_idx: ["recorded_at", "order_of_occurrence"],
+                    event_name_recorded_at_idx: ["event_name", "recorded_at", "order_of_occurrence"]
+            ])
+
+        when: 'Schema is checked'
+            def missingIndexes = EventStoreSchemaValidator.postgres(dataSource, PostgresPartitioning.NONE).findMissingIndexes()
+
+        then: 'Stream index is reported'
+            missingIndexes == ["event(stream_id, aggregate_version) used by reads of aggregate stream"]
+
+    }
+
+    def "validate should fail on missing index only when failing is requested"() {
+
+        given: 'Schema without any index'
+            indexes("aggregate_in_stream", [:])
+            indexes("event", [:])
+            def validator = EventStoreSchemaValidator.postgres(dataSource, PostgresPartitioning.NONE)
+
+        when: 'Schema is validated with warnings'
+            validator.validate(SchemaValidation.WARN)
+
+        then: 'Nothing is thrown'
+            noExceptionThrown()
+
+        when: 'Schema is validated with failure'
+            validator.validate(SchemaValidation.FAIL)
+
+        then: 'Exception is thrown'
+            thrown(EventStoreException)
+
+    }
+
+    private void indexes(String table, Map<String, List<String>> columnsByIndex) {
+        List<List<Object>> rows = columnsByIndex.collectMany { indexName, columns ->
+            columns.withIndex().collect { column, idx -> [indexName, column, (short) (idx + 1)] }
+        }
+        int row = -1
+        ResultSet resultSet = Stub(ResultSet) {
+            next() >> { ++row < rows.size() }
+            getString("INDEX_NAME") >> { rows[row][0] }
+            getString("COLUMN_NAME") >> { rows[row][1] }
+            getShort("ORDINAL_POSITION") >> { rows[row][2] }
+        }
+        metaData.getIndexInfo(null, "public", table, false, true) >> resultSet
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.hltech.store
+
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+
+class GapAwareFeedUT extends Specification {
+
+    List<Long> storedPositions = []
+    long now = 0
+    def eventStore = Stub(EventStore) {
+        findAllAfterPosition(_ as Long, _ as Integer) >> { long position, int limit ->
+            storedPositions.findAll { it > position }.sort().take(limit).collect { new PositionedEvent(it, "event-$it") }
+        }
+        findLastPosition() >> { storedPositions.max() ?: 0L }
+    }
+
+    @Subject
+    def feed = new GapAwareFeed<String>(eventStore, 0, Duration.ofNanos(MAX_GAP_WAIT_NANOS), { now })
+
+    def "poll should return consecutive events and move position to the last of them"() {
+
+        given: 'Consecutive events stored'
+            storedPositions.addAll([1L, 2L, 3L])
+
+        when: 'Feed polled'
+            def events = feed.poll(10)
+
+        then: 'All events returned'
+            events.position == [1L, 2L, 3L]
+
+        and: 'Position moved to the last event'
+            feed.position == 3
+
+    }
+
+    def "poll should not return events after missing position until it appears"() {
+
+        given: 'Event with position 2 not committed yet'
+            storedPositions.addAll([1L, 3L, 4L])
+
+        when: 'Feed polled'
+            def eventsBeforeCommit = feed.poll(10)
+
+        and: 'Missing event committed before gap wait passed'
+            storedPositions.add(2L)
+            now += MAX_GAP_WAIT_NANOS - 1
+            def eventsAfterCommit = feed.poll(10)
+
+        then: 'Only events before the gap returned at first'
+            eventsBeforeCommit.position == [1L]
+
+        and: 'Late event returned in order with the following ones'
+            eventsAfterCommit.position == [2L, 3L, 4L]
+
+    }
+
+    def "poll should skip missing position when it is missing longer than gap wait"() {
+
+        given: 'Event with position 2 never committed'
+            storedPositions.addAll([1L, 3L])
+
+        when: 'Feed polled'
+            def eventsBeforeWait = feed.poll(10)
+
+        and: 'Feed polled again after gap wait passed'
+            now += MAX_GAP_WAIT_NANOS
+            def eventsAfterWait = feed.poll(10)
+
+        then: 'Events after the gap returned only after gap wait'
+            eventsBeforeWait.position == [1L]
+            eventsAfterWait.position == [3L]
+            feed.position == 3
+
+    }
+
+    def "poll should measure wait of all gaps seen in the page from the moment they were seen first"() {
+
+        given: 'Positions 2 and 4 never committed'
+            storedPositions.addAll([1L, 3L, 5L])
+
+        when: 'Feed polled'
+            feed.poll(10)
+
+        and: 'Feed polled again after gap wait passed'
+            now += MAX_GAP_WAIT_NANOS
+            def events = feed.poll(10)
+
+        then: 'Both gaps skipped at once'
+            events.position == [3L, 5L]
+
+    }
+
+    def "poll should wait for gap first seen after earlier gap was skipped"() {
+
+        given: 'Position 2 never committed'
+            storedPositions.addAll([1L, 3L])
+            feed.poll(10)
+            now += MAX_GAP_WAIT_NANOS
+
+        and: 'Position 5 not committed yet when event 6 appears'
+            storedPositions.addAll([4L, 6L])
+
+        when: 'Feed polled'
+            def events = feed.poll(10)
+
+        then: 'Events up to the new gap returned'
+            events.position == [3L, 4L]
+
+    }
+
+    def "poll should wait once for all gaps below last position of the store seen on the first poll"() {
+
+        given: 'History with permanent gaps spread over many pages'
+            storedPositions.addAll((1L..20L) - [3L, 8L, 13L])
+
+        when: 'Feed polled in pages of 5 events'
+            def eventsBeforeWait = feed.poll(5)
+
+        and: 'Feed polled again after gap wait passed, until it reaches the end of history'
+            now += MAX_GAP_WAIT_NANOS
+            def eventsAfterWait = []
+            def page = feed.poll(5)
+            while (!page.isEmpty()) {
+                eventsAfterWait.addAll(page)
+                page = feed.poll(5)
+            }
+
+        then: 'Events after the first gap returned only after gap wait'
+            eventsBeforeWait.position == [1L, 2L]
+
+        and: 'Following gaps skipped without waiting again'
+            eventsAfterWait.position == (4L..20L) - [8L, 13L]
+
+    }
+
+    def "poll should wait for gap above last position of the store seen on the first poll"() {
+
+        given: 'Events polled'
+            storedPositions.addAll([1L, 2L])
+            feed.poll(10)
+
+        and: 'Position 3 not committed yet when event 4 appears long after the first poll'
+            now += MAX_GAP_WAIT_NANOS
+            storedPositions.add(4L)
+
+        when: 'Feed polled'
+            def events = feed.poll(10)
+
+        then: 'Event after the new gap not returned'
+            events.isEmpty()
+
+    }
+
+    def "creating feed should fail when gap wait is negative"() {
+
+        when: 'Feed created with negative gap wait'
+            new GapAwareFeed<String>(eventStore, 0, Duration.ofSeconds(-1))
+
+        then: 'Exception thrown'
+            thrown(IllegalArgumentException)
+
+    }
+
+    static final long MAX_GAP_WAIT_NANOS = 1_000_000_000
+
+}
@@ -0,0 +1,95 @@
+package com.hltech.store
+
+import com.hltech.store.versioning.DummyVersioningStrategy
+import spock.lang.Specification
+
+import java.time.Duration
+
+class InMemoryEventStoreUT extends Specification {
+
+    def "should store events as they are when versioning strategy is not given"() {
+
+        given: 'Event store without versioning strategy'
+            def eventStore = new InMemoryEventStore<DummyBaseEvent>(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR
+            )
+
+        when: 'Event saved'
+            eventStore.save(EVENT, AGGREGATE_NAME)
+
+        then: 'The same instance returned'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)[0].is(EVENT)
+
+    }
+
+    def "should serialize events when versioning strategy is given"() {
+
+        given: 'Event store with versioning strategy'
+            def eventStore = new InMemoryEventStore<DummyBaseEvent>(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR,
+                    new DummyVersioningStrategy()
+            )
+
+        when: 'Event saved'
+            eventStore.save(EVENT, AGGREGATE_NAME)
+
+        then: 'Equal but deserialized event returned'
+            def found = eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME)[0]
+            found == EVENT
+            !found.is(EVENT)
+
+    }
+
+    def "should reject event with id that already exists"() {
+
+        given: 'Event store with event'
+            def eventStore = new InMemoryEventStore<DummyBaseEvent>(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR
+            )
+            eventStore.save(EVENT, AGGREGATE_NAME)
+
+        when: 'Event with the same id saved to another stream'
+            eventStore.save(new DummyEvent(EVENT.id, UUID.randomUUID()), AGGREGATE_NAME)
+
+        then: 'Exception thrown'
+            thrown(EventStoreException)
+
+    }
+
+    def "tail should skip positions of rejected events"() {
+
+        given: 'Event store with rejected event between two saved events'
+            def eventStore = new InMemoryEventStore<DummyBaseEvent>(
+                    DummyBaseEvent.EVENT_ID_EXTRACTOR,
+                    DummyBaseEvent.AGGREGATE_ID_EXTRACTOR
+            )
+            def anotherEvent = new DummyEvent(AGGREGATE_ID)
+            eventStore.save(EVENT, AGGREGATE_NAME)
+            try {
+                eventStore.save(EVENT, AGGREGATE_NAME)
+            } catch (EventStoreException ignored) {
+            }
+            eventStore.save(anotherEvent, AGGREGATE_NAME)
+
+        when: 'Subscribed to tail from the beginning'
+            def subscriber = new TestSubscriber<PositionedEvent<DummyBaseEvent>>()
+            eventStore.tail(0, Duration.ofMillis(10)).subscribe(subscriber)
+            subscriber.request(Long.MAX_VALUE)
+
+        then: 'Both saved events published'
+            subscriber.awaitElements(2).collect { it.position } == [1L, 3L]
+            subscriber.elements.collect { it.event } == [EVENT, anotherEvent]
+
+        cleanup:
+            subscriber.cancel()
+
+    }
+
+    static AGGREGATE_NAME = "DummyStream"
+    static AGGREGATE_ID = UUID.randomUUID()
+    static EVENT = new DummyEvent(AGGREGATE_ID)
+
+}
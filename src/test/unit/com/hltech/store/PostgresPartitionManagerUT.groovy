@@ -0,0 +1,36 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+import javax.sql.DataSource
+
+class PostgresPartitionManagerUT extends Specification {
+
+    def "rangeStart should return first order of occurrence of the range containing given one"() {
+
+        given: 'Partition manager with ranges of 100 events'
+            PostgresPartitionManager partitionManager = new PostgresPartitionManager(Mock(DataSource), 100)
+
+        expect: 'Ranges start at 1, 101, 201 and so on'
+            partitionManager.rangeStart(orderOfOccurrence) == rangeStart
+
+        where:
+            orderOfOccurrence || rangeStart
+            1                 || 1
+            100               || 1
+            101               || 101
+            250               || 201
+
+    }
+
+    def "should not create partition manager for event table not partitioned by range"() {
+
+        when: 'Partition manager is created for hash partitioned table'
+            new PostgresPartitionManager(Mock(DataSource), PostgresPartitioning.AGGREGATE_NAME_HASH, 100, 16)
+
+        then: 'Exception is thrown'
+            thrown(IllegalArgumentException)
+
+    }
+
+}
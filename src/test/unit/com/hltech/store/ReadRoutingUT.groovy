@@ -0,0 +1,85 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.ResultSet
+import java.sql.SQLException
+
+class ReadRoutingUT extends Specification {
+
+    def primaryDataSource = Stub(DataSource)
+
+    def "reads without consistency token should go to read data source"() {
+
+        given: 'Routing with read data source'
+            def readDataSource = Mock(DataSource)
+            def routing = new ReadRouting(primaryDataSource, readDataSource)
+
+        when: 'Data source chosen for read without token'
+            def dataSource = routing.forRead(null)
+
+        then: 'Read data source chosen without checking it'
+            dataSource == readDataSource
+            0 * readDataSource.getConnection()
+
+    }
+
+    def "reads with consistency token should go to read data source only when it contains the event"() {
+
+        given: 'Read data source that contains event or not'
+            def routing = new ReadRouting(primaryDataSource, replicaReturning(count))
+
+        expect: 'Data source chosen accordingly'
+            routing.forRead(ConsistencyToken.of(42)) == (replicated ? routing.forRead() : primaryDataSource)
+
+        where:
+            count || replicated
+            1     || true
+            0     || false
+
+    }
+
+    def "reads with consistency token should go to primary data source when read data source can not be checked"() {
+
+        given: 'Read data source that fails'
+            def readDataSource = Stub(DataSource) {
+                getConnection() >> { throw new SQLException("Replica is down") }
+            }
+            def routing = new ReadRouting(primaryDataSource, readDataSource)
+
+        expect: 'Primary data source chosen'
+            routing.forRead(ConsistencyToken.of(42)) == primaryDataSource
+
+    }
+
+    def "every read should go to primary data source when there is no read data source"() {
+
+        given: 'Routing without read data source'
+            def routing = new ReadRouting(primaryDataSource, null)
+
+        expect: 'Primary data source chosen'
+            routing.forRead() == primaryDataSource
+            routing.forRead(ConsistencyToken.of(42)) == primaryDataSource
+
+    }
+
+    private DataSource replicaReturning(long count) {
+        ResultSet resultSet = Stub(ResultSet) {
+            next() >> true
+            getLong(1) >> count
+        }
+        PreparedStatement statement = Stub(PreparedStatement) {
+            executeQuery() >> resultSet
+        }
+        Connection connection = Stub(Connection) {
+            prepareStatement(_ as String) >> statement
+        }
+        Stub(DataSource) {
+            getConnection() >> connection
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+class ShardRebalancerUT extends Specification {
+
+    Map<String, InMemoryEventStore<DummyBaseEvent>> shards = ["shard-1", "shard-2", "shard-3"].collectEntries {
+        [(it): new InMemoryEventStore<DummyBaseEvent>(DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR)]
+    }
+    def newShard = new InMemoryEventStore<DummyBaseEvent>(DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR)
+    def currentLayout = new ShardedEventStore<DummyBaseEvent>(shards, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR)
+    def newLayout = new ShardedEventStore<DummyBaseEvent>(shards + ["shard-4": newShard], DummyBaseEvent.AGGREGATE_ID_EXTRACTOR)
+    def removedStreams = []
+    ShardRebalancer.StreamRemover streamRemover = { shard, aggregateId, aggregateName -> removedStreams << [shard, aggregateId, aggregateName] }
+
+    def "rebalance should copy streams that change shard to the new shard and remove them from the old one"() {
+
+        given: 'Events of many aggregates saved with current layout'
+            def aggregateIds = (1..40).collect { UUID.randomUUID() }
+            aggregateIds.each { aggregateId ->
+                currentLayout.save(new DummyEvent(aggregateId), AGGREGATE_NAME)
+                currentLayout.save(new DummyEvent(aggregateId), AGGREGATE_NAME)
+            }
+
+        when: 'Streams rebalanced to the new layout'
+            def movedStreams = new ShardRebalancer<>(currentLayout, newLayout, streamRemover).rebalance([AGGREGATE_NAME])
+
+        then: 'Only streams owned by the new shard are moved'
+            !movedStreams.isEmpty()
+            movedStreams.every { it.targetShard == "shard-4" && newLayout.shardFor(it.aggregateId) == "shard-4" }
+            movedStreams.size() == aggregateIds.count { newLayout.shardFor(it) == "shard-4" }
+
+        and: 'Moved streams are readable through the new layout'
+            movedStreams.every { movedStream ->
+                newLayout.findAll(movedStream.aggregateId, AGGREGATE_NAME) == shards[movedStream.sourceShard].findAll(movedStream.aggregateId, AGGREGATE_NAME)
+            }
+
+        and: 'Moved streams are removed from their old shards'
+            removedStreams.toSet() == movedStreams.collect { [it.sourceShard, it.aggregateId, AGGREGATE_NAME] }.toSet()
+
+    }
+
+    def "plan should not move any stream"() {
+
+        given: 'Events of many aggregates saved with current layout'
+            (1..40).each { currentLayout.save(new DummyEvent(UUID.randomUUID()), AGGREGATE_NAME) }
+
+        when: 'Rebalance planned'
+            def movedStreams = new ShardRebalancer<>(currentLayout, newLayout, streamRemover).plan([AGGREGATE_NAME])
+
+        then: 'Streams to move reported'
+            !movedStreams.isEmpty()
+
+        and: 'Nothing moved'
+            newShard.findAll(AGGREGATE_NAME).isEmpty()
+            removedStreams.isEmpty()
+
+    }
+
+    static final String AGGREGATE_NAME = "Dummy"
+
+}
@@ -0,0 +1,246 @@
+package com.hltech.store
+
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.time.Duration
+import java.time.Instant
+
+class ShardedEventStoreUT extends Specification {
+
+    Map<String, InMemoryEventStore<DummyBaseEvent>> shards = ["shard-1", "shard-2", "shard-3"].collectEntries {
+        [(it): new InMemoryEventStore<DummyBaseEvent>(DummyBaseEvent.EVENT_ID_EXTRACTOR, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR)]
+    }
+
+    @Subject
+    ShardedEventStore<DummyBaseEvent> eventStore = new ShardedEventStore<>(shards, DummyBaseEvent.AGGREGATE_ID_EXTRACTOR)
+
+    def "save should store all events of the aggregate in its shard only"() {
+
+        given: 'Aggregate'
+            def aggregateId = UUID.randomUUID()
+            def events = [new DummyEvent(aggregateId), new DummyEvent(aggregateId)]
+
+        when: 'Events saved'
+            events.each { eventStore.save(it, AGGREGATE_NAME) }
+
+        then: 'Events stored in the shard of the aggregate'
+            shards[eventStore.shardFor(aggregateId)].findAll(aggregateId, AGGREGATE_NAME) == events
+
+        and: 'No other shard stores them'
+            shards.findAll { it.key != eventStore.shardFor(aggregateId) }.every { it.value.findAll(aggregateId).isEmpty() }
+
+        and: 'Events found through sharded store'
+            eventStore.findAll(aggregateId, AGGREGATE_NAME) == events
+
+    }
+
+    def "save with optimistic locking should be checked by the shard of the aggregate"() {
+
+        given: 'Event of the aggregate saved'
+            def aggregateId = UUID.randomUUID()
+            eventStore.save(new DummyEvent(aggregateId), AGGREGATE_NAME, 0)
+
+        when: 'Another event saved with outdated expected version'
+            eventStore.save(new DummyEvent(aggregateId), AGGREGATE_NAME, 0)
+
+        then: 'Optimistic locking exception thrown'
+            thrown(OptimisticLockingException)
+
+    }
+
+    def "save with unit of work should be saved by the shard of its aggregates"() {
+
+        given: 'Two aggregates of the same shard'
+            def aggregateId = UUID.randomUUID()
+            def anotherAggregateId = aggregateInShard(eventStore.shardFor(aggregateId))
+            def events = [new DummyEvent(aggregateId), new DummyEvent(anotherAggregateId)]
+
+        when: 'Unit of work with events of both aggregates saved'
+            eventStore.save(new UnitOfWork<DummyBaseEvent>()
+                    .append(events[0], AGGREGATE_NAME, 0)
+                    .append(events[1], AGGREGATE_NAME, 0))
+
+        then: 'Events stored in the shard of the aggregates'
+            shards[eventStore.shardFor(aggregateId)].findAll(AGGREGATE_NAME) == events
+
+    }
+
+    def "save with unit of work should throw exception when aggregates belong to different shards"() {
+
+        given: 'Two aggregates of different shards'
+            def aggregateId = UUID.randomUUID()
+            def anotherAggregateId = aggregateInShard(shards.keySet().find { it != eventStore.shardFor(aggregateId) })
+
+        when: 'Unit of work with events of both aggregates saved'
+            eventStore.save(new UnitOfWork<DummyBaseEvent>()
+                    .append(new DummyEvent(aggregateId), AGGREGATE_NAME)
+                    .append(new DummyEvent(anotherAggregateId), AGGREGATE_NAME))
+
+        then: 'Exception thrown'
+            thrown(EventStoreException)
+
+        and: 'No event saved'
+            shards.values().every { it.findAll(AGGREGATE_NAME).isEmpty() }
+
+    }
+
+    def "findAll by aggregate name should gather events of all shards keeping order of every aggregate"() {
+
+        given: 'Events of many aggregates saved'
+            def events = saveEventsOfAggregates(30)
+
+        when: 'Events found by aggregate name'
+            def foundEvents = eventStore.findAll(AGGREGATE_NAME)
+
+        then: 'All events found'
+            foundEvents.toSet() == events.toSet()
+
+        and: 'Events of every aggregate are in order'
+            foundEvents.groupBy { it.aggregateId } == events.groupBy { it.aggregateId }
+
+        and: 'Events are spread over all shards'
+            shards.values().every { !it.findAll(AGGREGATE_NAME).isEmpty() }
+
+    }
+
+    def "findAllAfterPosition should read global feed in pages with sharded position"() {
+
+        given: 'Events of many aggregates saved'
+            def events = saveEventsOfAggregates(30)
+
+        when: 'Feed read in pages of 7 events'
+            def feed = []
+            def position = ShardedPosition.initial()
+            def page = eventStore.findAllAfterPosition(position, 7)
+            while (!page.isEmpty()) {
+                feed.addAll(page)
+                position = page.last().feedPosition
+                page = eventStore.findAllAfterPosition(position, 7)
+            }
+
+        then: 'Every event read exactly once'
+            feed.event.size() == events.size()
+            feed.event.toSet() == events.toSet()
+
+        and: 'Positions within every shard are increasing'
+            feed.groupBy { it.shard }.values().every { shardEvents ->
+                shardEvents.position == shardEvents.position.sort(false)
+            }
+
+        and: 'Last feed position points at last event of every shard'
+            shards.every { shardName, shard -> position.getPosition(shardName) == shard.findAllAfterPosition(0, 100).last().position }
+
+    }
+
+    def "findAllAfterPosition should take events of all shards in turn regardless of their positions"() {
+
+        given: 'Aggregates in two shards'
+            def aggregateId = aggregateInShard("shard-1")
+            def anotherAggregateId = aggregateInShard("shard-2")
+
+        and: 'Events with low positions saved in one shard and with high positions in the other'
+            (1..10).each { eventStore.save(new DummyEvent(aggregateId), AGGREGATE_NAME) }
+            (1..50).each { eventStore.save(new DummyEvent(anotherAggregateId), AGGREGATE_NAME) }
+
+        when: 'Page read after the 45th event of the other shard'
+            def page = eventStore.findAllAfterPosition(ShardedPosition.of(["shard-2": 45L]), 6)
+
+        then: 'Both shards have the same share of the page'
+            page.shard == ["shard-1", "shard-2", "shard-1", "shard-2", "shard-1", "shard-2"]
+            page.position == [1L, 46L, 2L, 47L, 3L, 48L]
+
+    }
+
+    def "findAllAfterPosition with a single position should throw exception"() {
+
+        when: 'Global feed read after position not bound to any shard'
+            eventStore.findAllAfterPosition(0, 10)
+
+        then: 'Exception thrown'
+            thrown(EventStoreException)
+
+    }
+
+    def "findAllRecordedBetween should read events of all shards in pages ordered by recording time, shard and position"() {
+
+        given: 'Events of many aggregates saved'
+            def events = saveEventsOfAggregates(30)
+
+        when: 'Events read in pages of 7 events, every page after the last returned event'
+            def recorded = []
+            def page = eventStore.findAllRecordedBetween(Instant.EPOCH, FAR_FUTURE, null, 0, 7)
+            while (!page.isEmpty()) {
+                recorded.addAll(page)
+                def last = page.last()
+                page = eventStore.findAllRecordedBetween(last.recordedAt, FAR_FUTURE, last.shard, last.position, 7)
+            }
+
+        then: 'Every event read exactly once'
+            recorded.event.size() == events.size()
+            recorded.event.toSet() == events.toSet()
+
+        and: 'Events ordered by recording time, shard and position'
+            recorded == recorded.toSorted { left, right ->
+                left.recordedAt <=> right.recordedAt ?: left.shard <=> right.shard ?: left.position <=> right.position
+            }
+
+    }
+
+    def "findAllRecordedBetween with a single position should throw exception"() {
+
+        when: 'Events read with position not bound to any shard'
+            eventStore.findAllRecordedBetween(Instant.EPOCH, FAR_FUTURE, 0, 10)
+
+        then: 'Exception thrown'
+            thrown(EventStoreException)
+
+    }
+
+    def "tail should publish stored events and events saved after subscription"() {
+
+        given: 'Events saved'
+            def events = saveEventsOfAggregates(5)
+
+        and: 'Subscriber subscribed to tail from the beginning'
+            def subscriber = new TestSubscriber<ShardedEvent<DummyBaseEvent>>()
+            eventStore.tail(ShardedPosition.initial(), Duration.ofMillis(50)).subscribe(subscriber)
+            subscriber.request(Long.MAX_VALUE)
+
+        when: 'Another event saved after subscription'
+            subscriber.awaitElements(events.size())
+            def newEvent = new DummyEvent(UUID.randomUUID())
+            eventStore.save(newEvent, AGGREGATE_NAME)
+
+        then: 'All events published'
+            subscriber.awaitElements(events.size() + 1).event.toSet() == (events + newEvent).toSet()
+
+        cleanup:
+            subscriber.cancel()
+
+    }
+
+    private UUID aggregateInShard(String shardName) {
+        def aggregateId = UUID.randomUUID()
+        while (eventStore.shardFor(aggregateId) != shardName) {
+            aggregateId = UUID.randomUUID()
+        }
+        aggregateId
+    }
+
+    private List<DummyBaseEvent> saveEventsOfAggregates(int aggregates) {
+        def events = []
+        (1..aggregates).each {
+            def aggregateId = UUID.randomUUID()
+            [new DummyEvent(aggregateId), new DummyEvent(aggregateId)].each {
+                eventStore.save(it, AGGREGATE_NAME)
+                events << it
+            }
+        }
+        events
+    }
+
+    static final String AGGREGATE_NAME = "Dummy"
+    static final Instant FAR_FUTURE = Instant.parse("3000-01-01T00:00:00Z")
+
+}
@@ -0,0 +1,58 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+class StreamGroupingCursorUT extends Specification {
+
+    def decodedEvents = []
+
+    def "next should return events of every stream together and the last stream when rows are exhausted"() {
+
+        given: 'Rows of two streams'
+            def cursor = groupingCursor([row("stream-1", "a"), row("stream-1", "b"), row("stream-2", "c")])
+
+        expect: 'Events grouped by stream'
+            cursor.next().decode() == ["a", "b"]
+            cursor.next().decode() == ["c"]
+
+        and: 'Cursor exhausted'
+            cursor.next() == null
+            cursor.isExhausted()
+
+    }
+
+    def "next should not decode events until group is decoded"() {
+
+        given: 'Rows of two streams'
+            def cursor = groupingCursor([row("stream-1", "a"), row("stream-2", "b")])
+
+        when: 'Both groups read'
+            def groups = [cursor.next(), cursor.next()]
+
+        then: 'No event decoded'
+            decodedEvents.isEmpty()
+
+        when: 'Second group decoded'
+            groups[1].decode()
+
+        then: 'Only its events decoded'
+            decodedEvents == ["b"]
+
+    }
+
+    private StreamGroupingCursor<String> groupingCursor(List<StreamGroupingCursor.Row<String>> rows) {
+        def iterator = rows.iterator()
+        new StreamGroupingCursor<String>(Stub(CursorPublisher.Cursor) {
+            next() >> { iterator.hasNext() ? iterator.next() : null }
+            isExhausted() >> { !iterator.hasNext() }
+        })
+    }
+
+    private StreamGroupingCursor.Row<String> row(String streamId, String event) {
+        new StreamGroupingCursor.Row<String>(streamId, {
+            decodedEvents << event
+            event
+        })
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+class StreamIdCacheUT extends Specification {
+
+    def "put should keep number of cached stream ids within limit"() {
+
+        given: 'Cache for two stream ids'
+            def cache = new StreamIdCache(2)
+
+        when: 'Three stream ids cached'
+            3.times { cache.put(UUID.randomUUID(), "Aggregate", UUID.randomUUID()) }
+
+        then: 'Only two are kept'
+            cache.size() == 2
+
+    }
+
+    def "get should return cached stream id of aggregate"() {
+
+        given: 'Stream id cached'
+            def cache = new StreamIdCache(10)
+            def aggregateId = UUID.randomUUID()
+            def streamId = UUID.randomUUID()
+            cache.put(aggregateId, "Aggregate", streamId)
+
+        expect: 'Stream id returned for the same aggregate id and name only'
+            cache.get(aggregateId, "Aggregate") == streamId
+            cache.get(aggregateId, "AnotherAggregate") == null
+
+    }
+
+    def "disabled cache should never return stream id"() {
+
+        given: 'Disabled cache'
+            def cache = StreamIdCache.of(0)
+            def aggregateId = UUID.randomUUID()
+
+        when: 'Stream id cached'
+            cache.put(aggregateId, "Aggregate", UUID.randomUUID())
+
+        then: 'Nothing is returned'
+            !cache.enabled
+            cache.get(aggregateId, "Aggregate") == null
+
+    }
+
+}
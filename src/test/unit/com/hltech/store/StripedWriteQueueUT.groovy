@@ -0,0 +1,122 @@
+package com.hltech.store
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class StripedWriteQueueUT extends Specification {
+
+    def "write should pass writes of one stream to batch writer one batch at a time"() {
+
+        given: 'Batch writer that is slow and records batches'
+            def batches = Collections.synchronizedList([])
+            def concurrentBatches = new AtomicInteger()
+            def maxConcurrentBatches = new AtomicInteger()
+            def queue = new StripedWriteQueue<TestWrite>(4, 100, { List<TestWrite> batch ->
+                maxConcurrentBatches.accumulateAndGet(concurrentBatches.incrementAndGet(), Math.&max)
+                Thread.sleep(5)
+                batches << batch.size()
+                batch.each { it.complete() }
+                concurrentBatches.decrementAndGet()
+            })
+
+        when: 'Many threads write the same stream'
+            def threadPool = Executors.newFixedThreadPool(10)
+            (1..100).collect {
+                threadPool.submit { queue.write(AGGREGATE_ID, AGGREGATE_NAME, new TestWrite()) }
+            }.each { it.get() }
+
+        then: 'Every write saved'
+            batches.sum() == 100
+
+        and: 'Batches of the stream never written concurrently'
+            maxConcurrentBatches.get() == 1
+
+        and: 'Queued writes merged'
+            batches.size() < 100
+
+        cleanup:
+            threadPool.shutdown()
+
+    }
+
+    def "write should throw exception the write failed with"() {
+
+        given: 'Batch writer failing writes'
+            def queue = new StripedWriteQueue<TestWrite>(4, 100, { List<TestWrite> batch ->
+                batch.each { it.fail(new OptimisticLockingException(AGGREGATE_ID, AGGREGATE_NAME, 0)) }
+            })
+
+        when: 'Write saved'
+            queue.write(AGGREGATE_ID, AGGREGATE_NAME, new TestWrite())
+
+        then: 'Exception thrown'
+            thrown(OptimisticLockingException)
+
+    }
+
+    def "write should fail all writes of the batch when batch writer throws exception"() {
+
+        given: 'Batch writer throwing exception'
+            def queue = new StripedWriteQueue<TestWrite>(4, 100, { List<TestWrite> batch ->
+                throw new EventStoreException("Database is down")
+            })
+
+        when: 'Write saved'
+            queue.write(AGGREGATE_ID, AGGREGATE_NAME, new TestWrite())
+
+        then: 'Exception thrown'
+            def ex = thrown(EventStoreException)
+            ex.message == "Database is down"
+
+    }
+
+    def "writeExclusively should hold stripes of all streams until the write is done"() {
+
+        given: 'Queue with batch writer completing writes'
+            def queue = new StripedWriteQueue<TestWrite>(4, 100, { List<TestWrite> batch -> batch.each { it.complete() } })
+
+        and: 'Exclusive write of two streams in progress'
+            def started = new CountDownLatch(1)
+            def release = new CountDownLatch(1)
+            def streamIds = [new UnitOfWork.StreamId(AGGREGATE_ID, AGGREGATE_NAME), new UnitOfWork.StreamId(UUID.randomUUID(), AGGREGATE_NAME)]
+            def exclusiveWrite = Thread.start { queue.writeExclusively(streamIds, { started.countDown(); release.await() }) }
+            started.await()
+
+        when: 'Stream of the exclusive write written'
+            def write = new TestWrite()
+            def writer = Thread.start { queue.write(AGGREGATE_ID, AGGREGATE_NAME, write) }
+            Thread.sleep(100)
+
+        then: 'Write waits'
+            !write.done
+
+        when: 'Exclusive write done'
+            release.countDown()
+            writer.join(5000)
+            exclusiveWrite.join(5000)
+
+        then: 'Write saved'
+            write.done
+
+    }
+
+    def "constructor should reject non positive number of stripes"() {
+
+        when: 'Queue without stripes created'
+            new StripedWriteQueue<TestWrite>(0, 100, { })
+
+        then: 'Exception thrown'
+            thrown(IllegalArgumentException)
+
+    }
+
+    static class TestWrite extends StripedWriteQueue.Write {
+    }
+
+    static final UUID AGGREGATE_ID = UUID.randomUUID()
+    static final String AGGREGATE_NAME = "Dummy"
+
+}
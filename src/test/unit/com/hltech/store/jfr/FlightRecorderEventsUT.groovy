@@ -0,0 +1,97 @@
+package com.hltech.store.jfr
+
+import com.hltech.store.AggregateRepository
+import com.hltech.store.DummyAggregate
+import com.hltech.store.DummyEvent
+import com.hltech.store.EventStore
+import com.hltech.store.versioning.EventTypeMappingException
+import com.hltech.store.versioning.MappingBasedVersioning
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class FlightRecorderEventsUT extends Specification {
+
+    def eventStore = Mock(EventStore)
+
+    AggregateRepository repository = new AggregateRepository(
+            eventStore,
+            AGGREGATE_NAME,
+            DummyAggregate.INITIAL_STATE_SUPPLIER,
+            DummyAggregate.EVENT_APPLIER,
+            DummyAggregate.VERSION_APPLIER
+    )
+
+    def "replay event should be recorded when aggregate is rebuilt and event is enabled"() {
+
+        given: 'Events for aggregate exists in event store'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) >> [EVENT, EVENT]
+
+        when: 'Search for aggregate while recording'
+            List<RecordedEvent> recorded = record(true) { repository.find(AGGREGATE_ID) }
+
+        then: 'Replay recorded'
+            recorded.size() == 1
+            recorded[0].getString('aggregateName') == AGGREGATE_NAME
+            recorded[0].getInt('eventsApplied') == 2
+
+    }
+
+    def "replay event should not be recorded by default"() {
+
+        given: 'Events for aggregate exists in event store'
+            eventStore.findAll(AGGREGATE_ID, AGGREGATE_NAME) >> [EVENT]
+
+        when: 'Search for aggregate while recording with default settings'
+            List<RecordedEvent> recorded = record(false) { repository.find(AGGREGATE_ID) }
+
+        then: 'Nothing recorded'
+            recorded.empty
+
+    }
+
+    def "decode failure event should describe failure"() {
+
+        given: 'Failure of versioning strategy'
+            def strategy = new MappingBasedVersioning()
+            def failure = new EventTypeMappingException('Mapping to event type not found for event name: Unknown')
+
+        when: 'Failure emitted while recording'
+            List<RecordedEvent> recorded = record(true) { DecodeFailureEvent.emit('Unknown', 3, strategy, failure) }
+
+        then: 'Failure recorded'
+            recorded.size() == 1
+            recorded[0].getString('eventName') == 'Unknown'
+            recorded[0].getInt('eventVersion') == 3
+            recorded[0].getClass('versioningStrategy').name == MappingBasedVersioning.name
+            recorded[0].getClass('exceptionType').name == EventTypeMappingException.name
+            recorded[0].getString('message') == failure.message
+
+    }
+
+    private static List<RecordedEvent> record(boolean enabled, Closure action) {
+        def recording = new Recording()
+        if (enabled) {
+            ['com.hltech.store.Replay', 'com.hltech.store.DecodeFailure'].each { recording.enable(it) }
+        }
+        recording.start()
+        action()
+        recording.stop()
+        def file = Files.createTempFile('event-store', '.jfr')
+        try {
+            recording.dump(file)
+            return RecordingFile.readAllEvents(file).findAll { it.eventType.name.startsWith('com.hltech.store.') }
+        } finally {
+            recording.close()
+            Files.deleteIfExists(file)
+        }
+    }
+
+    static AGGREGATE_NAME = "DummyStream"
+    static AGGREGATE_ID = UUID.randomUUID()
+    static EVENT = new DummyEvent(AGGREGATE_ID)
+
+}
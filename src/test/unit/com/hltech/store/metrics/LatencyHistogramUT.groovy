@@ -0,0 +1,91 @@
+package com.hltech.store.metrics
+
+import spock.lang.Specification
+import spock.lang.Subject
+
+class LatencyHistogramUT extends Specification {
+
+    @Subject
+    LatencyHistogram histogram = new LatencyHistogram()
+
+    def "should return zeros when nothing has been recorded"() {
+
+        expect: 'Empty statistics'
+            histogram.count == 0
+            histogram.max == 0
+            histogram.mean == 0
+            histogram.getValueAtPercentile(99) == 0
+
+    }
+
+    def "should record small values exactly"() {
+
+        given: 'Values from 1 to 100 recorded'
+            (1..100).each { histogram.record(it) }
+
+        expect: 'Exact statistics'
+            histogram.count == 100
+            histogram.max == 100
+            histogram.mean == 50.5
+            histogram.getValueAtPercentile(50) == 50
+            histogram.getValueAtPercentile(99) == 99
+            histogram.getValueAtPercentile(100) == 100
+
+    }
+
+    def "should record big values with bounded relative error"() {
+
+        given: 'Big value recorded'
+            histogram.record(value)
+
+        expect: 'Percentile within histogram precision'
+            def recorded = histogram.getValueAtPercentile(50)
+            recorded <= value
+            (value - recorded) / value < 1 / 64
+
+        where:
+            value << [128L, 1_000L, 123_456L, 987_654_321L, 5_000_000_000L]
+
+    }
+
+    def "should map every value to bucket containing it"() {
+
+        expect: 'Value not greater than highest equivalent value of its bucket'
+            value <= LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value))
+
+        and: 'Value greater than highest equivalent value of previous bucket'
+            LatencyHistogram.indexOf(value) == 0 || value > LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value) - 1)
+
+        where:
+            value << [0L, 1L, 127L, 128L, 129L, 255L, 256L, 1_000_000L, Long.MAX_VALUE]
+
+    }
+
+    def "should record negative values as zero"() {
+
+        when: 'Negative value recorded'
+            histogram.record(-5)
+
+        then: 'Zero recorded'
+            histogram.count == 1
+            histogram.max == 0
+
+    }
+
+    def "reset should clear all recorded values"() {
+
+        given: 'Values recorded'
+            histogram.record(10)
+            histogram.record(1_000)
+
+        when: 'Reset'
+            histogram.reset()
+
+        then: 'Nothing recorded'
+            histogram.count == 0
+            histogram.max == 0
+            histogram.getValueAtPercentile(100) == 0
+
+    }
+
+}
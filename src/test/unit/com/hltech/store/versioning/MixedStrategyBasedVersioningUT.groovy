@@ -0,0 +1,124 @@
+package com.hltech.store.versioning
+
+import com.hltech.store.AnotherDummyEvent
+import com.hltech.store.DummyBaseEvent
+import com.hltech.store.DummyEvent
+import spock.lang.Specification
+
+class MixedStrategyBasedVersioningUT extends Specification {
+
+    def mappingBasedVersioning = new MappingBasedVersioning<DummyBaseEvent>()
+    def multipleVersionsBasedVersioning = new MultipleVersionsBasedVersioning<DummyBaseEvent>()
+
+    def setup() {
+        mappingBasedVersioning.registerEvent(DummyEvent, EVENT_NAME)
+        multipleVersionsBasedVersioning.registerEvent(AnotherDummyEvent, ANOTHER_EVENT_NAME, 2)
+    }
+
+    def "toEvent should pass event to the strategy registered for its name"() {
+
+        given: 'Events registered with different strategies'
+            def eventVersioningStrategy = MixedStrategyBasedVersioning.<DummyBaseEvent> builder()
+                    .registerEvent(DummyEvent, EVENT_NAME, mappingBasedVersioning)
+                    .registerEvent(AnotherDummyEvent, ANOTHER_EVENT_NAME, multipleVersionsBasedVersioning)
+                    .build()
+
+        expect: 'Every event decoded by its strategy'
+            EVENT == eventVersioningStrategy.toEvent(EVENT_JSON_WITH_ADDITIONAL_ATTRIBUTE, EVENT_NAME, 7)
+            ANOTHER_EVENT == eventVersioningStrategy.toEvent(ANOTHER_EVENT_JSON, ANOTHER_EVENT_NAME, 2)
+
+    }
+
+    def "toName, toVersion and toJson should be passed to the strategy registered for event type"() {
+
+        given: 'Events registered with different strategies'
+            def eventVersioningStrategy = MixedStrategyBasedVersioning.<DummyBaseEvent> builder()
+                    .registerEvent(DummyEvent, EVENT_NAME, mappingBasedVersioning)
+                    .registerEvent(AnotherDummyEvent, ANOTHER_EVENT_NAME, multipleVersionsBasedVersioning)
+                    .build()
+
+        expect: 'Names and versions of strategies returned'
+            eventVersioningStrategy.toName(DummyEvent) == EVENT_NAME
+            eventVersioningStrategy.toVersion(DummyEvent) == 1
+            eventVersioningStrategy.toName(AnotherDummyEvent) == ANOTHER_EVENT_NAME
+            eventVersioningStrategy.toVersion(AnotherDummyEvent) == 2
+
+        and: 'Events serialized by their strategies'
+            eventVersioningStrategy.toJson(EVENT) == mappingBasedVersioning.toJson(EVENT)
+            eventVersioningStrategy.toJson(ANOTHER_EVENT) == multipleVersionsBasedVersioning.toJson(ANOTHER_EVENT)
+
+    }
+
+    def "toEvent should throw exception when event name is not registered"() {
+
+        given: 'Strategy without any event'
+            def eventVersioningStrategy = MixedStrategyBasedVersioning.<DummyBaseEvent> builder().build()
+
+        when: 'Event decoded'
+            eventVersioningStrategy.toEvent(EVENT_JSON_WITH_ADDITIONAL_ATTRIBUTE, EVENT_NAME, 1)
+
+        then: 'Exception thrown'
+            def ex = thrown(EventTypeMappingException)
+            ex.message == "Versioning strategy not found for event name: $EVENT_NAME"
+
+    }
+
+    def "toJson should throw exception when event type is not registered"() {
+
+        given: 'Strategy without any event'
+            def eventVersioningStrategy = MixedStrategyBasedVersioning.<DummyBaseEvent> builder().build()
+
+        when: 'Event serialized'
+            eventVersioningStrategy.toJson(EVENT)
+
+        then: 'Exception thrown'
+            def ex = thrown(EventTypeMappingException)
+            ex.message == "Versioning strategy not found for event type: $DummyEvent"
+
+    }
+
+    def "registerEvent should allow many types with the same event name and strategy"() {
+
+        when: 'Two types registered for the same event name and strategy'
+            MixedStrategyBasedVersioning.<DummyBaseEvent> builder()
+                    .registerEvent(DummyEvent, EVENT_NAME, multipleVersionsBasedVersioning)
+                    .registerEvent(AnotherDummyEvent, EVENT_NAME, multipleVersionsBasedVersioning)
+                    .build()
+
+        then: 'No exception thrown'
+            noExceptionThrown()
+
+    }
+
+    def "registerEvent should throw exception when event name already registered with another strategy"() {
+
+        when: 'Same event name registered with two strategies'
+            MixedStrategyBasedVersioning.<DummyBaseEvent> builder()
+                    .registerEvent(DummyEvent, EVENT_NAME, mappingBasedVersioning)
+                    .registerEvent(AnotherDummyEvent, EVENT_NAME, multipleVersionsBasedVersioning)
+
+        then: 'Exception thrown'
+            thrown(NonUniqueMappingException)
+
+    }
+
+    def "registerEvent should throw exception when event type already registered"() {
+
+        when: 'Same event type registered twice'
+            MixedStrategyBasedVersioning.<DummyBaseEvent> builder()
+                    .registerEvent(DummyEvent, EVENT_NAME, mappingBasedVersioning)
+                    .registerEvent(DummyEvent, ANOTHER_EVENT_NAME, mappingBasedVersioning)
+
+        then: 'Exception thrown'
+            thrown(NonUniqueMappingException)
+
+    }
+
+    static final String EVENT_NAME = "DummyEvent"
+    static final String ANOTHER_EVENT_NAME = "AnotherDummyEvent"
+    static final DummyEvent EVENT = new DummyEvent(UUID.randomUUID(), UUID.randomUUID())
+    static final AnotherDummyEvent ANOTHER_EVENT = new AnotherDummyEvent(UUID.randomUUID(), UUID.randomUUID())
+    static final String EVENT_JSON_WITH_ADDITIONAL_ATTRIBUTE = """{"id":"$EVENT.id","aggregateId":"$EVENT.aggregateId","unknown":1}"""
+    static final String ANOTHER_EVENT_JSON = """{"id":"$ANOTHER_EVENT.id","aggregateId":"$ANOTHER_EVENT.aggregateId"}"""
+
+}
@@ -0,0 +1,155 @@
+package com.hltech.store.versioning
+
+import com.hltech.store.AnotherDummyEvent
+import com.hltech.store.DummyBaseEvent
+import com.hltech.store.DummyEvent
+import spock.lang.Specification
+import spock.lang.Subject
+
+class UpcastingBasedVersioningUT extends Specification {
+
+    @Subject
+    def eventVersioningStrategy = new UpcastingBasedVersioning<DummyBaseEvent>()
+
+    def "toEvent should bind event in the latest version without upcasting"() {
+
+        given: 'Latest version of the event registered'
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 3)
+
+        expect: 'toEvent return expected event'
+            EVENT == eventVersioningStrategy.toEvent(LATEST_JSON, EVENT_NAME, 3)
+
+    }
+
+    def "toEvent should upcast event from every older version to the latest one"() {
+
+        given: 'Latest version of the event and upcasters from older versions registered'
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 3)
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 1, { it.set("attribute", it.remove("attr")) })
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 2, { it.set("optionalAttribute", it.remove("attribute")) })
+
+        expect: 'toEvent return event in the latest version'
+            EVENT == eventVersioningStrategy.toEvent(V1_JSON, EVENT_NAME, 1)
+            EVENT == eventVersioningStrategy.toEvent(V2_JSON, EVENT_NAME, 2)
+
+    }
+
+    def "toEvent should apply upcasters in order of versions once per event"() {
+
+        given: 'Upcasters recording their calls'
+            def calls = []
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 3)
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 2, { calls << 2; it.set("optionalAttribute", it.remove("attribute")) })
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 1, { calls << 1; it.set("attribute", it.remove("attr")) })
+
+        when: 'Two events in the first version decoded'
+            2.times { eventVersioningStrategy.toEvent(V1_JSON, EVENT_NAME, 1) }
+
+        then: 'Every upcaster applied once per event, in order of versions'
+            calls == [1, 2, 1, 2]
+
+    }
+
+    def "toEvent should use upcaster registered after the chain was used"() {
+
+        given: 'Event decoded with chain of one upcaster'
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 3)
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 2, { it.set("optionalAttribute", it.remove("attribute")) })
+            eventVersioningStrategy.toEvent(V2_JSON, EVENT_NAME, 2)
+
+        when: 'Upcaster from older version registered'
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 1, { it.set("attribute", it.remove("attr")) })
+
+        then: 'Event in the oldest version can be decoded'
+            EVENT == eventVersioningStrategy.toEvent(V1_JSON, EVENT_NAME, 1)
+
+    }
+
+    def "toEvent should throw exception when upcaster from one of versions is missing"() {
+
+        given: 'Upcaster from the second version only'
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 3)
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 2, { it.set("optionalAttribute", it.remove("attribute")) })
+
+        when: 'Event in the first version decoded'
+            eventVersioningStrategy.toEvent(V1_JSON, EVENT_NAME, 1)
+
+        then: 'Missing upcaster reported'
+            def ex = thrown(EventTypeMappingException)
+            ex.message == "Upcaster not found for event name: $EVENT_NAME and version: 1"
+
+    }
+
+    def "toEvent should throw exception when event version is newer than the latest registered"() {
+
+        given: 'Latest version of the event registered'
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 3)
+
+        when: 'Event in newer version decoded'
+            eventVersioningStrategy.toEvent(LATEST_JSON, EVENT_NAME, 4)
+
+        then: 'Exception thrown'
+            thrown(EventTypeMappingException)
+
+    }
+
+    def "toEvent should throw exception when upcasted json does not match the latest version"() {
+
+        given: 'Upcaster that leaves unknown attribute'
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 2)
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 1, { it })
+
+        when: 'Event in the first version decoded'
+            eventVersioningStrategy.toEvent(V1_JSON, EVENT_NAME, 1)
+
+        then: 'Exception thrown'
+            thrown(EventBodyMappingException)
+
+    }
+
+    def "toName and toVersion should return the latest version of the event"() {
+
+        given: 'Latest version of the event registered'
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 3)
+
+        expect: 'Name and latest version returned'
+            eventVersioningStrategy.toName(DummyEvent) == EVENT_NAME
+            eventVersioningStrategy.toVersion(DummyEvent) == 3
+
+    }
+
+    def "registerUpcaster should throw exception when upcaster from the same version already registered"() {
+
+        given: 'Upcaster from the first version registered'
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 1, { it })
+
+        when: 'Another upcaster from the first version registered'
+            eventVersioningStrategy.registerUpcaster(EVENT_NAME, 1, { it })
+
+        then: 'Exception thrown'
+            thrown(NonUniqueMappingException)
+
+    }
+
+    def "registerEvent should throw exception when event name already registered for another type"() {
+
+        given: 'Event registered'
+            eventVersioningStrategy.registerEvent(DummyEvent, EVENT_NAME, 2)
+
+        when: 'Another type registered for the same event name'
+            eventVersioningStrategy.registerEvent(AnotherDummyEvent, EVENT_NAME, 1)
+
+        then: 'Exception thrown'
+            thrown(NonUniqueMappingException)
+
+    }
+
+    static final String EVENT_NAME = "DummyEvent"
+    static final UUID EVENT_ID = UUID.randomUUID()
+    static final UUID AGGREGATE_ID = UUID.randomUUID()
+    static final DummyEvent EVENT = new DummyEvent(EVENT_ID, AGGREGATE_ID, "value")
+    static final String V1_JSON = """{"id":"$EVENT_ID","aggregateId":"$AGGREGATE_ID","attr":"value"}"""
+    static final String V2_JSON = """{"id":"$EVENT_ID","aggregateId":"$AGGREGATE_ID","attribute":"value"}"""
+    static final String LATEST_JSON = """{"id":"$EVENT_ID","aggregateId":"$AGGREGATE_ID","optionalAttribute":"value"}"""
+
+}